@@ -34,3 +34,7 @@ java {
     sourceCompatibility = JavaVersion.VERSION_17
     targetCompatibility = JavaVersion.VERSION_17
 }
+
+tasks.test {
+    useJUnitPlatform()
+}
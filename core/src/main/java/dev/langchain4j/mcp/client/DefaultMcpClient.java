@@ -54,6 +54,7 @@ public class DefaultMcpClient implements McpClient {
     private final AtomicBoolean toolListOutOfDate = new AtomicBoolean(true);
     private final AtomicReference<CompletableFuture<Void>> toolListUpdateInProgress = new AtomicReference<>(null);
     private final Duration reconnectInterval;
+    private final Runnable toolListChangedHandler;
 
     public DefaultMcpClient(Builder builder) {
         transport = ensureNotNull(builder.transport, "transport");
@@ -68,10 +69,14 @@ public class DefaultMcpClient implements McpClient {
         McpLogMessageHandler logHandler = getOrDefault(builder.logHandler, new DefaultMcpLogMessageHandler());
         pingTimeout = getOrDefault(builder.pingTimeout, Duration.ofSeconds(10));
         reconnectInterval = getOrDefault(builder.reconnectInterval, Duration.ofSeconds(5));
+        toolListChangedHandler = getOrDefault(builder.toolListChangedHandler, () -> {});
         String toolExecutionTimeoutErrorMessage = getOrDefault(builder.toolExecutionTimeoutErrorMessage, "There was a timeout executing the tool");
         RESULT_TIMEOUT = JsonNodeFactory.instance.objectNode();
         messageHandler = new McpOperationHandler(
-                pendingOperations, transport, logHandler::handleLogMessage, () -> toolListOutOfDate.set(true));
+                pendingOperations, transport, logHandler::handleLogMessage, () -> {
+                    toolListOutOfDate.set(true);
+                    toolListChangedHandler.run();
+                });
         ((ObjectNode) RESULT_TIMEOUT)
                 .putObject("result")
                 .putArray("content")
@@ -103,7 +108,7 @@ public class DefaultMcpClient implements McpClient {
         } catch (Exception e) {
             throw new RuntimeException(e);
         } finally {
-            pendingOperations.remove(operationId);
+            removePendingOperation(operationId);
         }
     }
 
@@ -136,7 +141,7 @@ public class DefaultMcpClient implements McpClient {
             CompletableFuture<Void> updateInProgress = this.toolListUpdateInProgress.get();
             if (updateInProgress != null) {
                 // if an update is already in progress, wait for it to finish
-                toolListUpdateInProgress.get();
+                updateInProgress.join();
                 return toolListRefs.get();
             } else {
                 // if no update is in progress, start one
@@ -144,9 +149,10 @@ public class DefaultMcpClient implements McpClient {
                 this.toolListUpdateInProgress.set(update);
                 try {
                     obtainToolList();
+                    // only a successful update makes the list current, a failed one is retried on the next call
+                    toolListOutOfDate.set(false);
                 } finally {
                     update.complete(null);
-                    toolListOutOfDate.set(false);
                     toolListUpdateInProgress.set(null);
                 }
                 return toolListRefs.get();
@@ -182,7 +188,7 @@ public class DefaultMcpClient implements McpClient {
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException(e);
         } finally {
-            pendingOperations.remove(operationId);
+            removePendingOperation(operationId);
         }
         return ToolExecutionHelper.extractResult(result);
     }
@@ -209,7 +215,7 @@ public class DefaultMcpClient implements McpClient {
         } catch (ExecutionException | InterruptedException | TimeoutException e) {
             throw new RuntimeException(e);
         } finally {
-            pendingOperations.remove(operationId);
+            removePendingOperation(operationId);
         }
     }
 
@@ -235,7 +241,7 @@ public class DefaultMcpClient implements McpClient {
         } catch (ExecutionException | InterruptedException | TimeoutException e) {
             throw new RuntimeException(e);
         } finally {
-            pendingOperations.remove(operationId);
+            removePendingOperation(operationId);
         }
     }
 
@@ -250,7 +256,7 @@ public class DefaultMcpClient implements McpClient {
         } catch (ExecutionException | InterruptedException | TimeoutException e) {
             throw new RuntimeException(e);
         } finally {
-            pendingOperations.remove(operationId);
+            removePendingOperation(operationId);
         }
     }
 
@@ -271,7 +277,7 @@ public class DefaultMcpClient implements McpClient {
         } catch (InterruptedException | ExecutionException e) {
             throw new RuntimeException(e);
         } finally {
-            pendingOperations.remove(operation.getId());
+            removePendingOperation(operation.getId());
         }
 
         final List<ToolSpecification> toolList = ToolSpecificationHelper.toolSpecificationListFromMcpResponse(
@@ -294,7 +300,7 @@ public class DefaultMcpClient implements McpClient {
         } catch (ExecutionException | InterruptedException | TimeoutException e) {
             throw new RuntimeException(e);
         } finally {
-            pendingOperations.remove(operation.getId());
+            removePendingOperation(operation.getId());
         }
     }
 
@@ -313,7 +319,7 @@ public class DefaultMcpClient implements McpClient {
         } catch (ExecutionException | InterruptedException | TimeoutException e) {
             throw new RuntimeException(e);
         } finally {
-            pendingOperations.remove(operation.getId());
+            removePendingOperation(operation.getId());
         }
     }
 
@@ -332,7 +338,18 @@ public class DefaultMcpClient implements McpClient {
         } catch (ExecutionException | InterruptedException | TimeoutException e) {
             throw new RuntimeException(e);
         } finally {
-            pendingOperations.remove(operation.getId());
+            removePendingOperation(operation.getId());
+        }
+    }
+
+    /**
+     * Forget an operation the client no longer waits for. Its future is cancelled, so a
+     * transport can release what it holds for the operation.
+     */
+    private void removePendingOperation(long operationId) {
+        CompletableFuture<JsonNode> operation = pendingOperations.remove(operationId);
+        if (operation != null) {
+            operation.cancel(false);
         }
     }
 
@@ -360,6 +377,7 @@ public class DefaultMcpClient implements McpClient {
         private Duration promptsTimeout;
         private McpLogMessageHandler logHandler;
         private Duration reconnectInterval;
+        private Runnable toolListChangedHandler;
 
         public Builder transport(McpTransport transport) {
             this.transport = transport;
@@ -483,6 +501,16 @@ public class DefaultMcpClient implements McpClient {
             return this;
         }
 
+        /**
+         * Sets a handler that is called when the server notifies that its
+         * list of tools changed. The client refreshes its own list on the
+         * next call to {@link #listTools()}.
+         */
+        public Builder toolListChangedHandler(Runnable toolListChangedHandler) {
+            this.toolListChangedHandler = toolListChangedHandler;
+            return this;
+        }
+
         public DefaultMcpClient build() {
             return new DefaultMcpClient(this);
         }
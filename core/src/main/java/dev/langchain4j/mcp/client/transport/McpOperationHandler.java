@@ -6,6 +6,7 @@ import dev.langchain4j.mcp.client.protocol.McpPingResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
@@ -73,4 +74,16 @@ public class McpOperationHandler {
     public void startOperation(Long id, CompletableFuture<JsonNode> future) {
         pendingOperations.put(id, future);
     }
+
+    /**
+     * Fails all operations waiting for a response, for example when the connection to the server is lost.
+     */
+    public void failPendingOperations(Throwable cause) {
+        for (Long id : List.copyOf(pendingOperations.keySet())) {
+            CompletableFuture<JsonNode> op = pendingOperations.remove(id);
+            if (op != null) {
+                op.completeExceptionally(cause);
+            }
+        }
+    }
 }
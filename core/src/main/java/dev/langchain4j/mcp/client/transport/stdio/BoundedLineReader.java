@@ -0,0 +1,88 @@
+package dev.langchain4j.mcp.client.transport.stdio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads UTF-8 lines from a stream without holding more than {@code maxLineBytes} of a line in
+ * memory. Longer lines are skipped and counted, so a misbehaving process cannot make the reader
+ * buffer an unbounded amount of output.
+ */
+class BoundedLineReader {
+
+    private final InputStream in;
+    private final int maxLineBytes;
+    private final byte[] buffer = new byte[8192];
+    private int position = 0;
+    private int limit = 0;
+    private long bytesRead = 0;
+    private long skippedLines = 0;
+
+    BoundedLineReader(InputStream in, int maxLineBytes) {
+        this.in = in;
+        this.maxLineBytes = maxLineBytes;
+    }
+
+    /**
+     * Reads the next line that fits within the limit.
+     *
+     * @return the line without its terminator, or null at the end of the stream
+     */
+    String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        boolean oversized = false;
+        while (true) {
+            if (position == limit) {
+                int read = in.read(buffer);
+                if (read <= 0) {
+                    // End of stream, return a last line without terminator
+                    position = limit = 0;
+                    return oversized || line.size() == 0 ? null : decode(line);
+                }
+                position = 0;
+                limit = read;
+                bytesRead += read;
+            }
+
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            int length = position - start;
+            if (!oversized) {
+                if (line.size() + length > maxLineBytes) {
+                    oversized = true;
+                    line = new ByteArrayOutputStream();
+                } else {
+                    line.write(buffer, start, length);
+                }
+            }
+
+            if (position < limit) {
+                // Skip the newline
+                position++;
+                if (oversized) {
+                    skippedLines++;
+                    oversized = false;
+                    continue;
+                }
+                return decode(line);
+            }
+        }
+    }
+
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    long getSkippedLines() {
+        return skippedLines;
+    }
+
+    private static String decode(ByteArrayOutputStream line) {
+        String decoded = line.toString(StandardCharsets.UTF_8);
+        return decoded.endsWith("\r") ? decoded.substring(0, decoded.length() - 1) : decoded;
+    }
+}
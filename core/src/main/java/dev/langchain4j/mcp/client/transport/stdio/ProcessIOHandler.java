@@ -5,12 +5,30 @@ import dev.langchain4j.mcp.client.transport.McpOperationHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-class ProcessIOHandler implements Runnable {
+/**
+ * Exchanges messages with the process over its standard input and output.
+ * <p>
+ * Three threads are used: the writer sends queued messages in batches with one flush per batch,
+ * the reader only splits the output into lines, and the parser turns lines into JSON and hands
+ * them to the message handler. Both queues are bounded. When the parser falls behind, log
+ * notifications are dropped and other messages make the reader wait, which stops reading from
+ * the process instead of buffering its output.
+ */
+class ProcessIOHandler {
+
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final String LOG_NOTIFICATION = "\"notifications/message\"";
 
     private final Process process;
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
@@ -18,35 +36,180 @@ class ProcessIOHandler implements Runnable {
     private static final Logger trafficLog = LoggerFactory.getLogger("MCP");
     private final boolean logEvents;
     private final McpOperationHandler messageHandler;
-    private final PrintStream out;
+    private final int maxMessageBytes;
+    private final long writeTimeoutMillis;
+
+    private final BlockingQueue<byte[]> outbound;
+    private final BlockingQueue<String> inbound;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean closed = false;
+    private volatile IOException writeFailure;
 
-    public ProcessIOHandler(Process process, McpOperationHandler messageHandler, boolean logEvents) {
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong messagesReceived = new AtomicLong();
+    private final AtomicLong messagesDropped = new AtomicLong();
+    private volatile BoundedLineReader reader;
+
+    ProcessIOHandler(Process process,
+                     McpOperationHandler messageHandler,
+                     boolean logEvents,
+                     int maxQueuedMessages,
+                     int maxMessageBytes,
+                     long writeTimeoutMillis) {
         this.process = process;
         this.logEvents = logEvents;
         this.messageHandler = messageHandler;
-        this.out = new PrintStream(process.getOutputStream(), true);
+        this.maxMessageBytes = maxMessageBytes;
+        this.writeTimeoutMillis = writeTimeoutMillis;
+        this.outbound = new ArrayBlockingQueue<>(maxQueuedMessages);
+        this.inbound = new ArrayBlockingQueue<>(maxQueuedMessages);
+    }
+
+    void start() {
+        long pid = process.pid();
+        startThread("mcp-stdio-writer-" + pid, this::writeLoop);
+        startThread("mcp-stdio-reader-" + pid, this::readLoop);
+        startThread("mcp-stdio-parser-" + pid, this::parseLoop);
+    }
+
+    /**
+     * Queue a message for the process, waiting for room when the writer is behind.
+     */
+    void submit(String message) throws IOException {
+        if (writeFailure != null) {
+            throw writeFailure;
+        }
+        if (closed) {
+            throw new IOException("MCP transport is closed");
+        }
+        if (logEvents) {
+            trafficLog.debug("> {}", message);
+        }
+        try {
+            if (!outbound.offer(message.getBytes(StandardCharsets.UTF_8), writeTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out queueing a message for the MCP server, " + outbound.size() + " messages waiting");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queueing a message for the MCP server", e);
+        }
+    }
+
+    void close() {
+        closed = true;
+        threads.forEach(Thread::interrupt);
+    }
+
+    long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    long getBytesReceived() {
+        BoundedLineReader current = reader;
+        return current == null ? 0 : current.getBytesRead();
+    }
+
+    long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    long getMessagesReceived() {
+        return messagesReceived.get();
+    }
+
+    long getMessagesDropped() {
+        BoundedLineReader current = reader;
+        return messagesDropped.get() + (current == null ? 0 : current.getSkippedLines());
+    }
+
+    int getOutboundQueueDepth() {
+        return outbound.size();
+    }
+
+    int getInboundQueueDepth() {
+        return inbound.size();
+    }
+
+    private void startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
     }
 
-    @Override
-    public void run() {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        try (OutputStream out = new BufferedOutputStream(process.getOutputStream())) {
+            while (!closed) {
+                batch.add(outbound.take());
+                outbound.drainTo(batch, MAX_BATCH_SIZE - 1);
+                for (byte[] message : batch) {
+                    out.write(message);
+                    out.write('\n');
+                    bytesSent.addAndGet(message.length + 1L);
+                }
+                out.flush();
+                messagesSent.addAndGet(batch.size());
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Set first, so requests submitted from now on fail instead of waiting for a response
+            writeFailure = e;
+            if (!closed) {
+                log.warn("Failed to write to MCP server with PID = {}: {}", process.pid(), e.getMessage());
+            }
+            // The requests already queued or sent will not be answered either
+            messageHandler.failPendingOperations(e);
+        }
+    }
+
+    private void readLoop() {
+        try {
+            reader = new BoundedLineReader(process.getInputStream(), maxMessageBytes);
             String line;
-            while ((line = reader.readLine()) != null) {
-                if (logEvents) {
-                    trafficLog.debug("< {}", line);
+            while (!closed && (line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (line.contains(LOG_NOTIFICATION)) {
+                    // Logs are not worth stalling the server for
+                    if (!inbound.offer(line)) {
+                        messagesDropped.incrementAndGet();
+                    }
+                } else {
+                    inbound.put(line);
                 }
-                messageHandler.handle(OBJECT_MAPPER.readTree(line));
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            if (!closed) {
+                log.warn("Failed to read from MCP server with PID = {}: {}", process.pid(), e.getMessage());
+            }
         }
         log.debug("ProcessIOHandler has finished reading output from process with PID = {}", process.pid());
     }
 
-    public void submit(String message) throws IOException {
-        if (logEvents) {
-            trafficLog.debug("> {}", message);
+    private void parseLoop() {
+        try {
+            while (!closed) {
+                String line = inbound.take();
+                if (logEvents) {
+                    trafficLog.debug("< {}", line);
+                }
+                try {
+                    messageHandler.handle(OBJECT_MAPPER.readTree(line));
+                    messagesReceived.incrementAndGet();
+                } catch (Exception e) {
+                    // One malformed message must not stop the handling of the next ones
+                    log.warn("Failed to handle message from MCP server: {}", e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        out.println(message);
     }
 }
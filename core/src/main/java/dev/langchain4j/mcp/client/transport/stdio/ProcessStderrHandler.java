@@ -3,28 +3,30 @@ package dev.langchain4j.mcp.client.transport.stdio;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 
 class ProcessStderrHandler implements Runnable {
 
     private final Process process;
+    private final int maxLineBytes;
     private static final Logger log = LoggerFactory.getLogger(ProcessStderrHandler.class);
 
-    public ProcessStderrHandler(final Process process) {
+    public ProcessStderrHandler(final Process process, int maxLineBytes) {
         this.process = process;
+        this.maxLineBytes = maxLineBytes;
     }
 
     @Override
     public void run() {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+        // The error output is always drained, otherwise a chatty process blocks once the pipe is full
+        BoundedLineReader reader = new BoundedLineReader(process.getErrorStream(), maxLineBytes);
+        try {
             String line;
             while ((line = reader.readLine()) != null) {
                 log.debug("[ERROR] {}", line);
             }
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            log.debug("Stopped reading error output of process with PID = {}: {}", process.pid(), e.getMessage());
         }
         log.debug("ProcessErrorPrinter has finished reading error output from process with PID = " + process.pid());
     }
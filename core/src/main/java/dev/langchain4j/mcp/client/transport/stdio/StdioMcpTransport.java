@@ -12,10 +12,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Talks to an MCP server running as a subprocess over its standard input and output.
+ * <p>
+ * At most {@code maxPendingRequests} requests wait for a response at any time; further requests
+ * wait for a free slot up to {@code requestWindowTimeout}. Messages are queued in bounded queues
+ * and written in batches, see {@link ProcessIOHandler}.
+ */
 public class StdioMcpTransport implements McpTransport {
 
     private final List<String> command;
@@ -23,6 +34,13 @@ public class StdioMcpTransport implements McpTransport {
     private Process process;
     private ProcessIOHandler processIOHandler;
     private final boolean logEvents;
+    private final int maxPendingRequests;
+    private final Duration requestWindowTimeout;
+    private final int maxQueuedMessages;
+    private final int maxMessageBytes;
+    private final Semaphore requestWindow;
+    private final AtomicLong completedRequests = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private static final Logger log = LoggerFactory.getLogger(StdioMcpTransport.class);
     private volatile McpOperationHandler messageHandler;
@@ -31,27 +49,43 @@ public class StdioMcpTransport implements McpTransport {
         this.command = builder.command;
         this.environment = builder.environment;
         this.logEvents = builder.logEvents;
+        this.maxPendingRequests = builder.maxPendingRequests;
+        this.requestWindowTimeout = builder.requestWindowTimeout;
+        this.maxQueuedMessages = builder.maxQueuedMessages;
+        this.maxMessageBytes = builder.maxMessageBytes;
+        this.requestWindow = new Semaphore(maxPendingRequests);
     }
 
     @Override
     public void start(McpOperationHandler messageHandler) {
-        this.messageHandler = messageHandler;
         log.debug("Starting process: {}", command);
         ProcessBuilder processBuilder = new ProcessBuilder(command);
         processBuilder.environment().putAll(environment);
+        Process started;
         try {
-            process = processBuilder.start();
-            log.debug("PID of the started process: {}", process.pid());
-            process.onExit().thenRun(() -> {
-                log.debug("Subprocess has exited with code: {}", process.exitValue());
+            started = processBuilder.start();
+            log.debug("PID of the started process: {}", started.pid());
+            started.onExit().thenRun(() -> {
+                log.debug("Subprocess has exited with code: {}", started.exitValue());
             });
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        processIOHandler = new ProcessIOHandler(process, messageHandler, logEvents);
-        // FIXME: where should we obtain the thread?
-        new Thread(processIOHandler).start();
-        new Thread(new ProcessStderrHandler(process)).start();
+        start(messageHandler, started);
+    }
+
+    /**
+     * Exchange messages with an already started process.
+     */
+    void start(McpOperationHandler messageHandler, Process process) {
+        this.messageHandler = messageHandler;
+        this.process = process;
+        processIOHandler = new ProcessIOHandler(process, messageHandler, logEvents,
+                maxQueuedMessages, maxMessageBytes, requestWindowTimeout.toMillis());
+        processIOHandler.start();
+        Thread stderrThread = new Thread(new ProcessStderrHandler(process, maxMessageBytes), "mcp-stdio-stderr-" + process.pid());
+        stderrThread.setDaemon(true);
+        stderrThread.start();
     }
 
     @Override
@@ -101,12 +135,50 @@ public class StdioMcpTransport implements McpTransport {
 
     @Override
     public void close() throws IOException {
+        if (processIOHandler != null) {
+            processIOHandler.close();
+        }
         process.destroy();
     }
 
+    /**
+     * Get the counters of this transport.
+     *
+     * @return a snapshot of the counters
+     */
+    public StdioMcpTransportMetrics getMetrics() {
+        ProcessIOHandler handler = processIOHandler;
+        long completed = completedRequests.get();
+        double averageLatencyMillis = completed == 0 ? 0 : totalLatencyNanos.get() / (completed * 1_000_000.0);
+        return new StdioMcpTransportMetrics(
+                handler == null ? 0 : handler.getBytesSent(),
+                handler == null ? 0 : handler.getBytesReceived(),
+                handler == null ? 0 : handler.getMessagesSent(),
+                handler == null ? 0 : handler.getMessagesReceived(),
+                handler == null ? 0 : handler.getMessagesDropped(),
+                handler == null ? 0 : handler.getOutboundQueueDepth(),
+                handler == null ? 0 : handler.getInboundQueueDepth(),
+                maxPendingRequests - requestWindow.availablePermits(),
+                averageLatencyMillis);
+    }
+
     private CompletableFuture<JsonNode> execute(String request, Long id) {
         CompletableFuture<JsonNode> future = new CompletableFuture<>();
         if (id != null) {
+            if (!acquireRequestSlot()) {
+                future.completeExceptionally(new IllegalStateException(
+                        "Too many pending requests to the MCP server (" + maxPendingRequests + ")"));
+                return future;
+            }
+            long started = System.nanoTime();
+            // The slot is freed on a response, a failure, or when the client gives up and cancels
+            future.whenComplete((response, error) -> {
+                requestWindow.release();
+                if (error == null) {
+                    completedRequests.incrementAndGet();
+                    totalLatencyNanos.addAndGet(System.nanoTime() - started);
+                }
+            });
             messageHandler.startOperation(id, future);
         }
         try {
@@ -121,6 +193,15 @@ public class StdioMcpTransport implements McpTransport {
         return future;
     }
 
+    private boolean acquireRequestSlot() {
+        try {
+            return requestWindow.tryAcquire(requestWindowTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
     public Process getProcess() {
         return process;
     }
@@ -130,6 +211,10 @@ public class StdioMcpTransport implements McpTransport {
         private List<String> command;
         private Map<String, String> environment;
         private boolean logEvents;
+        private int maxPendingRequests = 64;
+        private Duration requestWindowTimeout = Duration.ofSeconds(30);
+        private int maxQueuedMessages = 1024;
+        private int maxMessageBytes = 16 * 1024 * 1024;
 
         public Builder command(List<String> command) {
             this.command = command;
@@ -146,6 +231,40 @@ public class StdioMcpTransport implements McpTransport {
             return this;
         }
 
+        /**
+         * The maximum number of requests waiting for a response. The default is 64.
+         */
+        public Builder maxPendingRequests(int maxPendingRequests) {
+            this.maxPendingRequests = maxPendingRequests;
+            return this;
+        }
+
+        /**
+         * How long a request waits for a free slot in the request window, and a message for
+         * room in the outbound queue. The default is 30 seconds.
+         */
+        public Builder requestWindowTimeout(Duration requestWindowTimeout) {
+            this.requestWindowTimeout = requestWindowTimeout;
+            return this;
+        }
+
+        /**
+         * The capacity of the outbound and inbound message queues. The default is 1024.
+         */
+        public Builder maxQueuedMessages(int maxQueuedMessages) {
+            this.maxQueuedMessages = maxQueuedMessages;
+            return this;
+        }
+
+        /**
+         * The maximum size of one message from the server, larger messages are skipped.
+         * The default is 16 MB.
+         */
+        public Builder maxMessageBytes(int maxMessageBytes) {
+            this.maxMessageBytes = maxMessageBytes;
+            return this;
+        }
+
         public StdioMcpTransport build() {
             if (command == null || command.isEmpty()) {
                 throw new IllegalArgumentException("Missing command");
@@ -0,0 +1,26 @@
+package dev.langchain4j.mcp.client.transport.stdio;
+
+/**
+ * Counters of a {@link StdioMcpTransport}.
+ *
+ * @param bytesSent             bytes written to the process
+ * @param bytesReceived         bytes read from the standard output of the process
+ * @param messagesSent          messages written to the process
+ * @param messagesReceived      messages read from the process and handed to the client
+ * @param messagesDropped       log notifications dropped because the client could not keep up,
+ *                              and lines skipped because they exceeded the maximum message size
+ * @param outboundQueueDepth    messages waiting to be written
+ * @param inboundQueueDepth     messages waiting to be parsed
+ * @param pendingRequests       requests waiting for a response
+ * @param averageLatencyMillis  average time between sending a request and receiving its response
+ */
+public record StdioMcpTransportMetrics(long bytesSent,
+                                       long bytesReceived,
+                                       long messagesSent,
+                                       long messagesReceived,
+                                       long messagesDropped,
+                                       int outboundQueueDepth,
+                                       int inboundQueueDepth,
+                                       int pendingRequests,
+                                       double averageLatencyMillis) {
+}
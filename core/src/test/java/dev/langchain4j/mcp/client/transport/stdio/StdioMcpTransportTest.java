@@ -0,0 +1,230 @@
+package dev.langchain4j.mcp.client.transport.stdio;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.langchain4j.mcp.client.logging.McpLogMessage;
+import dev.langchain4j.mcp.client.protocol.McpPingRequest;
+import dev.langchain4j.mcp.client.transport.McpOperationHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StdioMcpTransportTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private FakeProcess process;
+    private StdioMcpTransport transport;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    @Test
+    void requestFailsWhenTheRequestWindowStaysFull() {
+        start(new StdioMcpTransport.Builder()
+                .maxPendingRequests(1)
+                .requestWindowTimeout(Duration.ofMillis(100)), OutputStream.nullOutputStream(), null);
+
+        CompletableFuture<JsonNode> first = transport.executeOperationWithResponse(new McpPingRequest(1L));
+        CompletableFuture<JsonNode> second = transport.executeOperationWithResponse(new McpPingRequest(2L));
+
+        assertThat(first).isNotDone();
+        assertThatThrownBy(() -> second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void cancelledRequestReleasesItsSlot() throws Exception {
+        start(new StdioMcpTransport.Builder()
+                .maxPendingRequests(1)
+                .requestWindowTimeout(Duration.ofMillis(100)), OutputStream.nullOutputStream(), null);
+
+        CompletableFuture<JsonNode> first = transport.executeOperationWithResponse(new McpPingRequest(1L));
+        first.cancel(false);
+        CompletableFuture<JsonNode> second = transport.executeOperationWithResponse(new McpPingRequest(2L));
+
+        assertThat(second).isNotDone();
+        assertThat(transport.getMetrics().pendingRequests()).isEqualTo(1);
+
+        process.respond(response(2));
+        assertThat(second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).get("id").asLong()).isEqualTo(2);
+        waitUntil(() -> transport.getMetrics().pendingRequests() == 0);
+    }
+
+    @Test
+    void oversizedLineIsSkippedAndTheNextMessageIsHandled() throws Exception {
+        start(new StdioMcpTransport.Builder().maxMessageBytes(1024), OutputStream.nullOutputStream(), null);
+
+        CompletableFuture<JsonNode> request = transport.executeOperationWithResponse(new McpPingRequest(1L));
+        process.respond("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"" + "x".repeat(4096) + "\"}");
+        process.respond(response(1));
+
+        JsonNode answer = request.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertThat(answer.get("result").isObject()).isTrue();
+        assertThat(transport.getMetrics().messagesDropped()).isEqualTo(1);
+    }
+
+    @Test
+    void logFloodIsDroppedWithoutBlockingResponses() throws Exception {
+        CountDownLatch parserBlocked = new CountDownLatch(1);
+        CountDownLatch releaseParser = new CountDownLatch(1);
+        Consumer<McpLogMessage> slowLogHandler = message -> {
+            parserBlocked.countDown();
+            try {
+                releaseParser.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        start(new StdioMcpTransport.Builder().maxQueuedMessages(4), OutputStream.nullOutputStream(), slowLogHandler);
+
+        CompletableFuture<JsonNode> request = transport.executeOperationWithResponse(new McpPingRequest(1L));
+        for (int i = 0; i < 100; i++) {
+            process.respond("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/message\"," +
+                    "\"params\":{\"level\":\"info\",\"logger\":\"test\",\"data\":\"line " + i + "\"}}");
+        }
+        process.respond(response(1));
+
+        assertThat(parserBlocked.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        // The reader keeps reading while the parser is stuck on a log message
+        waitUntil(() -> transport.getMetrics().messagesDropped() >= 100 - 4 - 1);
+        releaseParser.countDown();
+
+        assertThat(request.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).get("id").asLong()).isEqualTo(1);
+    }
+
+    @Test
+    void failedWriteFailsThePendingRequests() throws Exception {
+        OutputStream brokenPipe = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        start(new StdioMcpTransport.Builder().maxPendingRequests(1), brokenPipe, null);
+
+        CompletableFuture<JsonNode> request = transport.executeOperationWithResponse(new McpPingRequest(1L));
+
+        assertThatThrownBy(() -> request.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IOException.class);
+        waitUntil(() -> transport.getMetrics().pendingRequests() == 0);
+        assertThat(transport.executeOperationWithResponse(new McpPingRequest(2L)))
+                .isCompletedExceptionally();
+    }
+
+    private void start(StdioMcpTransport.Builder builder, OutputStream stdin, Consumer<McpLogMessage> logHandler) {
+        try {
+            process = new FakeProcess(stdin);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        transport = builder.command(List.of("fake-mcp-server")).build();
+        transport.start(new McpOperationHandler(new ConcurrentHashMap<>(), transport, logHandler, () -> {
+        }), process);
+    }
+
+    private static String response(long id) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":{}}";
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * A process whose standard output is written by the test.
+     */
+    private static class FakeProcess extends Process {
+
+        private final OutputStream stdin;
+        private final PipedInputStream stdout = new PipedInputStream(1024 * 1024);
+        private final PipedOutputStream serverOutput = new PipedOutputStream();
+        private final CountDownLatch exited = new CountDownLatch(1);
+
+        FakeProcess(OutputStream stdin) throws IOException {
+            this.stdin = stdin;
+            serverOutput.connect(stdout);
+        }
+
+        void respond(String line) throws IOException {
+            serverOutput.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            serverOutput.flush();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return stdin;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return stdout;
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            exited.await();
+            return 0;
+        }
+
+        @Override
+        public int exitValue() {
+            if (exited.getCount() > 0) {
+                throw new IllegalThreadStateException("Process is running");
+            }
+            return 0;
+        }
+
+        @Override
+        public boolean isAlive() {
+            return exited.getCount() > 0;
+        }
+
+        @Override
+        public long pid() {
+            return 42;
+        }
+
+        @Override
+        public void destroy() {
+            exited.countDown();
+            try {
+                serverOutput.close();
+            } catch (IOException ignored) {
+                // Only ends the output of the fake process
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.devoxx.genie.chatmodel;
+
+import com.devoxx.genie.model.ChatModel;
+import com.devoxx.genie.model.enumarations.ModelProvider;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches built chat models so follow-up prompts reuse the client, its HTTP connections and,
+ * for local providers, the model details fetched when the client was built.
+ * <p>
+ * Models are keyed by a {@link Fingerprint} of the settings they were built from. Settings that
+ * are not part of the fingerprint (for example Azure deployments or AWS credentials) are covered
+ * by {@link #invalidate()}, which the settings pages call when they are applied.
+ */
+@Slf4j
+@Service
+public final class ChatModelCache {
+
+    private static final int MAX_ENTRIES = 16;
+
+    /**
+     * The settings a chat model was built from. The API key is only kept as a hash.
+     */
+    public record Fingerprint(ModelProvider provider,
+                              String modelName,
+                              String baseUrl,
+                              double temperature,
+                              double topP,
+                              int timeout,
+                              int maxTokens,
+                              int maxRetries,
+                              String apiKeyHash,
+                              boolean mcpEnabled) {
+
+        public static @NotNull Fingerprint of(@NotNull ModelProvider provider,
+                                              @NotNull ChatModel chatModel,
+                                              @Nullable String apiKey,
+                                              boolean mcpEnabled) {
+            return new Fingerprint(provider,
+                    chatModel.getModelName(),
+                    chatModel.getBaseUrl(),
+                    chatModel.getTemperature(),
+                    chatModel.getTopP(),
+                    chatModel.getTimeout(),
+                    chatModel.getMaxTokens(),
+                    chatModel.getMaxRetries(),
+                    hash(apiKey == null ? "" : apiKey),
+                    mcpEnabled);
+        }
+    }
+
+    // Guarded by this, least recently used models are dropped first
+    private final Map<Fingerprint, ChatLanguageModel> chatModels = createLruMap();
+    private final Map<Fingerprint, StreamingChatLanguageModel> streamingChatModels = createLruMap();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @NotNull
+    public static ChatModelCache getInstance() {
+        return ApplicationManager.getApplication().getService(ChatModelCache.class);
+    }
+
+    /**
+     * Get the chat model built for the fingerprint, building it on first use.
+     *
+     * @param fingerprint the settings of the model
+     * @param factory     builds the model when it is not cached
+     * @return the chat model
+     */
+    public ChatLanguageModel getChatModel(@NotNull Fingerprint fingerprint,
+                                          @NotNull Supplier<ChatLanguageModel> factory) {
+        return get(chatModels, fingerprint, factory);
+    }
+
+    /**
+     * Get the streaming chat model built for the fingerprint, building it on first use.
+     *
+     * @param fingerprint the settings of the model
+     * @param factory     builds the model when it is not cached
+     * @return the streaming chat model
+     */
+    public StreamingChatLanguageModel getStreamingChatModel(@NotNull Fingerprint fingerprint,
+                                                            @NotNull Supplier<StreamingChatLanguageModel> factory) {
+        return get(streamingChatModels, fingerprint, factory);
+    }
+
+    /**
+     * Drop all cached models, called when the LLM settings change.
+     */
+    public synchronized void invalidate() {
+        chatModels.clear();
+        streamingChatModels.clear();
+        log.debug("Chat model cache invalidated");
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private <T> T get(@NotNull Map<Fingerprint, T> cache,
+                      @NotNull Fingerprint fingerprint,
+                      @NotNull Supplier<T> factory) {
+        synchronized (this) {
+            T model = cache.get(fingerprint);
+            if (model != null) {
+                hits.incrementAndGet();
+                return model;
+            }
+        }
+
+        // Built outside the lock, local providers may call their server while building
+        misses.incrementAndGet();
+        T model = factory.get();
+        if (model == null) {
+            return null;
+        }
+        synchronized (this) {
+            T existing = cache.putIfAbsent(fingerprint, model);
+            log.debug("Chat model cache: {} hits, {} misses", hits.get(), misses.get());
+            return existing != null ? existing : model;
+        }
+    }
+
+    private static <T> @NotNull Map<Fingerprint, T> createLruMap() {
+        return new LinkedHashMap<>(MAX_ENTRIES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Fingerprint, T> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    private static @NotNull String hash(@NotNull String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -6,6 +6,8 @@ import com.devoxx.genie.model.LanguageModel;
 import com.devoxx.genie.model.enumarations.ModelProvider;
 import com.devoxx.genie.model.request.ChatMessageContext;
 import com.devoxx.genie.service.DevoxxGenieSettingsService;
+import com.devoxx.genie.service.LLMProviderService;
+import com.devoxx.genie.service.mcp.MCPService;
 import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
 import dev.langchain4j.model.chat.ChatLanguageModel;
 import dev.langchain4j.model.chat.StreamingChatLanguageModel;
@@ -23,18 +25,35 @@ public class ChatModelProvider {
 
     public ChatLanguageModel getChatLanguageModel(@NotNull ChatMessageContext chatMessageContext) {
         ChatModel chatModel = initChatModel(chatMessageContext);
-        return getFactory(chatMessageContext).createChatModel(chatModel);
+        ChatModelFactory factory = getFactory(chatMessageContext);
+        return ChatModelCache.getInstance().getChatModel(
+                createFingerprint(chatMessageContext, chatModel), () -> factory.createChatModel(chatModel));
     }
 
     public StreamingChatLanguageModel getStreamingChatLanguageModel(@NotNull ChatMessageContext chatMessageContext) {
         ChatModel chatModel = initChatModel(chatMessageContext);
-        return getFactory(chatMessageContext).createStreamingChatModel(chatModel);
+        ChatModelFactory factory = getFactory(chatMessageContext);
+        return ChatModelCache.getInstance().getStreamingChatModel(
+                createFingerprint(chatMessageContext, chatModel), () -> factory.createStreamingChatModel(chatModel));
     }
 
-    private @NotNull ChatModelFactory getFactory(@NotNull ChatMessageContext chatMessageContext) {
-        ModelProvider provider = Optional.ofNullable(chatMessageContext.getLanguageModel())
+    private @NotNull ChatModelCache.Fingerprint createFingerprint(@NotNull ChatMessageContext chatMessageContext,
+                                                                  @NotNull ChatModel chatModel) {
+        ModelProvider provider = getProvider(chatMessageContext);
+        String apiKey = provider == ModelProvider.CustomOpenAI ?
+                DevoxxGenieStateService.getInstance().getCustomOpenAIApiKey() :
+                LLMProviderService.getInstance().getApiKey(provider);
+        return ChatModelCache.Fingerprint.of(provider, chatModel, apiKey, MCPService.isMCPEnabled());
+    }
+
+    private @NotNull ModelProvider getProvider(@NotNull ChatMessageContext chatMessageContext) {
+        return Optional.ofNullable(chatMessageContext.getLanguageModel())
             .map(LanguageModel::getProvider)
             .orElse(DEFAULT_PROVIDER);
+    }
+
+    private @NotNull ChatModelFactory getFactory(@NotNull ChatMessageContext chatMessageContext) {
+        ModelProvider provider = getProvider(chatMessageContext);
 
         return ChatModelFactoryProvider.getFactoryByProvider(provider.name())
             .orElseThrow(() -> new IllegalArgumentException("No factory for provider: " + provider));
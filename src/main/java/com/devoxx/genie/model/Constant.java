@@ -55,6 +55,12 @@ public class Constant {
     public static final Integer MAX_RETRIES = 1;
     public static final Integer TIMEOUT = 500;
     public static final Integer MAX_MEMORY = 50;
+    public static final Boolean CHAT_MEMORY_TOKEN_BUDGET = true;
+    public static final Boolean CHAT_MEMORY_COMPACTION = false;
+    public static final Integer CHAT_MEMORY_COMPACTION_THRESHOLD = 16_000;
+    public static final Boolean PROJECT_CONTEXT_ONCE_PER_CONVERSATION = true;
+    public static final Boolean PROMPT_CACHING = true;
+    public static final Boolean FILE_CONTEXT_DELTAS = true;
 
     // The MCP settings
     public static final Integer MCP_APPROVAL_TIMEOUT = 60;
@@ -65,6 +71,13 @@ public class Constant {
 
     // Stream mode settings
     public static final Boolean STREAM_MODE = false;
+    public static final Integer STREAMING_FLUSH_INTERVAL_MS = 33;
+    public static final Integer STREAMING_FLUSH_MAX_CHARS = 1024;
+
+    // Conversation history retention, 0 means no limit
+    public static final Integer CONVERSATION_MAX_AGE_DAYS = 0;
+    public static final Integer CONVERSATION_MAX_COUNT = 0;
+    public static final Integer CONVERSATION_MAX_SIZE_MB = 50;
 
     // Button labels
     public static final String ADD_PROJECT_TO_CONTEXT = "Add project";
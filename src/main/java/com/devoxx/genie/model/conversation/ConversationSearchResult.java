@@ -0,0 +1,20 @@
+package com.devoxx.genie.model.conversation;
+
+/**
+ * A conversation matching a full-text search, with the best matching part of its messages.
+ *
+ * @param conversationId the conversation id
+ * @param title          the title
+ * @param timestamp      when the conversation was started
+ * @param snippet        the matching text, with the matched terms between {@link #HIGHLIGHT_START} and {@link #HIGHLIGHT_END}
+ * @param rank           the relevance, lower is better
+ */
+public record ConversationSearchResult(String conversationId,
+                                       String title,
+                                       String timestamp,
+                                       String snippet,
+                                       double rank) {
+
+    public static final String HIGHLIGHT_START = "\u0002";
+    public static final String HIGHLIGHT_END = "\u0003";
+}
@@ -0,0 +1,23 @@
+package com.devoxx.genie.model.conversation;
+
+/**
+ * The header of a stored conversation, without its messages.
+ *
+ * @param id           the conversation id
+ * @param title        the title
+ * @param timestamp    when the conversation was started
+ * @param llmProvider  the provider of the model
+ * @param modelName    the model name
+ * @param messageCount the number of stored messages
+ * @param inputCost    the stored input total
+ * @param outputCost   the stored output total
+ */
+public record ConversationSummary(String id,
+                                  String title,
+                                  String timestamp,
+                                  String llmProvider,
+                                  String modelName,
+                                  int messageCount,
+                                  long inputCost,
+                                  long outputCost) {
+}
@@ -28,6 +28,8 @@ public class ChatMessageContext {
     private UserMessage userMessage;    // The user message
     private AiMessage aiMessage;        // The LLM response message
     private String filesContext;             // The context of the prompt
+    private boolean projectContextAdded;     // The files context is the full project
+    private int filesContextTokensSaved;     // Tokens of the attached files not resent, see FileContextDeltaService
     private EditorInfo editorInfo;      // The editor info
     private LanguageModel languageModel;
     private ChatLanguageModel chatLanguageModel;
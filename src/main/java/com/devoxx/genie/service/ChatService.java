@@ -4,6 +4,7 @@ import com.devoxx.genie.model.conversation.ChatMessage;
 import com.devoxx.genie.model.conversation.Conversation;
 import com.devoxx.genie.model.request.ChatMessageContext;
 import com.devoxx.genie.service.conversations.ConversationStorageService;
+import com.devoxx.genie.service.prompt.memory.ChatMemoryService;
 import com.devoxx.genie.ui.listener.ConversationEventListener;
 import com.devoxx.genie.ui.panel.conversation.ConversationManager;
 import com.devoxx.genie.ui.topic.AppTopics;
@@ -84,6 +85,9 @@ public class ChatService implements ConversationEventListener {
 
         // Save or update the conversation
         storageService.addConversation(project, conversation);
+
+        // From now on the chat memory is saved with this conversation, a no-op when it already is
+        ChatMemoryService.getInstance().bindConversation(project, conversation.getId());
     }
     
     /**
@@ -0,0 +1,119 @@
+package com.devoxx.genie.service;
+
+import com.devoxx.genie.service.rag.IndexManifestService;
+import com.devoxx.genie.util.UnifiedDiffUtil;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.UserMessage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the attached files sent in the conversation of a project, so a next prompt only holds
+ * the files which are new or changed.
+ * <p>
+ * A file is sent in full the first time, as a unified diff when it changed since and not at all when
+ * it did not. It is sent in full again when the chat memory no longer holds the full content and every
+ * diff sent since, for example after a failed prompt or when the token budget or compaction removed
+ * one of those turns.
+ */
+@Service
+public final class FileContextDeltaService {
+
+    static final String FILENAME = "Filename: ";
+    static final String CHANGES = "Changes to: ";
+
+    private final Map<String, Map<String, SentFile>> sentFilesMap = new ConcurrentHashMap<>();
+
+    FileContextDeltaService() {
+    }
+
+    @NotNull
+    public static FileContextDeltaService getInstance() {
+        return ApplicationManager.getApplication().getService(FileContextDeltaService.class);
+    }
+
+    /**
+     * @param project      the project
+     * @param path         the path of the file
+     * @param revision     the modification stamp of the file
+     * @param content      the content of the file
+     * @param conversation the messages of the chat memory of the project
+     * @return the context to send for the file, null when it did not change since it was last sent
+     */
+    public @Nullable String fileContext(@NotNull Project project,
+                                        @NotNull String path,
+                                        long revision,
+                                        @NotNull String content,
+                                        @NotNull List<ChatMessage> conversation) {
+        Map<String, SentFile> sentFiles = sentFilesMap.computeIfAbsent(project.getLocationHash(), k -> new ConcurrentHashMap<>());
+        SentFile sentFile = sentFiles.get(path);
+
+        if (sentFile != null && isInConversation(sentFile.texts(), conversation)) {
+            if (sentFile.revision() == revision) {
+                return null;
+            }
+            String hash = IndexManifestService.hash(content);
+            if (sentFile.hash().equals(hash)) {
+                // Edited and undone, the model knows this content
+                sentFiles.put(path, new SentFile(revision, hash, sentFile.content(), sentFile.texts()));
+                return null;
+            }
+            String diff = UnifiedDiffUtil.unifiedDiff(path, sentFile.content(), content);
+            if (diff != null && diff.length() < content.length()) {
+                String text = CHANGES + path + "\n" + diff;
+                List<String> texts = new ArrayList<>(sentFile.texts());
+                texts.add(text);
+                sentFiles.put(path, new SentFile(revision, hash, content, texts));
+                return text;
+            }
+        }
+
+        String text = FILENAME + path + "\n" + content + "\n";
+        sentFiles.put(path, new SentFile(revision, IndexManifestService.hash(content), content, List.of(text)));
+        return text;
+    }
+
+    /**
+     * Forget the files sent in the conversation of the project, for a new conversation.
+     *
+     * @param project the project
+     */
+    public void clear(@NotNull Project project) {
+        sentFilesMap.remove(project.getLocationHash());
+    }
+
+    private static boolean isInConversation(@NotNull List<String> texts, @NotNull List<ChatMessage> conversation) {
+        return texts.stream().allMatch(text -> isInConversation(text, conversation));
+    }
+
+    private static boolean isInConversation(@NotNull String text, @NotNull List<ChatMessage> conversation) {
+        for (ChatMessage message : conversation) {
+            if (message instanceof UserMessage userMessage) {
+                boolean found = userMessage.contents().stream()
+                        .anyMatch(content -> content instanceof TextContent textContent && textContent.text().contains(text));
+                if (found) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param revision the modification stamp of the file when it was last sent
+     * @param hash     the SHA-256 of the content the model knows
+     * @param content  the content the model knows
+     * @param texts    the full content the file was sent with, followed by the diffs sent since
+     */
+    private record SentFile(long revision, String hash, String content, List<String> texts) {
+    }
+}
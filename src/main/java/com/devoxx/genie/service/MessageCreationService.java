@@ -4,6 +4,10 @@ import com.devoxx.genie.model.request.ChatMessageContext;
 import com.devoxx.genie.model.request.EditorInfo;
 import com.devoxx.genie.model.request.SemanticFile;
 import com.devoxx.genie.service.mcp.MCPService;
+import com.devoxx.genie.service.prompt.error.MemoryException;
+import com.devoxx.genie.service.prompt.memory.ChatMemoryManager;
+import com.devoxx.genie.service.prompt.memory.ChatMemoryService;
+import com.devoxx.genie.service.prompt.memory.PromptLayout;
 import com.devoxx.genie.service.rag.SearchResult;
 import com.devoxx.genie.service.rag.SemanticSearchService;
 import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
@@ -15,18 +19,18 @@ import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
+import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.ImageContent;
 import dev.langchain4j.data.message.TextContent;
 import dev.langchain4j.data.message.UserMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.Map;
@@ -73,13 +77,35 @@ public class MessageCreationService {
 
         String context = chatMessageContext.getFilesContext();
         if (context != null && !context.isEmpty()) {
-            constructUserMessageWithFullContext(chatMessageContext, context);
+            if (chatMessageContext.isProjectContextAdded() &&
+                Boolean.TRUE.equals(DevoxxGenieStateService.getInstance().getProjectContextOncePerConversation()) &&
+                anchorProjectContext(chatMessageContext)) {
+                constructUserMessageWithFullContext(chatMessageContext, "");
+            } else {
+                constructUserMessageWithFullContext(chatMessageContext, context);
+            }
         } else {
             constructUserMessageWithCombinedContext(chatMessageContext);
         }
         addImages(chatMessageContext);
     }
 
+    /**
+     * Pin the project context in the chat memory, the user message then only holds the prompt.
+     *
+     * @param chatMessageContext the chat message context
+     * @return false when the context could not be pinned and must be sent with the prompt
+     */
+    private boolean anchorProjectContext(@NotNull ChatMessageContext chatMessageContext) {
+        try {
+            ChatMemoryManager.getInstance().anchorProjectContext(chatMessageContext);
+            return true;
+        } catch (MemoryException e) {
+            log.warn("Sending project context with the prompt: {}", e.getMessage());
+            return false;
+        }
+    }
+
     private void addImages(@NotNull ChatMessageContext chatMessageContext) {
         List<VirtualFile> imageFiles = FileListManager.getInstance().getImageFiles(chatMessageContext.getProject());
         if (!imageFiles.isEmpty()) {
@@ -135,13 +161,10 @@ public class MessageCreationService {
         if (ChatMessageContextUtil.isOpenAIo1Model(chatMessageContext.getLanguageModel())) {
             String systemPrompt = DevoxxGenieStateService.getInstance().getSystemPrompt();
             stringBuilder.append("<SystemPrompt>").append(systemPrompt).append("</SystemPrompt>\n\n");
-        }
-        
-        // Check if DEVOXXGENIE.md should be included in the prompt
-        if (Boolean.TRUE.equals(DevoxxGenieStateService.getInstance().getUseDevoxxGenieMdInPrompt())) {
-            // Try to read DEVOXXGENIE.md from project root
-            String devoxxGenieMdContent = readDevoxxGenieMdFile(chatMessageContext.getProject());
-            if (devoxxGenieMdContent != null && !devoxxGenieMdContent.isEmpty()) {
+
+            // Other models get DEVOXXGENIE.md in the system message, see PromptLayout
+            String devoxxGenieMdContent = PromptLayout.projectInstructions(chatMessageContext.getProject());
+            if (devoxxGenieMdContent != null) {
                 stringBuilder.append("<ProjectContext>\n");
                 stringBuilder.append(devoxxGenieMdContent);
                 stringBuilder.append("\n</ProjectContext>\n\n");
@@ -288,55 +311,48 @@ public class MessageCreationService {
         }
     }
     
-    /**
-     * Read the content of DEVOXXGENIE.md file from the project root directory.
-     *
-     * @param project the project
-     * @return the content of DEVOXXGENIE.md file or null if file not found or can't be read
-     */
-    private @Nullable String readDevoxxGenieMdFile(Project project) {
-        try {
-            if (project == null || project.getBasePath() == null) {
-                log.warn("Project or base path is null");
-                return null;
-            }
-            
-            Path devoxxGenieMdPath = Paths.get(project.getBasePath(), "DEVOXXGENIE.md");
-            if (!Files.exists(devoxxGenieMdPath)) {
-                log.debug("DEVOXXGENIE.md file not found in project root: " + devoxxGenieMdPath);
-                return null;
-            }
-            
-            return Files.readString(devoxxGenieMdPath, StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            log.warn("Failed to read DEVOXXGENIE.md file: " + e.getMessage());
-            return null;
-        }
-    }
-
     /**
      * Create attached files context.
+     * With file context deltas, files already sent in the conversation are only sent when they changed, as a diff.
      *
-     * @param project the project
-     * @param files   the files
+     * @param chatMessageContext the chat message context, holds the tokens saved by the deltas
+     * @param files              the files
      * @return the user prompt with context
      */
-    public @NotNull String createAttachedFilesContext(Project project,
+    public @NotNull String createAttachedFilesContext(@NotNull ChatMessageContext chatMessageContext,
                                                       @NotNull List<VirtualFile> files) {
+        Project project = chatMessageContext.getProject();
+        boolean deltas = Boolean.TRUE.equals(DevoxxGenieStateService.getInstance().getFileContextDeltas());
+        List<ChatMessage> conversation = deltas ? getConversation(project) : List.of();
+
         StringBuilder userPromptContext = new StringBuilder();
+        StringBuilder fullContext = new StringBuilder();
+        List<String> unchangedFiles = new ArrayList<>();
         FileDocumentManager fileDocumentManager = FileDocumentManager.getInstance();
 
         for (VirtualFile file : files) {
             ApplicationManager.getApplication().runReadAction(() -> {
                 if (file.getFileType().getName().equals("UNKNOWN")) {
-                    userPromptContext.append("File: ").append(file.getCanonicalPath()).append("\n");
-                    userPromptContext.append("Code Snippet: ").append(file.getUserData(SELECTED_TEXT_KEY)).append("\n");
+                    String snippet = "File: " + file.getCanonicalPath() + "\n" +
+                            "Code Snippet: " + file.getUserData(SELECTED_TEXT_KEY) + "\n";
+                    userPromptContext.append(snippet);
+                    fullContext.append(snippet);
                 } else {
                     Document document = fileDocumentManager.getDocument(file);
                     if (document != null) {
-                        userPromptContext.append("Filename: ").append(file.getCanonicalPath()).append("\n");
+                        String path = file.getCanonicalPath() != null ? file.getCanonicalPath() : file.getPath();
                         String content = document.getText();
-                        userPromptContext.append(content).append("\n");
+                        String fileContext = "Filename: " + path + "\n" + content + "\n";
+                        fullContext.append(fileContext);
+                        if (deltas) {
+                            fileContext = FileContextDeltaService.getInstance()
+                                    .fileContext(project, path, document.getModificationStamp(), content, conversation);
+                        }
+                        if (fileContext == null) {
+                            unchangedFiles.add(path);
+                        } else {
+                            userPromptContext.append(fileContext);
+                        }
                     } else if (!ImageUtil.isImageFile(file)){
                         NotificationUtil.sendNotification(project, "File type not supported: " + file.getName());
                     }
@@ -344,8 +360,32 @@ public class MessageCreationService {
             });
         }
 
+        if (!unchangedFiles.isEmpty()) {
+            userPromptContext.append("Unchanged since they were last sent: ")
+                    .append(String.join(", ", unchangedFiles)).append("\n");
+        }
+        if (deltas) {
+            chatMessageContext.setFilesContextTokensSaved(
+                    countTokens(chatMessageContext, fullContext.toString()) - countTokens(chatMessageContext, userPromptContext.toString()));
+        }
+
         return userPromptContext.toString();
     }
-}
 
+    private @NotNull List<ChatMessage> getConversation(@NotNull Project project) {
+        try {
+            return ChatMemoryService.getInstance().getMessages(project);
+        } catch (MemoryException e) {
+            log.debug("Sending the attached files in full: {}", e.getMessage());
+            return List.of();
+        }
+    }
 
+    private int countTokens(@NotNull ChatMessageContext chatMessageContext, @NotNull String text) {
+        if (chatMessageContext.getLanguageModel() == null) {
+            return 0;
+        }
+        return ProjectContentService.getEncodingForProvider(chatMessageContext.getLanguageModel().getProvider())
+                .countTokens(text);
+    }
+}
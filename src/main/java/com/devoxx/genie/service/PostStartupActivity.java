@@ -1,8 +1,10 @@
 package com.devoxx.genie.service;
 
+import com.devoxx.genie.service.conversations.ConversationRetentionService;
 import com.devoxx.genie.service.prompt.memory.ChatMemoryManager;
 import com.devoxx.genie.service.prompt.threading.ThreadPoolManager;
 import com.devoxx.genie.service.prompt.threading.ThreadPoolShutdownManager;
+import com.devoxx.genie.service.rag.IncrementalIndexerService;
 import com.devoxx.genie.ui.util.ThemeChangeListener;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.startup.ProjectActivity;
@@ -42,6 +44,14 @@ public class PostStartupActivity implements ProjectActivity {
             log.error("threadPoolManager is null");
         }
 
+        // Keep the RAG index of the project up to date with file changes
+        if (!project.isDefault()) {
+            IncrementalIndexerService.getInstance(project).start();
+        }
+
+        // Keep the conversation history within its retention limits
+        ConversationRetentionService.getInstance().start();
+
         // Register theme change listener
         if (project.isDefault()) {
             // Only register the listener once during application startup
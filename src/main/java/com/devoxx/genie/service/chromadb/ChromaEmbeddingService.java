@@ -1,43 +1,120 @@
 package com.devoxx.genie.service.chromadb;
 
+import com.devoxx.genie.service.rag.store.LocalEmbeddingStore;
+import com.devoxx.genie.service.rag.store.LocalEmbeddingStoreService;
 import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
 import com.devoxx.genie.ui.util.NotificationUtil;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.project.Project;
+import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.chroma.ChromaEmbeddingStore;
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides the embedding model and the embedding store of a project.
+ * <p>
+ * The Ollama embedding model and the store clients are created once and reused, so their HTTP
+ * clients and connection pools are shared by indexing and search. They are only rebuilt when the
+ * settings they were built from (Ollama URL, Chroma DB port, store type) change.
+ */
 @Slf4j
 @Service
-public final class ChromaEmbeddingService {
-    
+public final class ChromaEmbeddingService implements Disposable {
+
+    private static final String EMBEDDING_MODEL_NAME = "nomic-embed-text";
+
     private final DevoxxGenieStateService stateService = DevoxxGenieStateService.getInstance();
 
-    @Getter
-    private ChromaEmbeddingStore embeddingStore;
+    private record EmbeddingModelKey(String baseUrl, String modelName) {
+    }
+
+    private record EmbeddingStoreKey(boolean embedded, String baseUrl, String collectionName) {
+    }
+
+    // Guarded by this
+    private EmbeddingModelKey embeddingModelKey;
+    private OllamaEmbeddingModel embeddingModel;
+
+    private final Map<EmbeddingStoreKey, EmbeddingStore<TextSegment>> embeddingStores = new ConcurrentHashMap<>();
 
     @NotNull
     public static ChromaEmbeddingService getInstance() {
         return ApplicationManager.getApplication().getService(ChromaEmbeddingService.class);
     }
 
-    public void init(Project project) {
+    /**
+     * Get the embedding store of the project, either the in-process store or Chroma DB.
+     *
+     * @param project the project
+     * @return the embedding store, shared by all callers for the same project and settings
+     */
+    public @NotNull EmbeddingStore<TextSegment> getEmbeddingStore(@NotNull Project project) {
+        boolean embedded = Boolean.TRUE.equals(stateService.getIndexerEmbeddedStore());
         String url = "http://localhost:" + stateService.getIndexerPort();
-        try {
-            this.embeddingStore = ChromaEmbeddingStore.builder()
-                    .baseUrl(url)
-                    .logRequests(true)
-                    .logResponses(true)
-                    .collectionName(getCollectionName(project))
-                    .build();
-        } catch (Exception e) {
-            log.error("Failed to initialize ChromaDB via {}: {}", url, e.getMessage());
-            throw new RuntimeException(e);
+        EmbeddingStoreKey key = new EmbeddingStoreKey(embedded, embedded ? null : url, getCollectionName(project));
+
+        if (!embedded) {
+            // A different port makes the previous Chroma DB clients unusable
+            embeddingStores.keySet().removeIf(existing -> !existing.embedded() && !existing.baseUrl().equals(url));
         }
+
+        return embeddingStores.computeIfAbsent(key, k -> {
+            if (k.embedded()) {
+                return LocalEmbeddingStoreService.getInstance().getStore(k.collectionName());
+            }
+            try {
+                return ChromaEmbeddingStore.builder()
+                        .baseUrl(k.baseUrl())
+                        .logRequests(log.isDebugEnabled())
+                        .logResponses(log.isDebugEnabled())
+                        .collectionName(k.collectionName())
+                        .build();
+            } catch (Exception e) {
+                log.error("Failed to initialize ChromaDB via {}: {}", k.baseUrl(), e.getMessage());
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Forget the store client of a collection, for example after the collection was deleted.
+     *
+     * @param collectionName the collection name
+     */
+    public void evictEmbeddingStore(@NotNull String collectionName) {
+        embeddingStores.keySet().removeIf(key -> key.collectionName().equals(collectionName));
+    }
+
+    /**
+     * Persist the embedding store of the project after a batch of changes, only needed by the in-process store.
+     *
+     * @param project the project
+     */
+    public void saveEmbeddingStore(@NotNull Project project) {
+        if (getEmbeddingStore(project) instanceof LocalEmbeddingStore localEmbeddingStore) {
+            localEmbeddingStore.save();
+        }
+    }
+
+    /**
+     * Get the name under which the files of the project are tracked in the index manifest.
+     * The in-process store and Chroma DB are tracked separately, so switching between them
+     * indexes the project again.
+     *
+     * @param project the project
+     * @return the index name for the project
+     */
+    public @NotNull String getIndexName(@NotNull Project project) {
+        String collectionName = getCollectionName(project);
+        return Boolean.TRUE.equals(stateService.getIndexerEmbeddedStore()) ? "embedded/" + collectionName : collectionName;
     }
 
     /**
@@ -45,16 +122,33 @@ public final class ChromaEmbeddingService {
      * @param project the project
      * @return the collection name for the project
      */
-    private @NotNull String getCollectionName(@NotNull Project project) {
+    public @NotNull String getCollectionName(@NotNull Project project) {
         return project.getName()
                       .toLowerCase()
                       .replaceAll("[^a-z0-9-]", "-");
     }
 
-    public OllamaEmbeddingModel getEmbeddingModel() {
-        return OllamaEmbeddingModel.builder()
-                .baseUrl(stateService.getOllamaModelUrl())
-                .modelName("nomic-embed-text")
-                .build();
+    /**
+     * Get the Ollama embedding model, rebuilt only when the Ollama URL changed.
+     *
+     * @return the embedding model
+     */
+    public synchronized OllamaEmbeddingModel getEmbeddingModel() {
+        EmbeddingModelKey key = new EmbeddingModelKey(stateService.getOllamaModelUrl(), EMBEDDING_MODEL_NAME);
+        if (embeddingModel == null || !key.equals(embeddingModelKey)) {
+            embeddingModel = OllamaEmbeddingModel.builder()
+                    .baseUrl(key.baseUrl())
+                    .modelName(key.modelName())
+                    .build();
+            embeddingModelKey = key;
+        }
+        return embeddingModel;
+    }
+
+    @Override
+    public synchronized void dispose() {
+        embeddingModel = null;
+        embeddingModelKey = null;
+        embeddingStores.clear();
     }
 }
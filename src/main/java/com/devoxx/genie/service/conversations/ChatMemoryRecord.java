@@ -0,0 +1,12 @@
+package com.devoxx.genie.service.conversations;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A stored message of the chat memory of a conversation.
+ *
+ * @param id      the row id, increasing in the order of the messages
+ * @param message the message serialized as JSON
+ */
+public record ChatMemoryRecord(long id, @NotNull String message) {
+}
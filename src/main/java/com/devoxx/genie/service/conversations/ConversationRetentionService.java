@@ -0,0 +1,84 @@
+package com.devoxx.genie.service.conversations;
+
+import com.devoxx.genie.service.prompt.threading.ThreadPoolManager;
+import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the conversation database within the retention limits of the settings.
+ * The job runs on the scheduled pool and skips its turn while conversations are being saved.
+ * It deletes conversations outside the limits, compresses large messages and returns free
+ * pages to the file system.
+ */
+@Slf4j
+public final class ConversationRetentionService implements Disposable {
+
+    private static final long INITIAL_DELAY_MINUTES = 2;
+    private static final long INTERVAL_MINUTES = 15;
+    private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    static final int COMPRESS_MIN_CHARS = 16 * 1024;
+    private static final int COMPRESS_BATCH_SIZE = 200;
+    private static final int VACUUM_PAGES = 2048;
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile ScheduledFuture<?> scheduledRun;
+
+    @NotNull
+    public static ConversationRetentionService getInstance() {
+        return ApplicationManager.getApplication().getService(ConversationRetentionService.class);
+    }
+
+    /**
+     * Schedule the retention job, once per application.
+     */
+    public void start() {
+        if (started.compareAndSet(false, true)) {
+            scheduledRun = ThreadPoolManager.getInstance().getScheduledTaskPool().scheduleWithFixedDelay(
+                    this::runWhenIdle, INITIAL_DELAY_MINUTES, INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+    }
+
+    private void runWhenIdle() {
+        // An exception would cancel the next runs
+        try {
+            ConversationStorageService storageService = ConversationStorageService.getInstance();
+            if (System.currentTimeMillis() - storageService.getLastWriteMillis() < IDLE_MILLIS) {
+                log.debug("Conversations were saved recently, retention skipped");
+                return;
+            }
+            run(storageService);
+        } catch (Exception e) {
+            log.warn("Conversation retention failed", e);
+        }
+    }
+
+    void run(@NotNull ConversationStorageService storageService) {
+        DevoxxGenieStateService stateService = DevoxxGenieStateService.getInstance();
+        storageService.applyRetention(
+                stateService.getConversationMaxAgeDays(),
+                stateService.getConversationMaxCount(),
+                stateService.getConversationMaxSizeMb() * 1024L * 1024L);
+
+        int compressed = storageService.compressLargeMessages(COMPRESS_MIN_CHARS, COMPRESS_BATCH_SIZE);
+        if (compressed > 0) {
+            log.info("Compressed {} large conversation messages", compressed);
+        }
+
+        storageService.vacuum(VACUUM_PAGES);
+    }
+
+    @Override
+    public void dispose() {
+        ScheduledFuture<?> current = scheduledRun;
+        if (current != null) {
+            current.cancel(false);
+        }
+    }
+}
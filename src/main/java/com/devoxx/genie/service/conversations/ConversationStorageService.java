@@ -2,18 +2,30 @@ package com.devoxx.genie.service.conversations;
 
 import com.devoxx.genie.model.conversation.ChatMessage;
 import com.devoxx.genie.model.conversation.Conversation;
+import com.devoxx.genie.model.conversation.ConversationSearchResult;
+import com.devoxx.genie.model.conversation.ConversationSummary;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.project.Project;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sqlite.Function;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Instead of using the IntelliJ State API, we use a separate database to store conversations.
@@ -21,43 +33,131 @@ import java.util.concurrent.CompletableFuture;
  * The conversations.db is stored for mac in
  * /Users/[username]/Library/Caches/JetBrains/IntelliJIdea2024.3/DevoxxGenie/conversations.db
  * You can connect to the SQLite db using IDEA's Database tool window.
+ * <p>
+ * One connection in WAL mode is kept open and shared by all callers, so prepared statements can be
+ * reused and a save only costs one transaction. Access to the connection is serialized.
  */
 @Slf4j
-public class ConversationStorageService {
-    
+public class ConversationStorageService implements Disposable {
+
     private final String dbPath;
-    private static final long MAX_DB_SIZE_BYTES = 50 * 1024 * 1024;  // 50 MB threshold
-    private static final int DELETE_COUNT = 10; // Delete 10 oldest conversations
+    private static final int DELETE_COUNT = 10; // Delete 10 oldest conversations at a time to meet the size limit
+    private static final int CACHE_SIZE_KB = 8 * 1024;
+    private static final int BUSY_TIMEOUT_MS = 5_000;
+    private static final int SNIPPET_TOKENS = 16;
+    // Several messages of one conversation can match, so more hits are read than results returned
+    private static final int HITS_PER_RESULT = 5;
+    // Decodes the content column, so compressed messages can be searched
+    private static final String MESSAGE_TEXT_FUNCTION = "message_text";
+
+    private volatile boolean fullTextSearchAvailable = false;
+    private volatile long lastWriteMillis = 0;
+
+    private final Object lock = new Object();
+    // Guarded by lock
+    private Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
 
     public ConversationStorageService() {
+        this(Path.of(PathManager.getSystemPath(), "DevoxxGenie", "conversations.db"));
+    }
+
+    ConversationStorageService(@NotNull Path dbFile) {
         try {
             Class.forName("org.sqlite.JDBC");
         } catch (ClassNotFoundException e) {
             throw new RuntimeException("SQLite JDBC driver not found", e);
         }
 
-        this.dbPath = Path.of(PathManager.getSystemPath(), "DevoxxGenie", "conversations.db").toString();
+        this.dbPath = dbFile.toString();
         try {
-            Files.createDirectories(Path.of(dbPath).getParent());
+            Files.createDirectories(dbFile.getParent());
             log.info("Database directory created at " + dbPath);
         } catch (Exception e) {
             throw new RuntimeException("Failed to create database directory", e);
         }
         createTableIfNotExists();
         migrateDatabase();
+        createMessageTextView();
+        createFullTextIndex();
     }
 
     public static @NotNull ConversationStorageService getInstance() {
-        return new ConversationStorageService();
+        return ApplicationManager.getApplication().getService(ConversationStorageService.class);
     }
 
+    /**
+     * Get the shared connection, opening it when needed. Must be called while holding the lock.
+     */
     private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+        if (connection == null || connection.isClosed()) {
+            statements.clear();
+            connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+            // Used by the full-text index triggers, so it must exist before anything is written
+            Function.create(connection, MESSAGE_TEXT_FUNCTION, new MessageTextFunction(), 2, Function.FLAG_DETERMINISTIC);
+            try (Statement statement = connection.createStatement()) {
+                // WAL lets readers continue during a write and only needs a sync at checkpoints
+                statement.execute("PRAGMA journal_mode = WAL");
+                statement.execute("PRAGMA synchronous = NORMAL");
+                statement.execute("PRAGMA cache_size = -" + CACHE_SIZE_KB);
+                statement.execute("PRAGMA temp_store = MEMORY");
+                statement.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Get the cached prepared statement for the given SQL. Must be called while holding the lock,
+     * and the statement must not be closed by the caller.
+     */
+    private PreparedStatement prepare(@NotNull String sql) throws SQLException {
+        Connection current = getConnection();
+        PreparedStatement ps = statements.get(sql);
+        if (ps == null || ps.isClosed()) {
+            ps = current.prepareStatement(sql);
+            statements.put(sql, ps);
+        } else {
+            ps.clearParameters();
+        }
+        return ps;
+    }
+
+    private <T> T withConnection(@NotNull String action, @NotNull SqlWork<T> work) {
+        synchronized (lock) {
+            try {
+                return work.run(getConnection());
+            } catch (SQLException e) {
+                log.error("Error " + action, e);
+                throw new RuntimeException("Error " + action, e);
+            }
+        }
+    }
+
+    private <T> T inTransaction(@NotNull String action, @NotNull SqlWork<T> work) {
+        return withConnection(action, current -> {
+            current.setAutoCommit(false);
+            try {
+                T result = work.run(current);
+                current.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                current.rollback();
+                throw e;
+            } finally {
+                current.setAutoCommit(true);
+            }
+        });
     }
 
     private void createTableIfNotExists() {
-        try (Connection connection = getConnection();
-             Statement statement = connection.createStatement()) {
+        withConnection("creating table", current -> {
+            try (Statement statement = current.createStatement()) {
                 statement.execute("""
                         CREATE TABLE IF NOT EXISTS conversations (
                             id TEXT PRIMARY KEY,
@@ -74,337 +174,879 @@ public class ConversationStorageService {
                         )
                     """);
 
-            // SQLite uses INTEGER PRIMARY KEY for autoincrement
-            statement.execute("""
+                // SQLite uses INTEGER PRIMARY KEY for autoincrement
+                statement.execute("""
                         CREATE TABLE IF NOT EXISTS chat_messages (
                             id INTEGER PRIMARY KEY AUTOINCREMENT,
                             conversationId TEXT,
                             content TEXT,
                             isUser INTEGER,
+                            encoding INTEGER NOT NULL DEFAULT 0,
                             FOREIGN KEY (conversationId) REFERENCES conversations(id)
                         )
                     """);
 
-            // Add indices for better performance
-            statement.execute("CREATE INDEX IF NOT EXISTS idx_conversations_project ON conversations(projectHash)");
-            statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_conversation ON chat_messages(conversationId)");
-        } catch (SQLException e) {
-            log.error("Error creating table", e);
-            throw new RuntimeException("Error creating table", e);
+                // The chat memory of a conversation as sent to the model, one serialized langchain4j message per row
+                statement.execute("""
+                        CREATE TABLE IF NOT EXISTS chat_memory_messages (
+                            id INTEGER PRIMARY KEY AUTOINCREMENT,
+                            conversationId TEXT NOT NULL,
+                            message TEXT NOT NULL,
+                            FOREIGN KEY (conversationId) REFERENCES conversations(id)
+                        )
+                    """);
+
+                // Add indices for better performance
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_chat_memory_conversation ON chat_memory_messages(conversationId, id)");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_conversations_project ON conversations(projectHash)");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_conversation ON chat_messages(conversationId)");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_conversations_project_timestamp ON conversations(projectHash, timestamp)");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * A view of the messages with their decompressed text, read by the search.
+     * Created after the migration, as it needs the encoding column.
+     */
+    private void createMessageTextView() {
+        withConnection("creating message text view", current -> {
+            try (Statement statement = current.createStatement()) {
+                statement.execute("""
+                        CREATE VIEW IF NOT EXISTS chat_messages_text AS
+                        SELECT id, conversationId, message_text(content, encoding) AS content FROM chat_messages
+                        """);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Mirror the message texts in an FTS5 table, kept in sync by triggers. The index reads the
+     * texts through a view which decompresses compressed messages, so they are found as well.
+     * Without FTS5 in the SQLite build, search falls back to a plain text match.
+     */
+    private void createFullTextIndex() {
+        try {
+            inTransaction("creating full-text index", current -> {
+                String existing = null;
+                try (Statement statement = current.createStatement();
+                     ResultSet rs = statement.executeQuery(
+                             "SELECT sql FROM sqlite_master WHERE type = 'table' AND name = 'chat_messages_fts'")) {
+                    if (rs.next()) {
+                        existing = rs.getString("sql");
+                    }
+                }
+                boolean exists = existing != null && existing.contains("chat_messages_text");
+                try (Statement statement = current.createStatement()) {
+                    // The triggers are recreated to match the current schema
+                    statement.execute("DROP TRIGGER IF EXISTS chat_messages_fts_insert");
+                    statement.execute("DROP TRIGGER IF EXISTS chat_messages_fts_delete");
+                    statement.execute("DROP TRIGGER IF EXISTS chat_messages_fts_update");
+                    if (existing != null && !exists) {
+                        // Indexed the stored content directly, which skipped compressed messages
+                        statement.execute("DROP TABLE chat_messages_fts");
+                    }
+                    statement.execute("""
+                            CREATE VIRTUAL TABLE IF NOT EXISTS chat_messages_fts
+                            USING fts5(content, content = 'chat_messages_text', content_rowid = 'id', tokenize = 'unicode61 remove_diacritics 2')
+                            """);
+                    statement.execute("""
+                            CREATE TRIGGER chat_messages_fts_insert AFTER INSERT ON chat_messages BEGIN
+                                INSERT INTO chat_messages_fts(rowid, content) VALUES (new.id, message_text(new.content, new.encoding));
+                            END
+                            """);
+                    statement.execute("""
+                            CREATE TRIGGER chat_messages_fts_delete AFTER DELETE ON chat_messages BEGIN
+                                INSERT INTO chat_messages_fts(chat_messages_fts, rowid, content)
+                                VALUES ('delete', old.id, message_text(old.content, old.encoding));
+                            END
+                            """);
+                    statement.execute("""
+                            CREATE TRIGGER chat_messages_fts_update AFTER UPDATE OF content, encoding ON chat_messages BEGIN
+                                INSERT INTO chat_messages_fts(chat_messages_fts, rowid, content)
+                                VALUES ('delete', old.id, message_text(old.content, old.encoding));
+                                INSERT INTO chat_messages_fts(rowid, content) VALUES (new.id, message_text(new.content, new.encoding));
+                            END
+                            """);
+                    if (!exists) {
+                        // Index the messages saved before the index existed
+                        statement.execute("INSERT INTO chat_messages_fts(chat_messages_fts) VALUES ('rebuild')");
+                        log.info("Created full-text index of chat messages");
+                    }
+                }
+                return null;
+            });
+            fullTextSearchAvailable = true;
+        } catch (RuntimeException e) {
+            log.warn("Full-text search of conversations is not available: {}", e.getMessage());
         }
     }
 
+    /**
+     * Save a conversation. Messages are only appended, unless the stored messages are no longer
+     * the start of the conversation, in which case they are all written again.
+     *
+     * @param project      the project of the conversation
+     * @param conversation the conversation to save
+     */
     public void addConversation(@NotNull Project project, @NotNull Conversation conversation) {
-        // Cleanup old conversations asynchronously if the DB size exceeds the threshold
-        CompletableFuture.runAsync(() -> {
-            try {
-                Path dbFile = Path.of(dbPath);
-                if (Files.size(dbFile) > MAX_DB_SIZE_BYTES) {
-                    cleanupOldConversations();
+        lastWriteMillis = System.currentTimeMillis();
+        List<ChatMessage> messages = conversation.getMessages() == null ? List.of() : conversation.getMessages();
+
+        inTransaction("adding conversation", current -> {
+            PreparedStatement ps = prepare("""
+                    INSERT OR REPLACE INTO conversations
+                    (id, projectHash, timestamp, title, llmProvider, modelName,
+                     apiKeyUsed, inputCost, outputCost, contextWindow, executionTimeMs)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                    """);
+            ps.setString(1, conversation.getId());
+            ps.setString(2, project.getLocationHash());
+            ps.setString(3, conversation.getTimestamp());
+            ps.setString(4, conversation.getTitle());
+            ps.setString(5, conversation.getLlmProvider());
+            ps.setString(6, conversation.getModelName());
+            // Handle nulls for boolean values
+            ps.setInt(7, conversation.getApiKeyUsed() != null && conversation.getApiKeyUsed() ? 1 : 0);
+            ps.setLong(8, conversation.getInputCost() == null ? 0 : conversation.getInputCost());
+            ps.setLong(9, conversation.getOutputCost() == null ? 0 : conversation.getOutputCost());
+            ps.setInt(10, conversation.getContextWindow() == null ? 0 : conversation.getContextWindow());
+            ps.setInt(11, (int) (conversation.getExecutionTimeMs() > 0 ? conversation.getExecutionTimeMs() : 0));
+            ps.executeUpdate();
+
+            int firstNewMessage = countStoredPrefix(conversation.getId(), messages);
+            if (firstNewMessage < 0) {
+                // The stored messages differ from the conversation, write them all again
+                PreparedStatement deletePs = prepare("DELETE FROM chat_messages WHERE conversationId = ?");
+                deletePs.setString(1, conversation.getId());
+                deletePs.executeUpdate();
+                firstNewMessage = 0;
+            }
+
+            if (firstNewMessage < messages.size()) {
+                PreparedStatement msgPs = prepare(
+                        "INSERT INTO chat_messages (conversationId, content, isUser) VALUES (?, ?, ?)");
+                for (ChatMessage message : messages.subList(firstNewMessage, messages.size())) {
+                    msgPs.setString(1, conversation.getId());
+                    msgPs.setString(2, message.getContent());
+                    msgPs.setInt(3, message.isUser() ? 1 : 0); // Store isUser as INTEGER (1=true, 0=false)
+                    msgPs.addBatch();
                 }
-            } catch (IOException e) {
-                log.error("Error checking DB size asynchronously", e);
+                msgPs.executeBatch();
             }
+            return null;
         });
+    }
 
-        // Add the conversation
-        try (Connection connection = getConnection()) {
-            connection.setAutoCommit(false);
-            try {
-                try (PreparedStatement ps = connection.prepareStatement(
-                        """
-                                INSERT OR REPLACE INTO conversations
-                                (id, projectHash, timestamp, title, llmProvider, modelName,
-                                 apiKeyUsed, inputCost, outputCost, contextWindow, executionTimeMs)
-                                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-                                """)) {
-                    ps.setString(1, conversation.getId());
-                    ps.setString(2, project.getLocationHash());
-                    ps.setString(3, conversation.getTimestamp());
-                    ps.setString(4, conversation.getTitle());
-                    ps.setString(5, conversation.getLlmProvider());
-                    ps.setString(6, conversation.getModelName());
-                    // Handle nulls for boolean values
-                    ps.setInt(7, conversation.getApiKeyUsed() != null && conversation.getApiKeyUsed() ? 1 : 0);
-                    ps.setLong(8, conversation.getInputCost() == null ? 0 : conversation.getInputCost());
-                    ps.setLong(9, conversation.getOutputCost() == null ? 0 : conversation.getOutputCost());
-                    ps.setInt(10, conversation.getContextWindow() == null ? 0 : conversation.getContextWindow());
-                    ps.setInt(11, (int) (conversation.getExecutionTimeMs() > 0 ? conversation.getExecutionTimeMs() : 0));
-                    ps.executeUpdate();
-                }
+    /**
+     * Count the stored messages of a conversation when they match the start of the given messages.
+     *
+     * @return the number of stored messages, or -1 when they do not match
+     */
+    private int countStoredPrefix(@NotNull String conversationId, @NotNull List<ChatMessage> messages) throws SQLException {
+        PreparedStatement ps = prepare("""
+                SELECT (SELECT COUNT(*) FROM chat_messages WHERE conversationId = ?) AS stored, content, encoding
+                FROM chat_messages WHERE conversationId = ?
+                ORDER BY id DESC LIMIT 1
+                """);
+        ps.setString(1, conversationId);
+        ps.setString(2, conversationId);
+        try (ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                return 0;
+            }
+            int stored = rs.getInt("stored");
+            if (stored > messages.size() || !Objects.equals(readContent(rs), messages.get(stored - 1).getContent())) {
+                return -1;
+            }
+            return stored;
+        }
+    }
 
-                // Delete existing messages for this conversation (for updates)
-                try (PreparedStatement deletePs = connection.prepareStatement(
-                        "DELETE FROM chat_messages WHERE conversationId = ?")) {
-                    deletePs.setString(1, conversation.getId());
-                    deletePs.executeUpdate();
+    /**
+     * Get all conversations of a project with their messages.
+     * Prefer {@link #getConversationSummaries} and {@link #getConversation} to list and restore conversations.
+     */
+    @NotNull
+    public List<Conversation> getConversations(@NotNull Project project) {
+        return withConnection("getting conversations", current -> {
+            Map<String, Conversation> conversations = new LinkedHashMap<>();
+            PreparedStatement ps = prepare("SELECT * FROM conversations WHERE projectHash = ?");
+            ps.setString(1, project.getLocationHash());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Conversation conversation = readConversation(rs);
+                    conversations.put(conversation.getId(), conversation);
                 }
+            }
 
-                // Insert chat messages
-                try (PreparedStatement msgPs = connection.prepareStatement(
-                        "INSERT INTO chat_messages (conversationId, content, isUser) VALUES (?, ?, ?)")) {
-                    for (ChatMessage message : conversation.getMessages()) {
-                        msgPs.setString(1, conversation.getId());
-                        msgPs.setString(2, message.getContent());
-                        msgPs.setInt(3, message.isUser() ? 1 : 0); // Store isUser as INTEGER (1=true, 0=false)
-                        msgPs.executeUpdate();
+            // Retrieve the chat messages of all conversations in one query
+            PreparedStatement msgPs = prepare("""
+                    SELECT m.* FROM chat_messages m
+                    JOIN conversations c ON c.id = m.conversationId
+                    WHERE c.projectHash = ?
+                    ORDER BY m.conversationId, m.id
+                    """);
+            msgPs.setString(1, project.getLocationHash());
+            try (ResultSet msgRs = msgPs.executeQuery()) {
+                while (msgRs.next()) {
+                    Conversation conversation = conversations.get(msgRs.getString("conversationId"));
+                    if (conversation != null) {
+                        conversation.getMessages().add(readMessage(msgRs, conversation.getMessages().size()));
                     }
                 }
-                connection.commit();
-            } catch (SQLException e) {
-                log.error("Error adding conversation", e);
-                connection.rollback();
-                throw e;
-            } finally {
-                connection.setAutoCommit(true);
             }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error adding conversation", e);
-        }
+            return new ArrayList<>(conversations.values());
+        });
     }
 
+    /**
+     * Get one page of the conversation headers of a project, newest first, without loading any messages.
+     *
+     * @param project the project
+     * @param offset  the number of conversations to skip
+     * @param limit   the maximum number of conversations to return
+     * @return the conversation headers
+     */
     @NotNull
-    public List<Conversation> getConversations(@NotNull Project project) {
-        List<Conversation> conversations = new ArrayList<>();
-        try (Connection connection = getConnection();
-             PreparedStatement ps = connection.prepareStatement(
-                     "SELECT * FROM conversations WHERE projectHash = ?")) {
+    public List<ConversationSummary> getConversationSummaries(@NotNull Project project, int offset, int limit) {
+        return withConnection("getting conversation summaries", current -> {
+            List<ConversationSummary> summaries = new ArrayList<>();
+            PreparedStatement ps = prepare("""
+                    SELECT c.id, c.title, c.timestamp, c.llmProvider, c.modelName, c.inputCost, c.outputCost,
+                           (SELECT COUNT(*) FROM chat_messages m WHERE m.conversationId = c.id) AS messageCount
+                    FROM conversations c
+                    WHERE c.projectHash = ?
+                    ORDER BY c.timestamp DESC, c.id DESC
+                    LIMIT ? OFFSET ?
+                    """);
             ps.setString(1, project.getLocationHash());
+            ps.setInt(2, limit);
+            ps.setInt(3, offset);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    Conversation conversation = new Conversation();
-                    conversation.setId(rs.getString("id"));
-                    conversation.setTimestamp(rs.getString("timestamp"));
-                    conversation.setTitle(rs.getString("title"));
-                    conversation.setLlmProvider(rs.getString("llmProvider"));
-                    conversation.setModelName(rs.getString("modelName"));
-                    conversation.setApiKeyUsed(rs.getInt("apiKeyUsed") == 1); // Convert INTEGER to boolean
-                    conversation.setInputCost(rs.getLong("inputCost"));
-                    conversation.setOutputCost(rs.getLong("outputCost"));
-                    conversation.setContextWindow(rs.getInt("contextWindow"));
-                    conversation.setExecutionTimeMs(rs.getInt("executionTimeMs"));
-
-                    // Retrieve chat messages for the conversation
-                    List<ChatMessage> messages = new ArrayList<>();
-                    try (PreparedStatement msgPs = connection.prepareStatement(
-                            "SELECT * FROM chat_messages WHERE conversationId = ? ORDER BY id")) {
-                        msgPs.setString(1, conversation.getId());
-                        try (ResultSet msgRs = msgPs.executeQuery()) {
-                            while (msgRs.next()) {
-                                ChatMessage message = new ChatMessage();
-                                message.setContent(msgRs.getString("content"));
-                                
-                                // Check if the isUser column exists in the result set
-                                try {
-                                    int isUserFlag = msgRs.getInt("isUser");
-                                    message.setUser(isUserFlag == 1);
-                                    log.debug("Set isUser flag to {} for message", isUserFlag == 1);
-                                } catch (SQLException e) {
-                                    // Column doesn't exist in older database versions, default to alternating pattern
-                                    message.setUser(messages.size() % 2 == 0);
-                                    log.debug("isUser column not found, defaulting to alternating pattern");
-                                }
-                                
-                                messages.add(message);
-                            }
-                        }
-                    }
-                    conversation.setMessages(messages);
-                    conversations.add(conversation);
+                    summaries.add(new ConversationSummary(
+                            rs.getString("id"),
+                            rs.getString("title"),
+                            rs.getString("timestamp"),
+                            rs.getString("llmProvider"),
+                            rs.getString("modelName"),
+                            rs.getInt("messageCount"),
+                            rs.getLong("inputCost"),
+                            rs.getLong("outputCost")));
                 }
             }
-        } catch (SQLException e) {
-            log.error("Error getting conversations", e);
-            throw new RuntimeException("Error getting conversations", e);
-        }
-        return conversations;
+            return summaries;
+        });
     }
 
-    public void removeConversation(@NotNull Project project, @NotNull Conversation conversation) {
-        try (Connection connection = getConnection()) {
-            connection.setAutoCommit(false);
-            try {
-                // Delete messages first due to foreign key constraint
-                try (PreparedStatement ps = connection.prepareStatement(
-                        "DELETE FROM chat_messages WHERE conversationId = ?")) {
-                    ps.setString(1, conversation.getId());
-                    int messagesDeleted = ps.executeUpdate();
-                    log.info("Deleted {} messages for conversation {}", messagesDeleted, conversation.getId());
-                    if (messagesDeleted == 0) {
-                        log.warn("No messages found for conversation {}", conversation.getId());
-                    }
+    /**
+     * Get a conversation of a project with its messages.
+     *
+     * @param project        the project
+     * @param conversationId the conversation id
+     * @return the conversation, or null when it does not exist
+     */
+    @Nullable
+    public Conversation getConversation(@NotNull Project project, @NotNull String conversationId) {
+        return withConnection("getting conversation", current -> {
+            PreparedStatement ps = prepare("SELECT * FROM conversations WHERE id = ? AND projectHash = ?");
+            ps.setString(1, conversationId);
+            ps.setString(2, project.getLocationHash());
+            Conversation conversation;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
                 }
+                conversation = readConversation(rs);
+            }
+            conversation.setMessages(loadMessages(conversationId));
+            return conversation;
+        });
+    }
 
-                // Then delete the conversation
-                try (PreparedStatement ps = connection.prepareStatement(
-                        "DELETE FROM conversations WHERE id = ? AND projectHash = ?")) {
-                    ps.setString(1, conversation.getId());
-                    ps.setString(2, project.getLocationHash());
-                    int conversationsDeleted = ps.executeUpdate();
-                    log.info("Deleted " + conversationsDeleted + " conversations with ID " + conversation.getId());
-                    if (conversationsDeleted == 0) {
-                        log.warn("No conversation found with ID " + conversation.getId() + " and project hash " + project.getLocationHash());
-                    }
+    /**
+     * Get the stored chat memory of a conversation, oldest message first.
+     *
+     * @param conversationId the conversation id
+     * @return the stored messages, empty when the chat memory of the conversation was never stored
+     */
+    @NotNull
+    public List<ChatMemoryRecord> getChatMemory(@NotNull String conversationId) {
+        return withConnection("getting chat memory", current -> {
+            List<ChatMemoryRecord> records = new ArrayList<>();
+            PreparedStatement ps = prepare("SELECT id, message FROM chat_memory_messages WHERE conversationId = ? ORDER BY id");
+            ps.setString(1, conversationId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    records.add(new ChatMemoryRecord(rs.getLong("id"), rs.getString("message")));
                 }
-                connection.commit();
-            } catch (SQLException e) {
-                log.error("Error removing conversation", e);
-                connection.rollback();
-                throw e;
-            } finally {
-                connection.setAutoCommit(true);
             }
+            return records;
+        });
+    }
+
+    /**
+     * Update the stored chat memory of a conversation: remove messages and append new ones.
+     *
+     * @param conversationId the conversation id
+     * @param removedIds     the ids of the stored messages to remove
+     * @param newMessages    the serialized messages to append
+     * @return the ids of the appended messages
+     */
+    @NotNull
+    public List<Long> updateChatMemory(@NotNull String conversationId,
+                                       @NotNull List<Long> removedIds,
+                                       @NotNull List<String> newMessages) {
+        lastWriteMillis = System.currentTimeMillis();
+        return inTransaction("updating chat memory", current -> {
+            if (!removedIds.isEmpty()) {
+                PreparedStatement deletePs = prepare("DELETE FROM chat_memory_messages WHERE id = ?");
+                for (long id : removedIds) {
+                    deletePs.setLong(1, id);
+                    deletePs.addBatch();
+                }
+                deletePs.executeBatch();
+            }
+
+            List<Long> ids = new ArrayList<>(newMessages.size());
+            PreparedStatement insertPs = prepare(
+                    "INSERT INTO chat_memory_messages (conversationId, message) VALUES (?, ?) RETURNING id");
+            for (String message : newMessages) {
+                insertPs.setString(1, conversationId);
+                insertPs.setString(2, message);
+                try (ResultSet rs = insertPs.executeQuery()) {
+                    rs.next();
+                    ids.add(rs.getLong(1));
+                }
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * Delete the stored chat memory of a conversation, the conversation itself is kept.
+     *
+     * @param conversationId the conversation id
+     */
+    public void deleteChatMemory(@NotNull String conversationId) {
+        lastWriteMillis = System.currentTimeMillis();
+        withConnection("deleting chat memory", current -> {
+            PreparedStatement ps = prepare("DELETE FROM chat_memory_messages WHERE conversationId = ?");
+            ps.setString(1, conversationId);
+            return ps.executeUpdate();
+        });
+    }
+
+    /**
+     * Search the messages of the conversations of a project, best matches first.
+     * Every word of the query must match, the last word also as a prefix so results follow typing.
+     *
+     * @param project the project
+     * @param query   the text typed by the user
+     * @param limit   the maximum number of conversations to return
+     * @return one result per matching conversation
+     */
+    @NotNull
+    public List<ConversationSearchResult> searchConversations(@NotNull Project project, @NotNull String query, int limit) {
+        String matchQuery = toMatchQuery(query);
+        if (matchQuery.isEmpty()) {
+            return List.of();
+        }
+        return withConnection("searching conversations", current -> {
+            PreparedStatement ps;
+            if (fullTextSearchAvailable) {
+                ps = prepare("""
+                        SELECT c.id, c.title, c.timestamp,
+                               snippet(chat_messages_fts, 0, ?, ?, '...', ?) AS snippet,
+                               bm25(chat_messages_fts) AS rank
+                        FROM chat_messages_fts
+                        JOIN chat_messages m ON m.id = chat_messages_fts.rowid
+                        JOIN conversations c ON c.id = m.conversationId
+                        WHERE chat_messages_fts MATCH ? AND c.projectHash = ?
+                        ORDER BY rank
+                        LIMIT ?
+                        """);
+                ps.setString(1, ConversationSearchResult.HIGHLIGHT_START);
+                ps.setString(2, ConversationSearchResult.HIGHLIGHT_END);
+                ps.setInt(3, SNIPPET_TOKENS);
+                ps.setString(4, matchQuery);
+                ps.setString(5, project.getLocationHash());
+                ps.setInt(6, limit * HITS_PER_RESULT);
+            } else {
+                ps = prepare("""
+                        SELECT c.id, c.title, c.timestamp, substr(m.content, 1, 200) AS snippet, 0 AS rank
+                        FROM chat_messages_text m
+                        JOIN conversations c ON c.id = m.conversationId
+                        WHERE m.content LIKE ? ESCAPE '\\' AND c.projectHash = ?
+                        ORDER BY c.timestamp DESC
+                        LIMIT ?
+                        """);
+                ps.setString(1, "%" + query.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+                ps.setString(2, project.getLocationHash());
+                ps.setInt(3, limit * HITS_PER_RESULT);
+            }
+
+            // Keep the best hit of each conversation
+            Map<String, ConversationSearchResult> results = new LinkedHashMap<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next() && results.size() < limit) {
+                    results.putIfAbsent(rs.getString("id"), new ConversationSearchResult(
+                            rs.getString("id"),
+                            rs.getString("title"),
+                            rs.getString("timestamp"),
+                            rs.getString("snippet"),
+                            rs.getDouble("rank")));
+                }
+            }
+            return new ArrayList<>(results.values());
+        });
+    }
+
+    /**
+     * Turn typed text into an FTS5 query. Every word is quoted so operators and punctuation are
+     * taken literally, and the last word matches as a prefix.
+     */
+    static @NotNull String toMatchQuery(@NotNull String query) {
+        String[] words = query.trim().split("\\s+");
+        StringBuilder matchQuery = new StringBuilder();
+        for (int i = 0; i < words.length; i++) {
+            if (words[i].isEmpty()) {
+                continue;
+            }
+            if (!matchQuery.isEmpty()) {
+                matchQuery.append(' ');
+            }
+            matchQuery.append('"').append(words[i].replace("\"", "\"\"")).append('"');
+            if (i == words.length - 1) {
+                matchQuery.append('*');
+            }
+        }
+        return matchQuery.toString();
+    }
+
+    private static @NotNull Conversation readConversation(@NotNull ResultSet rs) throws SQLException {
+        Conversation conversation = new Conversation();
+        conversation.setId(rs.getString("id"));
+        conversation.setTimestamp(rs.getString("timestamp"));
+        conversation.setTitle(rs.getString("title"));
+        conversation.setLlmProvider(rs.getString("llmProvider"));
+        conversation.setModelName(rs.getString("modelName"));
+        conversation.setApiKeyUsed(rs.getInt("apiKeyUsed") == 1); // Convert INTEGER to boolean
+        conversation.setInputCost(rs.getLong("inputCost"));
+        conversation.setOutputCost(rs.getLong("outputCost"));
+        conversation.setContextWindow(rs.getInt("contextWindow"));
+        conversation.setExecutionTimeMs(rs.getInt("executionTimeMs"));
+        return conversation;
+    }
+
+    private @NotNull List<ChatMessage> loadMessages(@NotNull String conversationId) throws SQLException {
+        List<ChatMessage> messages = new ArrayList<>();
+        PreparedStatement msgPs = prepare("SELECT * FROM chat_messages WHERE conversationId = ? ORDER BY id");
+        msgPs.setString(1, conversationId);
+        try (ResultSet msgRs = msgPs.executeQuery()) {
+            while (msgRs.next()) {
+                messages.add(readMessage(msgRs, messages.size()));
+            }
+        }
+        return messages;
+    }
+
+    private static @NotNull ChatMessage readMessage(@NotNull ResultSet msgRs, int index) throws SQLException {
+        ChatMessage message = new ChatMessage();
+        message.setContent(readContent(msgRs));
+
+        // Check if the isUser column exists in the result set
+        try {
+            int isUserFlag = msgRs.getInt("isUser");
+            message.setUser(isUserFlag == 1);
         } catch (SQLException e) {
-            throw new RuntimeException("Error removing conversation", e);
+            // Column doesn't exist in older database versions, default to alternating pattern
+            message.setUser(index % 2 == 0);
+            log.debug("isUser column not found, defaulting to alternating pattern");
         }
+        return message;
+    }
+
+    private static @Nullable String readContent(@NotNull ResultSet rs) throws SQLException {
+        if (rs.getInt("encoding") == MessageCodec.DEFLATE) {
+            return MessageCodec.decompress(rs.getBytes("content"));
+        }
+        return rs.getString("content");
+    }
+
+    public void removeConversation(@NotNull Project project, @NotNull Conversation conversation) {
+        inTransaction("removing conversation", current -> {
+            // Delete messages first due to foreign key constraint
+            PreparedStatement memoryPs = prepare("DELETE FROM chat_memory_messages WHERE conversationId = ?");
+            memoryPs.setString(1, conversation.getId());
+            memoryPs.executeUpdate();
+
+            PreparedStatement messagesPs = prepare("DELETE FROM chat_messages WHERE conversationId = ?");
+            messagesPs.setString(1, conversation.getId());
+            int messagesDeleted = messagesPs.executeUpdate();
+            log.info("Deleted {} messages for conversation {}", messagesDeleted, conversation.getId());
+            if (messagesDeleted == 0) {
+                log.warn("No messages found for conversation {}", conversation.getId());
+            }
+
+            // Then delete the conversation
+            PreparedStatement ps = prepare("DELETE FROM conversations WHERE id = ? AND projectHash = ?");
+            ps.setString(1, conversation.getId());
+            ps.setString(2, project.getLocationHash());
+            int conversationsDeleted = ps.executeUpdate();
+            log.info("Deleted " + conversationsDeleted + " conversations with ID " + conversation.getId());
+            if (conversationsDeleted == 0) {
+                log.warn("No conversation found with ID " + conversation.getId() + " and project hash " + project.getLocationHash());
+            }
+            return null;
+        });
     }
 
     public void clearAllConversations(@NotNull Project project) {
-        try (Connection connection = getConnection()) {
-            connection.setAutoCommit(false);
-            try {
-                // Delete all messages for conversations in this project
-                try (PreparedStatement ps = connection.prepareStatement(
-                        """
-                                DELETE FROM chat_messages
-                                WHERE conversationId IN (
-                                    SELECT id FROM conversations WHERE projectHash = ?
-                                )
-                                """)) {
-                    ps.setString(1, project.getLocationHash());
-                    ps.executeUpdate();
+        inTransaction("clearing conversations", current -> {
+            // Delete all messages for conversations in this project
+            PreparedStatement memoryPs = prepare("""
+                    DELETE FROM chat_memory_messages
+                    WHERE conversationId IN (
+                        SELECT id FROM conversations WHERE projectHash = ?
+                    )
+                    """);
+            memoryPs.setString(1, project.getLocationHash());
+            memoryPs.executeUpdate();
+
+            PreparedStatement messagesPs = prepare("""
+                    DELETE FROM chat_messages
+                    WHERE conversationId IN (
+                        SELECT id FROM conversations WHERE projectHash = ?
+                    )
+                    """);
+            messagesPs.setString(1, project.getLocationHash());
+            messagesPs.executeUpdate();
+
+            // Then delete all conversations
+            PreparedStatement ps = prepare("DELETE FROM conversations WHERE projectHash = ?");
+            ps.setString(1, project.getLocationHash());
+            ps.executeUpdate();
+            return null;
+        });
+    }
+
+    /**
+     * Delete the conversations that fall outside the retention limits. A limit of 0 or less is not applied.
+     *
+     * @param maxAgeDays       delete conversations started longer ago than this
+     * @param maxConversations keep at most this many conversations per project, the newest ones
+     * @param maxSizeBytes     delete the oldest conversations until the data takes at most this much space
+     * @return the number of deleted conversations
+     */
+    public int applyRetention(int maxAgeDays, int maxConversations, long maxSizeBytes) {
+        int deleted = 0;
+        if (maxAgeDays > 0) {
+            String cutoff = LocalDateTime.now().minusDays(maxAgeDays).toString();
+            deleted += deleteConversations("timestamp < ?", ps -> ps.setString(1, cutoff));
+        }
+        if (maxConversations > 0) {
+            // Counted per project, so a busy project does not delete the history of the others
+            deleted += deleteConversations("""
+                    id IN (SELECT id FROM (
+                        SELECT id, ROW_NUMBER() OVER (PARTITION BY projectHash ORDER BY timestamp DESC) AS position
+                        FROM conversations)
+                    WHERE position > ?)""",
+                    ps -> ps.setInt(1, maxConversations));
+        }
+        if (maxSizeBytes > 0) {
+            // Deleted rows become free pages, so the used pages are compared instead of the file size
+            while (getUsedBytes() > maxSizeBytes) {
+                int oldest = deleteConversations(
+                        "id IN (SELECT id FROM conversations ORDER BY timestamp ASC LIMIT ?)",
+                        ps -> ps.setInt(1, DELETE_COUNT));
+                if (oldest == 0) {
+                    break;
                 }
+                deleted += oldest;
+            }
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} conversations outside the retention limits", deleted);
+        }
+        return deleted;
+    }
 
-                // Then delete all conversations
-                try (PreparedStatement ps = connection.prepareStatement(
-                        "DELETE FROM conversations WHERE projectHash = ?")) {
-                    ps.setString(1, project.getLocationHash());
-                    ps.executeUpdate();
+    @FunctionalInterface
+    private interface ParameterSetter {
+        void set(PreparedStatement ps) throws SQLException;
+    }
+
+    private int deleteConversations(@NotNull String condition, @NotNull ParameterSetter parameters) {
+        return inTransaction("deleting old conversations", current -> {
+            PreparedStatement memoryPs = prepare(
+                    "DELETE FROM chat_memory_messages WHERE conversationId IN (SELECT id FROM conversations WHERE " + condition + ")");
+            parameters.set(memoryPs);
+            memoryPs.executeUpdate();
+
+            PreparedStatement messagesPs = prepare(
+                    "DELETE FROM chat_messages WHERE conversationId IN (SELECT id FROM conversations WHERE " + condition + ")");
+            parameters.set(messagesPs);
+            messagesPs.executeUpdate();
+
+            PreparedStatement ps = prepare("DELETE FROM conversations WHERE " + condition);
+            parameters.set(ps);
+            return ps.executeUpdate();
+        });
+    }
+
+    private long getUsedBytes() {
+        return withConnection("measuring database", current ->
+                (pragmaLong("page_count") - pragmaLong("freelist_count")) * pragmaLong("page_size"));
+    }
+
+    /**
+     * Compress the content of large messages which are stored as plain text.
+     * Compressed messages are still found by the search, which reads them through {@code chat_messages_text}.
+     *
+     * @param minChars the minimum length of a message to compress
+     * @param maxCount the maximum number of messages to compress in this call
+     * @return the number of compressed messages
+     */
+    public int compressLargeMessages(int minChars, int maxCount) {
+        Map<Long, String> candidates = withConnection("finding large messages", current -> {
+            Map<Long, String> found = new LinkedHashMap<>();
+            PreparedStatement ps = prepare(
+                    "SELECT id, content FROM chat_messages WHERE encoding = 0 AND length(content) >= ? LIMIT ?");
+            ps.setInt(1, minChars);
+            ps.setInt(2, maxCount);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    found.put(rs.getLong("id"), rs.getString("content"));
                 }
-                connection.commit();
-            } catch (SQLException e) {
-                log.error("Error clearing conversations", e);
-                connection.rollback();
-                throw e;
-            } finally {
-                connection.setAutoCommit(true);
             }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error clearing conversations", e);
+            return found;
+        });
+        if (candidates.isEmpty()) {
+            return 0;
         }
+
+        // Compress outside the lock, saves can continue meanwhile
+        Map<Long, byte[]> compressed = new LinkedHashMap<>();
+        candidates.forEach((id, content) -> {
+            byte[] bytes = MessageCodec.compress(content);
+            if (bytes.length < content.length()) {
+                compressed.put(id, bytes);
+            }
+        });
+
+        return inTransaction("compressing messages", current -> {
+            // Only update messages which are still plain, a rewrite may have replaced them
+            PreparedStatement ps = prepare(
+                    "UPDATE chat_messages SET content = ?, encoding = ? WHERE id = ? AND encoding = 0");
+            for (Map.Entry<Long, byte[]> entry : compressed.entrySet()) {
+                ps.setBytes(1, entry.getValue());
+                ps.setInt(2, MessageCodec.DEFLATE);
+                ps.setLong(3, entry.getKey());
+                ps.addBatch();
+            }
+            int updated = 0;
+            for (int count : ps.executeBatch()) {
+                updated += Math.max(count, 0);
+            }
+            return updated;
+        });
     }
 
-    private void cleanupOldConversations() {
-        try (Connection connection = getConnection()) {
-            connection.setAutoCommit(false);
-            try {
-                // Delete the oldest DELETE_COUNT conversations based on the timestamp
-                try (PreparedStatement ps = connection.prepareStatement(
-                        "DELETE FROM conversations WHERE id IN (" +
-                                "SELECT id FROM conversations ORDER BY timestamp ASC LIMIT ?)")) {
-                    ps.setInt(1, DELETE_COUNT);
-                    int deleted = ps.executeUpdate();
-                    log.info("Deleted {} old conversations to free up space", deleted);
+    /**
+     * Return free pages to the file system. The first call switches the database to incremental
+     * vacuum, which needs one full VACUUM.
+     *
+     * @param maxPages the maximum number of pages to free
+     */
+    public void vacuum(int maxPages) {
+        withConnection("vacuuming database", current -> {
+            try (Statement statement = current.createStatement()) {
+                if (pragmaLong("auto_vacuum") != 2) {
+                    log.info("Switching conversation database to incremental vacuum");
+                    statement.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                    statement.execute("VACUUM");
+                } else {
+                    statement.execute("PRAGMA incremental_vacuum(" + maxPages + ")");
                 }
-                // Also delete associated messages
-                try (PreparedStatement ps = connection.prepareStatement(
-                        "DELETE FROM chat_messages WHERE conversationId NOT IN (SELECT id FROM conversations)")) {
-                    int msgDeleted = ps.executeUpdate();
-                    log.info("Deleted {} orphaned chat messages", msgDeleted);
+                // Also shrink the write-ahead log
+                statement.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Measure how the space of the database is used.
+     *
+     * @return the space used per category
+     */
+    @NotNull
+    public ConversationStorageUsage getStorageUsage() {
+        return withConnection("measuring database", current -> {
+            long pageSize = pragmaLong("page_size");
+            long freeBytes = pragmaLong("freelist_count") * pageSize;
+
+            int conversationCount;
+            try (Statement statement = current.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM conversations")) {
+                conversationCount = rs.next() ? rs.getInt(1) : 0;
+            }
+
+            int messageCount = 0;
+            long plainBytes = 0;
+            long compressedBytes = 0;
+            try (Statement statement = current.createStatement();
+                 ResultSet rs = statement.executeQuery(
+                         "SELECT encoding, COUNT(*) AS messages, SUM(length(CAST(content AS BLOB))) AS bytes FROM chat_messages GROUP BY encoding")) {
+                while (rs.next()) {
+                    messageCount += rs.getInt("messages");
+                    if (rs.getInt("encoding") == MessageCodec.PLAIN) {
+                        plainBytes += rs.getLong("bytes");
+                    } else {
+                        compressedBytes += rs.getLong("bytes");
+                    }
                 }
+            }
+
+            long searchIndexBytes = -1;
+            try (Statement statement = current.createStatement();
+                 ResultSet rs = statement.executeQuery(
+                         "SELECT SUM(pgsize) FROM dbstat WHERE name LIKE 'chat_messages_fts%'")) {
+                searchIndexBytes = rs.next() ? rs.getLong(1) : 0;
             } catch (SQLException e) {
-                connection.rollback();
-                throw e;
-            } finally {
-                connection.setAutoCommit(true);
+                // Not every SQLite build has the dbstat table
+                log.debug("Size of the search index is not available: {}", e.getMessage());
             }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error clearing conversations", e);
+
+            return new ConversationStorageUsage(
+                    fileSize(Path.of(dbPath)),
+                    fileSize(Path.of(dbPath + "-wal")),
+                    freeBytes,
+                    plainBytes,
+                    compressedBytes,
+                    searchIndexBytes,
+                    conversationCount,
+                    messageCount);
+        });
+    }
+
+    /**
+     * @return when a conversation was last saved, in epoch milliseconds
+     */
+    public long getLastWriteMillis() {
+        return lastWriteMillis;
+    }
+
+    private long pragmaLong(@NotNull String pragma) throws SQLException {
+        try (Statement statement = getConnection().createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA " + pragma)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static long fileSize(@NotNull Path file) {
+        try {
+            return Files.exists(file) ? Files.size(file) : 0;
+        } catch (IOException e) {
+            return 0;
         }
     }
-    
+
     /**
      * Migrate database to newer schema if needed.
      * This method handles adding new columns and populating existing records
      * with appropriate values to ensure backward compatibility.
      */
     private void migrateDatabase() {
-        try (Connection connection = getConnection()) {
-            connection.setAutoCommit(false);
-            
-            try {
-                // Check if isUser column exists in chat_messages table
-                boolean isUserColumnExists = false;
-                try (Statement statement = connection.createStatement();
+        try {
+            inTransaction("during database migration", current -> {
+                // Check which columns exist in chat_messages table
+                Set<String> columns = new HashSet<>();
+                try (Statement statement = current.createStatement();
                      ResultSet rs = statement.executeQuery("PRAGMA table_info(chat_messages)")) {
-                    
                     while (rs.next()) {
-                        String columnName = rs.getString("name");
-                        if ("isUser".equals(columnName)) {
-                            isUserColumnExists = true;
-                            log.info("isUser column already exists in chat_messages table");
-                            break;
-                        }
+                        columns.add(rs.getString("name"));
                     }
                 }
-                
+
+                if (!columns.contains("encoding")) {
+                    log.info("Adding encoding column to chat_messages table");
+                    try (Statement statement = current.createStatement()) {
+                        statement.execute("ALTER TABLE chat_messages ADD COLUMN encoding INTEGER NOT NULL DEFAULT 0");
+                    }
+                }
+
+                boolean isUserColumnExists = columns.contains("isUser");
+
                 if (!isUserColumnExists) {
                     log.info("Adding isUser column to chat_messages table");
-                    
+
                     // Add the isUser column to the table
-                    try (Statement statement = connection.createStatement()) {
+                    try (Statement statement = current.createStatement()) {
                         statement.execute("ALTER TABLE chat_messages ADD COLUMN isUser INTEGER DEFAULT 0");
                     }
-                    
-                    // Process all conversations to set isUser flag correctly
-                    try (Statement statement = connection.createStatement();
-                         ResultSet conversationRs = statement.executeQuery("SELECT id FROM conversations")) {
-                        
-                        while (conversationRs.next()) {
-                            String conversationId = conversationRs.getString("id");
-                            
-                            // Get messages for this conversation
-                            try (PreparedStatement msgPs = connection.prepareStatement(
-                                 "SELECT id FROM chat_messages WHERE conversationId = ? ORDER BY id")) {
-                                msgPs.setString(1, conversationId);
-                                ResultSet msgRs = msgPs.executeQuery();
-                                
-                                // Set every even-indexed message as user (isUser=1)
-                                // and every odd-indexed message as AI (isUser=0)
-                                int messageIndex = 0;
-                                while (msgRs.next()) {
-                                    int messageId = msgRs.getInt("id");
-                                    boolean isUser = messageIndex % 2 == 0; // Even index = user message
-                                    
-                                    try (PreparedStatement updatePs = connection.prepareStatement(
-                                         "UPDATE chat_messages SET isUser = ? WHERE id = ?")) {
-                                        updatePs.setInt(1, isUser ? 1 : 0);
-                                        updatePs.setInt(2, messageId);
-                                        updatePs.executeUpdate();
-                                    }
-                                    
-                                    messageIndex++;
-                                }
-                                
-                                log.debug("Updated {} messages for conversation {}", messageIndex, conversationId);
-                            }
-                        }
+
+                    // Set every even-indexed message as user (isUser=1)
+                    // and every odd-indexed message as AI (isUser=0)
+                    try (Statement statement = current.createStatement()) {
+                        int updated = statement.executeUpdate("""
+                                UPDATE chat_messages SET isUser = (
+                                    SELECT CASE WHEN COUNT(*) % 2 = 0 THEN 1 ELSE 0 END
+                                    FROM chat_messages earlier
+                                    WHERE earlier.conversationId = chat_messages.conversationId
+                                      AND earlier.id < chat_messages.id
+                                )
+                                """);
+                        log.debug("Updated {} messages", updated);
                     }
-                    
+
                     log.info("Database migration completed successfully");
                 }
-                
-                connection.commit();
-            } catch (SQLException e) {
-                connection.rollback();
-                log.error("Error during database migration", e);
-                // Don't throw exception to allow application to continue with fallback behavior
-            } finally {
-                connection.setAutoCommit(true);
-            }
-        } catch (SQLException e) {
-            log.error("Failed to connect to database for migration", e);
+                return null;
+            });
+        } catch (RuntimeException e) {
             // Don't throw exception to allow application to continue with fallback behavior
+            log.error("Database migration failed", e);
+        }
+    }
+
+    /**
+     * {@code message_text(content, encoding)}, the text of a stored message.
+     */
+    private static class MessageTextFunction extends Function {
+        @Override
+        protected void xFunc() throws SQLException {
+            if (value_int(1) == MessageCodec.DEFLATE) {
+                result(MessageCodec.decompress(value_blob(0)));
+            } else {
+                result(value_text(0));
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (lock) {
+            for (PreparedStatement ps : statements.values()) {
+                try {
+                    ps.close();
+                } catch (SQLException e) {
+                    log.debug("Error closing statement", e);
+                }
+            }
+            statements.clear();
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.warn("Error closing conversation database", e);
+                }
+                connection = null;
+            }
         }
     }
 }
@@ -0,0 +1,23 @@
+package com.devoxx.genie.service.conversations;
+
+/**
+ * How the space of the conversation database is used.
+ *
+ * @param fileBytes           size of the database file
+ * @param walBytes            size of the write-ahead log
+ * @param freeBytes           free pages in the database file, returned by a vacuum
+ * @param messageBytes        plain message contents
+ * @param compressedBytes     compressed message contents
+ * @param searchIndexBytes    the full-text search index, or -1 when it cannot be measured
+ * @param conversationCount   stored conversations
+ * @param messageCount        stored messages
+ */
+public record ConversationStorageUsage(long fileBytes,
+                                       long walBytes,
+                                       long freeBytes,
+                                       long messageBytes,
+                                       long compressedBytes,
+                                       long searchIndexBytes,
+                                       int conversationCount,
+                                       int messageCount) {
+}
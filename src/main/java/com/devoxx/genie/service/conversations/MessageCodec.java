@@ -0,0 +1,47 @@
+package com.devoxx.genie.service.conversations;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Encoding of the content column of stored chat messages.
+ * Large messages, like pasted project context, compress well and are stored deflated.
+ */
+final class MessageCodec {
+
+    static final int PLAIN = 0;
+    static final int DEFLATE = 1;
+
+    private MessageCodec() {
+    }
+
+    static byte[] compress(@NotNull String content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length() / 4);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    static @NotNull String decompress(byte[] compressed) {
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
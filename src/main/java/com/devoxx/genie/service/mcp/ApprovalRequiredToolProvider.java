@@ -1,5 +1,9 @@
 package com.devoxx.genie.service.mcp;
 
+import com.devoxx.genie.model.mcp.MCPMessage;
+import com.devoxx.genie.model.mcp.MCPType;
+import com.devoxx.genie.ui.topic.AppTopics;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 
 import org.jetbrains.annotations.NotNull;
@@ -10,14 +14,28 @@ import dev.langchain4j.service.tool.ToolProvider;
 import dev.langchain4j.service.tool.ToolProviderRequest;
 import dev.langchain4j.service.tool.ToolProviderResult;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class ApprovalRequiredToolProvider implements ToolProvider {
 
     private final ToolProvider delegate;
     private final Project project;
+    private final Map<String, String> toolServers;
 
     public ApprovalRequiredToolProvider(ToolProvider delegate, Project project) {
+        this(delegate, project, Map.of());
+    }
+
+    /**
+     * @param delegate    The provider of the tools
+     * @param project     The project used for the approval dialog
+     * @param toolServers The MCP server name of each tool, used to limit concurrent calls per server
+     */
+    public ApprovalRequiredToolProvider(ToolProvider delegate, Project project, Map<String, String> toolServers) {
         this.delegate = delegate;
         this.project = project;
+        this.toolServers = toolServers;
     }
 
     @Override
@@ -26,12 +44,23 @@ public class ApprovalRequiredToolProvider implements ToolProvider {
 
         ToolProviderResult.Builder builder = ToolProviderResult.builder();
 
+        Map<String, ToolExecutor> executorsByName = new HashMap<>();
+        delegateResult.tools().forEach((spec, executor) -> executorsByName.put(spec.name(), executor));
+
         for (var entry : delegateResult.tools().entrySet()) {
             ToolSpecification spec = entry.getKey();
             ToolExecutor originalExecutor = entry.getValue();
 
             // Wrap the original executor
             ToolExecutor approvalExecutor = (toolExecutionRequest, memoryId) -> {
+                // Calls of the same model response are approved together and run concurrently
+                MCPToolCallStage.CallResult batched = MCPToolCallStage.getInstance().execute(
+                        toolExecutionRequest, memoryId, project, executorsByName, toolServers::get);
+                if (batched != null) {
+                    logLatency(toolExecutionRequest.name(), batched.durationMillis());
+                    return batched.text();
+                }
+
                 boolean approved = MCPApprovalService.requestApproval(
                         project,
                         toolExecutionRequest.name(),
@@ -39,10 +68,13 @@ public class ApprovalRequiredToolProvider implements ToolProvider {
                 );
                 if (approved) {
                     MCPService.logDebug("MCP tool execution approved: " + toolExecutionRequest.name());
-                    return originalExecutor.execute(toolExecutionRequest, memoryId);
+                    long started = System.nanoTime();
+                    String result = originalExecutor.execute(toolExecutionRequest, memoryId);
+                    logLatency(toolExecutionRequest.name(), (System.nanoTime() - started) / 1_000_000);
+                    return result;
                 } else {
                     MCPService.logDebug("MCP tool execution denied: " + toolExecutionRequest.name());
-                    return "Tool execution was denied by the user.";
+                    return MCPToolCallStage.DENIED_RESULT;
                 }
             };
 
@@ -51,4 +83,17 @@ public class ApprovalRequiredToolProvider implements ToolProvider {
 
         return builder.build();
     }
+
+    private static void logLatency(@NotNull String toolName, long durationMillis) {
+        String message = "Tool " + toolName + " completed in " + durationMillis + " ms";
+        MCPService.logDebug(message);
+        if (MCPService.isDebugLogsEnabled()) {
+            ApplicationManager.getApplication().getMessageBus()
+                    .syncPublisher(AppTopics.MCP_LOGGING_MSG)
+                    .onMCPLoggingMessage(MCPMessage.builder()
+                            .type(MCPType.LOG_MSG)
+                            .content(message)
+                            .build());
+        }
+    }
 }
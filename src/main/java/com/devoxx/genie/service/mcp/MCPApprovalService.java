@@ -4,10 +4,12 @@ import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import javax.swing.Action;
 import javax.swing.JComponent;
@@ -25,6 +27,8 @@ import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.util.ui.JBUI;
 
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+
 import lombok.extern.slf4j.Slf4j;
 
 import org.jetbrains.annotations.NotNull;
@@ -45,6 +49,31 @@ public class MCPApprovalService {
      * @return true if approved, false if denied or timed out
      */
     public static boolean requestApproval(@Nullable Project project, @NotNull String toolName, @NotNull String arguments) {
+        return showApprovalDialog(project, toolName, arguments);
+    }
+
+    /**
+     * Request user approval for all tool executions of one model response in a single dialog
+     *
+     * @param project The current project
+     * @param requests The tool executions requested together
+     * @return true if all are approved, false if denied or timed out
+     */
+    public static boolean requestApproval(@Nullable Project project, @NotNull List<ToolExecutionRequest> requests) {
+        if (requests.size() == 1) {
+            ToolExecutionRequest request = requests.get(0);
+            return requestApproval(project, request.name(), request.arguments());
+        }
+        String toolNames = requests.stream()
+                .map(ToolExecutionRequest::name)
+                .collect(Collectors.joining(", "));
+        String arguments = requests.stream()
+                .map(request -> request.name() + ": " + request.arguments())
+                .collect(Collectors.joining("\n\n"));
+        return showApprovalDialog(project, toolNames, arguments);
+    }
+
+    private static boolean showApprovalDialog(@Nullable Project project, @NotNull String toolName, @NotNull String arguments) {
         DevoxxGenieStateService stateService = DevoxxGenieStateService.getInstance();
         // Skip approval if running in headless mode or if approval is not required
         if (ApplicationManager.getApplication().isHeadlessEnvironment() ||
@@ -6,7 +6,6 @@ import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 
-import dev.langchain4j.mcp.McpToolProvider;
 import dev.langchain4j.mcp.client.DefaultMcpClient;
 import dev.langchain4j.mcp.client.McpClient;
 import dev.langchain4j.mcp.client.transport.http.HttpMcpTransport;
@@ -39,6 +38,25 @@ public class MCPExecutionService implements Disposable {
      * Clears the client cache, forcing new client creation on next request
      */
     public void clearClientCache() {
+        closeAllClients();
+        // The tools were listed with the closed clients
+        MCPToolRegistry.getInstance().invalidate();
+    }
+
+    /**
+     * Close and forget the client of one server, a new client is created on next request
+     *
+     * @param serverName The name of the server
+     */
+    void closeClient(@NotNull String serverName) {
+        McpClient client = clientCache.remove(serverName);
+        if (client != null) {
+            MCPService.logDebug("Closing MCP client for: " + serverName);
+            closeClientSafely(client);
+        }
+    }
+
+    private void closeAllClients() {
         MCPService.logDebug("Clearing MCP client cache: " + clientCache.size() + " clients");
         // Close each client to clean up resources
         for (Map.Entry<String, McpClient> entry : clientCache.entrySet()) {
@@ -73,11 +91,13 @@ public class MCPExecutionService implements Disposable {
     @Override
     public void dispose() {
         log.info("Disposing MCPExecutionService, closing all clients");
-        clearClientCache();
+        closeAllClients();
     }
     
     /**
      * Creates tool providers for all configured MCP servers
+     * The tools come from the {@link MCPToolRegistry} snapshot, so the servers are only contacted
+     * when their tools are not known yet or changed.
      *
      * @param project Holds the project information
      * @return A ToolProvider that includes all enabled MCP tools, or null if MCP is disabled or no servers are configured
@@ -95,28 +115,16 @@ public class MCPExecutionService implements Disposable {
             return null;
         }
 
-        // Filter enabled servers, map to clients, and collect
-        List<McpClient> mcpClients = mcpServers.values().stream()
-                .filter(MCPServer::isEnabled)
-                .peek(server -> MCPService.logDebug("Processing MCP server: " + server.getName()))
-                .map(this::createMcpClient)
-                .filter(Objects::nonNull)
-                .peek(client -> MCPService.logDebug("Added MCP client"))
-                .collect(Collectors.toList());
-
-        if (mcpClients.isEmpty()) {
-            MCPService.logDebug("No MCP clients could be created");
+        MCPToolRegistry.ToolSnapshot snapshot = MCPToolRegistry.getInstance().getSnapshot(mcpServers);
+        if (snapshot.isEmpty()) {
+            MCPService.logDebug("No MCP tools available");
             return null;
         }
 
-        MCPService.logDebug("Creating MCP Tool Provider with " + mcpClients.size() + " clients");
-        // Create the original MCP tool provider
-        ToolProvider originalProvider = McpToolProvider.builder()
-                .mcpClients(mcpClients)
-                .build();
+        MCPService.logDebug("Creating MCP Tool Provider with " + snapshot.toolCount() + " tools");
 
         // Wrap it with the custom approval-requiring provider
-        return new ApprovalRequiredToolProvider(originalProvider, project);
+        return new ApprovalRequiredToolProvider(snapshot.toToolProvider(this::createMcpClient), project, snapshot.toolServers());
     }
 
     /**
@@ -126,8 +134,9 @@ public class MCPExecutionService implements Disposable {
      * @return An initialized MCP client or null if creation fails
      */
     @Nullable
-    private McpClient createMcpClient(@NotNull MCPServer mcpServer) {
+    McpClient createMcpClient(@NotNull MCPServer mcpServer) {
         String serverName = mcpServer.getName();
+        Runnable onToolListChanged = () -> MCPToolRegistry.getInstance().toolsChanged(serverName);
 
         // Check if we already have a client for this server
         if (clientCache.containsKey(serverName)) {
@@ -143,7 +152,7 @@ public class MCPExecutionService implements Disposable {
 
             if (mcpServer.getTransportType() == MCPServer.TransportType.HTTP_SSE) {
                 // Create HTTP SSE client
-                client = initHttpSseClient(mcpServer);
+                client = initHttpSseClient(mcpServer, onToolListChanged);
             } else {
                 // Default to STDIO transport
                 // Handle bash commands differently based on working implementation
@@ -156,7 +165,7 @@ public class MCPExecutionService implements Disposable {
                 MCPService.logDebug("Command list: " + commandList);
 
                 // Create the client using the helper method
-                client = initStdioClient(commandList, mcpServer.getEnv());
+                client = initStdioClient(commandList, mcpServer.getEnv(), onToolListChanged);
             }
 
             // Cache the client if not null
@@ -175,10 +184,11 @@ public class MCPExecutionService implements Disposable {
      * Helper method to initialize an HTTP SSE client with error handling
      * 
      * @param mcpServer The MCP server configuration
+     * @param onToolListChanged Called when the server notifies that its tools changed
      * @return An initialized MCP client or null if creation fails
      */
     @Nullable
-    private static McpClient initHttpSseClient(@NotNull MCPServer mcpServer) {
+    private static McpClient initHttpSseClient(@NotNull MCPServer mcpServer, @NotNull Runnable onToolListChanged) {
         try {
             String sseUrl = mcpServer.getSseUrl();
             if (sseUrl == null || sseUrl.trim().isEmpty()) {
@@ -203,6 +213,7 @@ public class MCPExecutionService implements Disposable {
                     .protocolVersion("2024-11-05")
                     .transport(transport)
                     .toolExecutionTimeout(java.time.Duration.ofSeconds(DevoxxGenieStateService.getInstance().getTimeout()))
+                    .toolListChangedHandler(onToolListChanged)
                     .build();
 
         } catch (Exception e) {
@@ -217,10 +228,13 @@ public class MCPExecutionService implements Disposable {
      * 
      * @param command The command list to use
      * @param customEnv Custom environment variables to add
+     * @param onToolListChanged Called when the server notifies that its tools changed
      * @return An initialized MCP client or null if creation fails
      */
     @Nullable
-    private static McpClient initStdioClient(List<String> command, Map<String, String> customEnv) {
+    private static McpClient initStdioClient(List<String> command,
+                                             Map<String, String> customEnv,
+                                             @NotNull Runnable onToolListChanged) {
 
         try {
             // Create environment map
@@ -256,6 +270,7 @@ public class MCPExecutionService implements Disposable {
                     .transport(transport)
                     .logHandler(new MCPLogMessageHandler())
                     .toolExecutionTimeout(Duration.ofSeconds(DevoxxGenieStateService.getInstance().getTimeout()))
+                    .toolListChangedHandler(onToolListChanged)
                     .build();
 
         } catch (Exception e) {
@@ -13,6 +13,7 @@ import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
 import dev.langchain4j.model.chat.listener.ChatModelListener;
 import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
@@ -65,6 +66,15 @@ public class MCPListenerService implements ChatModelListener {
         }
     }
 
+    @Override
+    public void onResponse(@NotNull ChatModelResponseContext responseContext) {
+        AiMessage aiMessage = responseContext.chatResponse().aiMessage();
+        if (aiMessage != null && aiMessage.hasToolExecutionRequests()) {
+            // Lets the tool calls of this response run concurrently
+            MCPToolCallStage.getInstance().announce(aiMessage.toolExecutionRequests());
+        }
+    }
+
     private static void postMessage(MCPMessage mcpMessage) {
         if (mcpMessage != null) {
             MessageBus messageBus = ApplicationManager.getApplication().getMessageBus();
@@ -0,0 +1,194 @@
+package com.devoxx.genie.service.mcp;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.service.tool.ToolExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Runs the MCP tool calls of one model response concurrently.
+ * <p>
+ * The AI service executes the tool calls of a response one after another. The chat model listener
+ * announces all calls of a response, and the first call that is executed asks approval for the
+ * whole batch in one dialog and starts all calls. The following calls only wait for their result,
+ * so the results still reach the chat memory in the order of the response. The number of calls
+ * running at the same time is limited per MCP server and in total. Calls that were not announced,
+ * for example because the model gave them no id, run one at a time as before.
+ */
+@Slf4j
+public final class MCPToolCallStage {
+
+    static final int MAX_CONCURRENT_CALLS = 8;
+    static final int MAX_CONCURRENT_CALLS_PER_SERVER = 4;
+    static final String DENIED_RESULT = "Tool execution was denied by the user.";
+    private static final long BATCH_EXPIRY_MS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * The result of one tool call and how long it took.
+     */
+    record CallResult(String text, long durationMillis) {
+    }
+
+    private static final class Batch {
+        private final List<ToolExecutionRequest> requests;
+        private final long announcedAt = System.currentTimeMillis();
+        // Guarded by this
+        private Map<String, CompletableFuture<CallResult>> results;
+
+        private Batch(List<ToolExecutionRequest> requests) {
+            this.requests = requests;
+        }
+    }
+
+    private final Map<String, Batch> batchesByRequestId = new ConcurrentHashMap<>();
+    private final Semaphore callLimit = new Semaphore(MAX_CONCURRENT_CALLS);
+    private final Map<String, Semaphore> serverCallLimits = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final BiPredicate<Project, List<ToolExecutionRequest>> approval;
+
+    @NotNull
+    public static MCPToolCallStage getInstance() {
+        return ApplicationManager.getApplication().getService(MCPToolCallStage.class);
+    }
+
+    public MCPToolCallStage() {
+        this(AppExecutorUtil.getAppExecutorService(), MCPApprovalService::requestApproval);
+    }
+
+    MCPToolCallStage(@NotNull Executor executor, @NotNull BiPredicate<Project, List<ToolExecutionRequest>> approval) {
+        this.executor = executor;
+        this.approval = approval;
+    }
+
+    /**
+     * Announce the tool calls of a model response before they are executed.
+     *
+     * @param requests the tool calls of the response
+     */
+    public void announce(@NotNull List<ToolExecutionRequest> requests) {
+        long expired = System.currentTimeMillis() - BATCH_EXPIRY_MS;
+        batchesByRequestId.values().removeIf(batch -> batch.announcedAt < expired);
+
+        Map<String, ToolExecutionRequest> byId = new LinkedHashMap<>();
+        for (ToolExecutionRequest request : requests) {
+            if (request.id() != null && !request.id().isBlank()) {
+                byId.putIfAbsent(request.id(), request);
+            }
+        }
+        if (byId.size() < 2 || byId.size() != requests.size()) {
+            // Nothing to run concurrently, or calls without a unique id which cannot be matched
+            return;
+        }
+
+        Batch batch = new Batch(List.copyOf(byId.values()));
+        byId.keySet().forEach(id -> batchesByRequestId.put(id, batch));
+    }
+
+    /**
+     * Get the result of a tool call that is part of an announced batch, starting the batch on its first call.
+     *
+     * @param request     the tool call to execute
+     * @param memoryId    the chat memory id
+     * @param project     the project, used for the approval dialog
+     * @param executors   the executors of the available tools by tool name
+     * @param serverOfTool the MCP server name of a tool, used for the per-server limit
+     * @return the result, or null when the call is not part of a batch and must be executed by the caller
+     */
+    public @Nullable CallResult execute(@NotNull ToolExecutionRequest request,
+                                        Object memoryId,
+                                        @Nullable Project project,
+                                        @NotNull Map<String, ToolExecutor> executors,
+                                        @NotNull Function<String, String> serverOfTool) {
+        Batch batch = request.id() == null ? null : batchesByRequestId.remove(request.id());
+        if (batch == null) {
+            return null;
+        }
+
+        CompletableFuture<CallResult> result;
+        synchronized (batch) {
+            if (batch.results == null) {
+                batch.results = start(batch, memoryId, project, executors, serverOfTool);
+            }
+            result = batch.results.get(request.id());
+        }
+        if (result == null) {
+            return null;
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for tool " + request.name(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Tool " + request.name() + " failed", e.getCause());
+        }
+    }
+
+    private @NotNull Map<String, CompletableFuture<CallResult>> start(@NotNull Batch batch,
+                                                                      Object memoryId,
+                                                                      @Nullable Project project,
+                                                                      @NotNull Map<String, ToolExecutor> executors,
+                                                                      @NotNull Function<String, String> serverOfTool) {
+        // Tools of other providers are executed by the caller
+        List<ToolExecutionRequest> requests = batch.requests.stream()
+                .filter(request -> executors.containsKey(request.name()))
+                .toList();
+
+        Map<String, CompletableFuture<CallResult>> results = new HashMap<>();
+        if (requests.isEmpty()) {
+            return results;
+        }
+        if (!approval.test(project, requests)) {
+            MCPService.logDebug("MCP tool executions denied: " + requests.size() + " tools");
+            requests.forEach(request -> results.put(request.id(), CompletableFuture.completedFuture(new CallResult(DENIED_RESULT, 0))));
+            return results;
+        }
+
+        MCPService.logDebug("Executing " + requests.size() + " MCP tools concurrently");
+        for (ToolExecutionRequest request : requests) {
+            ToolExecutor toolExecutor = executors.get(request.name());
+            String server = Objects.requireNonNullElse(serverOfTool.apply(request.name()), "");
+            results.put(request.id(), CompletableFuture.supplyAsync(
+                    () -> call(toolExecutor, request, memoryId, server), executor));
+        }
+        return results;
+    }
+
+    private @NotNull CallResult call(@NotNull ToolExecutor toolExecutor,
+                                     @NotNull ToolExecutionRequest request,
+                                     Object memoryId,
+                                     @NotNull String server) {
+        Semaphore serverCallLimit = serverCallLimits.computeIfAbsent(server, s -> new Semaphore(MAX_CONCURRENT_CALLS_PER_SERVER));
+        try {
+            callLimit.acquire();
+            try {
+                serverCallLimit.acquire();
+                try {
+                    long started = System.nanoTime();
+                    String text = toolExecutor.execute(request, memoryId);
+                    return new CallResult(text, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                } finally {
+                    serverCallLimit.release();
+                }
+            } finally {
+                callLimit.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting to execute tool " + request.name());
+        }
+    }
+}
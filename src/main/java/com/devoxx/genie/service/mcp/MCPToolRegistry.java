@@ -0,0 +1,278 @@
+package com.devoxx.genie.service.mcp;
+
+import com.devoxx.genie.model.mcp.MCPServer;
+import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.mcp.client.McpClient;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderResult;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps a snapshot of the tools of all enabled MCP servers, so prompts do not list the tools of
+ * every server before they can start.
+ * <p>
+ * The tools of a server are only listed again when the server notifies that its tools changed,
+ * when its configuration changed or after the client cache was cleared. Servers are listed in
+ * parallel and each one is waited for at most a timeout; a slow or failing server keeps the
+ * tools it had in the previous snapshot and its late answer is used by the next prompt.
+ */
+@Slf4j
+public final class MCPToolRegistry {
+
+    // Waiting time for servers with known tools, servers without tools wait for the LLM timeout
+    static final Duration LIST_TOOLS_TIMEOUT = Duration.ofSeconds(5);
+
+    /**
+     * The tools of one server.
+     */
+    record ServerTools(@NotNull MCPServer server, @NotNull List<ToolSpecification> tools) {
+    }
+
+    /**
+     * Immutable view of the tools of all servers at one point in time.
+     */
+    public record ToolSnapshot(@NotNull Map<String, ServerTools> servers) {
+
+        static final ToolSnapshot EMPTY = new ToolSnapshot(Map.of());
+
+        public boolean isEmpty() {
+            return servers.values().stream().allMatch(serverTools -> serverTools.tools().isEmpty());
+        }
+
+        public int toolCount() {
+            return servers.values().stream().mapToInt(serverTools -> serverTools.tools().size()).sum();
+        }
+
+        /**
+         * @return the name of the server of each tool
+         */
+        public @NotNull Map<String, String> toolServers() {
+            Map<String, String> toolServers = new HashMap<>();
+            servers.forEach((name, serverTools) ->
+                    serverTools.tools().forEach(tool -> toolServers.putIfAbsent(tool.name(), name)));
+            return toolServers;
+        }
+
+        /**
+         * Create a tool provider which hands out the tools of this snapshot without contacting the servers.
+         * The client of a server is looked up when one of its tools is executed, so a client closed after
+         * a failed refresh is replaced by a new one.
+         *
+         * @param clients returns the current client of a server, or null if it cannot be created
+         * @return the tool provider
+         */
+        public @NotNull ToolProvider toToolProvider(@NotNull Function<MCPServer, McpClient> clients) {
+            ToolProviderResult.Builder builder = ToolProviderResult.builder();
+            for (ServerTools serverTools : servers.values()) {
+                MCPServer server = serverTools.server();
+                for (ToolSpecification tool : serverTools.tools()) {
+                    builder.add(tool, (request, memoryId) -> {
+                        McpClient client = clients.apply(server);
+                        if (client == null) {
+                            throw new IllegalStateException("No MCP client for " + server.getName());
+                        }
+                        return client.executeTool(request);
+                    });
+                }
+            }
+            ToolProviderResult result = builder.build();
+            return request -> result;
+        }
+    }
+
+    private final Function<MCPServer, McpClient> clientFactory;
+    private final Consumer<String> clientCloser;
+    private final Executor executor;
+
+    // Guarded by this
+    private ToolSnapshot snapshot = ToolSnapshot.EMPTY;
+    private final Set<String> staleServers = new HashSet<>();
+    private final Map<String, CompletableFuture<ServerTools>> refreshes = new HashMap<>();
+
+    @NotNull
+    public static MCPToolRegistry getInstance() {
+        return ApplicationManager.getApplication().getService(MCPToolRegistry.class);
+    }
+
+    public MCPToolRegistry() {
+        this(server -> MCPExecutionService.getInstance().createMcpClient(server),
+             serverName -> MCPExecutionService.getInstance().closeClient(serverName),
+             AppExecutorUtil.getAppExecutorService());
+    }
+
+    MCPToolRegistry(@NotNull Function<MCPServer, McpClient> clientFactory,
+                    @NotNull Consumer<String> clientCloser,
+                    @NotNull Executor executor) {
+        this.clientFactory = clientFactory;
+        this.clientCloser = clientCloser;
+        this.executor = executor;
+    }
+
+    /**
+     * Called when a server notified that its list of tools changed.
+     *
+     * @param serverName the name of the server
+     */
+    public synchronized void toolsChanged(@NotNull String serverName) {
+        MCPService.logDebug("Tools of MCP server changed: " + serverName);
+        staleServers.add(serverName);
+    }
+
+    /**
+     * Forget all tools, for example after the MCP clients were closed.
+     */
+    public synchronized void invalidate() {
+        snapshot = ToolSnapshot.EMPTY;
+        staleServers.clear();
+        refreshes.values().forEach(refresh -> refresh.cancel(true));
+        refreshes.clear();
+    }
+
+    /**
+     * Get the tools of the enabled servers, only listing the tools of servers that are new,
+     * reconfigured or notified a change.
+     *
+     * @param configuredServers the configured MCP servers by name
+     * @return the current snapshot
+     */
+    public @NotNull ToolSnapshot getSnapshot(@NotNull Map<String, MCPServer> configuredServers) {
+        Map<String, MCPServer> enabledServers = new LinkedHashMap<>();
+        configuredServers.forEach((name, server) -> {
+            if (server.isEnabled()) {
+                enabledServers.put(name, server);
+            }
+        });
+
+        Map<String, CompletableFuture<ServerTools>> pending = new LinkedHashMap<>();
+        synchronized (this) {
+            boolean removed = removeUnconfiguredServers(enabledServers);
+            for (Map.Entry<String, MCPServer> entry : enabledServers.entrySet()) {
+                String name = entry.getKey();
+                ServerTools known = snapshot.servers().get(name);
+                boolean reconfigured = known != null && !known.server().equals(entry.getValue());
+                if (known != null && !reconfigured && !staleServers.contains(name)) {
+                    continue;
+                }
+                if (reconfigured) {
+                    dropServer(name);
+                }
+                CompletableFuture<ServerTools> refresh = refreshes.get(name);
+                pending.put(name, refresh != null ? refresh : startRefresh(name, entry.getValue()));
+            }
+            if (pending.isEmpty()) {
+                if (removed) {
+                    MCPService.logDebug("MCP tool snapshot updated, " + snapshot.toolCount() + " tools");
+                }
+                return snapshot;
+            }
+        }
+
+        // All refreshes run in parallel, so one deadline bounds the total wait
+        long waitForKnownServers = System.nanoTime() + LIST_TOOLS_TIMEOUT.toNanos();
+        long waitForNewServers = System.nanoTime() +
+                TimeUnit.SECONDS.toNanos(DevoxxGenieStateService.getInstance().getTimeout());
+        for (Map.Entry<String, CompletableFuture<ServerTools>> entry : pending.entrySet()) {
+            boolean known;
+            synchronized (this) {
+                known = snapshot.servers().containsKey(entry.getKey());
+            }
+            long deadline = known ? waitForKnownServers : waitForNewServers;
+            try {
+                entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                MCPService.logDebug("Listing tools of MCP server " + entry.getKey() + " timed out, using the last known tools");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | CancellationException e) {
+                log.warn("Failed to list tools of MCP server {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+
+        synchronized (this) {
+            MCPService.logDebug("MCP tool snapshot with " + snapshot.toolCount() + " tools from " +
+                    snapshot.servers().size() + " servers");
+            return snapshot;
+        }
+    }
+
+    private @NotNull CompletableFuture<ServerTools> startRefresh(@NotNull String name, @NotNull MCPServer server) {
+        MCPService.logDebug("Listing tools of MCP server: " + name);
+        // Clear the flag first, a notification during the refresh marks the server stale again
+        staleServers.remove(name);
+
+        // Completed once the snapshot is updated, so waiting prompts see the new tools
+        CompletableFuture<ServerTools> refresh = new CompletableFuture<>();
+        refreshes.put(name, refresh);
+
+        CompletableFuture.supplyAsync(() -> {
+            McpClient client = clientFactory.apply(server);
+            if (client == null) {
+                throw new IllegalStateException("No MCP client for " + name);
+            }
+            return new ServerTools(server, List.copyOf(client.listTools()));
+        }, executor).whenComplete((serverTools, error) -> {
+            completeRefresh(name, refresh, serverTools, error);
+            if (error != null) {
+                refresh.completeExceptionally(error);
+            } else {
+                refresh.complete(serverTools);
+            }
+        });
+        return refresh;
+    }
+
+    private synchronized void completeRefresh(@NotNull String name,
+                                              @NotNull CompletableFuture<ServerTools> refresh,
+                                              @Nullable ServerTools serverTools,
+                                              @Nullable Throwable error) {
+        if (refreshes.get(name) != refresh) {
+            // Invalidated or reconfigured while listing
+            return;
+        }
+        refreshes.remove(name);
+        if (error != null) {
+            // Keep the last known tools and try again with a new client on the next prompt,
+            // the tools of the snapshot look up their client when executed and get the new one too
+            staleServers.add(name);
+            clientCloser.accept(name);
+            return;
+        }
+        Map<String, ServerTools> servers = new LinkedHashMap<>(snapshot.servers());
+        servers.put(name, serverTools);
+        snapshot = new ToolSnapshot(Collections.unmodifiableMap(servers));
+    }
+
+    private boolean removeUnconfiguredServers(@NotNull Map<String, MCPServer> enabledServers) {
+        Set<String> names = new HashSet<>(snapshot.servers().keySet());
+        names.addAll(refreshes.keySet());
+        names.removeAll(enabledServers.keySet());
+        names.forEach(this::dropServer);
+        return !names.isEmpty();
+    }
+
+    private void dropServer(@NotNull String name) {
+        CompletableFuture<ServerTools> refresh = refreshes.remove(name);
+        if (refresh != null) {
+            refresh.cancel(true);
+        }
+        if (snapshot.servers().containsKey(name)) {
+            Map<String, ServerTools> servers = new LinkedHashMap<>(snapshot.servers());
+            servers.remove(name);
+            snapshot = new ToolSnapshot(Collections.unmodifiableMap(servers));
+        }
+        staleServers.remove(name);
+        clientCloser.accept(name);
+    }
+}
@@ -7,6 +7,7 @@ import com.devoxx.genie.model.enumarations.ModelProvider;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -1124,6 +1125,21 @@ public final class LLMModelRegistryService {
         }
     }
 
+    /**
+     * Find a known model without contacting any provider.
+     *
+     * @param provider  the provider of the model
+     * @param modelName the model name
+     * @return the model, or null when it is not known
+     */
+    @Nullable
+    public LanguageModel findModel(@NotNull ModelProvider provider, @NotNull String modelName) {
+        return models.values().stream()
+                .filter(model -> model.getProvider() == provider && modelName.equals(model.getModelName()))
+                .findFirst()
+                .orElse(null);
+    }
+
     public void setModels(Map<String, LanguageModel> models) {
         this.models = new HashMap<>(models);
     }
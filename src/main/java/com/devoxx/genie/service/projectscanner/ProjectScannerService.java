@@ -1,9 +1,12 @@
 package com.devoxx.genie.service.projectscanner;
 
 import com.devoxx.genie.model.ScanContentResult;
+import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectUtil;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.vfs.VirtualFile;
 import lombok.Getter;
@@ -11,15 +14,26 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Setter
 @Getter
-public class ProjectScannerService {
+public class ProjectScannerService implements Disposable {
+
+    // Files are read in parallel, but never more than this many file contents are held in memory at once
+    private static final int READER_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    private static final int MAX_FILES_IN_FLIGHT = READER_THREADS * 4;
 
     protected FileScanner fileScanner;
 
@@ -27,9 +41,20 @@ public class ProjectScannerService {
 
     protected TokenCalculator tokenCalculator;
 
+    // Resolved lazily from the application when not set
+    protected TokenCountCache tokenCountCache;
+
     // Use a Map to store ProjectFileIndex instances per project
     private final Map<String, ProjectFileIndex> projectFileIndexMap = new HashMap<String, ProjectFileIndex>();
 
+    private ExecutorService readerPool;
+
+    private record FileContent(String content, int tokens) {
+    }
+
+    private record FileContents(String content, long tokens) {
+    }
+
     public ProjectScannerService() {
         this.fileScanner = new FileScanner();
         this.contentExtractor = new ContentExtractor();
@@ -83,6 +108,19 @@ public class ProjectScannerService {
 
             fileScanner.initGitignoreParser(project, resolvedDirectory);
 
+            if (isTokenCalculation) {
+                // Only the counts are needed, unchanged files are served from the token count cache
+                int tokenCount = countTokens(project, startDirectory, scanContentResult, projectFileIndex);
+                fileScanner.getIncludedFiles().forEach(scanContentResult::addFile);
+                scanContentResult.setTokenCount(tokenCount);
+                scanContentResult.setContent("");
+                scanContentResult.setFileCount(fileScanner.getFileCount());
+                scanContentResult.setSkippedFileCount(fileScanner.getSkippedFileCount());
+                scanContentResult.setSkippedDirectoryCount(fileScanner.getSkippedDirectoryCount());
+                log.info("Token calculation complete. Tokens: {}, Files: {}", tokenCount, fileScanner.getFileCount());
+                return;
+            }
+
             log.info("Starting content scan for {}", (startDirectory != null ? startDirectory.getPath() : "entire project"));
             String content = scanContent(project, startDirectory, windowContextMaxTokens, isTokenCalculation, scanContentResult, projectFileIndex);
 
@@ -93,12 +131,12 @@ public class ProjectScannerService {
                 scanContentResult.addFile(file);
             });
 
-            int tokenCount = tokenCalculator.calculateTokens(content);
+            // Counted while the content was built, it is not tokenized again
+            int tokenCount = scanContentResult.getTokenCount();
             log.info("FINAL TOKEN COUNT: {} tokens", tokenCount);
             log.info("Content length: {} characters", content.length());
             log.info("First 100 chars: {}", content.substring(0, Math.min(100, content.length())));
             log.info("Last 100 chars: {}", content.substring(Math.max(0, content.length() - 100)));
-            scanContentResult.setTokenCount(tokenCount);
             scanContentResult.setContent(content);
             scanContentResult.setFileCount(fileScanner.getFileCount());
             scanContentResult.setSkippedFileCount(fileScanner.getSkippedFileCount());
@@ -112,6 +150,71 @@ public class ProjectScannerService {
         return scanContentResult;
     }
 
+    /**
+     * The file scanner keeps the included files, counters and .gitignore rules of one scan, the
+     * background indexer gets its own so it never shares that state with a scan of the user.
+     *
+     * @return a new file scanner
+     */
+    protected FileScanner createFileScanner() {
+        return new FileScanner();
+    }
+
+    /**
+     * Lists the files a scan of the given directory would include, without reading them.
+     *
+     * @param project        the project
+     * @param startDirectory the directory to list
+     * @return the included files
+     */
+    public @NotNull List<VirtualFile> collectFiles(@NotNull Project project, @NotNull VirtualFile startDirectory) {
+        ProjectFileIndex projectFileIndex = getProjectFileIndex(project);
+        FileScanner scanner = createFileScanner();
+        return ReadAction.compute(() -> {
+            scanner.initGitignoreParser(project, startDirectory);
+            return scanner.scanDirectory(projectFileIndex, startDirectory, new ScanContentResult());
+        });
+    }
+
+    /**
+     * Keeps the files a project scan would include, applying the same content root, exclusion,
+     * .gitignore and extension rules as {@link #collectFiles}.
+     *
+     * @param project the project
+     * @param files   the files to check
+     * @return the included files
+     */
+    public @NotNull List<VirtualFile> filterIncludedFiles(@NotNull Project project, @NotNull Collection<VirtualFile> files) {
+        ProjectFileIndex projectFileIndex = getProjectFileIndex(project);
+        FileScanner scanner = createFileScanner();
+        return ReadAction.compute(() -> {
+            // Start from the project directory like a full scan, so nested .gitignore files apply too
+            VirtualFile baseDir = ProjectUtil.guessProjectDir(project);
+            if (baseDir != null) {
+                scanner.initGitignoreParser(project, baseDir);
+            } else {
+                log.debug("No project directory for {}, .gitignore rules are not applied", project.getName());
+            }
+            return files.stream()
+                    .filter(file -> isIncluded(scanner, projectFileIndex, file))
+                    .toList();
+        });
+    }
+
+    private static boolean isIncluded(@NotNull FileScanner scanner,
+                                      @NotNull ProjectFileIndex projectFileIndex,
+                                      @NotNull VirtualFile file) {
+        if (!file.isValid() || file.isDirectory() || !projectFileIndex.isInContent(file) || !scanner.shouldIncludeFile(file)) {
+            return false;
+        }
+        for (VirtualFile parent = file.getParent(); parent != null && projectFileIndex.isInContent(parent); parent = parent.getParent()) {
+            if (scanner.shouldExcludeDirectory(parent)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     // Changed from private to public for better testability
     public @NotNull String scanContent(Project project,
                                        VirtualFile startDirectory,
@@ -121,39 +224,130 @@ public class ProjectScannerService {
                                        ProjectFileIndex projectFileIndex) {
         // We're now using the projectFileIndex parameter directly
 
-        StringBuilder directoryStructure = new StringBuilder();
-        String fileContents;
+        // Content that will be truncated anyway is never read, token calculation needs everything
+        boolean limitedBudget = !isTokenCalculation && windowContextMaxTokens < Integer.MAX_VALUE;
 
+        VirtualFile directory;
         if (startDirectory == null) {
             // Case 1: No directory provided, scan all modules
-            VirtualFile rootDirectory = fileScanner.scanProjectModules(project);
-            directoryStructure.append(fileScanner.generateSourceTreeRecursive(rootDirectory, 0));
-            // Use the provided projectFileIndex
-            List<VirtualFile> files = fileScanner.scanDirectory(projectFileIndex, rootDirectory, scanContentResult);
-            fileContents = extractAllFileContents(files);
+            directory = fileScanner.scanProjectModules(project);
         } else if (startDirectory.isDirectory()) {
             // Case 2: Directory provided
-            directoryStructure.append(fileScanner.generateSourceTreeRecursive(startDirectory, 0));
-            // Use the provided projectFileIndex
-            List<VirtualFile> files = fileScanner.scanDirectory(projectFileIndex, startDirectory, scanContentResult);
-            fileContents = extractAllFileContents(files);
+            directory = startDirectory;
         } else {
             // Case 3: Single file provided
-            return handleSingleFile(startDirectory);
+            String content = handleSingleFile(startDirectory);
+            scanContentResult.setTokenCount(tokenCalculator.calculateTokens(content));
+            return content;
         }
 
-        String fullContent = contentExtractor.combineContent(directoryStructure.toString(), fileContents);
+        String directoryStructure = fileScanner.generateSourceTreeRecursive(directory, 0);
+        // Use the provided projectFileIndex
+        List<VirtualFile> files = fileScanner.scanDirectory(projectFileIndex, directory, scanContentResult);
 
-        // For token calculation (Calc tokens for directory), we want the ACTUAL token count
-        // For content to be used in prompts, we need to truncate
-        if (isTokenCalculation) {
-            log.info("Not truncating content for token calculation only");
-            return fullContent;
+        int headerTokens = tokenCalculator.calculateTokens(contentExtractor.combineContent("", ""));
+        int structureTokens = tokenCalculator.calculateTokens(directoryStructure);
+        FileContents fileContents;
+        if (limitedBudget && headerTokens + structureTokens > windowContextMaxTokens) {
+            // The directory structure alone does not fit, it is cut at a line boundary and no file is read
+            int markerTokens = tokenCalculator.calculateTokens(TokenCalculator.TRUNCATION_MARKER);
+            int remaining = windowContextMaxTokens - headerTokens - markerTokens;
+            String truncated = remaining > 0 ? tokenCalculator.truncateToLineBoundary(directoryStructure, remaining) : "";
+            directoryStructure = truncated + TokenCalculator.TRUNCATION_MARKER;
+            structureTokens = (truncated.isEmpty() ? 0 : tokenCalculator.calculateTokens(truncated)) + markerTokens;
+            fileContents = new FileContents("", 0);
+            log.info("Directory structure exceeds the budget of {} tokens, no file contents are added", windowContextMaxTokens);
         } else {
-            // Only truncate if the content will be used (not for token calculation only)
-            log.info("Truncating content to {} tokens for usage in prompt", windowContextMaxTokens);
-            return tokenCalculator.truncateToTokens(fullContent, windowContextMaxTokens, isTokenCalculation);
+            fileContents = readFileContents(files, remainingBudget(headerTokens + structureTokens, windowContextMaxTokens, limitedBudget), true);
+        }
+
+        // The files were counted by their readers, only the directory structure and headers are added
+        long tokens = headerTokens + structureTokens + fileContents.tokens();
+        scanContentResult.setTokenCount((int) Math.min(Integer.MAX_VALUE, tokens));
+
+        // For token calculation (Calc tokens for directory), we want the ACTUAL token count.
+        // For content to be used in prompts, the directory structure and file contents were already
+        // cut at a line boundary to fit the window context, so they are not truncated again.
+        return contentExtractor.combineContent(directoryStructure, fileContents.content());
+    }
+
+    /**
+     * Counts the tokens the scanned content would have, without building the content.
+     * Per-file counts come from the {@link TokenCountCache} and only files that changed since
+     * they were last counted are read and tokenized.
+     */
+    private int countTokens(Project project,
+                            VirtualFile startDirectory,
+                            ScanContentResult scanContentResult,
+                            ProjectFileIndex projectFileIndex) {
+        if (startDirectory != null && !startDirectory.isDirectory()) {
+            return tokenCalculator.calculateTokens(handleSingleFile(startDirectory));
+        }
+
+        VirtualFile directory = startDirectory != null ? startDirectory : fileScanner.scanProjectModules(project);
+        String directoryStructure = fileScanner.generateSourceTreeRecursive(directory, 0);
+        List<VirtualFile> files = fileScanner.scanDirectory(projectFileIndex, directory, scanContentResult);
+
+        TokenCountCache cache = tokenCountCache != null ? tokenCountCache : TokenCountCache.getInstance();
+        long fileTokens = calculateFileTokens(files, cache);
+        cache.save();
+
+        long total = tokenCalculator.calculateTokens(contentExtractor.combineContent(directoryStructure, "")) + fileTokens;
+        return (int) Math.min(Integer.MAX_VALUE, total);
+    }
+
+    /**
+     * Sums the token counts of the given files, reading and tokenizing in parallel only the
+     * files without a valid cached count.
+     *
+     * @param files the files to count
+     * @param cache the token count cache to read from and update
+     * @return the total number of tokens
+     */
+    public long calculateFileTokens(@NotNull List<VirtualFile> files, @NotNull TokenCountCache cache) {
+        String encodingKey = getEncodingKey();
+        ExecutorService executor = getReaderPool();
+        Deque<Future<Integer>> inFlight = new ArrayDeque<>();
+        long tokens = 0;
+        int cacheHits = 0;
+
+        try {
+            for (VirtualFile file : files) {
+                Integer cached = cache.get(file, encodingKey);
+                if (cached != null) {
+                    tokens += cached;
+                    cacheHits++;
+                    continue;
+                }
+
+                if (inFlight.size() >= MAX_FILES_IN_FLIGHT) {
+                    tokens += inFlight.poll().get();
+                }
+                inFlight.add(executor.submit(() -> {
+                    int count = readFile(file, true).tokens();
+                    cache.put(file, encodingKey, count);
+                    return count;
+                }));
+            }
+            while (!inFlight.isEmpty()) {
+                tokens += inFlight.poll().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while counting project tokens");
+        } catch (ExecutionException e) {
+            log.error("Error counting project tokens", e.getCause());
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
         }
+
+        log.info("Token counts for {} files, {} served from cache", files.size(), cacheHits);
+        return tokens;
+    }
+
+    private @NotNull String getEncodingKey() {
+        boolean excludeJavaDoc = Boolean.TRUE.equals(DevoxxGenieStateService.getInstance().getExcludeJavaDoc());
+        return tokenCalculator.getEncodingName() + (excludeJavaDoc ? "/no-javadoc" : "");
     }
 
     // Changed from private to public for better testability
@@ -172,8 +366,112 @@ public class ProjectScannerService {
 
     // Changed from private to public for better testability
     public @NotNull String extractAllFileContents(@NotNull List<VirtualFile> files) {
-        return files.stream()
-                .map(contentExtractor::extractFileContent)
-                .collect(Collectors.joining());
+        return extractFileContents(files, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads the given files in parallel and concatenates their contents in the original order.
+     * A bounded window of files is read ahead, so memory stays proportional to the window and not to
+     * the project size. When a token budget is given, every file is token counted by its reader and
+     * whole files are added while they fit. The file crossing the budget is cut at a line boundary,
+     * a truncation marker is added and the remaining files are skipped.
+     *
+     * @param files       the files to read
+     * @param tokenBudget the maximum number of tokens needed, or Integer.MAX_VALUE to read everything
+     * @return the concatenated file contents
+     */
+    public @NotNull String extractFileContents(@NotNull List<VirtualFile> files, int tokenBudget) {
+        return readFileContents(files, tokenBudget, tokenBudget < Integer.MAX_VALUE).content();
+    }
+
+    /**
+     * @param countTokens whether the readers count the tokens of every file, always done for a token budget
+     * @return the concatenated file contents and their number of tokens, 0 when not counted
+     */
+    private @NotNull FileContents readFileContents(@NotNull List<VirtualFile> files, int tokenBudget, boolean countTokens) {
+        if (files.isEmpty()) {
+            return new FileContents("", 0);
+        }
+
+        boolean limitedBudget = tokenBudget < Integer.MAX_VALUE;
+        ExecutorService executor = getReaderPool();
+        Deque<Future<FileContent>> inFlight = new ArrayDeque<>();
+        StringBuilder contents = new StringBuilder();
+        long tokens = 0;
+        int next = 0;
+
+        try {
+            while (next < files.size() || !inFlight.isEmpty()) {
+                while (next < files.size() && inFlight.size() < MAX_FILES_IN_FLIGHT) {
+                    VirtualFile file = files.get(next++);
+                    inFlight.add(executor.submit(() -> readFile(file, countTokens)));
+                }
+
+                FileContent fileContent = inFlight.poll().get();
+                if (!limitedBudget || tokens + fileContent.tokens() <= tokenBudget) {
+                    contents.append(fileContent.content());
+                    tokens += fileContent.tokens();
+                    continue;
+                }
+
+                // Only the file crossing the budget is tokenized line by line and cut at a line boundary
+                int markerTokens = tokenCalculator.calculateTokens(TokenCalculator.TRUNCATION_MARKER);
+                int remaining = tokenBudget - (int) tokens - markerTokens;
+                if (remaining > 0) {
+                    String truncated = tokenCalculator.truncateToLineBoundary(fileContent.content(), remaining);
+                    contents.append(truncated);
+                    tokens += tokenCalculator.calculateTokens(truncated);
+                }
+                contents.append(TokenCalculator.TRUNCATION_MARKER);
+                tokens += markerTokens;
+                log.info("Token budget of {} reached after reading {} of {} files, skipping the rest",
+                        tokenBudget, next - inFlight.size(), files.size());
+                break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while reading project files");
+        } catch (ExecutionException e) {
+            log.error("Error reading project files", e.getCause());
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+
+        return new FileContents(contents.toString(), tokens);
+    }
+
+    private @NotNull FileContent readFile(@NotNull VirtualFile file, boolean countTokens) {
+        String content = contentExtractor.extractFileContent(file);
+        return new FileContent(content, countTokens ? tokenCalculator.calculateTokens(content) : 0);
+    }
+
+    private static int remainingBudget(int usedTokens, int windowContextMaxTokens, boolean limitedBudget) {
+        if (!limitedBudget) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(0, windowContextMaxTokens - usedTokens);
+    }
+
+    /**
+     * Stop the reader threads when the application service is disposed.
+     */
+    @Override
+    public synchronized void dispose() {
+        if (readerPool != null) {
+            readerPool.shutdownNow();
+            readerPool = null;
+        }
+    }
+
+    private synchronized ExecutorService getReaderPool() {
+        if (readerPool == null) {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            readerPool = Executors.newFixedThreadPool(READER_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "project-scan-reader-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return readerPool;
     }
 }
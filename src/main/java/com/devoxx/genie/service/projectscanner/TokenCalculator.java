@@ -4,14 +4,14 @@ import com.knuddels.jtokkit.Encodings;
 import com.knuddels.jtokkit.api.Encoding;
 import com.knuddels.jtokkit.api.EncodingType;
 import com.knuddels.jtokkit.api.IntArrayList;
-import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
 /**
  * Handles token calculations and truncation.
  */
-@Slf4j
 public class TokenCalculator {
+    public static final String TRUNCATION_MARKER = "\n--- Project context truncated due to token limit ---\n";
+
     private final Encoding encoding;
 
     // Constructor injection
@@ -24,6 +24,14 @@ public class TokenCalculator {
         this(Encodings.newDefaultEncodingRegistry().getEncoding(EncodingType.CL100K_BASE));
     }
 
+    /**
+     * @return the name of the encoding used for token counts, used to key cached counts
+     */
+    public @NotNull String getEncodingName() {
+        String name = encoding.getName();
+        return name != null ? name : "unknown";
+    }
+
     /**
      * Calculates token count for any text.
      * 
@@ -31,11 +39,8 @@ public class TokenCalculator {
      * @return The token count
      */
     public int calculateTokens(@NotNull String text) {
-        // Make sure we're getting the accurate token count
-        log.info("Calculating tokens for text of length: {}", text.length());
-        int tokenCount = encoding.countTokensOrdinary(text);
-        log.info("Token count calculated: {}", tokenCount);
-        return tokenCount;
+        // Called per file while scanning a project, so nothing is logged here
+        return encoding.countTokensOrdinary(text);
     }
 
     public String truncateToTokens(@NotNull String text,
@@ -51,6 +56,30 @@ public class TokenCalculator {
         }
         String truncatedContent = encoding.decode(truncatedTokens);
         return isTokenCalculation ? truncatedContent :
-                truncatedContent + "\n--- Project context truncated due to token limit ---\n";
+                truncatedContent + TRUNCATION_MARKER;
+    }
+
+    /**
+     * Truncates text at a line boundary so it fits in the given number of tokens.
+     * Lines are counted one by one and counting stops at the first line that no longer fits,
+     * so the cost is proportional to the part of the text that is kept.
+     *
+     * @param text      The text to truncate, typically the content of one file
+     * @param maxTokens The maximum number of tokens
+     * @return The longest prefix of whole lines that fits in maxTokens
+     */
+    public @NotNull String truncateToLineBoundary(@NotNull String text, int maxTokens) {
+        int tokens = 0;
+        int end = 0;
+        while (end < text.length()) {
+            int lineEnd = text.indexOf('\n', end);
+            lineEnd = lineEnd < 0 ? text.length() : lineEnd + 1;
+            tokens += encoding.countTokensOrdinary(text.substring(end, lineEnd));
+            if (tokens > maxTokens) {
+                break;
+            }
+            end = lineEnd;
+        }
+        return text.substring(0, end);
     }
 }
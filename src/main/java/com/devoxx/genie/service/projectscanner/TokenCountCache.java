@@ -0,0 +1,203 @@
+package com.devoxx.genie.service.projectscanner;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of per-file token counts.
+ * <p>
+ * Entries are keyed by file path and validated against the file time stamp and length, so a
+ * recalculation on an unchanged project only needs to tokenize the files that changed. Token
+ * counts are stored per encoding key because different tokenizers (and content options such as
+ * Javadoc removal) yield different counts. A VFS listener drops entries of changed, moved or
+ * deleted files. The VFS modification stamp is not used for validation because it is reset
+ * between IDE sessions, while the cache is persisted under the DevoxxGenie system directory.
+ */
+@Slf4j
+public class TokenCountCache implements Disposable {
+
+    private static final int FILE_FORMAT_VERSION = 1;
+
+    private record Entry(long timeStamp, long length, Map<String, Integer> tokensByEncoding) {
+    }
+
+    private final Path cacheFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    public static TokenCountCache getInstance() {
+        return ApplicationManager.getApplication().getService(TokenCountCache.class);
+    }
+
+    public TokenCountCache() {
+        this(Path.of(PathManager.getSystemPath(), "DevoxxGenie", "token-counts.bin"));
+        ApplicationManager.getApplication().getMessageBus().connect(this)
+                .subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+                    @Override
+                    public void after(@NotNull List<? extends VFileEvent> events) {
+                        events.forEach(TokenCountCache.this::invalidate);
+                    }
+                });
+    }
+
+    TokenCountCache(@NotNull Path cacheFile) {
+        this.cacheFile = cacheFile;
+        load();
+    }
+
+    /**
+     * Get the cached token count of a file.
+     *
+     * @param file        the file
+     * @param encodingKey identifies the tokenizer and content options the count was computed with
+     * @return the token count, or null when unknown or the file changed since it was counted
+     */
+    public @Nullable Integer get(@NotNull VirtualFile file, @NotNull String encodingKey) {
+        Entry entry = entries.get(file.getPath());
+        if (entry == null || entry.timeStamp() != file.getTimeStamp() || entry.length() != file.getLength()) {
+            return null;
+        }
+        return entry.tokensByEncoding().get(encodingKey);
+    }
+
+    /**
+     * Store the token count of a file.
+     *
+     * @param file        the file
+     * @param encodingKey identifies the tokenizer and content options the count was computed with
+     * @param tokens      the token count
+     */
+    public void put(@NotNull VirtualFile file, @NotNull String encodingKey, int tokens) {
+        long timeStamp = file.getTimeStamp();
+        long length = file.getLength();
+        entries.compute(file.getPath(), (path, entry) -> {
+            if (entry == null || entry.timeStamp() != timeStamp || entry.length() != length) {
+                entry = new Entry(timeStamp, length, new ConcurrentHashMap<>());
+            }
+            entry.tokensByEncoding().put(encodingKey, tokens);
+            return entry;
+        });
+        dirty = true;
+    }
+
+    /**
+     * @return the number of files in the cache
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Write the cache to disk if it changed since it was loaded or last saved.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FILE_FORMAT_VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                    Entry entry = mapEntry.getValue();
+                    out.writeUTF(mapEntry.getKey());
+                    out.writeLong(entry.timeStamp());
+                    out.writeLong(entry.length());
+                    out.writeInt(entry.tokensByEncoding().size());
+                    for (Map.Entry<String, Integer> count : entry.tokensByEncoding().entrySet()) {
+                        out.writeUTF(count.getKey());
+                        out.writeInt(count.getValue());
+                    }
+                }
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            log.debug("Saved {} token count entries to {}", entries.size(), cacheFile);
+        } catch (IOException e) {
+            log.warn("Failed to save token count cache", e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        save();
+    }
+
+    private void load() {
+        if (!Files.exists(cacheFile)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != FILE_FORMAT_VERSION) {
+                log.info("Ignoring token count cache with an unknown format");
+                return;
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String path = in.readUTF();
+                long timeStamp = in.readLong();
+                long length = in.readLong();
+                int encodings = in.readInt();
+                Map<String, Integer> tokensByEncoding = new ConcurrentHashMap<>();
+                for (int j = 0; j < encodings; j++) {
+                    tokensByEncoding.put(in.readUTF(), in.readInt());
+                }
+                entries.put(path, new Entry(timeStamp, length, tokensByEncoding));
+            }
+            log.debug("Loaded {} token count entries from {}", entries.size(), cacheFile);
+        } catch (IOException e) {
+            log.warn("Failed to load token count cache, starting empty", e);
+            entries.clear();
+        }
+    }
+
+    private void invalidate(@NotNull VFileEvent event) {
+        if (event instanceof VFileContentChangeEvent) {
+            invalidatePath(event.getPath(), false);
+        } else if (event instanceof VFileMoveEvent moveEvent) {
+            invalidatePath(moveEvent.getOldPath(), true);
+        } else if (event instanceof VFilePropertyChangeEvent propertyChangeEvent && propertyChangeEvent.isRename()) {
+            invalidatePath(propertyChangeEvent.getOldPath(), true);
+        } else if (event instanceof VFileDeleteEvent) {
+            invalidatePath(event.getPath(), true);
+        }
+    }
+
+    private void invalidatePath(@NotNull String path, boolean includeChildren) {
+        boolean removed = entries.remove(path) != null;
+        if (includeChildren) {
+            // The path can be a directory, drop everything below it
+            String prefix = path + "/";
+            removed |= entries.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+        if (removed) {
+            dirty = true;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.devoxx.genie.service.prompt.memory;
+
+import com.intellij.openapi.project.Project;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Replaces the oldest turns of a long conversation in the chat memory with a summary.
+ * <p>
+ * Every prompt resends the whole chat memory, so old turns cost latency and tokens until they are
+ * evicted. Once the memory holds more tokens than the threshold, the oldest turns are summarized
+ * by a separate, preferably cheap or local, model in the background and replaced by a user
+ * message with the summary and an acknowledgement of the assistant, so user and assistant
+ * messages keep alternating. The most recent turns are kept as they are. The conversation history
+ * shown to the user is stored separately and keeps all messages.
+ */
+@Slf4j
+public class ChatMemoryCompactor {
+
+    public static final String SUMMARY_PREFIX = "Summary of the earlier conversation:\n";
+
+    public static final AiMessage SUMMARY_ACKNOWLEDGEMENT =
+            AiMessage.from("I have read the summary and will continue the conversation from it.");
+
+    static final String SUMMARY_INSTRUCTIONS = """
+            Summarize the following conversation between a developer and an AI assistant.
+            Keep the facts, decisions, file names, code identifiers and open questions which are needed to continue the conversation.
+            Leave out greetings and repeated content. Answer with the summary only.""";
+
+    // The recent turns are kept verbatim, they are the most likely to be referred to
+    private static final int MIN_RECENT_MESSAGES = 4;
+
+    private final ChatMemoryService chatMemoryService;
+    private final Executor executor;
+    private final ToIntFunction<ChatMessage> tokenCounter;
+    private final Set<String> compactingProjects = ConcurrentHashMap.newKeySet();
+
+    public ChatMemoryCompactor(@NotNull ChatMemoryService chatMemoryService, @NotNull Executor executor) {
+        this(chatMemoryService, executor, TokenBudgetChatMemory::estimateTokens);
+    }
+
+    ChatMemoryCompactor(@NotNull ChatMemoryService chatMemoryService,
+                        @NotNull Executor executor,
+                        @NotNull ToIntFunction<ChatMessage> tokenCounter) {
+        this.chatMemoryService = chatMemoryService;
+        this.executor = executor;
+        this.tokenCounter = tokenCounter;
+    }
+
+    /**
+     * Summarize the oldest turns of the project's memory in the background when it holds more tokens than the threshold.
+     *
+     * @param project         the project of the memory
+     * @param summarizer      supplies the model which writes the summary, only called when compacting
+     * @param thresholdTokens the number of tokens above which the memory is compacted
+     * @return completes with true when the memory was compacted
+     */
+    public CompletableFuture<Boolean> compactIfNeeded(@NotNull Project project,
+                                                      @NotNull Supplier<ChatLanguageModel> summarizer,
+                                                      int thresholdTokens) {
+        String projectHash = project.getLocationHash();
+        if (!compactingProjects.add(projectHash)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return CompletableFuture
+                .supplyAsync(() -> compact(project, summarizer, thresholdTokens), executor)
+                .whenComplete((compacted, error) -> {
+                    compactingProjects.remove(projectHash);
+                    if (error != null) {
+                        log.warn("Failed to compact chat memory of project {}: {}", projectHash, error.getMessage());
+                    }
+                });
+    }
+
+    private boolean compact(@NotNull Project project,
+                            @NotNull Supplier<ChatLanguageModel> summarizer,
+                            int thresholdTokens) {
+        List<ChatMessage> messages = chatMemoryService.getMessages(project);
+        int[] tokens = messages.stream().mapToInt(tokenCounter).toArray();
+        int total = 0;
+        for (int messageTokens : tokens) {
+            total += messageTokens;
+        }
+        if (total <= thresholdTokens) {
+            return false;
+        }
+
+        int start = PromptLayout.conversationStart(messages);
+        int end = findEnd(messages, tokens, start, thresholdTokens / 2);
+        // The pinned project context is kept as it is, only the turns before it are summarized
+        for (int i = start; i < end; i++) {
+            if (ProjectContextAnchor.isAnchor(messages.get(i))) {
+                end = i;
+                break;
+            }
+        }
+        if (end - start < 2) {
+            log.debug("Chat memory of project {} has {} tokens but no turns to summarize", project.getLocationHash(), total);
+            return false;
+        }
+
+        List<ChatMessage> oldTurns = List.copyOf(messages.subList(start, end));
+        String summary = summarizer.get()
+                .chat(List.of(SystemMessage.from(SUMMARY_INSTRUCTIONS), UserMessage.from(transcript(oldTurns))))
+                .aiMessage()
+                .text();
+        if (summary == null || summary.isBlank()) {
+            return false;
+        }
+
+        boolean replaced = chatMemoryService.replaceMessages(project, oldTurns,
+                List.of(UserMessage.from(SUMMARY_PREFIX + summary.strip()), SUMMARY_ACKNOWLEDGEMENT));
+        log.debug("Compacted {} messages of project {} into a summary: {}", oldTurns.size(), project.getLocationHash(), replaced);
+        return replaced;
+    }
+
+    /**
+     * Find the first message to keep: the recent messages within the kept tokens, starting at a user message
+     * so a turn and its tool calls stay together.
+     */
+    private static int findEnd(@NotNull List<ChatMessage> messages, int[] tokens, int start, int keptTokens) {
+        int end = messages.size();
+        int kept = 0;
+        while (end > start && (messages.size() - end < MIN_RECENT_MESSAGES || kept + tokens[end - 1] <= keptTokens)) {
+            end--;
+            kept += tokens[end];
+        }
+        while (end < messages.size() && !isUserTurn(messages.get(end))) {
+            end++;
+        }
+        return end < messages.size() ? end : start;
+    }
+
+    private static boolean isUserTurn(@NotNull ChatMessage message) {
+        return message instanceof UserMessage userMessage
+                && !(userMessage.hasSingleText() && userMessage.singleText().startsWith(SUMMARY_PREFIX));
+    }
+
+    private static @NotNull String transcript(@NotNull List<ChatMessage> messages) {
+        StringBuilder transcript = new StringBuilder();
+        for (ChatMessage message : messages) {
+            if (message instanceof UserMessage userMessage) {
+                transcript.append("Developer: ");
+                for (Content content : userMessage.contents()) {
+                    transcript.append(content instanceof TextContent textContent ? textContent.text() : "[image]");
+                }
+            } else if (message instanceof AiMessage aiMessage) {
+                if (SUMMARY_ACKNOWLEDGEMENT.equals(aiMessage)) {
+                    // Part of an earlier summary, which is summarized again
+                    continue;
+                }
+                transcript.append("Assistant: ");
+                if (aiMessage.text() != null) {
+                    transcript.append(aiMessage.text());
+                }
+                if (aiMessage.hasToolExecutionRequests()) {
+                    for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                        transcript.append("\n[called tool ").append(request.name())
+                                .append(" with ").append(request.arguments()).append(']');
+                    }
+                }
+            } else if (message instanceof ToolExecutionResultMessage resultMessage) {
+                transcript.append("Tool ").append(resultMessage.toolName()).append(" returned: ").append(resultMessage.text());
+            } else {
+                continue;
+            }
+            transcript.append("\n\n");
+        }
+        return transcript.toString();
+    }
+}
@@ -1,10 +1,13 @@
 package com.devoxx.genie.service.prompt.memory;
 
+import com.devoxx.genie.chatmodel.ChatModelProvider;
 import com.devoxx.genie.model.LanguageModel;
+import com.devoxx.genie.model.enumarations.ModelProvider;
 import com.devoxx.genie.model.conversation.Conversation;
 import com.devoxx.genie.model.request.ChatMessageContext;
-import com.devoxx.genie.service.mcp.MCPService;
+import com.devoxx.genie.service.models.LLMModelRegistryService;
 import com.devoxx.genie.service.prompt.error.MemoryException;
+import com.devoxx.genie.service.prompt.threading.ThreadPoolManager;
 import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
 import com.devoxx.genie.util.ChatMessageContextUtil;
 import com.devoxx.genie.util.TemplateVariableEscaper;
@@ -17,12 +20,11 @@ import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.memory.ChatMemory;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import static com.devoxx.genie.model.Constant.MARKDOWN;
-
 /**
  * Manages high-level chat memory operations and coordinates memory lifecycle.
  * This class is responsible for business logic around memory operations,
@@ -32,6 +34,7 @@ import static com.devoxx.genie.model.Constant.MARKDOWN;
 public class ChatMemoryManager {
 
     private final ChatMemoryService chatMemoryService;
+    private final ChatMemoryCompactor chatMemoryCompactor;
 
     public static ChatMemoryManager getInstance() {
         return ApplicationManager.getApplication().getService(ChatMemoryManager.class);
@@ -39,6 +42,8 @@ public class ChatMemoryManager {
 
     public ChatMemoryManager() {
         this.chatMemoryService = ChatMemoryService.getInstance();
+        this.chatMemoryCompactor = new ChatMemoryCompactor(chatMemoryService,
+                task -> ThreadPoolManager.getInstance().getPromptExecutionPool().execute(task));
     }
 
     /**
@@ -62,14 +67,13 @@ public class ChatMemoryManager {
     public void prepareMemory(@NotNull ChatMessageContext context) {
         try {
             Project project = context.getProject();
+            boolean tokenBudget = Boolean.TRUE.equals(DevoxxGenieStateService.getInstance().getChatMemoryTokenBudget());
+            chatMemoryService.setTokenBudget(project, tokenBudget ? tokenBudget(context.getLanguageModel()) : Integer.MAX_VALUE);
 
-            // If memory isn't initialized yet, do it now
-            if (chatMemoryService.isEmpty(project)) {
-                log.debug("Preparing memory with initial system message if needed");
-
-                if (shouldIncludeSystemMessage(context)) {
-                    String systemPrompt = buildSystemPrompt(context);
-                    chatMemoryService.addMessage(project, SystemMessage.from(systemPrompt));
+            // The system message leads every request, it is only replaced when its content changed
+            if (shouldIncludeSystemMessage(context)) {
+                String systemPrompt = PromptLayout.systemPrompt(context);
+                if (chatMemoryService.setSystemMessage(project, SystemMessage.from(systemPrompt))) {
                     log.debug("Added system message to memory");
                 }
             }
@@ -96,6 +100,24 @@ public class ChatMemoryManager {
         }
     }
 
+    /**
+     * Summarizes the oldest turns in the background when compaction is enabled and the memory grew over the threshold
+     * @param context The chat message context of the completed prompt
+     */
+    public void compactIfNeeded(@NotNull ChatMessageContext context) {
+        DevoxxGenieStateService stateService = DevoxxGenieStateService.getInstance();
+        if (!Boolean.TRUE.equals(stateService.getChatMemoryCompaction())) {
+            return;
+        }
+        try {
+            chatMemoryCompactor.compactIfNeeded(context.getProject(),
+                    () -> new ChatModelProvider().getChatLanguageModel(summaryContext(context)),
+                    stateService.getChatMemoryCompactionThreshold());
+        } catch (Exception e) {
+            log.warn("Failed to start chat memory compaction: {}", e.getMessage());
+        }
+    }
+
     /**
      * Removes the most recent conversation exchange (user and AI messages) from memory
      * @param context The chat message context for the exchange to remove
@@ -164,6 +186,21 @@ public class ChatMemoryManager {
         }
     }
 
+    /**
+     * Pins the project context in memory, unless the conversation already holds the same context
+     * @param context The chat message context with the project context as files context
+     * @return true when the project context was added to memory
+     */
+    public boolean anchorProjectContext(@NotNull ChatMessageContext context) {
+        try {
+            boolean added = chatMemoryService.anchorProjectContext(context.getProject(), context.getFilesContext());
+            log.debug(added ? "Added project context to memory" : "Project context already in memory");
+            return added;
+        } catch (Exception e) {
+            throw new MemoryException("Failed to add project context to memory", e);
+        }
+    }
+
     /**
      * Removes only the last AI message from memory
      * @param context The chat message context containing the AI message to remove
@@ -228,7 +265,12 @@ public class ChatMemoryManager {
      */
     public void restoreConversation(@NotNull Project project, @NotNull Conversation conversation) {
         try {
-            // First clear existing memory
+            if (chatMemoryService.restoreConversation(project, conversation.getId())) {
+                log.debug("Restored conversation from its stored chat memory");
+                return;
+            }
+
+            // Conversations saved without their chat memory are rebuilt from their messages
             chatMemoryService.clearMemory(project);
 
             // Convert and add each message
@@ -239,12 +281,58 @@ public class ChatMemoryManager {
                     chatMemoryService.addMessage(project, AiMessage.from(message.getContent()));
                 }
             }
+            chatMemoryService.bindConversation(project, conversation.getId());
             log.debug("Restored conversation from saved model");
         } catch (Exception e) {
             throw new MemoryException("Failed to restore conversation", e);
         }
     }
 
+    /**
+     * Builds the context for the model which summarizes, the configured one or else the model of the conversation
+     * @param context The chat message context of the conversation
+     * @return The context with the summary model
+     */
+    private static @NotNull ChatMessageContext summaryContext(@NotNull ChatMessageContext context) {
+        DevoxxGenieStateService stateService = DevoxxGenieStateService.getInstance();
+        LanguageModel languageModel = context.getLanguageModel();
+        String provider = stateService.getChatMemoryCompactionProvider();
+        if (provider != null && !provider.isBlank()) {
+            languageModel = LanguageModel.builder()
+                    .provider(ModelProvider.fromString(provider))
+                    .modelName(stateService.getChatMemoryCompactionModelName())
+                    .displayName(stateService.getChatMemoryCompactionModelName())
+                    .build();
+        }
+        return ChatMessageContext.builder()
+                .project(context.getProject())
+                .languageModel(languageModel)
+                .build();
+    }
+
+    /**
+     * Computes how many tokens of the context window the chat memory may use,
+     * keeping room for the model's response and for the tokenizer differences between models
+     * @param model The selected language model
+     * @return The token budget, or Integer.MAX_VALUE when the context window is unknown
+     */
+    static int tokenBudget(@Nullable LanguageModel model) {
+        if (model == null) {
+            return Integer.MAX_VALUE;
+        }
+        int contextWindow = model.getInputMaxTokens();
+        if (contextWindow <= 0 && model.getProvider() != null && model.getModelName() != null) {
+            LanguageModel knownModel = LLMModelRegistryService.getInstance().findModel(model.getProvider(), model.getModelName());
+            contextWindow = knownModel == null ? 0 : knownModel.getInputMaxTokens();
+        }
+        if (contextWindow <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        int maxOutputTokens = DevoxxGenieStateService.getInstance().getMaxOutputTokens();
+        int budget = (int) (contextWindow * 0.9) - Math.min(maxOutputTokens, contextWindow / 4);
+        return Math.max(budget, contextWindow / 2);
+    }
+
     /**
      * Determines if a system message should be included based on model type
      * @param context The context containing model information
@@ -266,24 +354,4 @@ public class ChatMemoryManager {
 
         return true;
     }
-
-    /**
-     * Builds system prompt with optional MCP instructions
-     * @param context The context for building the system prompt
-     * @return The complete system prompt
-     */
-    private String buildSystemPrompt(@NotNull ChatMessageContext context) {
-        String systemPrompt = DevoxxGenieStateService.getInstance().getSystemPrompt() + MARKDOWN;
-
-        // Add MCP instructions to system prompt if MCP is enabled
-        if (MCPService.isMCPEnabled()) {
-            systemPrompt += "<MCP_INSTRUCTION>The project base directory is " +
-                    context.getProject().getBasePath() +
-                    "\nMake sure to use this information for your MCP tooling calls\n" +
-                    "</MCP_INSTRUCTION>";
-            MCPService.logDebug("Added MCP instructions to system prompt");
-        }
-
-        return systemPrompt;
-    }
-}
\ No newline at end of file
+}
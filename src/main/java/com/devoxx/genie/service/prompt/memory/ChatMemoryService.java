@@ -1,16 +1,18 @@
 package com.devoxx.genie.service.prompt.memory;
 
+import com.devoxx.genie.service.conversations.ConversationStorageService;
 import com.devoxx.genie.service.prompt.error.MemoryException;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
-import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -32,9 +34,13 @@ public class ChatMemoryService implements ChatMemoryProvider {
     public static final String FAILED_TO_GET_MESSAGES_FROM_MEMORY = "Failed to get messages from memory";
     public static final String FAILED_TO_CHECK_IF_MEMORY_IS_EMPTY = "Failed to check if memory is empty";
     public static final String FAILED_TO_REMOVE_LAST_MESSAGE_FROM_MEMORY = "Failed to remove last message from memory";
+    public static final String FAILED_TO_REPLACE_MESSAGES_IN_MEMORY = "Failed to replace messages in memory";
+    public static final String FAILED_TO_RESTORE_CONVERSATION_IN_MEMORY = "Failed to restore conversation in memory";
+    public static final String FAILED_TO_ANCHOR_PROJECT_CONTEXT = "Failed to pin project context in memory";
+    public static final String FAILED_TO_SET_SYSTEM_MESSAGE = "Failed to set system message in memory";
 
-    private final Map<String, MessageWindowChatMemory> projectConversations = new ConcurrentHashMap<>();
-    private final InMemoryChatMemoryStore inMemoryChatMemoryStore = new InMemoryChatMemoryStore();
+    private final Map<String, ChatMemory> projectConversations = new ConcurrentHashMap<>();
+    private final PersistentChatMemoryStore chatMemoryStore = new PersistentChatMemoryStore(ConversationStorageService::getInstance);
 
     public static ChatMemoryService getInstance() {
         return ApplicationManager.getApplication().getService(ChatMemoryService.class);
@@ -52,7 +58,9 @@ public class ChatMemoryService implements ChatMemoryProvider {
 
             // If memory already exists for this project, clear it first
             if (projectConversations.containsKey(projectHash)) {
-                projectConversations.get(projectHash).clear();
+                ChatMemory memory = projectConversations.get(projectHash);
+                chatMemoryStore.unbind(memory.id());
+                memory.clear();
                 log.debug("Cleared existing memory for project: {}", projectHash);
             }
 
@@ -69,8 +77,10 @@ public class ChatMemoryService implements ChatMemoryProvider {
     public void clearMemory(@NotNull Project project) {
         try {
             String projectHash = project.getLocationHash();
-            MessageWindowChatMemory memory = projectConversations.get(projectHash);
+            ChatMemory memory = projectConversations.get(projectHash);
             if (memory != null) {
+                // The stored chat memory stays with the previous conversation
+                chatMemoryStore.unbind(memory.id());
                 memory.clear();
                 log.debug("Cleared memory for project: {}", projectHash);
             } else {
@@ -89,19 +99,12 @@ public class ChatMemoryService implements ChatMemoryProvider {
     public void addMessage(@NotNull Project project, ChatMessage chatMessage) {
         try {
             String projectHash = project.getLocationHash();
-            MessageWindowChatMemory memory = projectConversations.get(projectHash);
+            ChatMemory memory = projectConversations.get(projectHash);
             if (memory != null) {
                 // Check for duplicate messages to prevent adding the same message multiple times
-                List<ChatMessage> currentMessages = memory.messages();
-                if (!currentMessages.isEmpty()) {
-                    ChatMessage lastMessage = currentMessages.get(currentMessages.size() - 1);
-                    
-                    // Check if the last message is of the same type and has the same content
-                    if (lastMessage.getClass().equals(chatMessage.getClass()) &&
-                        lastMessage.toString().equals(chatMessage.toString())) {
-                        log.warn("Prevented duplicate message addition for project: {}", projectHash);
-                        return; // Skip adding duplicate message
-                    }
+                if (chatMemoryStore.isLastMessage(memory.id(), chatMessage)) {
+                    log.warn("Prevented duplicate message addition for project: {}", projectHash);
+                    return; // Skip adding duplicate message
                 }
                 
                 // Log the message content for debugging XML issues
@@ -129,7 +132,7 @@ public class ChatMemoryService implements ChatMemoryProvider {
     public List<ChatMessage> getMessages(@NotNull Project project) {
         try {
             String projectHash = project.getLocationHash();
-            MessageWindowChatMemory memory = projectConversations.get(projectHash);
+            ChatMemory memory = projectConversations.get(projectHash);
             if (memory != null) {
                 return memory.messages();
             } else {
@@ -151,7 +154,7 @@ public class ChatMemoryService implements ChatMemoryProvider {
     public boolean isEmpty(@NotNull Project project) {
         try {
             String projectHash = project.getLocationHash();
-            MessageWindowChatMemory memory = projectConversations.get(projectHash);
+            ChatMemory memory = projectConversations.get(projectHash);
             if (memory != null) {
                 return memory.messages().isEmpty();
             } else {
@@ -170,17 +173,13 @@ public class ChatMemoryService implements ChatMemoryProvider {
     public void removeLastMessage(@NotNull Project project) {
         try {
             String projectHash = project.getLocationHash();
-            MessageWindowChatMemory memory = projectConversations.get(projectHash);
+            ChatMemory memory = projectConversations.get(projectHash);
             if (memory != null) {
                 List<ChatMessage> messages = memory.messages();
                 if (!messages.isEmpty()) {
-                    // Clear and re-add all messages except the last one
+                    // Keep all messages except the last one
                     ChatMessage lastMessage = messages.get(messages.size() - 1);
-                    memory.clear();
-
-                    for (int i = 0; i < messages.size() - 1; i++) {
-                        memory.add(messages.get(i));
-                    }
+                    chatMemoryStore.updateMessages(memory.id(), messages.subList(0, messages.size() - 1));
 
                     log.debug("Removed last message ({}) from project: {}",
                             lastMessage.getClass().getSimpleName(), projectHash);
@@ -204,45 +203,195 @@ public class ChatMemoryService implements ChatMemoryProvider {
     public void removeMessages(@NotNull Project project, List<ChatMessage> messagesToRemove) {
         try {
             String projectHash = project.getLocationHash();
-            MessageWindowChatMemory memory = projectConversations.get(projectHash);
+            ChatMemory memory = projectConversations.get(projectHash);
             if (memory != null) {
+                if (!messagesToRemove.isEmpty()) {
+                    // The store finds the messages by their content hash, the other messages stay as they are
+                    int removed = chatMemoryStore.removeMessages(memory.id(), messagesToRemove);
+                    log.debug("Removed {} messages from project: {}", removed, projectHash);
+                }
+            } else {
+                throw new MemoryException(CHAT_MEMORY_NOT_INITIALIZED_FOR_PROJECT + projectHash);
+            }
+        } catch (Exception e) {
+            if (!(e instanceof MemoryException)) {
+                throw new MemoryException(FAILED_TO_REMOVE_MESSAGES_FROM_MEMORY, e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces consecutive messages of a project's memory with other messages
+     * @param project The project to replace in
+     * @param messagesToReplace The consecutive messages to replace
+     * @param replacements The messages which take their place
+     * @return true when replaced, false when the memory no longer holds these messages
+     */
+    public boolean replaceMessages(@NotNull Project project,
+                                   @NotNull List<ChatMessage> messagesToReplace,
+                                   @NotNull List<ChatMessage> replacements) {
+        try {
+            String projectHash = project.getLocationHash();
+            ChatMemory memory = projectConversations.get(projectHash);
+            if (memory == null || messagesToReplace.isEmpty()) {
+                return false;
+            }
+            // Prompts add to the memory while a replacement is prepared, so check and replace together
+            synchronized (memory) {
                 List<ChatMessage> currentMessages = memory.messages();
+                int start = Collections.indexOfSubList(currentMessages, messagesToReplace);
+                if (start < 0) {
+                    return false;
+                }
 
-                if (!currentMessages.isEmpty() && !messagesToRemove.isEmpty()) {
-                    // Create a new list excluding the messages to remove
-                    memory.clear();
+                List<ChatMessage> newMessages = new ArrayList<>(currentMessages.subList(0, start));
+                newMessages.addAll(replacements);
+                newMessages.addAll(currentMessages.subList(start + messagesToReplace.size(), currentMessages.size()));
+                chatMemoryStore.updateMessages(memory.id(), newMessages);
+            }
+            log.debug("Replaced {} messages of project: {}", messagesToReplace.size(), projectHash);
+            return true;
+        } catch (Exception e) {
+            throw new MemoryException(FAILED_TO_REPLACE_MESSAGES_IN_MEMORY, e);
+        }
+    }
 
-                    for (ChatMessage message : currentMessages) {
-                        if (!messagesToRemove.contains(message)) {
-                            memory.add(message);
-                        }
-                    }
+    /**
+     * Sets the system message of a project's memory, as its first message
+     * @param project The project to set the system message for
+     * @param systemMessage The system message
+     * @return true when the memory changed, false when it already starts with this system message
+     */
+    public boolean setSystemMessage(@NotNull Project project, @NotNull SystemMessage systemMessage) {
+        try {
+            String projectHash = project.getLocationHash();
+            ChatMemory memory = projectConversations.get(projectHash);
+            if (memory == null) {
+                throw new MemoryException(CHAT_MEMORY_NOT_INITIALIZED_FOR_PROJECT + projectHash);
+            }
+            synchronized (memory) {
+                List<ChatMessage> messages = chatMemoryStore.getMessages(memory.id());
+                if (!messages.isEmpty() && systemMessage.equals(messages.get(0))) {
+                    return false;
+                }
+                // A changed system message stays in front, so the prompt keeps its layout
+                List<ChatMessage> newMessages = new ArrayList<>(messages.size() + 1);
+                newMessages.add(systemMessage);
+                messages.stream()
+                        .filter(message -> !(message instanceof SystemMessage))
+                        .forEach(newMessages::add);
+                chatMemoryStore.updateMessages(memory.id(), newMessages);
+            }
+            return true;
+        } catch (Exception e) {
+            if (!(e instanceof MemoryException)) {
+                throw new MemoryException(FAILED_TO_SET_SYSTEM_MESSAGE, e);
+            }
+            throw e;
+        }
+    }
 
-                    log.debug("Removed {} messages from project: {}",
-                            messagesToRemove.size(), projectHash);
+    /**
+     * Pins the project context in a project's memory, unless the same context is already pinned
+     * @param project The project to pin the context for
+     * @param context The project context
+     * @return true when the context was added, false when the memory already holds it
+     */
+    public boolean anchorProjectContext(@NotNull Project project, @NotNull String context) {
+        try {
+            String projectHash = project.getLocationHash();
+            ChatMemory memory = projectConversations.get(projectHash);
+            if (memory == null) {
+                throw new MemoryException(CHAT_MEMORY_NOT_INITIALIZED_FOR_PROJECT + projectHash);
+            }
+            ChatMessage contextMessage = ProjectContextAnchor.contextMessage(context);
+            synchronized (memory) {
+                List<ChatMessage> messages = chatMemoryStore.getMessages(memory.id());
+                // The content hash tells whether the context changed since it was sent
+                int index = chatMemoryStore.indexOf(memory.id(), HashIndexedChatMemoryStore.messageId(contextMessage));
+                if (index >= 0 && index + 1 < messages.size()
+                        && ProjectContextAnchor.ACKNOWLEDGEMENT.equals(messages.get(index + 1))) {
+                    return false;
                 }
-            } else {
+
+                // Replace an outdated context, the new one goes before the conversation like the first one
+                List<ChatMessage> newMessages = new ArrayList<>(messages.stream()
+                        .filter(message -> !ProjectContextAnchor.isAnchor(message))
+                        .toList());
+                int start = PromptLayout.conversationStart(newMessages);
+                newMessages.add(start, contextMessage);
+                newMessages.add(start + 1, ProjectContextAnchor.ACKNOWLEDGEMENT);
+                chatMemoryStore.updateMessages(memory.id(), newMessages);
+            }
+            log.debug("Pinned project context in memory of project: {}", projectHash);
+            return true;
+        } catch (Exception e) {
+            if (!(e instanceof MemoryException)) {
+                throw new MemoryException(FAILED_TO_ANCHOR_PROJECT_CONTEXT, e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Saves the project's memory with a conversation from now on
+     * @param project The project of the memory
+     * @param conversationId The conversation the memory belongs to
+     */
+    public void bindConversation(@NotNull Project project, @NotNull String conversationId) {
+        ChatMemory memory = projectConversations.get(project.getLocationHash());
+        if (memory != null) {
+            chatMemoryStore.bind(memory.id(), conversationId);
+        }
+    }
+
+    /**
+     * Replaces the project's memory with the stored chat memory of a conversation
+     * @param project The project to restore the memory for
+     * @param conversationId The conversation to restore
+     * @return true when restored, false when no chat memory was stored for the conversation
+     */
+    public boolean restoreConversation(@NotNull Project project, @NotNull String conversationId) {
+        try {
+            String projectHash = project.getLocationHash();
+            ChatMemory memory = projectConversations.get(projectHash);
+            if (memory == null) {
                 throw new MemoryException(CHAT_MEMORY_NOT_INITIALIZED_FOR_PROJECT + projectHash);
             }
+            synchronized (memory) {
+                chatMemoryStore.unbind(memory.id());
+                memory.clear();
+                return chatMemoryStore.load(memory.id(), conversationId);
+            }
         } catch (Exception e) {
             if (!(e instanceof MemoryException)) {
-                throw new MemoryException(FAILED_TO_REMOVE_MESSAGES_FROM_MEMORY, e);
+                throw new MemoryException(FAILED_TO_RESTORE_CONVERSATION_IN_MEMORY, e);
             }
             throw e;
         }
     }
 
+    /**
+     * Sets the token budget of a project's memory
+     * @param project The project to set the budget for
+     * @param maxTokens The maximum number of tokens of all messages together
+     */
+    public void setTokenBudget(@NotNull Project project, int maxTokens) {
+        if (projectConversations.get(project.getLocationHash()) instanceof TokenBudgetChatMemory memory) {
+            memory.setMaxTokens(maxTokens);
+        }
+    }
+
     /**
      * Creates and initializes chat memory for a project
      * @param projectHash The project hash
      * @param chatMemorySize The maximum number of messages to retain
      */
     private void createChatMemory(@NotNull String projectHash, int chatMemorySize) {
-        MessageWindowChatMemory chatMemory = MessageWindowChatMemory.builder()
-                .id("devoxxgenie-" + projectHash)
-                .chatMemoryStore(inMemoryChatMemoryStore)
-                .maxMessages(chatMemorySize)
-                .build();
+        String memoryId = "devoxxgenie-" + projectHash;
+        // Also without a token budget, it keeps the system message and the pinned project context at the start
+        ChatMemory chatMemory = new TokenBudgetChatMemory(memoryId, chatMemoryStore, chatMemorySize);
         projectConversations.put(projectHash, chatMemory);
         log.debug("Created new chat memory for project: {}", projectHash);
     }
@@ -0,0 +1,275 @@
+package com.devoxx.genie.service.prompt.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chat memory store which keeps a SHA-256 content hash and the length of each message.
+ * <p>
+ * Messages with project context can be megabytes long, so comparing their text on every change is
+ * expensive. The hash of a message is computed once when it is stored and used as its id: to find
+ * duplicates, and to remove or replace single messages without rebuilding the list of the memory.
+ */
+public class HashIndexedChatMemoryStore implements ChatMemoryStore {
+
+    private record Entry(ChatMessage message, String id, long length) {
+    }
+
+    // Guarded by this
+    private final Map<Object, List<Entry>> entriesByMemoryId = new HashMap<>();
+    // The last message hashed by a duplicate check, which is usually stored right after it
+    private Entry checkedEntry;
+
+    @Override
+    public synchronized List<ChatMessage> getMessages(Object memoryId) {
+        return entries(memoryId).stream().map(Entry::message).toList();
+    }
+
+    @Override
+    public synchronized void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        // The chat memories pass the whole list on every change, reuse the hashes of the messages that stay
+        Map<ChatMessage, Entry> existing = new IdentityHashMap<>();
+        for (Entry entry : entries(memoryId)) {
+            existing.put(entry.message(), entry);
+        }
+        List<Entry> entries = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            Entry entry = existing.get(message);
+            entries.add(entry != null ? entry : entry(message));
+        }
+        entriesByMemoryId.put(memoryId, entries);
+        changed(memoryId);
+    }
+
+    @Override
+    public synchronized void deleteMessages(Object memoryId) {
+        entriesByMemoryId.remove(memoryId);
+        changed(memoryId);
+    }
+
+    /**
+     * Check whether a message is the same as the last message of a memory.
+     *
+     * @param memoryId the memory id
+     * @param message  the message to check
+     * @return true when the last message has the same type and content
+     */
+    public synchronized boolean isLastMessage(Object memoryId, @NotNull ChatMessage message) {
+        List<Entry> entries = entries(memoryId);
+        if (entries.isEmpty()) {
+            return false;
+        }
+        Entry last = entries.get(entries.size() - 1);
+        // The length is known without hashing and rules out most different messages
+        if (last.length() != length(message)) {
+            return false;
+        }
+        checkedEntry = entry(message);
+        return last.id().equals(checkedEntry.id());
+    }
+
+    /**
+     * Find a message by its id.
+     *
+     * @param memoryId  the memory id
+     * @param messageId the id of the message, see {@link #messageId(ChatMessage)}
+     * @return the index of the first message with this id, or -1
+     */
+    public synchronized int indexOf(Object memoryId, @NotNull String messageId) {
+        List<Entry> entries = entries(memoryId);
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).id().equals(messageId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Remove a message by its id.
+     *
+     * @param memoryId  the memory id
+     * @param messageId the id of the message, see {@link #messageId(ChatMessage)}
+     * @return true when the message was removed
+     */
+    public synchronized boolean removeMessage(Object memoryId, @NotNull String messageId) {
+        boolean removed = entries(memoryId).removeIf(entry -> entry.id().equals(messageId));
+        if (removed) {
+            changed(memoryId);
+        }
+        return removed;
+    }
+
+    /**
+     * Remove messages by their content.
+     *
+     * @param memoryId the memory id
+     * @param messages the messages to remove
+     * @return the number of removed messages
+     */
+    public synchronized int removeMessages(Object memoryId, @NotNull Collection<ChatMessage> messages) {
+        Set<String> ids = new HashSet<>();
+        for (ChatMessage message : messages) {
+            ids.add(messageId(message));
+        }
+        List<Entry> entries = entries(memoryId);
+        int size = entries.size();
+        if (entries.removeIf(entry -> ids.contains(entry.id()))) {
+            changed(memoryId);
+        }
+        return size - entries.size();
+    }
+
+    /**
+     * Replace a message by its id, keeping its position.
+     *
+     * @param memoryId    the memory id
+     * @param messageId   the id of the message to replace
+     * @param replacement the new message
+     * @return true when the message was found and replaced
+     */
+    public synchronized boolean replaceMessage(Object memoryId, @NotNull String messageId, @NotNull ChatMessage replacement) {
+        List<Entry> entries = entries(memoryId);
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).id().equals(messageId)) {
+                entries.set(i, entry(replacement));
+                changed(memoryId);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param memoryId the memory id
+     * @return the ids of the messages of the memory, in their order
+     */
+    protected synchronized @NotNull List<String> messageIds(Object memoryId) {
+        return entries(memoryId).stream().map(Entry::id).toList();
+    }
+
+    /**
+     * Called with the lock held after the messages of a memory changed.
+     *
+     * @param memoryId   the memory id
+     * @param messages   the messages of the memory
+     * @param messageIds the ids of the messages
+     */
+    protected void messagesChanged(Object memoryId, @NotNull List<ChatMessage> messages, @NotNull List<String> messageIds) {
+    }
+
+    /**
+     * @param message the message
+     * @return the id of the message: the SHA-256 of its type and content as a hex string
+     */
+    public static @NotNull String messageId(@NotNull ChatMessage message) {
+        MessageDigest digest = sha256();
+        update(digest, message.type().name());
+        if (message instanceof UserMessage userMessage) {
+            update(digest, userMessage.name());
+            for (Content content : userMessage.contents()) {
+                update(digest, content instanceof TextContent textContent ? textContent.text() : content.toString());
+            }
+        } else if (message instanceof AiMessage aiMessage) {
+            update(digest, aiMessage.text());
+            if (aiMessage.hasToolExecutionRequests()) {
+                for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                    update(digest, request.id());
+                    update(digest, request.name());
+                    update(digest, request.arguments());
+                }
+            }
+        } else if (message instanceof SystemMessage systemMessage) {
+            update(digest, systemMessage.text());
+        } else if (message instanceof ToolExecutionResultMessage resultMessage) {
+            update(digest, resultMessage.id());
+            update(digest, resultMessage.toolName());
+            update(digest, resultMessage.text());
+        } else {
+            update(digest, message.toString());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void changed(Object memoryId) {
+        List<Entry> entries = entries(memoryId);
+        messagesChanged(memoryId,
+                entries.stream().map(Entry::message).toList(),
+                entries.stream().map(Entry::id).toList());
+    }
+
+    private @NotNull List<Entry> entries(Object memoryId) {
+        List<Entry> entries = entriesByMemoryId.get(memoryId);
+        return entries != null ? entries : new ArrayList<>();
+    }
+
+    private @NotNull Entry entry(@NotNull ChatMessage message) {
+        Entry checked = checkedEntry;
+        checkedEntry = null;
+        if (checked != null && checked.message() == message) {
+            return checked;
+        }
+        return new Entry(message, messageId(message), length(message));
+    }
+
+    private static long length(@NotNull ChatMessage message) {
+        if (message instanceof UserMessage userMessage) {
+            long length = 0;
+            for (Content content : userMessage.contents()) {
+                length += content instanceof TextContent textContent ? textContent.text().length() : 0;
+            }
+            return length;
+        } else if (message instanceof AiMessage aiMessage) {
+            long length = aiMessage.text() == null ? 0 : aiMessage.text().length();
+            if (aiMessage.hasToolExecutionRequests()) {
+                for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                    length += request.arguments() == null ? 0 : request.arguments().length();
+                }
+            }
+            return length;
+        } else if (message instanceof SystemMessage systemMessage) {
+            return systemMessage.text().length();
+        } else if (message instanceof ToolExecutionResultMessage resultMessage) {
+            return resultMessage.text() == null ? 0 : resultMessage.text().length();
+        }
+        return 0;
+    }
+
+    private static void update(@NotNull MessageDigest digest, @Nullable String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separates the parts, so "ab" + "c" and "a" + "bc" hash differently
+        digest.update((byte) 0);
+    }
+
+    private static @NotNull MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
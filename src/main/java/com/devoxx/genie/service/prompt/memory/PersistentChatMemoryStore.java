@@ -0,0 +1,146 @@
+package com.devoxx.genie.service.prompt.memory;
+
+import com.devoxx.genie.service.conversations.ChatMemoryRecord;
+import com.devoxx.genie.service.conversations.ConversationStorageService;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Chat memory store which also saves the messages of a memory with the conversation it belongs to,
+ * in the conversation database.
+ * <p>
+ * Restoring a conversation loads its chat memory with one indexed read, instead of adding its
+ * messages to the memory one by one. Only the changes are written: the stored messages which are
+ * no longer in the memory are deleted and the new messages are appended. A memory is only saved
+ * once it is bound to a conversation, and a failed write unbinds it, the memory itself keeps working.
+ */
+@Slf4j
+public class PersistentChatMemoryStore extends HashIndexedChatMemoryStore {
+
+    private record StoredMessage(String messageId, long rowId) {
+    }
+
+    private final Supplier<ConversationStorageService> storageService;
+    // Guarded by this
+    private final Map<Object, String> conversationByMemoryId = new HashMap<>();
+    private final Map<Object, List<StoredMessage>> storedByMemoryId = new HashMap<>();
+
+    public PersistentChatMemoryStore(@NotNull Supplier<ConversationStorageService> storageService) {
+        this.storageService = storageService;
+    }
+
+    /**
+     * Save the messages of a memory with a conversation from now on, replacing what was stored for it.
+     *
+     * @param memoryId       the memory id
+     * @param conversationId the conversation id
+     */
+    public synchronized void bind(Object memoryId, @NotNull String conversationId) {
+        if (conversationId.equals(conversationByMemoryId.get(memoryId))) {
+            return;
+        }
+        try {
+            storageService.get().deleteChatMemory(conversationId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to bind chat memory to conversation {}: {}", conversationId, e.getMessage());
+            return;
+        }
+        conversationByMemoryId.put(memoryId, conversationId);
+        storedByMemoryId.put(memoryId, List.of());
+        List<ChatMessage> messages = getMessages(memoryId);
+        messagesChanged(memoryId, messages, messageIds(memoryId));
+    }
+
+    /**
+     * Stop saving the messages of a memory, the stored messages are kept with their conversation.
+     *
+     * @param memoryId the memory id
+     */
+    public synchronized void unbind(Object memoryId) {
+        conversationByMemoryId.remove(memoryId);
+        storedByMemoryId.remove(memoryId);
+    }
+
+    /**
+     * Replace the messages of a memory with the stored chat memory of a conversation and bind them.
+     *
+     * @param memoryId       the memory id
+     * @param conversationId the conversation id
+     * @return false when nothing was stored for the conversation, the memory is then left unchanged
+     */
+    public synchronized boolean load(Object memoryId, @NotNull String conversationId) {
+        List<ChatMemoryRecord> records;
+        List<ChatMessage> messages = new ArrayList<>();
+        try {
+            records = storageService.get().getChatMemory(conversationId);
+            for (ChatMemoryRecord record : records) {
+                messages.add(ChatMessageDeserializer.messageFromJson(record.message()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to load chat memory of conversation {}: {}", conversationId, e.getMessage());
+            return false;
+        }
+        if (records.isEmpty()) {
+            return false;
+        }
+
+        // Loaded while unbound, so the messages are not written back
+        unbind(memoryId);
+        updateMessages(memoryId, messages);
+        List<String> messageIds = messageIds(memoryId);
+        List<StoredMessage> stored = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            stored.add(new StoredMessage(messageIds.get(i), records.get(i).id()));
+        }
+        conversationByMemoryId.put(memoryId, conversationId);
+        storedByMemoryId.put(memoryId, stored);
+        log.debug("Loaded {} chat memory messages of conversation {}", records.size(), conversationId);
+        return true;
+    }
+
+    @Override
+    protected void messagesChanged(Object memoryId, @NotNull List<ChatMessage> messages, @NotNull List<String> messageIds) {
+        String conversationId = conversationByMemoryId.get(memoryId);
+        if (conversationId == null) {
+            return;
+        }
+
+        // Keep the stored messages which are still in the memory in the same order, delete the others
+        List<StoredMessage> stored = storedByMemoryId.getOrDefault(memoryId, List.of());
+        List<StoredMessage> kept = new ArrayList<>();
+        List<Long> removedIds = new ArrayList<>();
+        for (StoredMessage storedMessage : stored) {
+            if (kept.size() < messageIds.size() && storedMessage.messageId().equals(messageIds.get(kept.size()))) {
+                kept.add(storedMessage);
+            } else {
+                removedIds.add(storedMessage.rowId());
+            }
+        }
+        if (removedIds.isEmpty() && kept.size() == messages.size()) {
+            return;
+        }
+
+        List<String> newMessages = messages.subList(kept.size(), messages.size()).stream()
+                .map(ChatMessageSerializer::messageToJson)
+                .toList();
+        try {
+            List<Long> rowIds = storageService.get().updateChatMemory(conversationId, removedIds, newMessages);
+            for (int i = 0; i < rowIds.size(); i++) {
+                kept.add(new StoredMessage(messageIds.get(kept.size()), rowIds.get(i)));
+            }
+            storedByMemoryId.put(memoryId, kept);
+        } catch (RuntimeException e) {
+            log.warn("Failed to save chat memory of conversation {}, no longer saving it: {}", conversationId, e.getMessage());
+            unbind(memoryId);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.devoxx.genie.service.prompt.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The project context of a conversation, pinned in the chat memory once instead of sent with every prompt.
+ * <p>
+ * The context is a user message followed by an acknowledgement of the assistant, so the providers
+ * which expect alternating user and assistant messages accept it. The next prompts only hold the
+ * question of the developer and refer to the context in the memory. The pinned messages are not
+ * evicted by the token budget nor summarized by the compaction.
+ */
+public final class ProjectContextAnchor {
+
+    static final String CONTEXT_PREFIX = "The project context for this conversation, my next prompts refer to it:\n<Context>";
+    static final String CONTEXT_SUFFIX = "</Context>";
+
+    public static final AiMessage ACKNOWLEDGEMENT =
+            AiMessage.from("I have read the project context and will use it to answer your next prompts.");
+
+    private ProjectContextAnchor() {
+    }
+
+    /**
+     * @param context the project context
+     * @return the user message which pins the context in the chat memory
+     */
+    public static @NotNull UserMessage contextMessage(@NotNull String context) {
+        return UserMessage.from(CONTEXT_PREFIX + context + CONTEXT_SUFFIX);
+    }
+
+    /**
+     * @param message the message
+     * @return true when the message is a pinned project context or its acknowledgement
+     */
+    public static boolean isAnchor(@NotNull ChatMessage message) {
+        if (message instanceof UserMessage userMessage) {
+            return userMessage.hasSingleText() && userMessage.singleText().startsWith(CONTEXT_PREFIX);
+        }
+        return ACKNOWLEDGEMENT.equals(message);
+    }
+}
@@ -0,0 +1,122 @@
+package com.devoxx.genie.service.prompt.memory;
+
+import com.devoxx.genie.model.request.ChatMessageContext;
+import com.devoxx.genie.service.mcp.MCPService;
+import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
+import com.intellij.openapi.project.Project;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.devoxx.genie.model.Constant.MARKDOWN;
+
+/**
+ * Orders the parts of a prompt from the most to the least stable, so consecutive requests of a
+ * conversation share their leading tokens.
+ * <p>
+ * Anthropic, OpenAI and Gemini reuse, and discount, the longest prefix a request shares with a
+ * recent one. A request is laid out as:
+ * <ol>
+ *     <li>the system prompt, with the MCP instructions and the DEVOXXGENIE.md content</li>
+ *     <li>the pinned project context, see {@link ProjectContextAnchor}</li>
+ *     <li>the conversation</li>
+ *     <li>the new user message, with the volatile parts such as search results and selected files,
+ *     and the prompt itself at the bottom</li>
+ * </ol>
+ * A change to one part only invalidates the cached prefix from that part on.
+ */
+@Slf4j
+public final class PromptLayout {
+
+    static final String DEVOXXGENIE_MD = "DEVOXXGENIE.md";
+
+    private PromptLayout() {
+    }
+
+    /**
+     * Build the system prompt, it only changes when the settings or DEVOXXGENIE.md change.
+     *
+     * @param context the chat message context
+     * @return the system prompt
+     */
+    public static @NotNull String systemPrompt(@NotNull ChatMessageContext context) {
+        StringBuilder systemPrompt = new StringBuilder(DevoxxGenieStateService.getInstance().getSystemPrompt())
+                .append(MARKDOWN);
+
+        // Add MCP instructions to system prompt if MCP is enabled
+        if (MCPService.isMCPEnabled()) {
+            systemPrompt.append("<MCP_INSTRUCTION>The project base directory is ")
+                    .append(context.getProject().getBasePath())
+                    .append("\nMake sure to use this information for your MCP tooling calls\n")
+                    .append("</MCP_INSTRUCTION>");
+            MCPService.logDebug("Added MCP instructions to system prompt");
+        }
+
+        String devoxxGenieMd = projectInstructions(context.getProject());
+        if (devoxxGenieMd != null) {
+            systemPrompt.append("\n<ProjectContext>\n")
+                    .append(devoxxGenieMd)
+                    .append("\n</ProjectContext>");
+        }
+        return systemPrompt.toString();
+    }
+
+    /**
+     * @param project the project
+     * @return the content of DEVOXXGENIE.md when it is enabled and not empty, else null
+     */
+    public static @Nullable String projectInstructions(@Nullable Project project) {
+        if (!Boolean.TRUE.equals(DevoxxGenieStateService.getInstance().getUseDevoxxGenieMdInPrompt())) {
+            return null;
+        }
+        String content = readDevoxxGenieMdFile(project);
+        return content == null || content.isEmpty() ? null : content;
+    }
+
+    /**
+     * @param messages the messages of a chat memory
+     * @return the index after the system message and the pinned project context, where the conversation starts
+     */
+    public static int conversationStart(@NotNull List<ChatMessage> messages) {
+        int start = 0;
+        while (start < messages.size()
+                && (messages.get(start) instanceof SystemMessage || ProjectContextAnchor.isAnchor(messages.get(start)))) {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Read the content of DEVOXXGENIE.md file from the project root directory.
+     *
+     * @param project the project
+     * @return the content of DEVOXXGENIE.md file or null if file not found or can't be read
+     */
+    private static @Nullable String readDevoxxGenieMdFile(@Nullable Project project) {
+        try {
+            if (project == null || project.getBasePath() == null) {
+                log.warn("Project or base path is null");
+                return null;
+            }
+
+            Path devoxxGenieMdPath = Path.of(project.getBasePath(), DEVOXXGENIE_MD);
+            if (!Files.exists(devoxxGenieMdPath)) {
+                log.debug("DEVOXXGENIE.md file not found in project root: {}", devoxxGenieMdPath);
+                return null;
+            }
+
+            return Files.readString(devoxxGenieMdPath, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("Failed to read DEVOXXGENIE.md file: {}", e.getMessage());
+            return null;
+        }
+    }
+}
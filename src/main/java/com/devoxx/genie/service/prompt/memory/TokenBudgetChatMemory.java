@@ -0,0 +1,217 @@
+package com.devoxx.genie.service.prompt.memory;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Chat memory which keeps the messages within a token budget as well as a maximum number of messages.
+ * <p>
+ * One message with project context can be larger than dozens of small ones, so counting messages
+ * alone either overflows the context window of the model or drops useful history. The oldest
+ * messages are evicted first, except the system message, the pinned project context and the newest
+ * message. The token count of each message is computed once and kept with the memory.
+ */
+@Slf4j
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    // Role and separators added by the providers around each message
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    private static final int IMAGE_TOKENS = 1_000;
+
+    private final Object id;
+    private final ChatMemoryStore store;
+    private final int maxMessages;
+    private final ToIntFunction<String> tokenCounter;
+    // Guarded by this
+    private int maxTokens = Integer.MAX_VALUE;
+    private final Map<ChatMessage, Integer> tokenCounts = new HashMap<>();
+
+    public TokenBudgetChatMemory(@NotNull Object id, @NotNull ChatMemoryStore store, int maxMessages) {
+        this(id, store, maxMessages, TokenBudgetChatMemory::countCl100kTokens);
+    }
+
+    TokenBudgetChatMemory(@NotNull Object id,
+                          @NotNull ChatMemoryStore store,
+                          int maxMessages,
+                          @NotNull ToIntFunction<String> tokenCounter) {
+        this.id = id;
+        this.store = store;
+        this.maxMessages = maxMessages;
+        this.tokenCounter = tokenCounter;
+    }
+
+    /**
+     * Set the token budget, evicting messages when the current ones no longer fit.
+     *
+     * @param maxTokens the maximum number of tokens of all messages together
+     */
+    public synchronized void setMaxTokens(int maxTokens) {
+        boolean smaller = maxTokens < this.maxTokens;
+        this.maxTokens = maxTokens;
+        if (smaller) {
+            List<ChatMessage> messages = new ArrayList<>(store.getMessages(id));
+            if (evict(messages)) {
+                store.updateMessages(id, messages);
+            }
+        }
+    }
+
+    public synchronized int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * @return the number of tokens of the messages in memory
+     */
+    public synchronized int tokenCount() {
+        return store.getMessages(id).stream().mapToInt(this::tokens).sum();
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public synchronized void add(ChatMessage message) {
+        List<ChatMessage> messages = new ArrayList<>(store.getMessages(id));
+        if (message instanceof SystemMessage) {
+            // Only one system message is kept, a new one replaces it
+            ChatMessage existing = messages.stream().filter(SystemMessage.class::isInstance).findFirst().orElse(null);
+            if (message.equals(existing)) {
+                return;
+            }
+            if (existing != null) {
+                messages.remove(existing);
+            }
+        }
+        messages.add(message);
+        evict(messages);
+        store.updateMessages(id, messages);
+    }
+
+    @Override
+    public synchronized List<ChatMessage> messages() {
+        List<ChatMessage> messages = new ArrayList<>(store.getMessages(id));
+        evict(messages);
+        return messages;
+    }
+
+    @Override
+    public synchronized void clear() {
+        store.deleteMessages(id);
+        tokenCounts.clear();
+    }
+
+    /**
+     * Remove the oldest messages until the others fit.
+     *
+     * @return true when messages were removed
+     */
+    private boolean evict(@NotNull List<ChatMessage> messages) {
+        int total = messages.stream().mapToInt(this::tokens).sum();
+        boolean evicted = false;
+        while (messages.size() > maxMessages || total > maxTokens) {
+            int oldest = 0;
+            while (oldest < messages.size() && isPinned(messages.get(oldest))) {
+                oldest++;
+            }
+            if (oldest >= messages.size() - 1) {
+                // Keep the newest message even when it does not fit on its own
+                break;
+            }
+            ChatMessage removed = messages.remove(oldest);
+            total -= tokens(removed);
+            evicted = true;
+
+            // Tool results without the request that asked for them are rejected by the providers
+            if (removed instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+                while (oldest < messages.size() - 1 && messages.get(oldest) instanceof ToolExecutionResultMessage) {
+                    total -= tokens(messages.remove(oldest));
+                }
+            }
+        }
+        if (evicted) {
+            tokenCounts.keySet().retainAll(new HashSet<>(messages));
+            log.debug("Evicted chat memory messages of {}, {} messages and {} tokens left", id, messages.size(), total);
+        }
+        return evicted;
+    }
+
+    private static boolean isPinned(@NotNull ChatMessage message) {
+        return message instanceof SystemMessage || ProjectContextAnchor.isAnchor(message);
+    }
+
+    private int tokens(@NotNull ChatMessage message) {
+        return tokenCounts.computeIfAbsent(message, m -> countTokens(m, tokenCounter));
+    }
+
+    /**
+     * Estimate the number of tokens of a message with the cl100k encoding, without caching.
+     *
+     * @param message the message
+     * @return the estimated number of tokens
+     */
+    public static int estimateTokens(@NotNull ChatMessage message) {
+        return countTokens(message, TokenBudgetChatMemory::countCl100kTokens);
+    }
+
+    private static int countTokens(@NotNull ChatMessage message, @NotNull ToIntFunction<String> tokenCounter) {
+        int tokens = MESSAGE_OVERHEAD_TOKENS;
+        if (message instanceof UserMessage userMessage) {
+            for (Content content : userMessage.contents()) {
+                tokens += content instanceof TextContent textContent
+                        ? count(tokenCounter, textContent.text())
+                        : IMAGE_TOKENS;
+            }
+        } else if (message instanceof AiMessage aiMessage) {
+            tokens += count(tokenCounter, aiMessage.text());
+            if (aiMessage.hasToolExecutionRequests()) {
+                for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                    tokens += count(tokenCounter, request.name()) + count(tokenCounter, request.arguments());
+                }
+            }
+        } else if (message instanceof SystemMessage systemMessage) {
+            tokens += count(tokenCounter, systemMessage.text());
+        } else if (message instanceof ToolExecutionResultMessage resultMessage) {
+            tokens += count(tokenCounter, resultMessage.text());
+        } else {
+            tokens += count(tokenCounter, message.toString());
+        }
+        return tokens;
+    }
+
+    private static int count(@NotNull ToIntFunction<String> tokenCounter, @Nullable String text) {
+        return text == null || text.isEmpty() ? 0 : tokenCounter.applyAsInt(text);
+    }
+
+    private static int countCl100kTokens(@NotNull String text) {
+        return Cl100k.ENCODING.countTokensOrdinary(text);
+    }
+
+    // The encoding is loaded on first use
+    private static final class Cl100k {
+        private static final Encoding ENCODING = Encodings.newDefaultEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+    }
+}
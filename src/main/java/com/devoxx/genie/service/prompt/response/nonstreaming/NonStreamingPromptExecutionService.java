@@ -20,6 +20,7 @@ import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.model.chat.ChatLanguageModel;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.Result;
 
 import dev.langchain4j.service.tool.ToolProvider;
 import lombok.Getter;
@@ -170,7 +171,6 @@ public class NonStreamingPromptExecutionService {
                         assistant = AiServices.builder(Assistant.class)
                                 .chatLanguageModel(chatLanguageModel)
                                 .chatMemoryProvider(memoryId -> chatMemory)
-                                .systemMessageProvider(memoryId -> DevoxxGenieStateService.getInstance().getSystemPrompt())
                                 .toolProvider(mcpToolProvider)
                                 .build();
                     }
@@ -180,10 +180,11 @@ public class NonStreamingPromptExecutionService {
             String userMessage = chatMessageContext.getUserMessage().singleText();
             String cleanText = TemplateVariableEscaper.escape(userMessage);
 
-            String queryResponse = assistant.chat(cleanText);
+            Result<String> queryResponse = assistant.chat(cleanText);
 
             return ChatResponse.builder()
-                    .aiMessage(AiMessage.aiMessage(queryResponse))
+                    .aiMessage(AiMessage.aiMessage(queryResponse.content()))
+                    .tokenUsage(queryResponse.tokenUsage())
                     .build();
 
         } catch (Exception e) {
@@ -211,7 +212,6 @@ public class NonStreamingPromptExecutionService {
         return AiServices.builder(Assistant.class)
                 .chatLanguageModel(chatLanguageModel)
                 .chatMemoryProvider(memoryId -> chatMemory)
-                .systemMessageProvider(memoryId -> DevoxxGenieStateService.getInstance().getSystemPrompt())
                 .build();
     }
 
@@ -219,6 +219,6 @@ public class NonStreamingPromptExecutionService {
      * The Code Assistant chat method
      */
     interface Assistant {
-        String chat(String userMessage);
+        Result<String> chat(String userMessage);
     }
 }
@@ -6,6 +6,8 @@ import com.devoxx.genie.service.prompt.error.PromptErrorHandler;
 import com.devoxx.genie.service.prompt.error.StreamingException;
 import com.devoxx.genie.service.prompt.memory.ChatMemoryManager;
 import com.devoxx.genie.service.prompt.memory.ChatMemoryService;
+import com.devoxx.genie.service.prompt.threading.ThreadPoolManager;
+import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
 import com.devoxx.genie.ui.topic.AppTopics;
 import com.devoxx.genie.ui.webview.ConversationWebViewController;
 import com.intellij.openapi.application.ApplicationManager;
@@ -35,6 +37,9 @@ public class StreamingResponseHandler implements StreamingChatResponseHandler {
     private boolean hasAddedInitialMessage = false;
     private final StringBuilder accumulatedResponse = new StringBuilder();
 
+    // Coalesces tokens into UI updates, null when there is no UI to update
+    private final StreamingTokenBatcher tokenBatcher;
+
     /**
      * Creates a new streaming response handler
      *
@@ -55,6 +60,7 @@ public class StreamingResponseHandler implements StreamingChatResponseHandler {
         this.onErrorCallback = onErrorCallback;
         this.startTime = System.currentTimeMillis();
         this.conversationWebViewController = conversationWebViewController;
+        this.tokenBatcher = conversationWebViewController != null ? createTokenBatcher() : null;
     }
 
     @Override
@@ -66,40 +72,62 @@ public class StreamingResponseHandler implements StreamingChatResponseHandler {
         log.debug("Received partial response: '{}...'", 
                 partialResponse.substring(0, Math.min(20, partialResponse.length())));
         
-        // Accumulate the response tokens 
-        accumulatedResponse.append(partialResponse);
-        String fullText = accumulatedResponse.toString();
-        
         // Only update the UI if we have a valid controller (might be null in tests)
-        if (conversationWebViewController != null) {
-            ApplicationManager.getApplication().invokeLater(() -> {
-                // Set the AI message with accumulated tokens so far
-                context.setAiMessage(dev.langchain4j.data.message.AiMessage.from(fullText));
-                
-                // Always update the existing message - we already created a placeholder
-                // when the user submitted the prompt
-                conversationWebViewController.updateAiMessageContent(context);
-                
-                // Mark that we've started streaming
-                hasAddedInitialMessage = true;
-            });
+        if (tokenBatcher != null) {
+            // Coalesce tokens, the batcher updates the UI at most once per frame
+            tokenBatcher.append(partialResponse);
+
+            // Mark that we've started streaming
+            hasAddedInitialMessage = true;
         } else {
             // Still update the message in context even without UI
-            context.setAiMessage(dev.langchain4j.data.message.AiMessage.from(fullText));
+            accumulatedResponse.append(partialResponse);
+            context.setAiMessage(dev.langchain4j.data.message.AiMessage.from(accumulatedResponse.toString()));
             hasAddedInitialMessage = true;
         }
     }
 
+    /**
+     * Creates the batcher that coalesces streamed tokens into UI updates.
+     */
+    private @NotNull StreamingTokenBatcher createTokenBatcher() {
+        DevoxxGenieStateService stateService = DevoxxGenieStateService.getInstance();
+        return new StreamingTokenBatcher(
+                stateService.getStreamingFlushIntervalMs(),
+                stateService.getStreamingFlushMaxChars(),
+                ThreadPoolManager.getInstance().getScheduledTaskPool(),
+                runnable -> ApplicationManager.getApplication().invokeLater(runnable),
+                fullText -> {
+                    if (isStopped) {
+                        return;
+                    }
+                    // Set the AI message with accumulated tokens so far
+                    context.setAiMessage(dev.langchain4j.data.message.AiMessage.from(fullText));
+
+                    // Always update the existing message - we already created a placeholder
+                    // when the user submitted the prompt
+                    conversationWebViewController.updateAiMessageContent(context);
+                });
+    }
+
     @Override
     public void onCompleteResponse(ChatResponse response) {
         if (isStopped) {
             return;
         }
 
+        if (tokenBatcher != null) {
+            tokenBatcher.close();
+            tokenBatcher.logStatistics(context.getId());
+        }
+
         try {
             long endTime = System.currentTimeMillis();
             context.setExecutionTimeMs(endTime - startTime);
             context.setAiMessage(response.aiMessage());
+            if (response.tokenUsage() != null) {
+                context.setTokenUsageAndCost(response.tokenUsage());
+            }
 
             // Update the web view with the final response (if webViewController is available)
             if (conversationWebViewController != null) {
@@ -119,6 +147,7 @@ public class StreamingResponseHandler implements StreamingChatResponseHandler {
                 .onNewConversation(context);
 
             ChatMemoryManager.getInstance().addAiResponse(context);
+            ChatMemoryManager.getInstance().compactIfNeeded(context);
             
             // Add file references if any
             if (!FileListManager.getInstance().isEmpty(context.getProject()) && conversationWebViewController != null) {
@@ -140,6 +169,10 @@ public class StreamingResponseHandler implements StreamingChatResponseHandler {
     @Override
     public void onError(@NotNull Throwable error) {
         log.error("Streaming error for context {}: {}", context.getId(), error.getMessage());
+        if (tokenBatcher != null) {
+            // A pending flush must not overwrite the error with the partial response
+            tokenBatcher.close();
+        }
         StreamingException streamingError = new StreamingException(
             "Error during streaming response", error);
         PromptErrorHandler.handleException(context.getProject(), streamingError, context);
@@ -152,6 +185,10 @@ public class StreamingResponseHandler implements StreamingChatResponseHandler {
     public void stop() {
         if (!isStopped) {
             isStopped = true;
+
+            if (tokenBatcher != null) {
+                tokenBatcher.close();
+            }
             
             // Clean up partial response from memory
             if (context.getAiMessage() != null) {
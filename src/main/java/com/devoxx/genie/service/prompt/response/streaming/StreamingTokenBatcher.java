@@ -0,0 +1,174 @@
+package com.devoxx.genie.service.prompt.response.streaming;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces streamed tokens into UI updates.
+ * <p>
+ * Tokens are accumulated and delivered to the sink at most once per flush interval, or earlier
+ * when the number of buffered characters reaches the configured threshold. Only one delivery is
+ * queued on the UI executor at a time and it always reads the latest accumulated text, so
+ * intermediate states that were superseded before the UI got to them are dropped.
+ */
+@Slf4j
+public class StreamingTokenBatcher {
+
+    private final long flushIntervalMs;
+    private final int maxBufferedChars;
+    private final ScheduledExecutorService scheduler;
+    private final Executor uiExecutor;
+    private final Consumer<String> sink;
+
+    private final Object lock = new Object();
+    private final StringBuilder accumulated = new StringBuilder();
+    private final AtomicBoolean deliveryPending = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+
+    // Guarded by lock
+    private int bufferedChars = 0;
+    private long lastFlushTime = 0;
+    private ScheduledFuture<?> scheduledFlush;
+
+    // Statistics
+    private final long startTime = System.nanoTime();
+    private long tokenCount = 0;
+    private long uiUpdateCount = 0;
+
+    /**
+     * @param flushIntervalMs  minimum time between two UI updates
+     * @param maxBufferedChars number of buffered characters that triggers an immediate flush
+     * @param scheduler        scheduler used to delay flushes until the end of the current frame
+     * @param uiExecutor       executor on which the sink is invoked (typically the EDT)
+     * @param sink             receives the full text accumulated so far
+     */
+    public StreamingTokenBatcher(long flushIntervalMs,
+                                 int maxBufferedChars,
+                                 @NotNull ScheduledExecutorService scheduler,
+                                 @NotNull Executor uiExecutor,
+                                 @NotNull Consumer<String> sink) {
+        this.flushIntervalMs = Math.max(0, flushIntervalMs);
+        this.maxBufferedChars = Math.max(1, maxBufferedChars);
+        this.scheduler = scheduler;
+        this.uiExecutor = uiExecutor;
+        this.sink = sink;
+    }
+
+    /**
+     * Add a partial response to the buffer and schedule a flush if none is pending.
+     *
+     * @param token the partial response
+     */
+    public void append(@NotNull String token) {
+        if (closed) {
+            return;
+        }
+
+        synchronized (lock) {
+            accumulated.append(token);
+            bufferedChars += token.length();
+            tokenCount++;
+
+            boolean thresholdReached = bufferedChars >= maxBufferedChars;
+            if (scheduledFlush != null && !scheduledFlush.isDone()) {
+                if (!thresholdReached || !scheduledFlush.cancel(false)) {
+                    return;
+                }
+            }
+
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastFlushTime);
+            long delay = thresholdReached ? 0 : Math.max(0, flushIntervalMs - elapsedMs);
+            scheduledFlush = scheduler.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the full text accumulated so far
+     */
+    public @NotNull String getText() {
+        synchronized (lock) {
+            return accumulated.toString();
+        }
+    }
+
+    /**
+     * Stop delivering updates. Pending flushes are cancelled and no further
+     * updates will reach the sink; the caller renders the final state itself.
+     */
+    public void close() {
+        closed = true;
+        synchronized (lock) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+        }
+    }
+
+    /**
+     * @return the number of partial responses received
+     */
+    public long getTokenCount() {
+        synchronized (lock) {
+            return tokenCount;
+        }
+    }
+
+    /**
+     * @return the number of updates delivered to the sink
+     */
+    public long getUiUpdateCount() {
+        synchronized (lock) {
+            return uiUpdateCount;
+        }
+    }
+
+    /**
+     * Log the received tokens per second against the UI updates per second.
+     *
+     * @param contextId the id of the chat message context, for correlation
+     */
+    public void logStatistics(String contextId) {
+        double seconds = Math.max(1e-3, (System.nanoTime() - startTime) / 1_000_000_000.0);
+        long tokens = getTokenCount();
+        long updates = getUiUpdateCount();
+        log.info("Streaming stats for {}: {} tokens ({} tokens/sec), {} UI updates ({} updates/sec)",
+                contextId,
+                tokens, String.format("%.1f", tokens / seconds),
+                updates, String.format("%.1f", updates / seconds));
+    }
+
+    private void flush() {
+        synchronized (lock) {
+            bufferedChars = 0;
+            lastFlushTime = System.nanoTime();
+            scheduledFlush = null;
+        }
+
+        // Only one delivery in flight, it picks up whatever is the latest text when it runs
+        if (!closed && deliveryPending.compareAndSet(false, true)) {
+            uiExecutor.execute(this::deliver);
+        }
+    }
+
+    private void deliver() {
+        deliveryPending.set(false);
+        if (closed) {
+            return;
+        }
+
+        String text;
+        synchronized (lock) {
+            text = accumulated.toString();
+            uiUpdateCount++;
+        }
+        sink.accept(text);
+    }
+}
@@ -106,6 +106,8 @@ public class NonStreamingPromptStrategy extends AbstractPromptExecutionStrategy
                         .syncPublisher(AppTopics.CONVERSATION_TOPIC)
                         .onNewConversation(context);
 
+                chatMemoryManager.compactIfNeeded(context);
+
                 // Add file references if any
                 if (context.getFileReferences() != null && !context.getFileReferences().isEmpty()) {
                     log.debug("Adding file references to conversation: {} files", context.getFileReferences().size());
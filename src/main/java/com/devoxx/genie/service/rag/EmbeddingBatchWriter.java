@@ -0,0 +1,203 @@
+package com.devoxx.genie.service.rag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Groups text segments into batches that are embedded with one {@link EmbeddingModel#embedAll} call
+ * and stored with one {@link EmbeddingStore#addAll} call.
+ * <p>
+ * Up to {@code concurrentBatches} batches are in flight at the same time. When that limit is
+ * reached {@link #addFile} blocks, so the caller cannot read and split files faster than the
+ * embedding model can keep up with. Segments get generated ids, which are reported per file once
+ * all segments of the file are stored.
+ */
+@Slf4j
+public class EmbeddingBatchWriter implements AutoCloseable {
+
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final int batchSize;
+    private final Semaphore batchPermits;
+    private final ExecutorService executor;
+
+    private final AtomicLong storedSegments = new AtomicLong();
+    private final AtomicLong failedSegments = new AtomicLong();
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Tracks the segments of one file that are not stored yet.
+     */
+    private static final class FileProgress {
+        private final List<String> segmentIds;
+        private final Consumer<List<String>> onStored;
+        private final AtomicInteger remaining;
+        private volatile boolean failed = false;
+
+        private FileProgress(List<String> segmentIds, Consumer<List<String>> onStored) {
+            this.segmentIds = segmentIds;
+            this.onStored = onStored;
+            this.remaining = new AtomicInteger(segmentIds.size());
+        }
+
+        private void segmentDone(boolean success) {
+            if (!success) {
+                failed = true;
+            }
+            if (remaining.decrementAndGet() == 0 && !failed) {
+                onStored.accept(segmentIds);
+            }
+        }
+    }
+
+    private record PendingSegment(String id, TextSegment segment, FileProgress file) {
+    }
+
+    private List<PendingSegment> pending;
+
+    /**
+     * @param embeddingModel    the model used to embed the segments
+     * @param embeddingStore    the store receiving the embedded segments
+     * @param batchSize         number of segments per request
+     * @param concurrentBatches maximum number of batches in flight
+     */
+    public EmbeddingBatchWriter(@NotNull EmbeddingModel embeddingModel,
+                                @NotNull EmbeddingStore<TextSegment> embeddingStore,
+                                int batchSize,
+                                int concurrentBatches) {
+        this.embeddingModel = embeddingModel;
+        this.embeddingStore = embeddingStore;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchPermits = new Semaphore(Math.max(1, concurrentBatches));
+        this.executor = Executors.newFixedThreadPool(Math.max(1, concurrentBatches), runnable -> {
+            Thread thread = new Thread(runnable, "devoxxgenie-embedding-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = new ArrayList<>(this.batchSize);
+    }
+
+    /**
+     * Queue the segments of a file, sending batches as they fill up.
+     *
+     * @param segments the segments to embed and store
+     * @param onStored receives the ids of the segments once all of them are stored; not called when
+     *                 a batch containing one of the segments fails
+     */
+    public void addFile(@NotNull List<TextSegment> segments,
+                        @NotNull Consumer<List<String>> onStored) throws InterruptedException {
+        List<String> segmentIds = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            segmentIds.add(UUID.randomUUID().toString());
+        }
+        if (segments.isEmpty()) {
+            onStored.accept(segmentIds);
+            return;
+        }
+
+        FileProgress file = new FileProgress(segmentIds, onStored);
+        for (int i = 0; i < segments.size(); i++) {
+            pending.add(new PendingSegment(segmentIds.get(i), segments.get(i), file));
+            if (pending.size() >= batchSize) {
+                submitPending();
+            }
+        }
+    }
+
+    /**
+     * @return the number of segments embedded and stored so far
+     */
+    public long getStoredSegments() {
+        return storedSegments.get();
+    }
+
+    /**
+     * @return the number of segments that could not be embedded or stored
+     */
+    public long getFailedSegments() {
+        return failedSegments.get();
+    }
+
+    /**
+     * @return the number of segments stored per second since this writer was created
+     */
+    public double getSegmentsPerSecond() {
+        double seconds = Math.max(1e-3, (System.nanoTime() - startTime) / 1_000_000_000.0);
+        return storedSegments.get() / seconds;
+    }
+
+    /**
+     * Send the last partial batch and wait until all batches are stored.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        try {
+            if (!pending.isEmpty()) {
+                submitPending();
+            }
+        } finally {
+            executor.shutdown();
+            if (!executor.awaitTermination(10, TimeUnit.MINUTES)) {
+                log.warn("Timed out waiting for embedding batches to complete");
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private void submitPending() throws InterruptedException {
+        List<PendingSegment> batch = pending;
+        pending = new ArrayList<>(batchSize);
+
+        batchPermits.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    storeBatch(batch);
+                } finally {
+                    batchPermits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            batchPermits.release();
+            throw e;
+        }
+    }
+
+    private void storeBatch(@NotNull List<PendingSegment> batch) {
+        boolean success;
+        try {
+            List<TextSegment> segments = batch.stream().map(PendingSegment::segment).toList();
+            List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+            embeddingStore.addAll(batch.stream().map(PendingSegment::id).toList(), embeddings, segments);
+            storedSegments.addAndGet(batch.size());
+            success = true;
+        } catch (Exception e) {
+            failedSegments.addAndGet(batch.size());
+            log.warn("Error storing batch of {} segments: {}", batch.size(), e.getMessage());
+            success = false;
+        }
+
+        for (PendingSegment pendingSegment : batch) {
+            try {
+                pendingSegment.file().segmentDone(success);
+            } catch (Exception e) {
+                log.warn("Error completing indexed file: {}", e.getMessage());
+            }
+        }
+    }
+}
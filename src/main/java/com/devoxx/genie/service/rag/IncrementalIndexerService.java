@@ -0,0 +1,300 @@
+package com.devoxx.genie.service.rag;
+
+import com.devoxx.genie.service.chromadb.ChromaEmbeddingService;
+import com.devoxx.genie.service.projectscanner.ProjectScannerService;
+import com.devoxx.genie.service.prompt.threading.ThreadPoolManager;
+import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.*;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the RAG index of a project up to date in the background.
+ * <p>
+ * File system changes are collected from VFS events and processed once no new event arrived for
+ * {@link #DEBOUNCE_DELAY_MS}. Only created and modified files are embedded again and segments of
+ * deleted files are removed, so the project is never rescanned. The work is throttled to the
+ * configured number of files per minute, and only projects that were indexed before are updated.
+ */
+@Slf4j
+public final class IncrementalIndexerService implements Disposable {
+
+    private static final long DEBOUNCE_DELAY_MS = 2000;
+    private static final long THROTTLE_DELAY_MS = 60_000;
+
+    private final Project project;
+
+    private final Object lock = new Object();
+    // Guarded by lock, insertion ordered so files are indexed in the order they changed
+    private final Set<String> changedPaths = new LinkedHashSet<>();
+    private final Set<String> removedPaths = new LinkedHashSet<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private long nextRunNotBefore = System.nanoTime();
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * The changes processed by one run.
+     *
+     * @param changedPaths paths of created or modified files and directories
+     * @param removedPaths paths of deleted files and directories
+     */
+    record Changes(List<String> changedPaths, List<String> removedPaths) {
+    }
+
+    public static IncrementalIndexerService getInstance(@NotNull Project project) {
+        return project.getService(IncrementalIndexerService.class);
+    }
+
+    public IncrementalIndexerService(@NotNull Project project) {
+        this.project = project;
+    }
+
+    /**
+     * Start listening to file system changes.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                if (!isEnabled()) {
+                    return;
+                }
+                boolean collected = false;
+                for (VFileEvent event : events) {
+                    collected |= collect(event);
+                }
+                if (collected) {
+                    scheduleFlush(DEBOUNCE_DELAY_MS);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (lock) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            changedPaths.clear();
+            removedPaths.clear();
+        }
+    }
+
+    private boolean collect(@NotNull VFileEvent event) {
+        String basePath = project.getBasePath();
+        if (basePath == null) {
+            return false;
+        }
+
+        if (event instanceof VFileContentChangeEvent || event instanceof VFileCreateEvent || event instanceof VFileCopyEvent) {
+            return isInProject(basePath, event.getPath()) && fileChanged(event.getPath());
+        } else if (event instanceof VFileDeleteEvent) {
+            return isInProject(basePath, event.getPath()) && fileRemoved(event.getPath());
+        } else if (event instanceof VFileMoveEvent moveEvent) {
+            boolean removed = isInProject(basePath, moveEvent.getOldPath()) && fileRemoved(moveEvent.getOldPath());
+            boolean changed = isInProject(basePath, moveEvent.getNewPath()) && fileChanged(moveEvent.getNewPath());
+            return removed || changed;
+        } else if (event instanceof VFilePropertyChangeEvent propertyChangeEvent && propertyChangeEvent.isRename()) {
+            boolean removed = isInProject(basePath, propertyChangeEvent.getOldPath()) && fileRemoved(propertyChangeEvent.getOldPath());
+            boolean changed = isInProject(basePath, propertyChangeEvent.getNewPath()) && fileChanged(propertyChangeEvent.getNewPath());
+            return removed || changed;
+        }
+        return false;
+    }
+
+    private static boolean isInProject(@NotNull String basePath, @NotNull String path) {
+        return path.startsWith(basePath + "/");
+    }
+
+    boolean fileChanged(@NotNull String path) {
+        synchronized (lock) {
+            removedPaths.remove(path);
+            return changedPaths.add(path);
+        }
+    }
+
+    boolean fileRemoved(@NotNull String path) {
+        synchronized (lock) {
+            changedPaths.remove(path);
+            return removedPaths.add(path);
+        }
+    }
+
+    /**
+     * Take all removed paths and at most {@code maxChanged} changed paths from the queue.
+     *
+     * @param maxChanged the maximum number of changed paths to take
+     * @return the changes to process
+     */
+    @NotNull Changes takeChanges(int maxChanged) {
+        synchronized (lock) {
+            List<String> changed = new ArrayList<>();
+            Iterator<String> iterator = changedPaths.iterator();
+            while (iterator.hasNext() && changed.size() < maxChanged) {
+                changed.add(iterator.next());
+                iterator.remove();
+            }
+            List<String> removed = new ArrayList<>(removedPaths);
+            removedPaths.clear();
+            return new Changes(changed, removed);
+        }
+    }
+
+    /**
+     * Replace a queued directory by the files below it, in its place in the queue.
+     *
+     * @param directory the path of the directory
+     * @param files     the paths of the files to index below it
+     */
+    void replaceDirectory(@NotNull String directory, @NotNull List<String> files) {
+        synchronized (lock) {
+            if (!changedPaths.contains(directory)) {
+                // Taken or removed in the meantime
+                return;
+            }
+            List<String> paths = new ArrayList<>(changedPaths.size() + files.size());
+            for (String path : changedPaths) {
+                if (path.equals(directory)) {
+                    paths.addAll(files);
+                } else {
+                    paths.add(path);
+                }
+            }
+            changedPaths.clear();
+            changedPaths.addAll(paths);
+        }
+    }
+
+    boolean hasPendingChanges() {
+        synchronized (lock) {
+            return !changedPaths.isEmpty() || !removedPaths.isEmpty();
+        }
+    }
+
+    private void scheduleFlush(long delayMs) {
+        synchronized (lock) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+            }
+            // New events postpone a run, but never to before the end of the current budget window
+            delayMs = Math.max(delayMs, TimeUnit.NANOSECONDS.toMillis(nextRunNotBefore - System.nanoTime()));
+            // The scheduler only triggers the run, indexing itself happens on a pooled thread
+            scheduledFlush = ThreadPoolManager.getInstance().getScheduledTaskPool().schedule(
+                    () -> ApplicationManager.getApplication().executeOnPooledThread(this::flush),
+                    delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        if (project.isDisposed() || !isEnabled()) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            scheduleFlush(DEBOUNCE_DELAY_MS);
+            return;
+        }
+
+        try {
+            if (ProjectIndexerService.getInstance().isIndexing(project)) {
+                // A manual index is running, the changes stay queued until it is done
+                scheduleFlush(THROTTLE_DELAY_MS);
+                return;
+            }
+
+            String collection = ChromaEmbeddingService.getInstance().getIndexName(project);
+            if (!IndexManifestService.getInstance().hasEntries(collection)) {
+                // The project was never indexed, there is nothing to keep up to date
+                takeChanges(Integer.MAX_VALUE);
+                return;
+            }
+
+            // Directories count as the files below them, so one created directory cannot exceed the budget
+            expandChangedDirectories();
+            Changes changes = takeChanges(Math.max(1, DevoxxGenieStateService.getInstance().getIndexerBackgroundFilesPerMinute()));
+            List<Path> changedFiles = resolveChangedFiles(changes.changedPaths());
+            List<Path> removed = changes.removedPaths().stream().map(Path::of).toList();
+
+            synchronized (lock) {
+                nextRunNotBefore = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(THROTTLE_DELAY_MS);
+            }
+            ProjectIndexerService.getInstance().indexChangedFiles(project, changedFiles, removed);
+            log.info("Background indexing of {}: {} files updated, {} paths removed",
+                    project.getName(), changedFiles.size(), removed.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Background indexing failed: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+
+        // Remaining changes wait for the next minute so the work stays within the budget
+        if (hasPendingChanges()) {
+            scheduleFlush(DEBOUNCE_DELAY_MS);
+        }
+    }
+
+    private void expandChangedDirectories() {
+        List<String> paths;
+        synchronized (lock) {
+            paths = new ArrayList<>(changedPaths);
+        }
+        for (String path : paths) {
+            VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
+            if (file != null && file.isDirectory()) {
+                // A created, copied or moved directory, index the files below it
+                List<String> files = ProjectScannerService.getInstance().collectFiles(project, file).stream()
+                        .map(VirtualFile::getPath)
+                        .toList();
+                replaceDirectory(path, files);
+            }
+        }
+    }
+
+    private @NotNull List<Path> resolveChangedFiles(@NotNull List<String> paths) {
+        List<VirtualFile> files = new ArrayList<>();
+        for (String path : paths) {
+            VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
+            if (file == null) {
+                continue;
+            }
+            if (file.isDirectory()) {
+                // Queued after the directories were expanded, it is expanded on the next run
+                fileChanged(path);
+            } else {
+                files.add(file);
+            }
+        }
+
+        return ProjectScannerService.getInstance().filterIncludedFiles(project, files).stream()
+                .map(VirtualFile::toNioPath)
+                .toList();
+    }
+
+    private static boolean isEnabled() {
+        DevoxxGenieStateService stateService = DevoxxGenieStateService.getInstance();
+        return Boolean.TRUE.equals(stateService.getRagEnabled()) &&
+                Boolean.TRUE.equals(stateService.getIndexerBackgroundEnabled());
+    }
+}
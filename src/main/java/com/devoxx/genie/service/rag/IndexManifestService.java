@@ -0,0 +1,219 @@
+package com.devoxx.genie.service.rag;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local manifest of the files stored in the RAG vector store.
+ * <p>
+ * For every collection and file it records the last modified time, a hash of the content and the
+ * ids of the stored segments. This turns the "is this file already indexed" check into a local
+ * lookup instead of an embedding call plus a similarity search, and allows the segments of a
+ * changed or deleted file to be removed from the vector store by id.
+ * The manifest is stored in index-manifest.db next to conversations.db.
+ */
+@Slf4j
+@Service
+public final class IndexManifestService {
+
+    private static final String SEGMENT_ID_SEPARATOR = ",";
+
+    /**
+     * A file in the manifest.
+     *
+     * @param path         absolute path of the file
+     * @param lastModified last modified time of the file when it was indexed
+     * @param contentHash  SHA-256 of the indexed content
+     * @param segmentIds   ids of the segments stored for the file
+     */
+    public record Entry(String path, long lastModified, String contentHash, List<String> segmentIds) {
+    }
+
+    private final String dbPath;
+
+    @NotNull
+    public static IndexManifestService getInstance() {
+        return ApplicationManager.getApplication().getService(IndexManifestService.class);
+    }
+
+    public IndexManifestService() {
+        this(Path.of(PathManager.getSystemPath(), "DevoxxGenie", "index-manifest.db"));
+    }
+
+    IndexManifestService(@NotNull Path dbFile) {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("SQLite JDBC driver not found", e);
+        }
+
+        this.dbPath = dbFile.toString();
+        try {
+            Files.createDirectories(dbFile.getParent());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create database directory", e);
+        }
+        createTableIfNotExists();
+    }
+
+    private Connection getConnection() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+    }
+
+    private void createTableIfNotExists() {
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("""
+                        CREATE TABLE IF NOT EXISTS indexed_files (
+                            collection TEXT NOT NULL,
+                            path TEXT NOT NULL,
+                            lastModified INTEGER,
+                            contentHash TEXT,
+                            segmentIds TEXT,
+                            indexedAt INTEGER,
+                            PRIMARY KEY (collection, path)
+                        )
+                    """);
+        } catch (SQLException e) {
+            log.error("Error creating index manifest table", e);
+            throw new RuntimeException("Error creating index manifest table", e);
+        }
+    }
+
+    /**
+     * Load all files of a collection, keyed by path.
+     *
+     * @param collection the vector store collection
+     * @return the manifest entries of the collection
+     */
+    public @NotNull Map<String, Entry> getEntries(@NotNull String collection) {
+        Map<String, Entry> entries = new HashMap<>();
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT path, lastModified, contentHash, segmentIds FROM indexed_files WHERE collection = ?")) {
+            ps.setString(1, collection);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Entry entry = new Entry(
+                            rs.getString("path"),
+                            rs.getLong("lastModified"),
+                            rs.getString("contentHash"),
+                            splitSegmentIds(rs.getString("segmentIds")));
+                    entries.put(entry.path(), entry);
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Error loading index manifest for {}", collection, e);
+        }
+        return entries;
+    }
+
+    /**
+     * @param collection the vector store collection
+     * @return true when at least one file of the collection is in the manifest
+     */
+    public boolean hasEntries(@NotNull String collection) {
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT 1 FROM indexed_files WHERE collection = ? LIMIT 1")) {
+            ps.setString(1, collection);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            log.error("Error checking index manifest for {}", collection, e);
+            return false;
+        }
+    }
+
+    /**
+     * Add or replace a file in the manifest.
+     *
+     * @param collection the vector store collection
+     * @param entry      the indexed file
+     */
+    public void put(@NotNull String collection, @NotNull Entry entry) {
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement("""
+                     INSERT OR REPLACE INTO indexed_files
+                     (collection, path, lastModified, contentHash, segmentIds, indexedAt)
+                     VALUES (?, ?, ?, ?, ?, ?)
+                     """)) {
+            ps.setString(1, collection);
+            ps.setString(2, entry.path());
+            ps.setLong(3, entry.lastModified());
+            ps.setString(4, entry.contentHash());
+            ps.setString(5, String.join(SEGMENT_ID_SEPARATOR, entry.segmentIds()));
+            ps.setLong(6, System.currentTimeMillis());
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            log.error("Error updating index manifest for {}", entry.path(), e);
+        }
+    }
+
+    /**
+     * Remove a file from the manifest.
+     *
+     * @param collection the vector store collection
+     * @param path       absolute path of the file
+     */
+    public void remove(@NotNull String collection, @NotNull String path) {
+        executeDelete("DELETE FROM indexed_files WHERE collection = ? AND path = ?", collection, path);
+    }
+
+    /**
+     * Remove all files of a collection, used when the collection itself is deleted.
+     *
+     * @param collection the vector store collection
+     */
+    public void removeCollection(@NotNull String collection) {
+        executeDelete("DELETE FROM indexed_files WHERE collection = ?", collection);
+    }
+
+    /**
+     * @param content the file content
+     * @return the SHA-256 of the content as a hex string
+     */
+    public static @NotNull String hash(@NotNull String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void executeDelete(String sql, String... parameters) {
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                ps.setString(i + 1, parameters[i]);
+            }
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            log.error("Error deleting from index manifest", e);
+        }
+    }
+
+    private static @NotNull List<String> splitSegmentIds(String segmentIds) {
+        if (segmentIds == null || segmentIds.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.asList(segmentIds.split(SEGMENT_ID_SEPARATOR));
+    }
+}
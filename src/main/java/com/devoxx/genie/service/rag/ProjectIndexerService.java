@@ -1,8 +1,8 @@
 package com.devoxx.genie.service.rag;
 
-import com.devoxx.genie.model.ScanContentResult;
 import com.devoxx.genie.service.chromadb.ChromaEmbeddingService;
 import com.devoxx.genie.service.projectscanner.ProjectScannerService;
+import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
 import com.devoxx.genie.ui.util.NotificationUtil;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
@@ -13,22 +13,23 @@ import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.document.DocumentSplitter;
 import dev.langchain4j.data.document.Metadata;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
-import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
-import dev.langchain4j.store.embedding.EmbeddingMatch;
-import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
-import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import static com.devoxx.genie.service.rag.IndexerConstants.*;
 
@@ -38,12 +39,16 @@ public final class ProjectIndexerService {
     
     private final ChromaEmbeddingService chromaEmbeddingService;
     private final ProjectScannerService projectScannerService;
+    private final IndexManifestService indexManifestService;
 
-    private DocumentSplitter documentSplitter;
+    private final DocumentSplitter documentSplitter = DocumentSplitters.recursive(500, 0);
     
     // Flag to indicate if indexing should be cancelled
     private final AtomicBoolean cancelIndexing = new AtomicBoolean(false);
 
+    // A manual index and a background update of one project never write its store and manifest at once
+    private final Map<String, ReentrantLock> indexLocks = new ConcurrentHashMap<>();
+
     @NotNull
     public static ProjectIndexerService getInstance() {
         return ApplicationManager.getApplication().getService(ProjectIndexerService.class);
@@ -52,6 +57,7 @@ public final class ProjectIndexerService {
     public ProjectIndexerService() {
         this.chromaEmbeddingService = ChromaEmbeddingService.getInstance();
         this.projectScannerService = ProjectScannerService.getInstance();
+        this.indexManifestService = IndexManifestService.getInstance();
     }
     
     /**
@@ -79,64 +85,15 @@ public final class ProjectIndexerService {
     }
 
     /**
-     * Check if a project is already indexed by searching for a unique hash in metadata.
-     *
-     * @param projectPath Path to the project directory
-     * @return true if project is indexed, false otherwise
+     * @param project the project
+     * @return true while the project is being indexed, manually or in the background
      */
-    private boolean isProjectIndexed(String projectPath) {
-        try {
-            // Create a unique project identifier (hash) based on path and last modified time
-            String projectHash = createProjectHash(projectPath);
-
-            OllamaEmbeddingModel embeddingModel = chromaEmbeddingService.getEmbeddingModel();
-
-            if (embeddingModel == null) {
-                log.warn("Ollama embedding model is not available");
-                return false;
-            }
-
-            // Search for the project hash in metadata
-            Embedding hashEmbedding = embeddingModel.embed(projectHash).content();
-            var results = chromaEmbeddingService.getEmbeddingStore().search(EmbeddingSearchRequest.builder()
-                    .queryEmbedding(hashEmbedding)
-                    .maxResults(1)
-                    .minScore(0.99) // High threshold for exact match
-                    .build());
-
-            return !results.matches().isEmpty();
-        } catch (Exception e) {
-            log.warn("Error checking project index status: {}", e.getMessage());
-            return false;
-        }
+    public boolean isIndexing(@NotNull Project project) {
+        return getIndexLock(project).isLocked();
     }
 
-    /**
-     * Check if a file is already indexed by comparing its embedding with stored embeddings.
-     *
-     * @param filePath Path to the file
-     * @return true if file is indexed, false otherwise
-     */
-    private boolean isFileIndexed(Path filePath) {
-        try {
-            String fileIdentifier = filePath.toAbsolutePath().toString();
-            Embedding fileEmbedding = chromaEmbeddingService.getEmbeddingModel().embed(fileIdentifier).content();
-            var results = chromaEmbeddingService.getEmbeddingStore().search(EmbeddingSearchRequest
-                    .builder()
-                    .queryEmbedding(fileEmbedding)
-                    .maxResults(1)
-                    .minScore(0.99)
-                    .build());
-            if (results.matches().isEmpty()) {
-                return false;
-            }
-            List<EmbeddingMatch<TextSegment>> matches = results.matches();
-            TextSegment storedSegment = matches.get(0).embedded();
-            return !hasFileChanged(filePath, storedSegment.metadata());
-        } catch (Exception e) {
-            log.warn("Error checking file index status: {}", e.getMessage());
-            return false;
-        }
+    private @NotNull ReentrantLock getIndexLock(@NotNull Project project) {
+        return indexLocks.computeIfAbsent(project.getLocationHash(), key -> new ReentrantLock());
     }
 
     public void indexFiles(Project project,
@@ -162,9 +119,6 @@ public final class ProjectIndexerService {
                 progressLabel.setVisible(true);
             });
         }
-        
-        chromaEmbeddingService.init(project);
-        documentSplitter = DocumentSplitters.recursive(500, 0);
 
         String basePath = project.getBasePath();
         if (basePath == null) {
@@ -172,7 +126,24 @@ public final class ProjectIndexerService {
             return;
         }
 
-        if (!forceReindex && isProjectIndexed(basePath)) {
+        // Waits for a background update in progress, which handles at most one batch of files
+        ReentrantLock indexLock = getIndexLock(project);
+        indexLock.lock();
+        try {
+            indexProject(project, basePath, forceReindex, progressBar, progressLabel);
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    private void indexProject(Project project,
+                              String basePath,
+                              boolean forceReindex,
+                              JProgressBar progressBar,
+                              JLabel progressLabel) {
+        String collection = chromaEmbeddingService.getIndexName(project);
+        EmbeddingStore<TextSegment> embeddingStore = chromaEmbeddingService.getEmbeddingStore(project);
+        if (!forceReindex && indexManifestService.hasEntries(collection)) {
             log.warn("Project is already indexed, skipping indexing process");
             return;
         }
@@ -183,133 +154,223 @@ public final class ProjectIndexerService {
             return;
         }
 
-        // Use synchronous project scanning
-        ScanContentResult scanResult = projectScannerService.scanProject(project, baseDir, Integer.MAX_VALUE, false);
-        List<Path> filesToProcess = new ArrayList<>(scanResult.getFiles());
+        // Only the file list is needed, the content is read file by file
+        List<Path> filesToProcess = projectScannerService.collectFiles(project, baseDir).stream()
+                .map(VirtualFile::toNioPath)
+                .toList();
         int totalFiles = filesToProcess.size();
+        Map<String, IndexManifestService.Entry> manifest = indexManifestService.getEntries(collection);
+
+        // Files that are no longer part of the project are removed from the index
+        if (!filesToProcess.isEmpty()) {
+            removeMissingFiles(embeddingStore, collection, manifest, filesToProcess);
+        }
+
+        // Files are read and split sequentially, their segments are embedded and stored in concurrent batches
+        DevoxxGenieStateService stateService = DevoxxGenieStateService.getInstance();
+        // Also closed when indexing fails, so its executor stops and the pending batch is sent
+        try (EmbeddingBatchWriter batchWriter = new EmbeddingBatchWriter(
+                chromaEmbeddingService.getEmbeddingModel(),
+                embeddingStore,
+                stateService.getIndexerBatchSize(),
+                stateService.getIndexerConcurrentBatches())) {
+            for (int fileIndex = 0; fileIndex < totalFiles; fileIndex++) {
+                // Check if indexing has been cancelled
+                if (isIndexingCancelled()) {
+                    log.info("Indexing cancelled after processing {} of {} files", fileIndex, totalFiles);
+
+                    // Let the batches in flight complete before reporting the cancellation
+                    batchWriter.close();
+                    chromaEmbeddingService.saveEmbeddingStore(project);
+
+                    // Update UI to show cancellation
+                    final int processedFiles = fileIndex;
+                    SwingUtilities.invokeLater(() -> {
+                        progressBar.setValue(100); // Set to 100% to indicate completion
+                        progressLabel.setText(String.format("Indexing cancelled after processing %d of %d files",
+                                                           processedFiles, totalFiles));
+                    });
 
-        // Process each file sequentially
-        for (int fileIndex = 0; fileIndex < totalFiles; fileIndex++) {
-            // Check if indexing has been cancelled
-            if (isIndexingCancelled()) {
-                log.info("Indexing cancelled after processing {} of {} files", fileIndex, totalFiles);
-                
-                // Update UI to show cancellation
-                final int processedFiles = fileIndex;
+                    return;
+                }
+
+                Path path = filesToProcess.get(fileIndex);
+                String fileName = path.getFileName().toString();
+                int progress = (int) (((double) (fileIndex + 1) / totalFiles) * 100);
+                final int currentFileIndex = fileIndex;
+                final double segmentsPerSecond = batchWriter.getSegmentsPerSecond();
+
+                // Update progress UI and ensure it's visible
                 SwingUtilities.invokeLater(() -> {
-                    progressBar.setValue(100); // Set to 100% to indicate completion
-                    progressLabel.setText(String.format("Indexing cancelled after processing %d of %d files", 
-                                                       processedFiles, totalFiles));
+                    progressBar.setVisible(true);
+                    progressLabel.setVisible(true);
+                    progressBar.setValue(progress);
+                    progressLabel.setText(String.format("Processing %d of %d: %s (%.1f segments/sec)",
+                            currentFileIndex + 1, totalFiles, fileName, segmentsPerSecond));
                 });
-                
-                return;
+
+                indexSingleFile(embeddingStore, path, collection, manifest.get(path.toString()), batchWriter);
             }
-            
-            Path path = filesToProcess.get(fileIndex);
-            String fileName = path.getFileName().toString();
-            int progress = (int) (((double) (fileIndex + 1) / totalFiles) * 100);
-            final int currentFileIndex = fileIndex;
-            
-            // Update progress UI and ensure it's visible
-            SwingUtilities.invokeLater(() -> {
-                progressBar.setVisible(true);
-                progressLabel.setVisible(true);
-                progressBar.setValue(progress);
-                progressLabel.setText(String.format("Processing %d of %d: %s", currentFileIndex + 1, totalFiles, fileName));
-            });
-            
-            // Process the file without waiting for UI update to complete
-            indexSingleFile(path);
+
+            batchWriter.close();
+            chromaEmbeddingService.saveEmbeddingStore(project);
+
+            log.info("Indexed {} segments of {} files ({} segments/sec, {} failed)",
+                    batchWriter.getStoredSegments(), totalFiles,
+                    String.format("%.1f", batchWriter.getSegmentsPerSecond()), batchWriter.getFailedSegments());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Indexing interrupted");
+            return;
         }
-        
+
         // Reset cancellation flag after successful completion
         resetCancellationFlag();
     }
 
     /**
-     * Index a single file by checking if it is already indexed and processing the content.
-     * @param filePath Path to the file to index
+     * Re-index the given files and remove the given paths from the index of the project, without
+     * scanning the project. Used by the {@link IncrementalIndexerService} for background updates,
+     * so only one batch is in flight at a time.
+     *
+     * @param project      the project
+     * @param changedFiles files that were created or modified
+     * @param removedPaths paths of deleted files or directories
      */
-    private void indexSingleFile(Path filePath) {
-        log.debug("Indexing file: {}", filePath);
+    public void indexChangedFiles(@NotNull Project project,
+                                  @NotNull Collection<Path> changedFiles,
+                                  @NotNull Collection<Path> removedPaths) throws InterruptedException {
+        ReentrantLock indexLock = getIndexLock(project);
+        indexLock.lock();
         try {
-            if (isFileIndexed(filePath)) {
-                log.debug("File already indexed: {}", filePath);
+            String collection = chromaEmbeddingService.getIndexName(project);
+            EmbeddingStore<TextSegment> embeddingStore = chromaEmbeddingService.getEmbeddingStore(project);
+            Map<String, IndexManifestService.Entry> manifest = indexManifestService.getEntries(collection);
+
+            for (Path removedPath : removedPaths) {
+                manifest.values().stream()
+                        .filter(entry -> Path.of(entry.path()).startsWith(removedPath))
+                        .toList()
+                        .forEach(entry -> removeFile(embeddingStore, collection, entry));
+            }
+
+            if (changedFiles.isEmpty()) {
+                chromaEmbeddingService.saveEmbeddingStore(project);
                 return;
             }
 
-            processPath(filePath);
-            log.debug("File successfully indexed: {}", filePath);
-        } catch (Exception e) {
-            log.warn("Error indexing file: {} - {}",  filePath, e.getMessage());
+            EmbeddingBatchWriter batchWriter = new EmbeddingBatchWriter(
+                    chromaEmbeddingService.getEmbeddingModel(),
+                    embeddingStore,
+                    DevoxxGenieStateService.getInstance().getIndexerBatchSize(),
+                    1);
+            try {
+                for (Path path : changedFiles) {
+                    indexSingleFile(embeddingStore, path, collection, manifest.get(path.toString()), batchWriter);
+                }
+            } finally {
+                batchWriter.close();
+                chromaEmbeddingService.saveEmbeddingStore(project);
+            }
+            log.debug("Re-indexed {} changed files, removed {} paths", changedFiles.size(), removedPaths.size());
+        } finally {
+            indexLock.unlock();
         }
     }
 
-    @NotNull
-    private String createProjectHash(String projectPath) throws IOException {
-        Path path = Paths.get(projectPath);
-        long lastModified = Files.getLastModifiedTime(path).toMillis();
-        return projectPath + "_" + lastModified;
+    private void removeMissingFiles(EmbeddingStore<TextSegment> embeddingStore,
+                                    String collection,
+                                    Map<String, IndexManifestService.Entry> manifest,
+                                    List<Path> projectFiles) {
+        Set<String> projectPaths = projectFiles.stream().map(Path::toString).collect(Collectors.toSet());
+        manifest.values().stream()
+                .filter(entry -> !projectPaths.contains(entry.path()))
+                .toList()
+                .forEach(entry -> removeFile(embeddingStore, collection, entry));
     }
 
-    private boolean hasFileChanged(Path filePath, @NotNull Metadata storedMetadata) {
+    private void removeFile(EmbeddingStore<TextSegment> embeddingStore,
+                            String collection,
+                            IndexManifestService.Entry entry) {
         try {
-            long currentLastModified = Files.getLastModifiedTime(filePath).toMillis();
-            if (!storedMetadata.containsKey("lastModified")) {
-                return true;
+            if (!entry.segmentIds().isEmpty()) {
+                embeddingStore.removeAll(entry.segmentIds());
             }
-            Long storedLastModified = storedMetadata.getLong("lastModified");
-            if (storedLastModified == null) return false;
-            return currentLastModified > storedLastModified;
-        } catch (IOException e) {
-            return true; // If we can't check, assume it changed
+            indexManifestService.remove(collection, entry.path());
+            log.debug("Removed file from index: {}", entry.path());
+        } catch (Exception e) {
+            log.warn("Error removing file from index: {} - {}", entry.path(), e.getMessage());
         }
     }
 
-    @NotNull
-    private String createFileIdentifier(@NotNull Path filePath) {
-        return filePath.toAbsolutePath().toString();
-    }
-
     /**
-     * Mark a file as indexed by storing its metadata and embedding in the database.
+     * Index a single file unless the manifest shows it is unchanged.
+     * The last modified time is checked first; when it differs the content hash decides,
+     * so touching a file without changing it does not cause it to be embedded again.
      *
-     * @param filePath Path to the file
-     * @param segment  Text segment containing metadata
+     * @param embeddingStore The embedding store of the project
+     * @param filePath       Path to the file to index
+     * @param collection     The vector store collection of the project
+     * @param entry          The manifest entry of the file, null when it was never indexed
+     * @param batchWriter    Writer collecting the segments of the file
      */
-    private void markFileAsIndexed(Path filePath, TextSegment segment) {
-        try {
-            String fileIdentifier = createFileIdentifier(filePath);
-            Embedding embedding = chromaEmbeddingService.getEmbeddingModel().embed(fileIdentifier).content();
-            chromaEmbeddingService.getEmbeddingStore().add(embedding, segment);
-        } catch (Exception e) {
-            log.warn("Error marking file as indexed: {}", e.getMessage());
-        }
-    }
-
-    private void processPath(Path path) {
+    private void indexSingleFile(EmbeddingStore<TextSegment> embeddingStore,
+                                 Path filePath,
+                                 String collection,
+                                 IndexManifestService.Entry entry,
+                                 EmbeddingBatchWriter batchWriter) throws InterruptedException {
+        log.debug("Indexing file: {}", filePath);
         try {
-            log.debug("Processing file: {}", path);
+            long lastModified = Files.getLastModifiedTime(filePath).toMillis();
+            if (entry != null && entry.lastModified() == lastModified) {
+                log.debug("File already indexed: {}", filePath);
+                return;
+            }
 
-            String content = Files.readString(path);
-            if (content.isBlank()) {
+            String content = Files.readString(filePath);
+            String contentHash = IndexManifestService.hash(content);
+            if (entry != null && contentHash.equals(entry.contentHash())) {
+                log.debug("File content unchanged: {}", filePath);
+                indexManifestService.put(collection,
+                        new IndexManifestService.Entry(filePath.toString(), lastModified, contentHash, entry.segmentIds()));
                 return;
             }
 
-            Document document = Document.from(content);
-            List<TextSegment> segments = documentSplitter.split(document);
+            if (entry != null && !entry.segmentIds().isEmpty()) {
+                embeddingStore.removeAll(entry.segmentIds());
+            }
 
-            for (TextSegment segment : segments) {
+            processPath(filePath, content, lastModified, contentHash, collection, batchWriter);
+            log.debug("File successfully queued for indexing: {}", filePath);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Error indexing file: {} - {}",  filePath, e.getMessage());
+        }
+    }
+
+    private void processPath(Path path,
+                             String content,
+                             long lastModified,
+                             String contentHash,
+                             String collection,
+                             EmbeddingBatchWriter batchWriter) throws InterruptedException {
+        log.debug("Processing file: {}", path);
+
+        List<TextSegment> segments = new ArrayList<>();
+        if (!content.isBlank()) {
+            for (TextSegment segment : documentSplitter.split(Document.from(content))) {
                 log.debug("Segment: {}", segment.text());
                 Metadata metadata = new Metadata();
                 metadata.put(FILE_PATH, path.toString());
-                metadata.put(LAST_MODIFIED, Files.getLastModifiedTime(path).toMillis());
+                metadata.put(LAST_MODIFIED, lastModified);
                 metadata.put(INDEXED_AT, System.currentTimeMillis());
-                markFileAsIndexed(path, new TextSegment(segment.text(), metadata));
+                segments.add(new TextSegment(segment.text(), metadata));
             }
-
-        } catch (IOException e) {
-            log.warn("Error processing file: {}", path);
         }
+
+        // The file is only recorded in the manifest once all its segments are stored
+        batchWriter.addFile(segments, segmentIds -> indexManifestService.put(collection,
+                new IndexManifestService.Entry(path.toString(), lastModified, contentHash, segmentIds)));
     }
 }
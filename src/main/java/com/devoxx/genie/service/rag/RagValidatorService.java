@@ -1,6 +1,7 @@
 package com.devoxx.genie.service.rag;
 
 import com.devoxx.genie.service.rag.validator.*;
+import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
 import org.jetbrains.annotations.NotNull;
@@ -35,6 +36,13 @@ public final class RagValidatorService {
     }
 
     private List<Validator> createValidators() {
+        // The in-process vector store does not need Docker nor Chroma DB
+        if (Boolean.TRUE.equals(DevoxxGenieStateService.getInstance().getIndexerEmbeddedStore())) {
+            return List.of(
+                    new OllamaValidator(),
+                    new NomicEmbedTextValidator()
+            );
+        }
         return List.of(
                 new DockerValidator(),
                 new ChromeDBValidator(),
@@ -38,8 +38,6 @@ public final class SemanticSearchService {
      * @return Map of search results with file paths as keys
      */
     public @NotNull Map<String, SearchResult> search(Project project, String query) {
-        embeddingService.init(project);
-
         Embedding queryEmbedding = embeddingService.getEmbeddingModel().embed(query).content();
 
         Map<String, SearchResult> results = new HashMap<>();
@@ -50,7 +48,7 @@ public final class SemanticSearchService {
                 .maxResults(stateService.getIndexerMaxResults())
                 .build();
 
-        embeddingService.getEmbeddingStore().search(request)
+        embeddingService.getEmbeddingStore(project).search(request)
                 .matches()
                 .forEach(match ->
                         results.put(match.embedded().metadata().getString(FILE_PATH),
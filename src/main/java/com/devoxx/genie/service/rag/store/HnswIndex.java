@@ -0,0 +1,251 @@
+package com.devoxx.genie.service.rag.store;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Hierarchical Navigable Small World graph for approximate nearest neighbour search.
+ * <p>
+ * Nodes are the slot numbers of the vectors and similarities are computed by a
+ * {@link Similarity} callback, so the graph itself only holds neighbour lists. Deleted nodes
+ * are not removed from the graph; they still route searches and are filtered by the caller.
+ * Not thread-safe, callers synchronize access.
+ */
+final class HnswIndex {
+
+    /**
+     * Similarity between nodes and between a node and a query vector, higher is closer.
+     */
+    interface Similarity {
+        float between(int a, int b);
+
+        float toQuery(int node, float @NotNull [] query);
+    }
+
+    /**
+     * A node with its similarity to the query.
+     */
+    record Candidate(int node, float similarity) {
+    }
+
+    private static final Comparator<Candidate> CLOSEST_FIRST = (a, b) -> Float.compare(b.similarity(), a.similarity());
+    private static final Comparator<Candidate> FURTHEST_FIRST = Comparator.comparingDouble(Candidate::similarity);
+
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+
+    // links[node][level] holds the neighbour count at index 0 followed by the neighbours
+    private int[][][] links = new int[0][][];
+    private int size = 0;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswIndex(int m, int efConstruction) {
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Add a node to the graph.
+     *
+     * @param node       the node, nodes are added in increasing order
+     * @param vector     the vector of the node
+     * @param similarity the similarity function
+     */
+    void insert(int node, float @NotNull [] vector, @NotNull Similarity similarity) {
+        int level = randomLevel();
+        if (node >= links.length) {
+            links = Arrays.copyOf(links, Math.max(node + 1, links.length * 2));
+        }
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[1 + maxNeighbours(l)];
+        }
+        size = Math.max(size, node + 1);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l, similarity);
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> found = searchLayer(vector, current, efConstruction, l, similarity);
+            for (int i = 0; i < Math.min(m, found.size()); i++) {
+                int neighbour = found.get(i).node();
+                addLink(node, neighbour, l, similarity);
+                addLink(neighbour, node, l, similarity);
+            }
+            current = found.get(0).node();
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * Find the approximate nearest nodes of a query vector.
+     *
+     * @param query      the query vector
+     * @param ef         size of the dynamic candidate list, at least the number of results wanted
+     * @param similarity the similarity function
+     * @return up to {@code ef} nodes, closest first
+     */
+    @NotNull List<Candidate> search(float @NotNull [] query, int ef, @NotNull Similarity similarity) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedyClosest(query, current, l, similarity);
+        }
+        return searchLayer(query, current, ef, 0, similarity);
+    }
+
+    void write(@NotNull DataOutput out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+        for (int node = 0; node < size; node++) {
+            int[][] nodeLinks = links[node];
+            out.writeInt(nodeLinks.length);
+            for (int[] levelLinks : nodeLinks) {
+                out.writeInt(levelLinks[0]);
+                for (int i = 1; i <= levelLinks[0]; i++) {
+                    out.writeInt(levelLinks[i]);
+                }
+            }
+        }
+    }
+
+    void read(@NotNull DataInput in) throws IOException {
+        size = in.readInt();
+        entryPoint = in.readInt();
+        maxLevel = in.readInt();
+        links = new int[Math.max(16, size)][][];
+        for (int node = 0; node < size; node++) {
+            int levels = in.readInt();
+            links[node] = new int[levels][];
+            for (int l = 0; l < levels; l++) {
+                int count = in.readInt();
+                int[] levelLinks = new int[1 + Math.max(count, maxNeighbours(l))];
+                levelLinks[0] = count;
+                for (int i = 1; i <= count; i++) {
+                    levelLinks[i] = in.readInt();
+                }
+                links[node][l] = levelLinks;
+            }
+        }
+    }
+
+    private int maxNeighbours(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private int randomLevel() {
+        return (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private int greedyClosest(float @NotNull [] query, int start, int level, @NotNull Similarity similarity) {
+        int current = start;
+        float currentSimilarity = similarity.toQuery(current, query);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float s = similarity.toQuery(neighbours[i], query);
+                if (s > currentSimilarity) {
+                    currentSimilarity = s;
+                    current = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private @NotNull List<Candidate> searchLayer(float @NotNull [] query,
+                                                 int start,
+                                                 int ef,
+                                                 int level,
+                                                 @NotNull Similarity similarity) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(CLOSEST_FIRST);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(FURTHEST_FIRST);
+
+        Candidate first = new Candidate(start, similarity.toQuery(start, query));
+        visited.set(start);
+        candidates.add(first);
+        results.add(first);
+
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (results.size() >= ef && closest.similarity() < results.peek().similarity()) {
+                break;
+            }
+            int[] neighbours = links[closest.node()][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float s = similarity.toQuery(neighbour, query);
+                if (results.size() < ef || s > results.peek().similarity()) {
+                    Candidate candidate = new Candidate(neighbour, s);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(CLOSEST_FIRST);
+        return sorted;
+    }
+
+    private void addLink(int from, int to, int level, @NotNull Similarity similarity) {
+        int[] neighbours = links[from][level];
+        int count = neighbours[0];
+        int max = maxNeighbours(level);
+        if (count < max) {
+            neighbours[count + 1] = to;
+            neighbours[0] = count + 1;
+            return;
+        }
+
+        // Full, keep the closest neighbours of the node
+        List<Candidate> all = new ArrayList<>(count + 1);
+        for (int i = 1; i <= count; i++) {
+            all.add(new Candidate(neighbours[i], similarity.between(from, neighbours[i])));
+        }
+        all.add(new Candidate(to, similarity.between(from, to)));
+        all.sort(CLOSEST_FIRST);
+        for (int i = 0; i < max; i++) {
+            neighbours[i + 1] = all.get(i).node();
+        }
+        neighbours[0] = max;
+    }
+}
@@ -0,0 +1,543 @@
+package com.devoxx.genie.service.rag.store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process embedding store, an alternative to Chroma DB running in Docker.
+ * <p>
+ * Vectors are normalized and kept in a memory-mapped file ({@code vectors.bin}) and searched
+ * through an {@link HnswIndex}. Ids, segments and the graph are kept on the heap and written to
+ * {@code index.bin} by {@link #save()}. Removed entries stay in the graph as tombstones until
+ * more than half of the entries are removed, then the store is rebuilt on the next save. A rebuild
+ * writes the vectors to the other vector file and only switches to it once it is complete, so a
+ * failed rebuild leaves the store as it was. The new {@code index.bin} refers to the new file and is
+ * replaced last, so the saved index always matches a complete vector file.
+ * Searches with a metadata filter, and searches on small stores, scan all vectors instead of
+ * using the graph.
+ */
+@Slf4j
+public class LocalEmbeddingStore implements EmbeddingStore<TextSegment>, Closeable {
+
+    private static final int FORMAT_VERSION = 2;
+    private static final String INDEX_FILE = "index.bin";
+    private static final String VECTORS_FILE = "vectors.bin";
+    private static final String COMPACTED_VECTORS_FILE = "vectors-compacted.bin";
+
+    private static final int HNSW_M = 16;
+    private static final int HNSW_EF_CONSTRUCTION = 100;
+    private static final int HNSW_EF_SEARCH = 64;
+    private static final int EXACT_SEARCH_THRESHOLD = 2000;
+
+    private final Path directory;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock, entries are indexed by their node number
+    private final List<String> ids = new ArrayList<>();
+    private final List<TextSegment> segments = new ArrayList<>();
+    private final Map<String, Integer> nodesById = new HashMap<>();
+    private final BitSet removed = new BitSet();
+    private MappedVectorFile vectors;
+    private String vectorsFileName = VECTORS_FILE;
+    // The vector file replaced by a rebuild, deleted once the index referring to it is replaced
+    private String obsoleteVectorsFileName;
+    private HnswIndex index = new HnswIndex(HNSW_M, HNSW_EF_CONSTRUCTION);
+    private boolean dirty = false;
+
+    /**
+     * Open the store in the given directory, loading the previously saved entries.
+     *
+     * @param directory the directory holding the store files, created when needed
+     */
+    public LocalEmbeddingStore(@NotNull Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            load();
+        } catch (IOException e) {
+            log.warn("Failed to load embedding store from {}, starting empty: {}", directory, e.getMessage());
+            clearEntries();
+        }
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return addAll(embeddings, null);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> embedded) {
+        List<String> newIds = embeddings.stream().map(embedding -> UUID.randomUUID().toString()).toList();
+        addAll(newIds, embeddings, embedded);
+        return newIds;
+    }
+
+    @Override
+    public void addAll(List<String> newIds, List<Embedding> embeddings, @Nullable List<TextSegment> embedded) {
+        if (newIds.size() != embeddings.size() || (embedded != null && embedded.size() != embeddings.size())) {
+            throw new IllegalArgumentException("ids, embeddings and segments must have the same size");
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < newIds.size(); i++) {
+                // Adding an existing id replaces the entry
+                Integer existing = nodesById.get(newIds.get(i));
+                if (existing != null) {
+                    removed.set(existing);
+                }
+                addEntry(newIds.get(i), normalize(embeddings.get(i).vector()), embedded == null ? null : embedded.get(i));
+            }
+            dirty = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store embeddings in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> idsToRemove) {
+        lock.writeLock().lock();
+        try {
+            for (String id : idsToRemove) {
+                Integer node = nodesById.remove(id);
+                if (node != null) {
+                    removed.set(node);
+                    dirty = true;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            for (int node = 0; node < ids.size(); node++) {
+                TextSegment segment = segments.get(node);
+                if (!removed.get(node) && segment != null && filter.test(segment.metadata())) {
+                    nodesById.remove(ids.get(node));
+                    removed.set(node);
+                    dirty = true;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            closeVectors();
+            Files.deleteIfExists(directory.resolve(INDEX_FILE));
+            Files.deleteIfExists(directory.resolve(VECTORS_FILE));
+            Files.deleteIfExists(directory.resolve(COMPACTED_VECTORS_FILE));
+            clearEntries();
+            vectorsFileName = VECTORS_FILE;
+            obsoleteVectorsFileName = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to remove embedding store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = normalize(request.queryEmbedding().vector());
+        int maxResults = request.maxResults();
+
+        lock.readLock().lock();
+        try {
+            if (vectors == null || nodesById.isEmpty()) {
+                return new EmbeddingSearchResult<>(List.of());
+            }
+
+            List<HnswIndex.Candidate> candidates;
+            if (request.filter() != null || nodesById.size() <= EXACT_SEARCH_THRESHOLD) {
+                candidates = exactSearch(query, request.filter());
+            } else {
+                candidates = index.search(query, Math.max(HNSW_EF_SEARCH, maxResults + removed.cardinality()), similarity(vectors));
+            }
+
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+            for (HnswIndex.Candidate candidate : candidates) {
+                if (matches.size() >= maxResults) {
+                    break;
+                }
+                if (removed.get(candidate.node())) {
+                    continue;
+                }
+                double score = RelevanceScore.fromCosineSimilarity(candidate.similarity());
+                if (score < request.minScore()) {
+                    break;
+                }
+                matches.add(new EmbeddingMatch<>(score,
+                        ids.get(candidate.node()),
+                        Embedding.from(vectors.get(candidate.node())),
+                        segments.get(candidate.node())));
+            }
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of entries in the store
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write the entries and the graph to disk if they changed since the last save.
+     */
+    public void save() {
+        lock.writeLock().lock();
+        try {
+            if (!dirty) {
+                return;
+            }
+            // After a rebuild whose index could not be saved, the next rebuild waits for a successful save
+            if (obsoleteVectorsFileName == null && removed.cardinality() > ids.size() / 2) {
+                rebuild();
+            }
+            if (vectors != null) {
+                vectors.force();
+            }
+
+            Path indexFile = directory.resolve(INDEX_FILE);
+            Path tempFile = directory.resolve(INDEX_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                writeIndex(out);
+            }
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+
+            if (obsoleteVectorsFileName != null) {
+                Files.deleteIfExists(directory.resolve(obsoleteVectorsFileName));
+                obsoleteVectorsFileName = null;
+            }
+            log.debug("Saved {} embeddings to {}", nodesById.size(), directory);
+        } catch (IOException e) {
+            log.warn("Failed to save embedding store to {}: {}", directory, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        save();
+        lock.writeLock().lock();
+        try {
+            closeVectors();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addEntry(@NotNull String id, float @NotNull [] vector, @Nullable TextSegment segment) throws IOException {
+        if (vectors == null) {
+            vectors = new MappedVectorFile(directory.resolve(vectorsFileName), vector.length, 0);
+        } else if (vector.length != vectors.getDimension()) {
+            throw new IllegalArgumentException("Expected an embedding of " + vectors.getDimension() +
+                    " dimensions but got " + vector.length);
+        }
+
+        int node = ids.size();
+        vectors.set(node, vector);
+        ids.add(id);
+        segments.add(segment);
+        nodesById.put(id, node);
+        index.insert(node, vector, similarity(vectors));
+    }
+
+    private @NotNull List<HnswIndex.Candidate> exactSearch(float @NotNull [] query, @Nullable Filter filter) {
+        List<HnswIndex.Candidate> candidates = new ArrayList<>();
+        for (int node = 0; node < ids.size(); node++) {
+            if (removed.get(node)) {
+                continue;
+            }
+            TextSegment segment = segments.get(node);
+            if (filter != null && (segment == null || !filter.test(segment.metadata()))) {
+                continue;
+            }
+            candidates.add(new HnswIndex.Candidate(node, vectors.dot(node, query)));
+        }
+        candidates.sort((a, b) -> Float.compare(b.similarity(), a.similarity()));
+        return candidates;
+    }
+
+    private static @NotNull HnswIndex.Similarity similarity(@NotNull MappedVectorFile vectorFile) {
+        return new HnswIndex.Similarity() {
+            @Override
+            public float between(int a, int b) {
+                return vectorFile.dot(a, b);
+            }
+
+            @Override
+            public float toQuery(int node, float @NotNull [] query) {
+                return vectorFile.dot(node, query);
+            }
+        };
+    }
+
+    /**
+     * Drop the removed entries by adding the remaining ones to the other vector file and a new graph.
+     * The store switches to them once they are complete. The current vector file is unmapped then and
+     * deleted once the index referring to it is replaced.
+     */
+    private void rebuild() throws IOException {
+        String rebuiltFileName = VECTORS_FILE.equals(vectorsFileName) ? COMPACTED_VECTORS_FILE : VECTORS_FILE;
+        Path rebuiltFile = directory.resolve(rebuiltFileName);
+        // Left by a rebuild that failed, no saved index refers to it
+        Files.deleteIfExists(rebuiltFile);
+
+        List<String> liveIds = new ArrayList<>();
+        List<TextSegment> liveSegments = new ArrayList<>();
+        Map<String, Integer> liveNodesById = new HashMap<>();
+        HnswIndex liveIndex = new HnswIndex(HNSW_M, HNSW_EF_CONSTRUCTION);
+        MappedVectorFile rebuilt = null;
+        try {
+            for (int node = 0; node < ids.size(); node++) {
+                if (removed.get(node)) {
+                    continue;
+                }
+                float[] vector = vectors.get(node);
+                if (rebuilt == null) {
+                    rebuilt = new MappedVectorFile(rebuiltFile, vector.length, nodesById.size());
+                }
+                int liveNode = liveIds.size();
+                rebuilt.set(liveNode, vector);
+                liveIds.add(ids.get(node));
+                liveSegments.add(segments.get(node));
+                liveNodesById.put(ids.get(node), liveNode);
+                liveIndex.insert(liveNode, vector, similarity(rebuilt));
+            }
+            if (rebuilt != null) {
+                rebuilt.force();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (rebuilt != null) {
+                rebuilt.close();
+            }
+            Files.deleteIfExists(rebuiltFile);
+            throw e;
+        }
+        log.info("Compacted embedding store {}: {} of {} entries were removed",
+                directory, ids.size() - liveIds.size(), ids.size());
+
+        closeVectors();
+        obsoleteVectorsFileName = vectorsFileName;
+        vectorsFileName = rebuiltFileName;
+        vectors = rebuilt;
+        ids.clear();
+        ids.addAll(liveIds);
+        segments.clear();
+        segments.addAll(liveSegments);
+        nodesById.clear();
+        nodesById.putAll(liveNodesById);
+        removed.clear();
+        index = liveIndex;
+        dirty = true;
+    }
+
+    private void writeIndex(@NotNull DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, vectorsFileName);
+        out.writeInt(vectors == null ? 0 : vectors.getDimension());
+        out.writeInt(ids.size());
+        for (int node = 0; node < ids.size(); node++) {
+            writeString(out, ids.get(node));
+            out.writeBoolean(removed.get(node));
+            TextSegment segment = segments.get(node);
+            out.writeBoolean(segment != null);
+            if (segment != null) {
+                writeString(out, segment.text());
+                writeMetadata(out, segment.metadata());
+            }
+        }
+        index.write(out);
+    }
+
+    private void load() throws IOException {
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            int version = in.readInt();
+            if (version == 1) {
+                vectorsFileName = VECTORS_FILE;
+            } else if (version == FORMAT_VERSION) {
+                vectorsFileName = readString(in);
+            } else {
+                log.info("Ignoring embedding store with an unknown format in {}", directory);
+                return;
+            }
+            int dimension = in.readInt();
+            int count = in.readInt();
+            for (int node = 0; node < count; node++) {
+                String id = readString(in);
+                boolean isRemoved = in.readBoolean();
+                TextSegment segment = in.readBoolean() ? TextSegment.from(readString(in), readMetadata(in)) : null;
+                ids.add(id);
+                segments.add(segment);
+                if (isRemoved) {
+                    removed.set(node);
+                } else {
+                    nodesById.put(id, node);
+                }
+            }
+            index.read(in);
+            if (dimension > 0) {
+                vectors = new MappedVectorFile(directory.resolve(vectorsFileName), dimension, count);
+            }
+        }
+        log.debug("Loaded {} embeddings from {}", nodesById.size(), directory);
+    }
+
+    private void clearEntries() {
+        ids.clear();
+        segments.clear();
+        nodesById.clear();
+        removed.clear();
+        index = new HnswIndex(HNSW_M, HNSW_EF_CONSTRUCTION);
+        dirty = false;
+    }
+
+    private void closeVectors() {
+        if (vectors != null) {
+            try {
+                vectors.close();
+            } catch (IOException e) {
+                log.warn("Failed to close vector file in {}: {}", directory, e.getMessage());
+            }
+            vectors = null;
+        }
+    }
+
+    private static void writeMetadata(@NotNull DataOutputStream out, @NotNull Metadata metadata) throws IOException {
+        Map<String, Object> values = metadata.toMap();
+        out.writeInt(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            writeString(out, entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof Long longValue) {
+                out.writeByte('L');
+                out.writeLong(longValue);
+            } else if (value instanceof Integer intValue) {
+                out.writeByte('I');
+                out.writeInt(intValue);
+            } else if (value instanceof Double doubleValue) {
+                out.writeByte('D');
+                out.writeDouble(doubleValue);
+            } else if (value instanceof Float floatValue) {
+                out.writeByte('F');
+                out.writeFloat(floatValue);
+            } else if (value instanceof UUID uuid) {
+                out.writeByte('U');
+                writeString(out, uuid.toString());
+            } else {
+                out.writeByte('S');
+                writeString(out, String.valueOf(value));
+            }
+        }
+    }
+
+    private static @NotNull Metadata readMetadata(@NotNull DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            char type = (char) in.readByte();
+            Object value = switch (type) {
+                case 'L' -> in.readLong();
+                case 'I' -> in.readInt();
+                case 'D' -> in.readDouble();
+                case 'F' -> in.readFloat();
+                case 'U' -> UUID.fromString(readString(in));
+                default -> readString(in);
+            };
+            values.put(key, value);
+        }
+        return Metadata.from(values);
+    }
+
+    // writeUTF is limited to 64 KB, segments can be larger
+    private static void writeString(@NotNull DataOutputStream out, @NotNull String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static @NotNull String readString(@NotNull DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static float @NotNull [] normalize(float @NotNull [] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = norm == 0 ? 0f : (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+}
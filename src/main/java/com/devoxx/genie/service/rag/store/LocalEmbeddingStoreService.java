@@ -0,0 +1,102 @@
+package com.devoxx.genie.service.rag.store;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.util.io.FileUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Keeps one open {@link LocalEmbeddingStore} per collection.
+ * The stores are persisted under the DevoxxGenie system directory and saved when the IDE closes.
+ */
+@Slf4j
+public final class LocalEmbeddingStoreService implements Disposable {
+
+    private final Path storesDirectory = Path.of(PathManager.getSystemPath(), "DevoxxGenie", "vectors");
+    private final Map<String, LocalEmbeddingStore> stores = new ConcurrentHashMap<>();
+
+    @NotNull
+    public static LocalEmbeddingStoreService getInstance() {
+        return ApplicationManager.getApplication().getService(LocalEmbeddingStoreService.class);
+    }
+
+    /**
+     * Get the store of a collection, opening it on first use.
+     *
+     * @param collection the collection name
+     * @return the store of the collection
+     */
+    public @NotNull LocalEmbeddingStore getStore(@NotNull String collection) {
+        return stores.computeIfAbsent(collection, name -> new LocalEmbeddingStore(storesDirectory.resolve(name)));
+    }
+
+    /**
+     * @return the names of the collections with a store on disk
+     */
+    public @NotNull List<String> getCollections() {
+        if (!Files.isDirectory(storesDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> children = Files.list(storesDirectory)) {
+            return children.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            log.warn("Failed to list embedding stores in {}: {}", storesDirectory, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * @param collection the collection name
+     * @return the number of entries in the store of the collection
+     */
+    public int countEntries(@NotNull String collection) {
+        LocalEmbeddingStore store = stores.get(collection);
+        if (store != null) {
+            return store.size();
+        }
+        // Not kept open, the store is only needed by the project it belongs to
+        LocalEmbeddingStore closedStore = new LocalEmbeddingStore(storesDirectory.resolve(collection));
+        try {
+            return closedStore.size();
+        } finally {
+            closedStore.close();
+        }
+    }
+
+    /**
+     * Delete the store of a collection with all its files.
+     *
+     * @param collection the collection name
+     * @throws IOException when the files could not be deleted
+     */
+    public void deleteStore(@NotNull String collection) throws IOException {
+        LocalEmbeddingStore store = stores.remove(collection);
+        if (store != null) {
+            // Unmaps the vector file, which cannot be deleted while it is mapped on Windows
+            store.removeAll();
+        }
+        Path directory = storesDirectory.resolve(collection);
+        if (!FileUtil.delete(directory.toFile())) {
+            throw new IOException("Failed to delete " + directory);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        stores.values().forEach(LocalEmbeddingStore::close);
+        stores.clear();
+    }
+}
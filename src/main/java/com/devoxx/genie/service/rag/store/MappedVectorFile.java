@@ -0,0 +1,152 @@
+package com.devoxx.genie.service.rag.store;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-dimension float vectors stored in a memory-mapped file.
+ * <p>
+ * Vector {@code i} is stored at offset {@code i * dimension * 4}. The mapping grows by doubling,
+ * so the vectors live in the page cache instead of the Java heap. A single mapping is limited to
+ * 2 GB, which is roughly 700,000 vectors of 768 dimensions.
+ * Replaced and closed mappings are unmapped right away instead of by the garbage collector, so the
+ * file can be deleted afterwards, also on Windows.
+ * Not thread-safe, callers synchronize access, and a closed file must not be used anymore.
+ */
+final class MappedVectorFile implements Closeable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final FileChannel channel;
+    private final int dimension;
+    private MappedByteBuffer buffer;
+    private int capacity;
+
+    MappedVectorFile(@NotNull Path file, int dimension, int minCapacity) throws IOException {
+        this.dimension = dimension;
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map(Math.max(INITIAL_CAPACITY, minCapacity));
+    }
+
+    int getDimension() {
+        return dimension;
+    }
+
+    void set(int index, float @NotNull [] vector) throws IOException {
+        if (index >= capacity) {
+            map(Math.max(index + 1, capacity * 2));
+        }
+        int offset = offset(index);
+        for (int i = 0; i < dimension; i++) {
+            buffer.putFloat(offset + i * Float.BYTES, vector[i]);
+        }
+    }
+
+    float @NotNull [] get(int index) {
+        float[] vector = new float[dimension];
+        int offset = offset(index);
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = buffer.getFloat(offset + i * Float.BYTES);
+        }
+        return vector;
+    }
+
+    float dot(int index, float @NotNull [] query) {
+        int offset = offset(index);
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            sum += buffer.getFloat(offset + i * Float.BYTES) * query[i];
+        }
+        return sum;
+    }
+
+    float dot(int a, int b) {
+        int offsetA = offset(a);
+        int offsetB = offset(b);
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            sum += buffer.getFloat(offsetA + i * Float.BYTES) * buffer.getFloat(offsetB + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            unmap(buffer);
+            buffer = null;
+        }
+        channel.close();
+    }
+
+    private int offset(int index) {
+        return index * dimension * Float.BYTES;
+    }
+
+    private void map(int newCapacity) throws IOException {
+        long size = (long) newCapacity * dimension * Float.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Vector file is full, " + capacity + " vectors of " + dimension + " dimensions");
+        }
+        MappedByteBuffer previous = buffer;
+        if (previous != null) {
+            previous.force();
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        capacity = newCapacity;
+        if (previous != null) {
+            unmap(previous);
+        }
+    }
+
+    private static void unmap(@NotNull MappedByteBuffer mapping) {
+        if (Unmapper.INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            Unmapper.INVOKE_CLEANER.invoke(Unmapper.UNSAFE, mapping);
+        } catch (ReflectiveOperationException e) {
+            // The mapping is released when it is garbage collected instead
+        }
+    }
+
+    /**
+     * {@code sun.misc.Unsafe.invokeCleaner}, the only way to release a mapping before it is garbage collected.
+     */
+    private static final class Unmapper {
+        private static final Object UNSAFE;
+        private static final Method INVOKE_CLEANER;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                unsafe = field.get(null);
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                unsafe = null;
+                invokeCleaner = null;
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+    }
+}
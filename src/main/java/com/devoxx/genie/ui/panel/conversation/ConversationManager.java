@@ -4,6 +4,7 @@ import com.devoxx.genie.model.Constant;
 import com.devoxx.genie.model.conversation.Conversation;
 import com.devoxx.genie.model.request.ChatMessageContext;
 import com.devoxx.genie.service.ChatService;
+import com.devoxx.genie.service.FileContextDeltaService;
 import com.devoxx.genie.service.FileListManager;
 import com.devoxx.genie.service.prompt.memory.ChatMemoryService;
 import com.devoxx.genie.ui.listener.ConversationEventListener;
@@ -105,6 +106,7 @@ public class ConversationManager implements ConversationEventListener, Conversat
     public void startNewConversation() {
         // Clear everything for a new conversation - this is the correct behavior
         FileListManager.getInstance().clear(project);
+        FileContextDeltaService.getInstance().clear(project);
         ChatMemoryService.getInstance().clearMemory(project);
         
         // Clear the current conversation state
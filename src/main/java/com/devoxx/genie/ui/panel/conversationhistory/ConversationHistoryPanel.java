@@ -1,15 +1,21 @@
 package com.devoxx.genie.ui.panel.conversationhistory;
 
 import com.devoxx.genie.model.conversation.Conversation;
+import com.devoxx.genie.model.conversation.ConversationSearchResult;
+import com.devoxx.genie.model.conversation.ConversationSummary;
 import com.devoxx.genie.service.conversations.ConversationStorageService;
 import com.devoxx.genie.service.prompt.memory.ChatMemoryManager;
 import com.devoxx.genie.ui.listener.ConversationSelectionListener;
 import com.devoxx.genie.ui.topic.AppTopics;
 import com.devoxx.genie.ui.util.NotificationUtil;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.ui.DocumentAdapter;
 import com.intellij.ui.JBColor;
+import com.intellij.ui.SearchTextField;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.table.JBTable;
 import com.intellij.util.ui.JBUI;
@@ -18,6 +24,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
@@ -25,16 +32,29 @@ import java.awt.event.MouseEvent;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 import static com.devoxx.genie.ui.component.button.ButtonFactory.createActionButton;
 import static com.devoxx.genie.ui.util.DevoxxGenieIconsUtil.TrashIcon;
 
 public class ConversationHistoryPanel extends JPanel implements ConversationSelectionListener {
+    // Conversations are listed page by page while scrolling, their messages are loaded when selected
+    private static final int PAGE_SIZE = 50;
+    private static final int PRELOAD_ROWS = 10;
+    private static final int SEARCH_LIMIT = 100;
+    private static final int SEARCH_DELAY_MS = 200;
+
     private final ConversationStorageService storageService;
     private final ConversationTableModel tableModel;
     private final Project project;
+    private final SearchTextField searchField = new SearchTextField(false);
+    private boolean allLoaded = false;
+    // The queries run on a pooled thread, results of a list which was reloaded since are dropped
+    private int listGeneration = 0;
+    private boolean loadingPage = false;
 
     public ConversationHistoryPanel(Project project) {
         this.project = project;
@@ -72,12 +92,7 @@ public class ConversationHistoryPanel extends JPanel implements ConversationSele
                 int row = table.rowAtPoint(e.getPoint());
                 int column = table.columnAtPoint(e.getPoint());
                 if (row >= 0 && column != 0) {
-                    // Get the conversation from the model
-                    Conversation conversation = tableModel.getConversationAt(row);
-                    // Update chat memory
-                    updateChatMemory(conversation);
-                    // Notify listener
-                    onConversationSelected(conversation);
+                    selectConversation(tableModel.getSummaryAt(row).id());
                 }
             }
         });
@@ -123,8 +138,25 @@ public class ConversationHistoryPanel extends JPanel implements ConversationSele
         // Add table to scroll pane
         JBScrollPane scrollPane = new JBScrollPane(table);
         scrollPane.setBorder(JBUI.Borders.empty());
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+            if (scrollBar.getValue() + scrollBar.getVisibleAmount() >= scrollBar.getMaximum() - table.getRowHeight() * PRELOAD_ROWS) {
+                loadNextPage();
+            }
+        });
         add(scrollPane, BorderLayout.CENTER);
 
+        // Search the messages as the user types, once typing pauses
+        Timer searchTimer = new Timer(SEARCH_DELAY_MS, e -> loadConversations());
+        searchTimer.setRepeats(false);
+        searchField.addDocumentListener(new DocumentAdapter() {
+            @Override
+            protected void textChanged(@NotNull DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        add(searchField, BorderLayout.NORTH);
+
         // Add delete all button
         add(createActionButton("Delete All", TrashIcon, e -> showDeleteAllConfirmationDialog()), BorderLayout.SOUTH);
 
@@ -132,10 +164,74 @@ public class ConversationHistoryPanel extends JPanel implements ConversationSele
     }
 
     public void loadConversations() {
-        List<Conversation> conversations = storageService.getConversations(project);
-        conversations.sort((c1, c2) -> c2.getTimestamp().compareTo(c1.getTimestamp()));
-        tableModel.setConversations(conversations);
-        tableModel.fireTableDataChanged();
+        String query = searchField.getText();
+        int generation = ++listGeneration;
+        // Stop paging until the first page of the reloaded list is shown
+        allLoaded = true;
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            if (query != null && !query.isBlank()) {
+                searchConversations(query, generation);
+                return;
+            }
+            List<ConversationSummary> summaries = storageService.getConversationSummaries(project, 0, PAGE_SIZE);
+            ApplicationManager.getApplication().invokeLater(() -> {
+                if (generation == listGeneration) {
+                    allLoaded = summaries.size() < PAGE_SIZE;
+                    tableModel.setSummaries(summaries, Map.of());
+                }
+            });
+        });
+    }
+
+    private void searchConversations(@NotNull String query, int generation) {
+        List<ConversationSummary> summaries = new ArrayList<>();
+        Map<String, String> snippets = new HashMap<>();
+        for (ConversationSearchResult result : storageService.searchConversations(project, query, SEARCH_LIMIT)) {
+            summaries.add(new ConversationSummary(result.conversationId(), result.title(), result.timestamp(),
+                    null, null, 0, 0, 0));
+            snippets.put(result.conversationId(), result.snippet());
+        }
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (generation == listGeneration) {
+                // Search results are not paged
+                allLoaded = true;
+                tableModel.setSummaries(summaries, snippets);
+            }
+        });
+    }
+
+    private void loadNextPage() {
+        if (allLoaded || loadingPage) {
+            return;
+        }
+        loadingPage = true;
+        int generation = listGeneration;
+        int offset = tableModel.getRowCount();
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            List<ConversationSummary> summaries = storageService.getConversationSummaries(project, offset, PAGE_SIZE);
+            ApplicationManager.getApplication().invokeLater(() -> {
+                loadingPage = false;
+                if (generation == listGeneration) {
+                    allLoaded = summaries.size() < PAGE_SIZE;
+                    tableModel.addSummaries(summaries);
+                }
+            });
+        });
+    }
+
+    private void selectConversation(@NotNull String conversationId) {
+        // Load the selected conversation with its messages
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            Conversation conversation = storageService.getConversation(project, conversationId);
+            if (conversation == null) {
+                ApplicationManager.getApplication().invokeLater(this::loadConversations);
+                return;
+            }
+            // Restoring the chat memory reads and writes the database, so it stays off the EDT
+            updateChatMemory(conversation);
+            // Notify listener
+            ApplicationManager.getApplication().invokeLater(() -> onConversationSelected(conversation));
+        });
     }
 
     @Override
@@ -152,22 +248,37 @@ public class ConversationHistoryPanel extends JPanel implements ConversationSele
 
     // Table model class
     private static class ConversationTableModel extends AbstractTableModel {
-        private List<Conversation> conversations = new ArrayList<>();
+        private List<ConversationSummary> summaries = new ArrayList<>();
+        private Map<String, String> snippets = Map.of();
         private final String[] columnNames = {"Delete", "Title", "Time"};
 
-        public void setConversations(List<Conversation> conversations) {
+        public void setSummaries(List<ConversationSummary> summaries, Map<String, String> snippets) {
             // Create new list to ensure clean state
-            this.conversations = new ArrayList<>(conversations);
+            this.summaries = new ArrayList<>(summaries);
+            this.snippets = snippets;
             fireTableDataChanged();
         }
 
-        public Conversation getConversationAt(int row) {
-            return conversations.get(row);
+        public @Nullable String getSnippetAt(int row) {
+            return snippets.get(summaries.get(row).id());
+        }
+
+        public void addSummaries(List<ConversationSummary> page) {
+            if (page.isEmpty()) {
+                return;
+            }
+            int firstRow = summaries.size();
+            summaries.addAll(page);
+            fireTableRowsInserted(firstRow, summaries.size() - 1);
+        }
+
+        public ConversationSummary getSummaryAt(int row) {
+            return summaries.get(row);
         }
 
         @Override
         public int getRowCount() {
-            return conversations.size();
+            return summaries.size();
         }
 
         @Override
@@ -182,20 +293,19 @@ public class ConversationHistoryPanel extends JPanel implements ConversationSele
 
         @Override
         public Object getValueAt(int row, int column) {
-            Conversation conversation = conversations.get(row);
+            ConversationSummary summary = summaries.get(row);
 
             if (column == 0) {
-                // For button columns, create a defensive copy to ensure ID consistency
-                Conversation copy = new Conversation();
-                copy.setId(conversation.getId());
-                copy.setTitle(conversation.getTitle());
-                // Copy other necessary fields
-                return copy;
+                // The delete button only needs the id of the conversation
+                Conversation conversation = new Conversation();
+                conversation.setId(summary.id());
+                conversation.setTitle(summary.title());
+                return conversation;
             }
 
             return switch (column) {
-                case 1 -> conversation.getTitle();
-                case 2 -> formatTimeSince(conversation.getTimestamp());
+                case 1 -> summary.title();
+                case 2 -> formatTimeSince(summary.timestamp());
                 default -> null;
             };
         }
@@ -239,7 +349,13 @@ public class ConversationHistoryPanel extends JPanel implements ConversationSele
                 fullText.substring(0, MAX_TITLE_LENGTH) + "..." : 
                 fullText;
             
-            setText(displayText);
+            String snippet = table.getModel() instanceof ConversationTableModel model ? model.getSnippetAt(row) : null;
+            if (snippet != null) {
+                setText("<html>" + StringUtil.escapeXmlEntities(displayText)
+                        + "<br><font color='gray'>" + highlight(snippet) + "</font></html>");
+            } else {
+                setText(displayText);
+            }
             setMinimumSize(new Dimension(0, getHeight()));
             setBorder(JBUI.Borders.empty(0, 8));
             
@@ -249,6 +365,12 @@ public class ConversationHistoryPanel extends JPanel implements ConversationSele
             return this;
         }
 
+        private static @NotNull String highlight(@NotNull String snippet) {
+            return StringUtil.escapeXmlEntities(snippet.replaceAll("\\s+", " "))
+                    .replace(ConversationSearchResult.HIGHLIGHT_START, "<b>")
+                    .replace(ConversationSearchResult.HIGHLIGHT_END, "</b>");
+        }
+
         // Override these methods to ensure proper text display
         @Override
         public boolean isOpaque() {
@@ -74,6 +74,11 @@ public final class DevoxxGenieStateService implements PersistentStateComponent<D
     private Integer indexerPort = 8000;
     private Integer indexerMaxResults = 10;
     private Double indexerMinScore = 0.7;
+    private Integer indexerBatchSize = 32;
+    private Integer indexerConcurrentBatches = 4;
+    private Boolean indexerBackgroundEnabled = true;
+    private Boolean indexerEmbeddedStore = false;
+    private Integer indexerBackgroundFilesPerMinute = 60;
 
     // Local LLM URL fields
     private String ollamaModelUrl = OLLAMA_MODEL_URL;
@@ -147,6 +152,15 @@ public final class DevoxxGenieStateService implements PersistentStateComponent<D
     // Enable stream mode
     private Boolean streamMode = STREAM_MODE;
 
+    // Streamed tokens are coalesced into one UI update per interval or per number of characters
+    private Integer streamingFlushIntervalMs = STREAMING_FLUSH_INTERVAL_MS;
+    private Integer streamingFlushMaxChars = STREAMING_FLUSH_MAX_CHARS;
+
+    // Conversation history retention, applied by a background job
+    private Integer conversationMaxAgeDays = CONVERSATION_MAX_AGE_DAYS;
+    private Integer conversationMaxCount = CONVERSATION_MAX_COUNT;
+    private Integer conversationMaxSizeMb = CONVERSATION_MAX_SIZE_MB;
+
     // LLM settings
     private Double temperature = TEMPERATURE;
     private Double topP = TOP_P;
@@ -154,6 +168,15 @@ public final class DevoxxGenieStateService implements PersistentStateComponent<D
     private Integer timeout = TIMEOUT;
     private Integer maxRetries = MAX_RETRIES;
     private Integer chatMemorySize = MAX_MEMORY;
+    private Boolean chatMemoryTokenBudget = CHAT_MEMORY_TOKEN_BUDGET;
+    private Boolean chatMemoryCompaction = CHAT_MEMORY_COMPACTION;
+    private Integer chatMemoryCompactionThreshold = CHAT_MEMORY_COMPACTION_THRESHOLD;
+    // Empty to summarize with the model of the conversation
+    private String chatMemoryCompactionProvider = "";
+    private String chatMemoryCompactionModelName = "";
+    private Boolean projectContextOncePerConversation = PROJECT_CONTEXT_ONCE_PER_CONVERSATION;
+    private Boolean promptCaching = PROMPT_CACHING;
+    private Boolean fileContextDeltas = FILE_CONTEXT_DELTAS;
     private Integer maxOutputTokens = MAX_OUTPUT_TOKENS;
 
     private String systemPrompt = SYSTEM_PROMPT;
@@ -1,31 +1,78 @@
 package com.devoxx.genie.ui.settings.llmconfig;
 
+import com.devoxx.genie.model.enumarations.ModelProvider;
+import com.devoxx.genie.service.conversations.ConversationStorageService;
+import com.devoxx.genie.service.conversations.ConversationStorageUsage;
 import com.devoxx.genie.ui.settings.AbstractSettingsComponent;
 import com.intellij.ide.ui.UINumericRange;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.ui.JBIntSpinner;
 import com.intellij.util.ui.JBUI;
 import lombok.Getter;
 import org.jdesktop.swingx.JXTitledSeparator;
+import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
 
 @Getter
 public class LLMConfigSettingsComponent extends AbstractSettingsComponent {
 
+    private static final String SAME_AS_CHAT = "Same as chat";
+
     private final JBIntSpinner chatMemorySizeField = new JBIntSpinner(new UINumericRange(stateService.getChatMemorySize(), 1, 500));
+    private final JCheckBox chatMemoryTokenBudgetCheckBox = new JCheckBox("", stateService.getChatMemoryTokenBudget());
+    private final JCheckBox chatMemoryCompactionCheckBox = new JCheckBox("", stateService.getChatMemoryCompaction());
+    private final JBIntSpinner chatMemoryCompactionThresholdField = new JBIntSpinner(new UINumericRange(stateService.getChatMemoryCompactionThreshold(), 1_000, 1_000_000));
+    private final JComboBox<String> chatMemoryCompactionProviderComboBox = new JComboBox<>(compactionProviders());
+    private final JTextField chatMemoryCompactionModelNameField = new JTextField(stateService.getChatMemoryCompactionModelName());
+    private final JCheckBox projectContextOncePerConversationCheckBox = new JCheckBox("", stateService.getProjectContextOncePerConversation());
+    private final JCheckBox promptCachingCheckBox = new JCheckBox("", stateService.getPromptCaching());
+    private final JCheckBox fileContextDeltasCheckBox = new JCheckBox("", stateService.getFileContextDeltas());
     private final JSpinner temperatureField = new JSpinner(new SpinnerNumberModel(stateService.getTemperature().doubleValue(), 0.0d, 2.0d, 0.1d));
     private final JSpinner topPField = new JSpinner(new SpinnerNumberModel(stateService.getTopP().doubleValue(), 0.0d, 1.0d, 0.1d));
     private final JBIntSpinner maxOutputTokensField = new JBIntSpinner(new UINumericRange(stateService.getMaxOutputTokens(), 1, 1_000_000));
     private final JBIntSpinner timeoutField = new JBIntSpinner(new UINumericRange(stateService.getTimeout(), 1, Integer.MAX_VALUE));
     private final JBIntSpinner retryField = new JBIntSpinner(new UINumericRange(stateService.getMaxRetries(), 1, 5));
+    private final JBIntSpinner streamingFlushIntervalField = new JBIntSpinner(new UINumericRange(stateService.getStreamingFlushIntervalMs(), 0, 1000));
+    private final JBIntSpinner streamingFlushMaxCharsField = new JBIntSpinner(new UINumericRange(stateService.getStreamingFlushMaxChars(), 1, 100_000));
+
+    private final JBIntSpinner conversationMaxAgeDaysField = new JBIntSpinner(new UINumericRange(stateService.getConversationMaxAgeDays(), 0, 3650));
+    private final JBIntSpinner conversationMaxCountField = new JBIntSpinner(new UINumericRange(stateService.getConversationMaxCount(), 0, 100_000));
+    private final JBIntSpinner conversationMaxSizeMbField = new JBIntSpinner(new UINumericRange(stateService.getConversationMaxSizeMb(), 0, 10_000));
+    private final JLabel conversationStorageLabel = new JLabel("Measuring...");
 
     private final JCheckBox useFileInEditorCheckBox = new JCheckBox("", stateService.getUseFileInEditor());
 
     public LLMConfigSettingsComponent() {
+        chatMemoryCompactionProviderComboBox.setSelectedItem(compactionProviderItem(stateService.getChatMemoryCompactionProvider()));
         addListeners();
     }
 
+    /**
+     * @return the provider selected for summaries, empty for the model of the conversation
+     */
+    public @NotNull String getSelectedCompactionProvider() {
+        Object selected = chatMemoryCompactionProviderComboBox.getSelectedItem();
+        return selected == null || SAME_AS_CHAT.equals(selected) ? "" : selected.toString();
+    }
+
+    public static @NotNull String compactionProviderItem(String provider) {
+        return provider == null || provider.isBlank() ? SAME_AS_CHAT : provider;
+    }
+
+    private static String[] compactionProviders() {
+        List<String> providers = new ArrayList<>();
+        providers.add(SAME_AS_CHAT);
+        for (ModelProvider provider : ModelProvider.values()) {
+            providers.add(provider.getName());
+        }
+        return providers.toArray(String[]::new);
+    }
+
     @Override
     public JPanel createPanel() {
         panel.setLayout(new GridBagLayout());
@@ -44,6 +91,64 @@ public class LLMConfigSettingsComponent extends AbstractSettingsComponent {
         gbc.gridx = 1;
         panel.add(chatMemorySizeField, gbc);
 
+        gbc.gridy++;
+        gbc.gridx = 0;
+        var tokenBudgetLabel = new JLabel("Limit chat memory to the model context window");
+        tokenBudgetLabel.setToolTipText("Drop the oldest messages from the chat memory once they no longer fit in the context window of the selected model");
+        panel.add(tokenBudgetLabel, gbc);
+        gbc.gridx = 1;
+        panel.add(chatMemoryTokenBudgetCheckBox, gbc);
+
+        gbc.gridy++;
+        gbc.gridx = 0;
+        var compactionLabel = new JLabel("Summarize older messages of long conversations");
+        compactionLabel.setToolTipText("Replace the oldest messages in the chat memory with a summary once the memory holds more tokens than the threshold");
+        panel.add(compactionLabel, gbc);
+        gbc.gridx = 1;
+        panel.add(chatMemoryCompactionCheckBox, gbc);
+
+        gbc.gridy++;
+        gbc.gridx = 0;
+        panel.add(new JLabel("Summarize above (tokens)"), gbc);
+        gbc.gridx = 1;
+        panel.add(chatMemoryCompactionThresholdField, gbc);
+
+        gbc.gridy++;
+        gbc.gridx = 0;
+        panel.add(new JLabel("Summary model provider"), gbc);
+        gbc.gridx = 1;
+        panel.add(chatMemoryCompactionProviderComboBox, gbc);
+
+        gbc.gridy++;
+        gbc.gridx = 0;
+        panel.add(new JLabel("Summary model name"), gbc);
+        gbc.gridx = 1;
+        panel.add(chatMemoryCompactionModelNameField, gbc);
+
+        gbc.gridy++;
+        gbc.gridx = 0;
+        var projectContextLabel = new JLabel("Send the project context once per conversation");
+        projectContextLabel.setToolTipText("Keep the project context in the chat memory and send it again only when it changed, instead of with every prompt");
+        panel.add(projectContextLabel, gbc);
+        gbc.gridx = 1;
+        panel.add(projectContextOncePerConversationCheckBox, gbc);
+
+        gbc.gridy++;
+        gbc.gridx = 0;
+        var promptCachingLabel = new JLabel("Cache the system prompt (Anthropic)");
+        promptCachingLabel.setToolTipText("Mark the system prompt and tools as cacheable, repeated requests then read them from the Anthropic prompt cache");
+        panel.add(promptCachingLabel, gbc);
+        gbc.gridx = 1;
+        panel.add(promptCachingCheckBox, gbc);
+
+        gbc.gridy++;
+        gbc.gridx = 0;
+        var fileContextDeltasLabel = new JLabel("Send only the changes of attached files");
+        fileContextDeltasLabel.setToolTipText("Send an attached file in full once per conversation, then only a diff when it changed and nothing when it did not");
+        panel.add(fileContextDeltasLabel, gbc);
+        gbc.gridx = 1;
+        panel.add(fileContextDeltasCheckBox, gbc);
+
         gbc.gridy++;
         gbc.gridx = 0;
         var temperatureLabel = new JLabel("Temperature");
@@ -104,12 +209,85 @@ public class LLMConfigSettingsComponent extends AbstractSettingsComponent {
         gbc.gridx = 1;
         panel.add(retryField, gbc);
 
+        gbc.gridy++;
+        gbc.gridx = 0;
+        var flushIntervalLabel = new JLabel("Streaming refresh interval (in ms)");
+        flushIntervalLabel.setToolTipText("Streamed tokens are collected and the chat view is refreshed at most once per interval");
+        panel.add(flushIntervalLabel, gbc);
+        gbc.gridx = 1;
+        panel.add(streamingFlushIntervalField, gbc);
+
+        gbc.gridy++;
+        gbc.gridx = 0;
+        var flushMaxCharsLabel = new JLabel("Streaming refresh after (characters)");
+        flushMaxCharsLabel.setToolTipText("Refresh the chat view immediately once this many characters have been received since the last refresh");
+        panel.add(flushMaxCharsLabel, gbc);
+        gbc.gridx = 1;
+        panel.add(streamingFlushMaxCharsField, gbc);
+
         gbc.gridy++;
         gbc.gridx = 0;
         panel.add(new JLabel("Include currently open file in context"), gbc);
         gbc.gridx = 1;
         panel.add(useFileInEditorCheckBox, gbc);
 
+        gbc.gridy++;
+        gbc.gridx = 0;
+        gbc.gridwidth = 2;
+        panel.add(new JXTitledSeparator("Conversation History"), gbc);
+
+        gbc.gridy++;
+        gbc.gridwidth = 1;
+        panel.add(new JLabel("Delete conversations older than (days, 0 = keep)"), gbc);
+        gbc.gridx = 1;
+        panel.add(conversationMaxAgeDaysField, gbc);
+
+        gbc.gridy++;
+        gbc.gridx = 0;
+        panel.add(new JLabel("Maximum conversations per project (0 = no limit)"), gbc);
+        gbc.gridx = 1;
+        panel.add(conversationMaxCountField, gbc);
+
+        gbc.gridy++;
+        gbc.gridx = 0;
+        panel.add(new JLabel("Maximum size (in MB, 0 = no limit)"), gbc);
+        gbc.gridx = 1;
+        panel.add(conversationMaxSizeMbField, gbc);
+
+        gbc.gridy++;
+        gbc.gridx = 0;
+        panel.add(new JLabel("Disk usage"), gbc);
+        gbc.gridx = 1;
+        panel.add(conversationStorageLabel, gbc);
+        updateConversationStorageLabel();
+
         return panel;
     }
+
+    private void updateConversationStorageLabel() {
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            String text;
+            try {
+                text = formatStorageUsage(ConversationStorageService.getInstance().getStorageUsage());
+            } catch (RuntimeException e) {
+                text = "Not available";
+            }
+            String usage = text;
+            SwingUtilities.invokeLater(() -> conversationStorageLabel.setText(usage));
+        });
+    }
+
+    private static @NotNull String formatStorageUsage(@NotNull ConversationStorageUsage usage) {
+        StringBuilder text = new StringBuilder("<html>")
+                .append(usage.conversationCount()).append(" conversations, ")
+                .append(usage.messageCount()).append(" messages<br>")
+                .append("Database file: ").append(StringUtil.formatFileSize(usage.fileBytes()))
+                .append(", write-ahead log: ").append(StringUtil.formatFileSize(usage.walBytes())).append("<br>")
+                .append("Messages: ").append(StringUtil.formatFileSize(usage.messageBytes()))
+                .append(", compressed messages: ").append(StringUtil.formatFileSize(usage.compressedBytes())).append("<br>");
+        if (usage.searchIndexBytes() >= 0) {
+            text.append("Search index: ").append(StringUtil.formatFileSize(usage.searchIndexBytes())).append(", ");
+        }
+        return text.append("free: ").append(StringUtil.formatFileSize(usage.freeBytes())).append("</html>").toString();
+    }
 }
@@ -1,5 +1,6 @@
 package com.devoxx.genie.ui.settings.llmconfig;
 
+import com.devoxx.genie.chatmodel.ChatModelCache;
 import com.devoxx.genie.service.DevoxxGenieSettingsService;
 import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
 import com.intellij.openapi.options.Configurable;
@@ -56,6 +57,21 @@ public class LLMConfigSettingsConfigurable implements Configurable {
         isModified |= llmConfigSettingsComponent.getTimeoutField().getNumber() != stateService.getTimeout();
         isModified |= llmConfigSettingsComponent.getRetryField().getNumber() != stateService.getMaxRetries();
         isModified |= llmConfigSettingsComponent.getUseFileInEditorCheckBox().isSelected() != stateService.getUseFileInEditor();
+
+        DevoxxGenieStateService genieStateService = DevoxxGenieStateService.getInstance();
+        isModified |= llmConfigSettingsComponent.getChatMemoryTokenBudgetCheckBox().isSelected() != genieStateService.getChatMemoryTokenBudget();
+        isModified |= llmConfigSettingsComponent.getChatMemoryCompactionCheckBox().isSelected() != genieStateService.getChatMemoryCompaction();
+        isModified |= llmConfigSettingsComponent.getChatMemoryCompactionThresholdField().getNumber() != genieStateService.getChatMemoryCompactionThreshold();
+        isModified |= !llmConfigSettingsComponent.getSelectedCompactionProvider().equals(genieStateService.getChatMemoryCompactionProvider());
+        isModified |= !llmConfigSettingsComponent.getChatMemoryCompactionModelNameField().getText().equals(genieStateService.getChatMemoryCompactionModelName());
+        isModified |= llmConfigSettingsComponent.getProjectContextOncePerConversationCheckBox().isSelected() != genieStateService.getProjectContextOncePerConversation();
+        isModified |= llmConfigSettingsComponent.getPromptCachingCheckBox().isSelected() != genieStateService.getPromptCaching();
+        isModified |= llmConfigSettingsComponent.getFileContextDeltasCheckBox().isSelected() != genieStateService.getFileContextDeltas();
+        isModified |= llmConfigSettingsComponent.getStreamingFlushIntervalField().getNumber() != genieStateService.getStreamingFlushIntervalMs();
+        isModified |= llmConfigSettingsComponent.getStreamingFlushMaxCharsField().getNumber() != genieStateService.getStreamingFlushMaxChars();
+        isModified |= llmConfigSettingsComponent.getConversationMaxAgeDaysField().getNumber() != genieStateService.getConversationMaxAgeDays();
+        isModified |= llmConfigSettingsComponent.getConversationMaxCountField().getNumber() != genieStateService.getConversationMaxCount();
+        isModified |= llmConfigSettingsComponent.getConversationMaxSizeMbField().getNumber() != genieStateService.getConversationMaxSizeMb();
         return isModified;
     }
 
@@ -70,9 +86,27 @@ public class LLMConfigSettingsConfigurable implements Configurable {
         stateService.setTopP(((Double) llmConfigSettingsComponent.getTopPField().getValue()));
 
         stateService.setChatMemorySize(llmConfigSettingsComponent.getChatMemorySizeField().getNumber());
+        stateService.setChatMemoryTokenBudget(llmConfigSettingsComponent.getChatMemoryTokenBudgetCheckBox().isSelected());
+        stateService.setChatMemoryCompaction(llmConfigSettingsComponent.getChatMemoryCompactionCheckBox().isSelected());
+        stateService.setChatMemoryCompactionThreshold(llmConfigSettingsComponent.getChatMemoryCompactionThresholdField().getNumber());
+        stateService.setChatMemoryCompactionProvider(llmConfigSettingsComponent.getSelectedCompactionProvider());
+        stateService.setChatMemoryCompactionModelName(llmConfigSettingsComponent.getChatMemoryCompactionModelNameField().getText().trim());
+        stateService.setProjectContextOncePerConversation(llmConfigSettingsComponent.getProjectContextOncePerConversationCheckBox().isSelected());
+        boolean promptCaching = llmConfigSettingsComponent.getPromptCachingCheckBox().isSelected();
+        if (promptCaching != Boolean.TRUE.equals(stateService.getPromptCaching())) {
+            // The cache options are set when a model is built, models built with the previous value must not be reused
+            ChatModelCache.getInstance().invalidate();
+        }
+        stateService.setPromptCaching(promptCaching);
+        stateService.setFileContextDeltas(llmConfigSettingsComponent.getFileContextDeltasCheckBox().isSelected());
         stateService.setMaxOutputTokens(llmConfigSettingsComponent.getMaxOutputTokensField().getNumber());
         stateService.setTimeout(llmConfigSettingsComponent.getTimeoutField().getNumber());
         stateService.setMaxRetries(llmConfigSettingsComponent.getRetryField().getNumber());
+        stateService.setStreamingFlushIntervalMs(llmConfigSettingsComponent.getStreamingFlushIntervalField().getNumber());
+        stateService.setStreamingFlushMaxChars(llmConfigSettingsComponent.getStreamingFlushMaxCharsField().getNumber());
+        stateService.setConversationMaxAgeDays(llmConfigSettingsComponent.getConversationMaxAgeDaysField().getNumber());
+        stateService.setConversationMaxCount(llmConfigSettingsComponent.getConversationMaxCountField().getNumber());
+        stateService.setConversationMaxSizeMb(llmConfigSettingsComponent.getConversationMaxSizeMbField().getNumber());
 
         stateService.setUseFileInEditor(llmConfigSettingsComponent.getUseFileInEditorCheckBox().isSelected());
     }
@@ -89,8 +123,22 @@ public class LLMConfigSettingsConfigurable implements Configurable {
 
         llmConfigSettingsComponent.getMaxOutputTokensField().setNumber(stateService.getMaxOutputTokens());
         llmConfigSettingsComponent.getChatMemorySizeField().setNumber(stateService.getChatMemorySize());
+        llmConfigSettingsComponent.getChatMemoryTokenBudgetCheckBox().setSelected(stateService.getChatMemoryTokenBudget());
+        llmConfigSettingsComponent.getChatMemoryCompactionCheckBox().setSelected(stateService.getChatMemoryCompaction());
+        llmConfigSettingsComponent.getChatMemoryCompactionThresholdField().setNumber(stateService.getChatMemoryCompactionThreshold());
+        llmConfigSettingsComponent.getChatMemoryCompactionProviderComboBox().setSelectedItem(
+                LLMConfigSettingsComponent.compactionProviderItem(stateService.getChatMemoryCompactionProvider()));
+        llmConfigSettingsComponent.getChatMemoryCompactionModelNameField().setText(stateService.getChatMemoryCompactionModelName());
+        llmConfigSettingsComponent.getProjectContextOncePerConversationCheckBox().setSelected(stateService.getProjectContextOncePerConversation());
+        llmConfigSettingsComponent.getPromptCachingCheckBox().setSelected(stateService.getPromptCaching());
+        llmConfigSettingsComponent.getFileContextDeltasCheckBox().setSelected(stateService.getFileContextDeltas());
         llmConfigSettingsComponent.getTimeoutField().setNumber(stateService.getTimeout());
         llmConfigSettingsComponent.getRetryField().setNumber(stateService.getMaxRetries());
+        llmConfigSettingsComponent.getStreamingFlushIntervalField().setNumber(stateService.getStreamingFlushIntervalMs());
+        llmConfigSettingsComponent.getStreamingFlushMaxCharsField().setNumber(stateService.getStreamingFlushMaxChars());
+        llmConfigSettingsComponent.getConversationMaxAgeDaysField().setNumber(stateService.getConversationMaxAgeDays());
+        llmConfigSettingsComponent.getConversationMaxCountField().setNumber(stateService.getConversationMaxCount());
+        llmConfigSettingsComponent.getConversationMaxSizeMbField().setNumber(stateService.getConversationMaxSizeMb());
 
         llmConfigSettingsComponent.getUseFileInEditorCheckBox().setSelected(stateService.getUseFileInEditor());
     }
@@ -41,12 +41,27 @@ public class RAGSettingsComponent extends AbstractSettingsComponent {
     @Getter
     private final JBCheckBox enableIndexerCheckBox = new JBCheckBox("Enable feature", stateService.getRagEnabled());
 
+    @Getter
+    private final JBCheckBox embeddedStoreCheckBox = new JBCheckBox("Use the in-process vector store instead of Chroma DB", stateService.getIndexerEmbeddedStore());
+
     @Getter
     private final JBIntSpinner portIndexer = new JBIntSpinner(new UINumericRange(stateService.getIndexerPort(), 8000, 9000));
 
     @Getter
     private final JBIntSpinner maxResultsSpinner = new JBIntSpinner(new UINumericRange(stateService.getIndexerMaxResults(), 1, 50));
 
+    @Getter
+    private final JBIntSpinner batchSizeSpinner = new JBIntSpinner(new UINumericRange(stateService.getIndexerBatchSize(), 1, 512));
+
+    @Getter
+    private final JBIntSpinner concurrentBatchesSpinner = new JBIntSpinner(new UINumericRange(stateService.getIndexerConcurrentBatches(), 1, 16));
+
+    @Getter
+    private final JBCheckBox backgroundIndexingCheckBox = new JBCheckBox("Keep the index up to date in the background", stateService.getIndexerBackgroundEnabled());
+
+    @Getter
+    private final JBIntSpinner backgroundFilesPerMinuteSpinner = new JBIntSpinner(new UINumericRange(stateService.getIndexerBackgroundFilesPerMinute(), 1, 1000));
+
     @Getter
     private final JSpinner minScoreField = new JSpinner(new SpinnerNumberModel(stateService.getIndexerMinScore().doubleValue(), 0.0d, 1.0d, 0.01d));
 
@@ -82,6 +97,8 @@ public class RAGSettingsComponent extends AbstractSettingsComponent {
     @Override
     public void addListeners() {
         startIndexButton.addActionListener(e -> startIndexing());
+        embeddedStoreCheckBox.addActionListener(e ->
+                portIndexer.setEnabled(enableIndexerCheckBox.isSelected() && !embeddedStoreCheckBox.isSelected()));
         enableIndexerCheckBox.addActionListener(e -> {
             updateComponentsEnabled();
             if (enableIndexerCheckBox.isSelected()) {
@@ -173,11 +190,19 @@ public class RAGSettingsComponent extends AbstractSettingsComponent {
 
     private void addRAGSettingsSection(JPanel panel, GridBagConstraints gbc) {
         addSection(panel, gbc, RAG_SETTINGS_SECTION_TITLE);
+        addSettingRow(panel, gbc, "Vector store", embeddedStoreCheckBox);
+        addSettingRow(panel, gbc, "The in-process store keeps the vectors in a local file and does not need Docker.");
         addSettingRow(panel, gbc, "Chroma DB port", portIndexer);
         addSettingRow(panel, gbc, "Minimum score", minScoreField);
         addSettingRow(panel, gbc, "Set the minimum score threshold for semantic search results. A lower value will include more results.");
         addSettingRow(panel, gbc, "Maximum results", maxResultsSpinner);
         addSettingRow(panel, gbc, "How many results do you want to include in prompt window context?");
+        addSettingRow(panel, gbc, "Embedding batch size", batchSizeSpinner);
+        addSettingRow(panel, gbc, "Concurrent batches", concurrentBatchesSpinner);
+        addSettingRow(panel, gbc, "Number of segments embedded and stored per request, and how many requests are sent in parallel while indexing.");
+        addSettingRow(panel, gbc, "Background indexing", backgroundIndexingCheckBox);
+        addSettingRow(panel, gbc, "Background files per minute", backgroundFilesPerMinuteSpinner);
+        addSettingRow(panel, gbc, "Changed files of an indexed project are re-indexed in the background, at most this many files per minute.");
     }
 
     private void addIndexedProjectsSection(JPanel panel, GridBagConstraints gbc) {
@@ -355,6 +380,13 @@ public class RAGSettingsComponent extends AbstractSettingsComponent {
         return null;
     }
 
+    /**
+     * Validate the required services again, for example after the vector store was changed.
+     */
+    public void refreshValidation() {
+        validationHandler.performValidation();
+    }
+
     public void updateValidationStatus() {
         updateStartIndexButtonVisibility();
         updateActionButtonState();
@@ -376,9 +408,14 @@ public class RAGSettingsComponent extends AbstractSettingsComponent {
      */
     private void updateComponentsEnabled() {
         boolean enabled = enableIndexerCheckBox.isSelected();
-        portIndexer.setEnabled(enabled);
+        embeddedStoreCheckBox.setEnabled(enabled);
+        portIndexer.setEnabled(enabled && !embeddedStoreCheckBox.isSelected());
         maxResultsSpinner.setEnabled(enabled);
         minScoreField.setEnabled(enabled);
+        batchSizeSpinner.setEnabled(enabled);
+        concurrentBatchesSpinner.setEnabled(enabled);
+        backgroundIndexingCheckBox.setEnabled(enabled);
+        backgroundFilesPerMinuteSpinner.setEnabled(enabled);
         actionButton.setEnabled(enabled);
         collectionsTable.setEnabled(enabled);
     }
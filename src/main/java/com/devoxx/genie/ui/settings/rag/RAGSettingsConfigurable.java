@@ -51,9 +51,14 @@ public class RAGSettingsConfigurable implements Configurable {
         DevoxxGenieStateService stateService = DevoxxGenieStateService.getInstance();
         boolean isModified = false;
         isModified |= ragSettingsComponent.getEnableIndexerCheckBox().isSelected() != stateService.getRagEnabled();
+        isModified |= ragSettingsComponent.getEmbeddedStoreCheckBox().isSelected() != stateService.getIndexerEmbeddedStore();
         isModified |= ragSettingsComponent.getPortIndexer().getNumber() != stateService.getIndexerPort();
         isModified |= ragSettingsComponent.getMaxResultsSpinner().getNumber() != stateService.getIndexerMaxResults();
         isModified |= ragSettingsComponent.getMinScoreField().getValue() != stateService.getIndexerMinScore();
+        isModified |= ragSettingsComponent.getBatchSizeSpinner().getNumber() != stateService.getIndexerBatchSize();
+        isModified |= ragSettingsComponent.getConcurrentBatchesSpinner().getNumber() != stateService.getIndexerConcurrentBatches();
+        isModified |= ragSettingsComponent.getBackgroundIndexingCheckBox().isSelected() != stateService.getIndexerBackgroundEnabled();
+        isModified |= ragSettingsComponent.getBackgroundFilesPerMinuteSpinner().getNumber() != stateService.getIndexerBackgroundFilesPerMinute();
 
         return isModified;
     }
@@ -69,9 +74,20 @@ public class RAGSettingsConfigurable implements Configurable {
         boolean newValue = ragSettingsComponent.getEnableIndexerCheckBox().isSelected();
 
         stateService.setRagEnabled(ragSettingsComponent.getEnableIndexerCheckBox().isSelected());
+        boolean storeChanged = ragSettingsComponent.getEmbeddedStoreCheckBox().isSelected() != stateService.getIndexerEmbeddedStore();
+        stateService.setIndexerEmbeddedStore(ragSettingsComponent.getEmbeddedStoreCheckBox().isSelected());
         stateService.setIndexerPort(ragSettingsComponent.getPortIndexer().getNumber());
         stateService.setIndexerMinScore((Double) ragSettingsComponent.getMinScoreField().getValue());
         stateService.setIndexerMaxResults(ragSettingsComponent.getMaxResultsSpinner().getNumber());
+        stateService.setIndexerBatchSize(ragSettingsComponent.getBatchSizeSpinner().getNumber());
+        stateService.setIndexerConcurrentBatches(ragSettingsComponent.getConcurrentBatchesSpinner().getNumber());
+        stateService.setIndexerBackgroundEnabled(ragSettingsComponent.getBackgroundIndexingCheckBox().isSelected());
+        stateService.setIndexerBackgroundFilesPerMinute(ragSettingsComponent.getBackgroundFilesPerMinuteSpinner().getNumber());
+
+        if (storeChanged) {
+            // Docker and Chroma DB are only required by the Chroma DB store
+            ragSettingsComponent.refreshValidation();
+        }
 
         if (oldValue != newValue) {
             project.getMessageBus()
@@ -87,8 +103,13 @@ public class RAGSettingsConfigurable implements Configurable {
     public void reset() {
         DevoxxGenieStateService stateService = DevoxxGenieStateService.getInstance();
         ragSettingsComponent.getEnableIndexerCheckBox().setSelected(stateService.getRagEnabled());
+        ragSettingsComponent.getEmbeddedStoreCheckBox().setSelected(stateService.getIndexerEmbeddedStore());
         ragSettingsComponent.getPortIndexer().setNumber(stateService.getIndexerPort());
         ragSettingsComponent.getMinScoreField().setValue(stateService.getIndexerMinScore());
         ragSettingsComponent.getMaxResultsSpinner().setNumber(stateService.getIndexerMaxResults());
+        ragSettingsComponent.getBatchSizeSpinner().setNumber(stateService.getIndexerBatchSize());
+        ragSettingsComponent.getConcurrentBatchesSpinner().setNumber(stateService.getIndexerConcurrentBatches());
+        ragSettingsComponent.getBackgroundIndexingCheckBox().setSelected(stateService.getIndexerBackgroundEnabled());
+        ragSettingsComponent.getBackgroundFilesPerMinuteSpinner().setNumber(stateService.getIndexerBackgroundFilesPerMinute());
     }
 }
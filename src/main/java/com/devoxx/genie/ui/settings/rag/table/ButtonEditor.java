@@ -2,7 +2,10 @@ package com.devoxx.genie.ui.settings.rag.table;
 
 import com.devoxx.genie.service.chromadb.ChromaDBManager;
 import com.devoxx.genie.service.chromadb.ChromaDockerService;
+import com.devoxx.genie.service.chromadb.ChromaEmbeddingService;
 import com.devoxx.genie.service.chromadb.model.ChromaCollection;
+import com.devoxx.genie.service.rag.IndexManifestService;
+import com.devoxx.genie.service.rag.store.LocalEmbeddingStoreService;
 import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
 import com.devoxx.genie.ui.util.NotificationUtil;
 import com.intellij.openapi.application.ApplicationManager;
@@ -19,6 +22,8 @@ import java.util.List;
 public class ButtonEditor extends DefaultCellEditor {
 
     private static final String DELETE_LABEL = "Delete";
+    // Index manifest names of the in-process store, see ChromaEmbeddingService.getIndexName
+    private static final String EMBEDDED_PREFIX = "embedded/";
 
     private boolean isPushed;
     private final JButton button;
@@ -82,11 +87,21 @@ public class ButtonEditor extends DefaultCellEditor {
 
                 String collectionId = (String) tableModel.getValueAt(row, 0);
                 if (collectionId != null && confirmDeletion(collectionId)) {
-                    // Delete collection first
-                    ChromaDBManager.getInstance(project).deleteCollection(collectionId);
-
-                    // Delete the associated volume data
-                    dockerService.deleteCollectionData(project, collectionId);
+                    if (isEmbeddedStore()) {
+                        // The in-process store of the collection is deleted with its files
+                        LocalEmbeddingStoreService.getInstance().deleteStore(collectionId);
+                        IndexManifestService.getInstance().removeCollection(EMBEDDED_PREFIX + collectionId);
+                    } else {
+                        // Delete collection first
+                        ChromaDBManager.getInstance(project).deleteCollection(collectionId);
+
+                        // Delete the associated volume data
+                        dockerService.deleteCollectionData(project, collectionId);
+
+                        // Forget which files were indexed in it
+                        IndexManifestService.getInstance().removeCollection(collectionId);
+                    }
+                    ChromaEmbeddingService.getInstance().evictEmbeddingStore(collectionId);
 
                     // Then reload table data
                     safeLoadCollections();
@@ -99,6 +114,10 @@ public class ButtonEditor extends DefaultCellEditor {
         return DELETE_LABEL;
     }
 
+    private static boolean isEmbeddedStore() {
+        return Boolean.TRUE.equals(DevoxxGenieStateService.getInstance().getIndexerEmbeddedStore());
+    }
+
     @Override
     public boolean stopCellEditing() {
         isPushed = false;
@@ -118,6 +137,19 @@ public class ButtonEditor extends DefaultCellEditor {
                     return;
                 }
 
+                if (isEmbeddedStore()) {
+                    LocalEmbeddingStoreService localStoreService = LocalEmbeddingStoreService.getInstance();
+                    for (String collection : localStoreService.getCollections()) {
+                        tableModel.addRow(new Object[]{
+                                collection,
+                                localStoreService.countEntries(collection),
+                                DELETE_LABEL
+                        });
+                    }
+                    tableModel.fireTableDataChanged();
+                    return;
+                }
+
                 // Load collections
                 List<ChromaCollection> collections = ChromaDBManager.getInstance(project).listCollections();
 
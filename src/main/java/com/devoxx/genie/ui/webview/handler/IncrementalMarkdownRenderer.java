@@ -0,0 +1,142 @@
+package com.devoxx.genie.ui.webview.handler;
+
+import com.devoxx.genie.ui.util.CodeLanguageUtil;
+import org.commonmark.node.FencedCodeBlock;
+import org.commonmark.node.IndentedCodeBlock;
+import org.commonmark.node.Node;
+import org.commonmark.node.SourceSpan;
+import org.commonmark.parser.IncludeSourceSpans;
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.html.HtmlRenderer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Renders a growing markdown text (a streamed AI response) incrementally.
+ * <p>
+ * Top-level blocks that are followed by another block can no longer change when more text is
+ * appended, so they are rendered exactly once and reported as "append" HTML. Only the trailing
+ * (still open) block is re-parsed and re-rendered on each update. Parsing always starts at the
+ * beginning of the open block, so the cost of an update is proportional to the size of that block
+ * instead of the size of the whole response.
+ * <p>
+ * Limitation: because closed blocks are not re-parsed, link reference definitions only apply to
+ * the blocks parsed in the same pass. AI responses practically never use them.
+ */
+public class IncrementalMarkdownRenderer {
+
+    private final Parser parser = Parser.builder()
+            .includeSourceSpans(IncludeSourceSpans.BLOCKS)
+            .build();
+    private final HtmlRenderer htmlRenderer = HtmlRenderer.builder().escapeHtml(true).build();
+    private final UnaryOperator<String> htmlEscaper;
+
+    // The text of the last update and the offset up to which all blocks have been committed
+    private String lastText = "";
+    private int committedOffset = 0;
+
+    /**
+     * Result of one incremental render step.
+     *
+     * @param reset      true if previously rendered content must be discarded before applying this patch
+     * @param appendHtml HTML for blocks that were closed since the last update, to be appended once
+     * @param openHtml   HTML for the trailing open block, replacing the previously rendered open block
+     */
+    public record Patch(boolean reset, @NotNull String appendHtml, @NotNull String openHtml) {
+    }
+
+    public IncrementalMarkdownRenderer(@NotNull UnaryOperator<String> htmlEscaper) {
+        this.htmlEscaper = htmlEscaper;
+    }
+
+    /**
+     * Compute the patch needed to bring the rendered output up to date with the given text.
+     * If the text is not a continuation of the previously rendered text, everything is re-rendered
+     * and the patch is flagged as a reset.
+     *
+     * @param text the full markdown text received so far
+     * @return the patch to apply
+     */
+    public @NotNull Patch update(@NotNull String text) {
+        boolean reset = !isContinuation(text);
+        if (reset) {
+            committedOffset = 0;
+        }
+        lastText = text;
+
+        String tail = text.substring(committedOffset);
+        Node document = parser.parse(tail);
+
+        StringBuilder appendHtml = new StringBuilder();
+        Node node = document.getFirstChild();
+        while (node != null && node.getNext() != null) {
+            appendHtml.append(renderBlock(node));
+            node = node.getNext();
+        }
+
+        String openHtml = "";
+        if (node != null) {
+            // Everything before the open block is now final
+            committedOffset += lineStartOffset(node, tail.length());
+            openHtml = renderBlock(node);
+        }
+
+        return new Patch(reset, appendHtml.toString(), openHtml);
+    }
+
+    /**
+     * Render a complete markdown document in one pass, without keeping any incremental state.
+     *
+     * @param text the markdown text
+     * @return the rendered HTML
+     */
+    public @NotNull String renderAll(@NotNull String text) {
+        StringBuilder html = new StringBuilder();
+        Node node = parser.parse(text).getFirstChild();
+        while (node != null) {
+            html.append(renderBlock(node));
+            node = node.getNext();
+        }
+        return html.toString();
+    }
+
+    /**
+     * Forget all incremental state so the next update renders from scratch.
+     */
+    public void reset() {
+        lastText = "";
+        committedOffset = 0;
+    }
+
+    private boolean isContinuation(@NotNull String text) {
+        return text.length() >= lastText.length()
+                && committedOffset <= lastText.length()
+                && text.regionMatches(0, lastText, 0, committedOffset);
+    }
+
+    private static int lineStartOffset(@NotNull Node node, int fallback) {
+        List<SourceSpan> spans = node.getSourceSpans();
+        if (spans == null || spans.isEmpty()) {
+            return fallback;
+        }
+        SourceSpan first = spans.get(0);
+        return Math.max(0, first.getInputIndex() - first.getColumnIndex());
+    }
+
+    private @NotNull String renderBlock(@NotNull Node node) {
+        if (node instanceof FencedCodeBlock fencedCodeBlock) {
+            return "<pre><code class=\"language-" +
+                    CodeLanguageUtil.mapLanguageToPrism(fencedCodeBlock.getInfo()) +
+                    "\">" +
+                    htmlEscaper.apply(fencedCodeBlock.getLiteral()) +
+                    "</code></pre>\n";
+        } else if (node instanceof IndentedCodeBlock indentedCodeBlock) {
+            return "<pre><code class=\"language-plaintext\">" +
+                    htmlEscaper.apply(indentedCodeBlock.getLiteral()) +
+                    "</code></pre>\n";
+        }
+        return htmlRenderer.render(node);
+    }
+}
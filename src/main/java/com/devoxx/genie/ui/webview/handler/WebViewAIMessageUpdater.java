@@ -1,12 +1,9 @@
 package com.devoxx.genie.ui.webview.handler;
 
 import com.devoxx.genie.model.request.ChatMessageContext;
-import com.devoxx.genie.ui.util.CodeLanguageUtil;
 import com.devoxx.genie.util.ThreadUtils;
 import com.intellij.openapi.application.ApplicationManager;
 import lombok.extern.slf4j.Slf4j;
-import org.commonmark.node.FencedCodeBlock;
-import org.commonmark.node.IndentedCodeBlock;
 import org.commonmark.node.Node;
 import org.commonmark.parser.Parser;
 import org.commonmark.renderer.html.HtmlRenderer;
@@ -25,10 +22,15 @@ public class WebViewAIMessageUpdater {
 
     private final WebViewJavaScriptExecutor jsExecutor;
     private final AtomicBoolean initialized;
+    private final IncrementalMarkdownRenderer markdownRenderer;
+
+    // The message currently being streamed, the renderer keeps incremental state for it only
+    private String streamingMessageId;
     
     public WebViewAIMessageUpdater(WebViewJavaScriptExecutor jsExecutor, AtomicBoolean initialized) {
         this.jsExecutor = jsExecutor;
         this.initialized = initialized;
+        this.markdownRenderer = new IncrementalMarkdownRenderer(jsExecutor::escapeHtml);
     }
     
     /**
@@ -59,21 +61,26 @@ public class WebViewAIMessageUpdater {
     
     /**
      * Performs the actual update of just the AI response content.
-     * 
+     * Only the markdown blocks that changed since the previous update are rendered and sent
+     * to the browser, which patches them into the existing assistant message.
+     *
      * @param chatMessageContext The chat message context
      */
     private void doUpdateAiMessageContent(@NotNull ChatMessageContext chatMessageContext) {
         String messageId = chatMessageContext.getId();
-        
-        // Parse and render the markdown content
-        Parser markdownParser = Parser.builder().build();
-        HtmlRenderer htmlRenderer = HtmlRenderer.builder().escapeHtml(true).build();
-        
         String aiMessageText = chatMessageContext.getAiMessage() == null ? "" : chatMessageContext.getAiMessage().text();
-        Node document = markdownParser.parse(aiMessageText);
-        
-        StringBuilder contentHtml = new StringBuilder();
-        
+
+        IncrementalMarkdownRenderer.Patch patch;
+        boolean newMessage;
+        synchronized (this) {
+            newMessage = !messageId.equals(streamingMessageId);
+            if (newMessage) {
+                streamingMessageId = messageId;
+                markdownRenderer.reset();
+            }
+            patch = markdownRenderer.update(aiMessageText == null ? "" : aiMessageText);
+        }
+
         // Format metadata information
         LocalDateTime dateTime = LocalDateTime.now();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("d MMMM ''yy HH:mm");
@@ -83,64 +90,27 @@ public class WebViewAIMessageUpdater {
         if (chatMessageContext.getLanguageModel() != null) {
             modelName = chatMessageContext.getLanguageModel().getModelName();
         }
-        
-        // Add metadata div
-        contentHtml.append("<div class=\"metadata-info\">")
-                .append(timestamp)
-                .append(" · ")
-                .append(modelName)
-                .append(String.format(" · ϟ %.2fs", chatMessageContext.getExecutionTimeMs() / 1000.0)
-                        // Add metadata div
-                )
-                .append("</div>")
-                .append("<button class=\"copy-response-button\" onclick=\"copyMessageResponse(this)\"><img src=\"/icons/copy.svg\" alt=\"Copy\" class=\"copy-icon\"></button>");
-        
-        // Add content
-        Node node = document.getFirstChild();
-        while (node != null) {
-            if (node instanceof FencedCodeBlock fencedCodeBlock) {
-                String code = fencedCodeBlock.getLiteral();
-                String language = fencedCodeBlock.getInfo();
-                contentHtml.append("<pre><code class=\"language-")
-                        .append(CodeLanguageUtil.mapLanguageToPrism(language))
-                        .append("\">")
-                        .append(jsExecutor.escapeHtml(code))
-                        .append("</code></pre>\n");
-            } else if (node instanceof IndentedCodeBlock indentedCodeBlock) {
-                String code = indentedCodeBlock.getLiteral();
-                contentHtml.append("<pre><code class=\"language-plaintext\">")
-                        .append(jsExecutor.escapeHtml(code))
-                        .append("</code></pre>\n");
-            } else {
-                contentHtml.append(htmlRenderer.render(node));
-            }
-            node = node.getNext();
-        }
-        
-        // JavaScript to update just the assistant message content
+
+        String headerHtml = "<div class=\"metadata-info\">" +
+                timestamp +
+                " · " +
+                modelName +
+                String.format(" · ϟ %.2fs", chatMessageContext.getExecutionTimeMs() / 1000.0) +
+                "</div>" +
+                "<button class=\"copy-response-button\" onclick=\"copyMessageResponse(this)\"><img src=\"/icons/copy.svg\" alt=\"Copy\" class=\"copy-icon\"></button>";
+
+        // JavaScript to patch just the changed blocks of the assistant message
         String js = "try {" +
-                "  const thinkingText = document.getElementById('loading-" + jsExecutor.escapeJS(messageId) + "');" +
-                "  if (thinkingText) thinkingText.style.display = 'none';" +
-                "  const messagePair = document.getElementById('" + jsExecutor.escapeJS(messageId) + "');" +
-                   "  if (messagePair) {" +
-                   "    const assistantMessage = messagePair.querySelector('.assistant-message');" +
-                   "    if (assistantMessage) {" +
-                   "      const loadingIndicator = assistantMessage.querySelector('.loading-indicator');" +
-                   "      const loadingIndicatorHtml = loadingIndicator ? loadingIndicator.outerHTML : '';" +
-                   "      assistantMessage.innerHTML = `" + jsExecutor.escapeJS(contentHtml.toString()) + "` + loadingIndicatorHtml;" +
-                   "      window.scrollTo(0, document.body.scrollHeight);" +
-                   "      if (typeof highlightCodeBlocks === 'function') { highlightCodeBlocks(); }" +
-                   "    } else {" +
-                   "      console.error('Assistant message element not found in message pair');" +
-                   "    }" +
-                   "  } else {" +
-                   "    console.error('Message pair not found: " + jsExecutor.escapeJS(messageId) + "');" +
-                   "  }" +
-                   "} catch (error) {" +
-                   "  console.error('Error updating AI message:', error);" +
-                   "}";
+                "  patchAssistantMessage('" + jsExecutor.escapeJS(messageId) + "', " +
+                (patch.reset() || newMessage) + ", " +
+                "`" + jsExecutor.escapeJS(headerHtml) + "`, " +
+                "`" + jsExecutor.escapeJS(patch.appendHtml()) + "`, " +
+                "`" + jsExecutor.escapeJS(patch.openHtml()) + "`);" +
+                "} catch (error) {" +
+                "  console.error('Error updating AI message:', error);" +
+                "}";
 
-        log.info("Executing JavaScript to update AI message");
+        log.debug("Executing JavaScript to patch AI message");
         jsExecutor.executeJavaScript(js);
     }
 
@@ -4,6 +4,7 @@ import com.devoxx.genie.model.enumarations.ModelProvider;
 import com.devoxx.genie.model.request.ChatMessageContext;
 import com.devoxx.genie.service.ProjectContentService;
 import com.devoxx.genie.util.DefaultLLMSettingsUtil;
+import com.devoxx.genie.util.TokenUsageUtil;
 import com.devoxx.genie.ui.webview.WebServer;
 import com.knuddels.jtokkit.api.Encoding;
 import dev.langchain4j.model.output.TokenUsage;
@@ -115,10 +116,22 @@ public class ChatMessageTemplate extends HtmlTemplate {
             
             // Format token counts with locale-specific number formatting
             NumberFormat numberFormat = NumberFormat.getNumberInstance(Locale.getDefault());
-            String formattedInputTokens = numberFormat.format(tokenUsage.inputTokenCount());
+            String formattedInputTokens = numberFormat.format(TokenUsageUtil.inputTokens(tokenUsage));
             String formattedOutputTokens = numberFormat.format(tokenUsage.outputTokenCount());
-            
-            metricInfo.append(String.format(" · Tokens ↑ %s ↓ %s", formattedInputTokens, formattedOutputTokens));
+
+            // Input tokens read from the prompt cache of the provider, they are cheaper and faster
+            int cachedInputTokens = TokenUsageUtil.cachedInputTokens(tokenUsage);
+            if (cachedInputTokens > 0) {
+                metricInfo.append(String.format(" · Tokens ↑ %s (%s cached) ↓ %s",
+                        formattedInputTokens, numberFormat.format(cachedInputTokens), formattedOutputTokens));
+            } else {
+                metricInfo.append(String.format(" · Tokens ↑ %s ↓ %s", formattedInputTokens, formattedOutputTokens));
+            }
+
+            // Tokens of attached files which were not sent again because they did not change
+            if (chatMessageContext.getFilesContextTokensSaved() > 0) {
+                metricInfo.append(String.format(" (%s saved)", numberFormat.format(chatMessageContext.getFilesContextTokensSaved())));
+            }
             
             // Add cost information if applicable for API-based services
             if (DefaultLLMSettingsUtil.isApiKeyBasedProvider(
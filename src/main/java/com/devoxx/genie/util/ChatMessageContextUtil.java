@@ -78,6 +78,7 @@ public class ChatMessageContextUtil {
         if (projectContext != null && isProjectContextAdded) {
             // If the full project is added as context, set it and ignore any attached files
             chatMessageContext.setFilesContext(projectContext);
+            chatMessageContext.setProjectContextAdded(true);
         } else {
             // We don't include separate added files to the context if the full project is already included
             processAttachedFiles(chatMessageContext);
@@ -107,7 +108,7 @@ public class ChatMessageContextUtil {
             try {
                 String newContext = MessageCreationService
                         .getInstance()
-                        .createAttachedFilesContext(chatMessageContext.getProject(), files);
+                        .createAttachedFilesContext(chatMessageContext, files);
 
                 chatMessageContext.setFilesContext(newContext);
             } catch (Exception ex) {
@@ -0,0 +1,51 @@
+package com.devoxx.genie.util;
+
+import dev.langchain4j.model.anthropic.AnthropicTokenUsage;
+import dev.langchain4j.model.openai.OpenAiTokenUsage;
+import dev.langchain4j.model.output.TokenUsage;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads the provider specific details of the token usage of a response.
+ */
+public class TokenUsageUtil {
+
+    private TokenUsageUtil() {
+    }
+
+    /**
+     * Anthropic counts the input tokens read from or written to its prompt cache separately, OpenAI includes them.
+     *
+     * @param tokenUsage the token usage of a response
+     * @return all input tokens of the request
+     */
+    public static int inputTokens(@Nullable TokenUsage tokenUsage) {
+        if (tokenUsage == null) {
+            return 0;
+        }
+        int inputTokens = valueOf(tokenUsage.inputTokenCount());
+        if (tokenUsage instanceof AnthropicTokenUsage anthropicTokenUsage) {
+            inputTokens += valueOf(anthropicTokenUsage.cacheCreationInputTokens())
+                    + valueOf(anthropicTokenUsage.cacheReadInputTokens());
+        }
+        return inputTokens;
+    }
+
+    /**
+     * @param tokenUsage the token usage of a response
+     * @return the input tokens read from the prompt cache of the provider, 0 when unknown
+     */
+    public static int cachedInputTokens(@Nullable TokenUsage tokenUsage) {
+        if (tokenUsage instanceof AnthropicTokenUsage anthropicTokenUsage) {
+            return valueOf(anthropicTokenUsage.cacheReadInputTokens());
+        }
+        if (tokenUsage instanceof OpenAiTokenUsage openAiTokenUsage && openAiTokenUsage.inputTokensDetails() != null) {
+            return valueOf(openAiTokenUsage.inputTokensDetails().cachedTokens());
+        }
+        return 0;
+    }
+
+    private static int valueOf(@Nullable Integer count) {
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,85 @@
+package com.devoxx.genie.util;
+
+import com.intellij.util.diff.Diff;
+import com.intellij.util.diff.FilesTooBigForDiffException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Builds the unified diff of two versions of a text file.
+ */
+public class UnifiedDiffUtil {
+
+    static final int CONTEXT_LINES = 3;
+
+    private UnifiedDiffUtil() {
+    }
+
+    /**
+     * @param path   the path of the file, used in the diff header
+     * @param before the previous content
+     * @param after  the new content
+     * @return the unified diff, empty when the contents are equal, null when the file is too big to compare
+     */
+    public static @Nullable String unifiedDiff(@NotNull String path, @NotNull String before, @NotNull String after) {
+        String[] beforeLines = before.split("\n", -1);
+        String[] afterLines = after.split("\n", -1);
+
+        Diff.Change change;
+        try {
+            change = Diff.buildChanges(beforeLines, afterLines);
+        } catch (FilesTooBigForDiffException e) {
+            return null;
+        }
+        if (change == null) {
+            return "";
+        }
+
+        StringBuilder diff = new StringBuilder()
+                .append("--- a/").append(path).append("\n")
+                .append("+++ b/").append(path).append("\n");
+
+        int previousEnd = 0;
+        while (change != null) {
+            // Changes with at most twice the context lines in between share a hunk
+            Diff.Change last = change;
+            while (last.link != null && last.link.line0 - (last.line0 + last.deleted) <= 2 * CONTEXT_LINES) {
+                last = last.link;
+            }
+
+            int leading = Math.min(CONTEXT_LINES, change.line0 - previousEnd);
+            int start0 = change.line0 - leading;
+            int start1 = change.line1 - leading;
+            int end0 = Math.min(beforeLines.length, last.line0 + last.deleted + CONTEXT_LINES);
+            int trailing = end0 - (last.line0 + last.deleted);
+            int end1 = last.line1 + last.inserted + trailing;
+
+            diff.append("@@ -").append(range(start0, end0 - start0))
+                    .append(" +").append(range(start1, end1 - start1)).append(" @@\n");
+
+            int line0 = start0;
+            for (Diff.Change hunkChange = change; hunkChange != last.link; hunkChange = hunkChange.link) {
+                appendLines(diff, ' ', beforeLines, line0, hunkChange.line0);
+                appendLines(diff, '-', beforeLines, hunkChange.line0, hunkChange.line0 + hunkChange.deleted);
+                appendLines(diff, '+', afterLines, hunkChange.line1, hunkChange.line1 + hunkChange.inserted);
+                line0 = hunkChange.line0 + hunkChange.deleted;
+            }
+            appendLines(diff, ' ', beforeLines, line0, end0);
+
+            previousEnd = end0;
+            change = last.link;
+        }
+        return diff.toString();
+    }
+
+    private static @NotNull String range(int start, int length) {
+        // An empty range refers to the line before it
+        return length == 0 ? start + ",0" : (start + 1) + "," + length;
+    }
+
+    private static void appendLines(@NotNull StringBuilder diff, char prefix, String @NotNull [] lines, int from, int to) {
+        for (int i = from; i < to; i++) {
+            diff.append(prefix).append(lines[i]).append("\n");
+        }
+    }
+}
@@ -123,60 +123,138 @@ function highlightCodeBlocks() {
     if (typeof Prism !== 'undefined') {
         Prism.highlightAll();
         // Add copy buttons to code blocks
-        document.querySelectorAll('pre:not(.processed)').forEach(function(block) {
-            // Mark the block as processed to avoid adding buttons multiple times
-            block.classList.add('processed');
-            var button = document.createElement('button');
-            button.className = 'copy-button';
-            const copyIcon = document.createElement('img');
-            copyIcon.src = '../icons/copy.svg';
-            copyIcon.alt = 'Copy';
-            copyIcon.className = 'copy-icon';
-            button.appendChild(copyIcon);
-            var container = document.createElement('div');
-            container.className = 'toolbar-container';
-            container.appendChild(button);
-            block.appendChild(container);
-            button.addEventListener('click', function() {
-                var code = block.querySelector('code');
-                var text = code.textContent;
-                
-                // Get language class if available
-                var language = '';
-                if (code.className) {
-                    var match = code.className.match(/language-(\w+)/);
-                    if (match) {
-                        language = match[1];
-                    }
-                }
-                
-                // Format as markdown code block
-                var markdownText = '```' + language + '\n' + text + '\n```';
-                
-                navigator.clipboard.writeText(markdownText).then(function() {
-                    // Store the original icon
-                    const originalIcon = button.innerHTML;
-                    button.innerHTML = 'Copied!';
-                    setTimeout(function() {
-                        // Restore the icon
-                        button.innerHTML = originalIcon;
-                    }, 2000);
-                }).catch(function(err) {
-                    console.error('Failed to copy: ', err);
-                    button.innerHTML = 'Error!';
-                    setTimeout(function() {
-                        // Restore the icon
-                        const copyIcon = document.createElement('img');
-                        copyIcon.src = '../icons/copy.svg';
-                        copyIcon.alt = 'Copy';
-                        copyIcon.className = 'copy-icon';
-                        button.innerHTML = '';
-                        button.appendChild(copyIcon);
-                    }, 2000);
-                });
-            });
+        document.querySelectorAll('pre:not(.processed)').forEach(addCodeBlockToolbar);
+    }
+}
+
+// Highlight and add copy buttons only to the code blocks inside the given nodes
+function highlightCodeBlocksIn(nodes) {
+    if (typeof Prism === 'undefined') {
+        return;
+    }
+    nodes.forEach(function(node) {
+        if (node.nodeType !== Node.ELEMENT_NODE) {
+            return;
+        }
+        const blocks = node.matches('pre') ? [node] : Array.from(node.querySelectorAll('pre'));
+        blocks.forEach(function(block) {
+            const code = block.querySelector('code');
+            if (code) {
+                Prism.highlightElement(code);
+            }
+            if (!block.classList.contains('processed')) {
+                addCodeBlockToolbar(block);
+            }
         });
+    });
+}
+
+function addCodeBlockToolbar(block) {
+    // Mark the block as processed to avoid adding buttons multiple times
+    block.classList.add('processed');
+    var button = document.createElement('button');
+    button.className = 'copy-button';
+    const copyIcon = document.createElement('img');
+    copyIcon.src = '../icons/copy.svg';
+    copyIcon.alt = 'Copy';
+    copyIcon.className = 'copy-icon';
+    button.appendChild(copyIcon);
+    var container = document.createElement('div');
+    container.className = 'toolbar-container';
+    container.appendChild(button);
+    block.appendChild(container);
+    button.addEventListener('click', function() {
+        var code = block.querySelector('code');
+        var text = code.textContent;
+        
+        // Get language class if available
+        var language = '';
+        if (code.className) {
+            var match = code.className.match(/language-(\w+)/);
+            if (match) {
+                language = match[1];
+            }
+        }
+        
+        // Format as markdown code block
+        var markdownText = '```' + language + '\n' + text + '\n```';
+        
+        navigator.clipboard.writeText(markdownText).then(function() {
+            // Store the original icon
+            const originalIcon = button.innerHTML;
+            button.innerHTML = 'Copied!';
+            setTimeout(function() {
+                // Restore the icon
+                button.innerHTML = originalIcon;
+            }, 2000);
+        }).catch(function(err) {
+            console.error('Failed to copy: ', err);
+            button.innerHTML = 'Error!';
+            setTimeout(function() {
+                // Restore the icon
+                const copyIcon = document.createElement('img');
+                copyIcon.src = '../icons/copy.svg';
+                copyIcon.alt = 'Copy';
+                copyIcon.className = 'copy-icon';
+                button.innerHTML = '';
+                button.appendChild(copyIcon);
+            }, 2000);
+        });
+    });
+}
+
+// Convert an HTML string into a list of DOM nodes
+function htmlToNodes(html) {
+    const template = document.createElement('template');
+    template.innerHTML = html;
+    return Array.from(template.content.childNodes);
+}
+
+/**
+ * Apply an incremental update to a streamed assistant message.
+ * Closed blocks are appended once, the trailing open block replaces the previous open block,
+ * and only the inserted nodes are syntax highlighted.
+ */
+function patchAssistantMessage(messageId, reset, headerHtml, appendHtml, openHtml) {
+    const thinkingText = document.getElementById('loading-' + messageId);
+    if (thinkingText) thinkingText.style.display = 'none';
+
+    const messagePair = document.getElementById(messageId);
+    if (!messagePair) {
+        console.error('Message pair not found: ' + messageId);
+        return;
+    }
+    const assistantMessage = messagePair.querySelector('.assistant-message');
+    if (!assistantMessage) {
+        console.error('Assistant message element not found in message pair');
+        return;
+    }
+
+    const loadingIndicator = assistantMessage.querySelector('.loading-indicator');
+    if (reset || !assistantMessage.streamedOpenNodes) {
+        assistantMessage.innerHTML = headerHtml;
+        if (loadingIndicator) assistantMessage.appendChild(loadingIndicator);
+        assistantMessage.streamedOpenNodes = [];
+    } else {
+        const metadata = assistantMessage.querySelector('.metadata-info');
+        const newMetadata = htmlToNodes(headerHtml).find(function(node) {
+            return node.nodeType === Node.ELEMENT_NODE && node.classList.contains('metadata-info');
+        });
+        if (metadata && newMetadata) metadata.replaceWith(newMetadata);
     }
+
+    assistantMessage.streamedOpenNodes.forEach(function(node) { node.remove(); });
+    const anchor = loadingIndicator && loadingIndicator.parentNode === assistantMessage ? loadingIndicator : null;
+
+    const appendedNodes = htmlToNodes(appendHtml);
+    const openNodes = htmlToNodes(openHtml);
+    appendedNodes.concat(openNodes).forEach(function(node) {
+        assistantMessage.insertBefore(node, anchor);
+    });
+    assistantMessage.streamedOpenNodes = openNodes;
+
+    highlightCodeBlocksIn(appendedNodes.concat(openNodes));
+    window.scrollTo(0, document.body.scrollHeight);
 }
 // Add copy buttons to user messages that don't have them
 function addCopyButtonsToUserMessages() {
@@ -0,0 +1,57 @@
+package com.devoxx.genie.chatmodel;
+
+import com.devoxx.genie.model.ChatModel;
+import com.devoxx.genie.model.enumarations.ModelProvider;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ChatModelCacheTest {
+
+    @Test
+    void reusesTheModelBuiltForTheSameSettings() {
+        ChatModelCache cache = new ChatModelCache();
+        ChatLanguageModel model = mock(ChatLanguageModel.class);
+
+        ChatLanguageModel first = cache.getChatModel(fingerprint("gpt-4o", "key"), () -> model);
+        ChatLanguageModel second = cache.getChatModel(fingerprint("gpt-4o", "key"), () -> mock(ChatLanguageModel.class));
+
+        assertThat(first).isSameAs(model);
+        assertThat(second).isSameAs(model);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void buildsANewModelWhenTheSettingsDiffer() {
+        ChatModelCache cache = new ChatModelCache();
+        ChatLanguageModel model = cache.getChatModel(fingerprint("gpt-4o", "key"), () -> mock(ChatLanguageModel.class));
+
+        assertThat(cache.getChatModel(fingerprint("gpt-4o", "other-key"), () -> mock(ChatLanguageModel.class))).isNotSameAs(model);
+        assertThat(cache.getChatModel(fingerprint("gpt-4o-mini", "key"), () -> mock(ChatLanguageModel.class))).isNotSameAs(model);
+        assertThat(cache.getMissCount()).isEqualTo(3);
+    }
+
+    @Test
+    void invalidateDropsAllModels() {
+        ChatModelCache cache = new ChatModelCache();
+        ChatLanguageModel model = cache.getChatModel(fingerprint("gpt-4o", "key"), () -> mock(ChatLanguageModel.class));
+
+        cache.invalidate();
+
+        assertThat(cache.getChatModel(fingerprint("gpt-4o", "key"), () -> mock(ChatLanguageModel.class))).isNotSameAs(model);
+    }
+
+    @Test
+    void fingerprintDoesNotContainTheApiKey() {
+        assertThat(fingerprint("gpt-4o", "secret-key").toString()).doesNotContain("secret-key");
+    }
+
+    private static ChatModelCache.Fingerprint fingerprint(String modelName, String apiKey) {
+        ChatModel chatModel = new ChatModel();
+        chatModel.setModelName(modelName);
+        return ChatModelCache.Fingerprint.of(ModelProvider.OpenAI, chatModel, apiKey, false);
+    }
+}
@@ -0,0 +1,120 @@
+package com.devoxx.genie.service;
+
+import com.intellij.openapi.project.Project;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FileContextDeltaServiceTest {
+
+    private static final String PATH = "/project/src/A.java";
+    private static final String CONTENT = "class A {\n" +
+            IntStream.rangeClosed(1, 20)
+                    .mapToObj(i -> "    int m" + i + "() { return " + i + "; }\n")
+                    .collect(Collectors.joining()) +
+            "}\n";
+
+    private Project project;
+    private FileContextDeltaService service;
+    private List<ChatMessage> conversation;
+
+    @BeforeEach
+    void setUp() {
+        project = mock(Project.class);
+        when(project.getLocationHash()).thenReturn("project-hash");
+        service = new FileContextDeltaService();
+        conversation = new ArrayList<>();
+    }
+
+    @Test
+    void sendsANewFileInFull() {
+        assertThat(service.fileContext(project, PATH, 1, CONTENT, conversation))
+                .isEqualTo("Filename: " + PATH + "\n" + CONTENT + "\n");
+    }
+
+    @Test
+    void sendsNothingForAnUnchangedFile() {
+        send(service.fileContext(project, PATH, 1, CONTENT, conversation));
+
+        assertThat(service.fileContext(project, PATH, 1, CONTENT, conversation)).isNull();
+        assertThat(service.fileContext(project, PATH, 2, CONTENT, conversation)).isNull();
+    }
+
+    @Test
+    void sendsTheDiffOfAChangedFile() {
+        send(service.fileContext(project, PATH, 1, CONTENT, conversation));
+
+        String changed = CONTENT.replace("return 10;", "return 100;");
+        String delta = service.fileContext(project, PATH, 2, changed, conversation);
+
+        assertThat(delta).isEqualTo("""
+                Changes to: /project/src/A.java
+                --- a//project/src/A.java
+                +++ b//project/src/A.java
+                @@ -8,7 +8,7 @@
+                     int m7() { return 7; }
+                     int m8() { return 8; }
+                     int m9() { return 9; }
+                -    int m10() { return 10; }
+                +    int m10() { return 100; }
+                     int m11() { return 11; }
+                     int m12() { return 12; }
+                     int m13() { return 13; }
+                """);
+
+        send(delta);
+        assertThat(service.fileContext(project, PATH, 2, changed, conversation)).isNull();
+    }
+
+    @Test
+    void sendsAFileInFullWhenTheConversationLostIt() {
+        service.fileContext(project, PATH, 1, CONTENT, conversation);
+
+        // The prompt failed, the chat memory does not hold the file
+        assertThat(service.fileContext(project, PATH, 1, CONTENT, conversation)).startsWith("Filename: ");
+    }
+
+    @Test
+    void sendsAFileInFullWhenTheConversationLostTheBaseOfItsDiff() {
+        send(service.fileContext(project, PATH, 1, CONTENT, conversation));
+        String changed = CONTENT.replace("return 10;", "return 100;");
+        send(service.fileContext(project, PATH, 2, changed, conversation));
+
+        // The token budget evicted the turn with the full content, the turn with the diff is kept
+        conversation.remove(0);
+        conversation.remove(0);
+
+        String resent = service.fileContext(project, PATH, 2, changed, conversation);
+        assertThat(resent).isEqualTo("Filename: " + PATH + "\n" + changed + "\n");
+
+        // The resent content is the base of the next diff
+        send(resent);
+        assertThat(service.fileContext(project, PATH, 3, changed.replace("return 11;", "return 110;"), conversation))
+                .startsWith("Changes to: ");
+    }
+
+    @Test
+    void forgetsTheFilesOfAFinishedConversation() {
+        send(service.fileContext(project, PATH, 1, CONTENT, conversation));
+
+        service.clear(project);
+
+        assertThat(service.fileContext(project, PATH, 1, CONTENT, conversation)).startsWith("Filename: ");
+    }
+
+    private void send(String filesContext) {
+        conversation.add(UserMessage.from("<Context>" + filesContext + "</Context>\n<UserPrompt>question</UserPrompt>"));
+        conversation.add(AiMessage.from("answer"));
+    }
+}
@@ -1,9 +1,12 @@
 package com.devoxx.genie.service;
 
 import com.devoxx.genie.model.LanguageModel;
+import com.devoxx.genie.model.enumarations.ModelProvider;
 import com.devoxx.genie.model.request.ChatMessageContext;
 import com.devoxx.genie.model.request.EditorInfo;
 import com.devoxx.genie.model.request.SemanticFile;
+import com.devoxx.genie.service.prompt.memory.ChatMemoryManager;
+import com.devoxx.genie.service.prompt.memory.ChatMemoryService;
 import com.devoxx.genie.service.rag.SearchResult;
 import com.devoxx.genie.service.rag.SemanticSearchService;
 import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
@@ -15,6 +18,7 @@ import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
+import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.UserMessage;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
@@ -121,6 +125,33 @@ class MessageCreationServiceTest {
         }
     }
 
+    @Test
+    void testAddUserMessageToContextWithProjectContextOncePerConversation() {
+        when(mockChatMessageContext.getFilesContext()).thenReturn("Project context content");
+        when(mockChatMessageContext.isProjectContextAdded()).thenReturn(true);
+        ChatMemoryManager mockChatMemoryManager = mock(ChatMemoryManager.class);
+
+        try (MockedStatic<DevoxxGenieStateService> stateServiceMockedStatic = Mockito.mockStatic(DevoxxGenieStateService.class);
+             MockedStatic<ChatMemoryManager> chatMemoryManagerMockedStatic = Mockito.mockStatic(ChatMemoryManager.class);
+             MockedStatic<FileListManager> fileListManagerMockedStatic = Mockito.mockStatic(FileListManager.class)) {
+
+            stateServiceMockedStatic.when(DevoxxGenieStateService::getInstance).thenReturn(mockStateService);
+            chatMemoryManagerMockedStatic.when(ChatMemoryManager::getInstance).thenReturn(mockChatMemoryManager);
+            fileListManagerMockedStatic.when(FileListManager::getInstance).thenReturn(mockFileListManager);
+            when(mockStateService.getProjectContextOncePerConversation()).thenReturn(true);
+            when(mockFileListManager.getImageFiles(any(Project.class))).thenReturn(Collections.emptyList());
+
+            messageCreationService.addUserMessageToContext(mockChatMessageContext);
+
+            // The context is pinned in the chat memory, the prompt is sent without it
+            verify(mockChatMemoryManager).anchorProjectContext(mockChatMessageContext);
+            ArgumentCaptor<UserMessage> messageCaptor = ArgumentCaptor.forClass(UserMessage.class);
+            verify(mockChatMessageContext).setUserMessage(messageCaptor.capture());
+            assertFalse(messageCaptor.getValue().singleText().contains("Project context content"));
+            assertTrue(messageCaptor.getValue().singleText().contains("Test prompt"));
+        }
+    }
+
     @Test
     void testAddUserMessageToContextWithEmptyContext() {
         when(mockChatMessageContext.getFilesContext()).thenReturn(null);
@@ -328,6 +359,7 @@ class MessageCreationServiceTest {
                 runnable.run();
                 return null;
             }).when(mockAppManager).runReadAction(any(Runnable.class));
+            doReturn(mockStateService).when(mockAppManager).getService(DevoxxGenieStateService.class);
 
             when(mockVirtualFile.getFileType()).thenReturn(new com.intellij.openapi.fileTypes.FileType() {
                 @Override
@@ -365,7 +397,7 @@ class MessageCreationServiceTest {
             when(mockFileDocumentManager.getDocument(mockVirtualFile)).thenReturn(mockDocument);
             when(mockDocument.getText()).thenReturn("Test file content");
 
-            String result = messageCreationService.createAttachedFilesContext(mockProject, files);
+            String result = messageCreationService.createAttachedFilesContext(mockChatMessageContext, files);
 
             assertNotNull(result);
             assertTrue(result.contains("Filename: "));
@@ -392,6 +424,7 @@ class MessageCreationServiceTest {
                 runnable.run();
                 return null;
             }).when(mockAppManager).runReadAction(any(Runnable.class));
+            doReturn(mockStateService).when(mockAppManager).getService(DevoxxGenieStateService.class);
 
             when(mockVirtualFile.getFileType()).thenReturn(new com.intellij.openapi.fileTypes.FileType() {
                 @Override
@@ -428,7 +461,7 @@ class MessageCreationServiceTest {
             when(mockVirtualFile.getName()).thenReturn("Unknown.file");
             when(mockVirtualFile.getUserData(SELECTED_TEXT_KEY)).thenReturn("Selected snippet content");
 
-            String result = messageCreationService.createAttachedFilesContext(mockProject, files);
+            String result = messageCreationService.createAttachedFilesContext(mockChatMessageContext, files);
 
             assertNotNull(result);
             assertTrue(result.contains("File: "));
@@ -456,6 +489,7 @@ class MessageCreationServiceTest {
                 runnable.run();
                 return null;
             }).when(mockAppManager).runReadAction(any(Runnable.class));
+            doReturn(mockStateService).when(mockAppManager).getService(DevoxxGenieStateService.class);
 
             when(mockVirtualFile.getFileType()).thenReturn(new com.intellij.openapi.fileTypes.FileType() {
                 @Override
@@ -493,7 +527,7 @@ class MessageCreationServiceTest {
             when(mockFileDocumentManager.getDocument(mockVirtualFile)).thenReturn(null);
             imageUtilMockedStatic.when(() -> ImageUtil.isImageFile(any())).thenReturn(false);
 
-            String result = messageCreationService.createAttachedFilesContext(mockProject, files);
+            String result = messageCreationService.createAttachedFilesContext(mockChatMessageContext, files);
 
             assertNotNull(result);
             // Should be empty as file type is not supported and notification was sent
@@ -502,6 +536,56 @@ class MessageCreationServiceTest {
         }
     }
 
+    @Test
+    void testCreateAttachedFilesContextWithFileContextDeltas() {
+        List<VirtualFile> files = List.of(mockVirtualFile);
+        List<ChatMessage> conversation = new ArrayList<>();
+        String content = "Test file content\n".repeat(20);
+        ChatMemoryService mockChatMemoryService = mock(ChatMemoryService.class);
+
+        try (MockedStatic<FileDocumentManager> fileDocumentManagerMockedStatic = Mockito.mockStatic(FileDocumentManager.class);
+             MockedStatic<ApplicationManager> applicationManagerMockedStatic = Mockito.mockStatic(ApplicationManager.class)) {
+
+            fileDocumentManagerMockedStatic.when(FileDocumentManager::getInstance).thenReturn(mockFileDocumentManager);
+            com.intellij.openapi.application.Application mockAppManager = mock(com.intellij.openapi.application.Application.class);
+            applicationManagerMockedStatic.when(ApplicationManager::getApplication).thenReturn(mockAppManager);
+
+            // Mock runReadAction to immediately execute the runnable
+            doAnswer(invocation -> {
+                Runnable runnable = invocation.getArgument(0);
+                runnable.run();
+                return null;
+            }).when(mockAppManager).runReadAction(any(Runnable.class));
+            doReturn(mockStateService).when(mockAppManager).getService(DevoxxGenieStateService.class);
+            doReturn(new FileContextDeltaService()).when(mockAppManager).getService(FileContextDeltaService.class);
+            doReturn(mockChatMemoryService).when(mockAppManager).getService(ChatMemoryService.class);
+
+            when(mockStateService.getFileContextDeltas()).thenReturn(true);
+            when(mockChatMemoryService.getMessages(mockProject)).thenReturn(conversation);
+            when(mockLanguageModel.getProvider()).thenReturn(ModelProvider.OpenAI);
+            when(mockProject.getLocationHash()).thenReturn("project-hash");
+
+            com.intellij.openapi.fileTypes.FileType javaFileType = mock(com.intellij.openapi.fileTypes.FileType.class);
+            when(javaFileType.getName()).thenReturn("JAVA");
+            when(mockVirtualFile.getFileType()).thenReturn(javaFileType);
+            when(mockVirtualFile.getCanonicalPath()).thenReturn("/tmp/TestFile.java");
+            when(mockFileDocumentManager.getDocument(mockVirtualFile)).thenReturn(mockDocument);
+            when(mockDocument.getText()).thenReturn(content);
+            when(mockDocument.getModificationStamp()).thenReturn(1L);
+
+            String first = messageCreationService.createAttachedFilesContext(mockChatMessageContext, files);
+            assertEquals("Filename: /tmp/TestFile.java\n" + content + "\n", first);
+            verify(mockChatMessageContext).setFilesContextTokensSaved(0);
+
+            // The file was sent with the previous prompt and did not change since
+            conversation.add(UserMessage.from("<Context>" + first + "</Context>\n<UserPrompt>Test prompt</UserPrompt>"));
+            String second = messageCreationService.createAttachedFilesContext(mockChatMessageContext, files);
+
+            assertEquals("Unchanged since they were last sent: /tmp/TestFile.java\n", second);
+            verify(mockChatMessageContext).setFilesContextTokensSaved(intThat(saved -> saved > 0));
+        }
+    }
+
     @Test
     void testExtractFileReferences() {
         Map<String, SearchResult> searchResults = new HashMap<>();
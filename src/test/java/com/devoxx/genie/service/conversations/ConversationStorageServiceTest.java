@@ -0,0 +1,293 @@
+package com.devoxx.genie.service.conversations;
+
+import com.devoxx.genie.model.conversation.ChatMessage;
+import com.devoxx.genie.model.conversation.Conversation;
+import com.devoxx.genie.model.conversation.ConversationSearchResult;
+import com.devoxx.genie.model.conversation.ConversationSummary;
+import com.intellij.openapi.project.Project;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConversationStorageServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path dbFile;
+    private Project project;
+    private ConversationStorageService storageService;
+
+    @BeforeEach
+    void setUp() {
+        dbFile = tempDir.resolve("conversations.db");
+        project = mock(Project.class);
+        when(project.getLocationHash()).thenReturn("project-hash");
+        storageService = new ConversationStorageService(dbFile);
+    }
+
+    @AfterEach
+    void tearDown() {
+        storageService.dispose();
+    }
+
+    @Test
+    void appendsOnlyNewMessages() throws SQLException {
+        Conversation conversation = conversation("1", "first question", "first answer");
+        storageService.addConversation(project, conversation);
+        List<Long> firstIds = messageIds();
+
+        conversation.getMessages().add(new ChatMessage(true, "second question", null));
+        conversation.getMessages().add(new ChatMessage(false, "second answer", null));
+        storageService.addConversation(project, conversation);
+
+        List<Long> ids = messageIds();
+        assertThat(ids).hasSize(4);
+        assertThat(ids.subList(0, 2)).isEqualTo(firstIds);
+        assertThat(contents(storageService.getConversations(project).get(0)))
+                .containsExactly("first question", "first answer", "second question", "second answer");
+    }
+
+    @Test
+    void rewritesMessagesWhenTheyChanged() {
+        storageService.addConversation(project, conversation("1", "question", "answer"));
+
+        storageService.addConversation(project, conversation("1", "other question", "other answer"));
+
+        List<Conversation> conversations = storageService.getConversations(project);
+        assertThat(conversations).hasSize(1);
+        assertThat(contents(conversations.get(0))).containsExactly("other question", "other answer");
+        assertThat(conversations.get(0).getMessages().get(0).isUser()).isTrue();
+        assertThat(conversations.get(0).getMessages().get(1).isUser()).isFalse();
+    }
+
+    @Test
+    void removesAndClearsConversations() {
+        Conversation first = conversation("1", "question", "answer");
+        storageService.addConversation(project, first);
+        storageService.addConversation(project, conversation("2", "question", "answer"));
+        storageService.addConversation(project, conversation("3", "question", "answer"));
+
+        storageService.removeConversation(project, first);
+        assertThat(storageService.getConversations(project))
+                .extracting(Conversation::getId)
+                .containsExactlyInAnyOrder("2", "3");
+
+        storageService.clearAllConversations(project);
+        assertThat(storageService.getConversations(project)).isEmpty();
+    }
+
+    @Test
+    void pagesConversationSummariesNewestFirst() {
+        for (int i = 1; i <= 5; i++) {
+            storageService.addConversation(project, conversation(String.valueOf(i), "question " + i, "answer " + i));
+        }
+        Conversation longest = conversation("5", "question 5", "answer 5");
+        longest.getMessages().add(new ChatMessage(true, "follow up", null));
+        storageService.addConversation(project, longest);
+
+        List<ConversationSummary> firstPage = storageService.getConversationSummaries(project, 0, 2);
+        List<ConversationSummary> lastPage = storageService.getConversationSummaries(project, 4, 2);
+
+        assertThat(firstPage).extracting(ConversationSummary::id).containsExactly("5", "4");
+        assertThat(firstPage.get(0).messageCount()).isEqualTo(3);
+        assertThat(firstPage.get(1).messageCount()).isEqualTo(2);
+        assertThat(lastPage).extracting(ConversationSummary::id).containsExactly("1");
+    }
+
+    @Test
+    void loadsOneConversationWithItsMessages() {
+        storageService.addConversation(project, conversation("1", "question", "answer"));
+        storageService.addConversation(project, conversation("2", "other question", "other answer"));
+
+        Conversation conversation = storageService.getConversation(project, "2");
+
+        assertThat(conversation).isNotNull();
+        assertThat(contents(conversation)).containsExactly("other question", "other answer");
+        assertThat(storageService.getConversation(project, "3")).isNull();
+    }
+
+    @Test
+    void searchesMessagesWithHighlightedSnippets() {
+        storageService.addConversation(project, conversation("1", "How do I sort a list?", "Use Collections.sort on the list"));
+        storageService.addConversation(project, conversation("2", "What is a record?", "A record is a transparent data carrier"));
+        storageService.addConversation(project, conversation("3", "Sorting maps", "Sort the entries by value"));
+
+        List<ConversationSearchResult> results = storageService.searchConversations(project, "transparent carr", 10);
+
+        assertThat(results).extracting(ConversationSearchResult::conversationId).containsExactly("2");
+        assertThat(results.get(0).snippet())
+                .contains(ConversationSearchResult.HIGHLIGHT_START + "transparent" + ConversationSearchResult.HIGHLIGHT_END);
+        assertThat(storageService.searchConversations(project, "sort", 10))
+                .extracting(ConversationSearchResult::conversationId)
+                .containsExactlyInAnyOrder("1", "3");
+    }
+
+    @Test
+    void keepsTheSearchIndexInSyncWithTheMessages() {
+        Conversation conversation = conversation("1", "question about kotlin", "answer");
+        storageService.addConversation(project, conversation);
+
+        storageService.removeConversation(project, conversation);
+
+        assertThat(storageService.searchConversations(project, "kotlin", 10)).isEmpty();
+    }
+
+    @Test
+    void quotesTypedTextForFullTextSearch() {
+        assertThat(ConversationStorageService.toMatchQuery("  sort   list ")).isEqualTo("\"sort\" \"list\"*");
+        assertThat(ConversationStorageService.toMatchQuery("say \"hi\" OR")).isEqualTo("\"say\" \"\"\"hi\"\"\" \"OR\"*");
+        assertThat(ConversationStorageService.toMatchQuery("   ")).isEmpty();
+    }
+
+    @Test
+    void deletesConversationsOutsideTheRetentionLimits() {
+        Conversation old = conversation("1", "old question", "old answer");
+        old.setTimestamp(LocalDateTime.now().minusDays(40).toString());
+        storageService.addConversation(project, old);
+        for (int i = 2; i <= 4; i++) {
+            Conversation recent = conversation(String.valueOf(i), "question " + i, "answer " + i);
+            recent.setTimestamp(LocalDateTime.now().minusDays(5 - i).toString());
+            storageService.addConversation(project, recent);
+        }
+
+        assertThat(storageService.applyRetention(30, 0, 0)).isEqualTo(1);
+        assertThat(storageService.applyRetention(0, 2, 0)).isEqualTo(1);
+
+        assertThat(storageService.getConversations(project))
+                .extracting(Conversation::getId)
+                .containsExactlyInAnyOrder("3", "4");
+        assertThat(storageService.getStorageUsage().messageCount()).isEqualTo(4);
+    }
+
+    @Test
+    void limitsTheNumberOfConversationsPerProject() {
+        Project otherProject = mock(Project.class);
+        when(otherProject.getLocationHash()).thenReturn("other-project-hash");
+        for (int i = 1; i <= 3; i++) {
+            storageService.addConversation(project, conversation(String.valueOf(i), "question " + i, "answer " + i));
+        }
+        storageService.addConversation(otherProject, conversation("4", "other question", "other answer"));
+
+        assertThat(storageService.applyRetention(0, 2, 0)).isEqualTo(1);
+
+        assertThat(storageService.getConversations(project))
+                .extracting(Conversation::getId)
+                .containsExactlyInAnyOrder("2", "3");
+        assertThat(storageService.getConversations(otherProject))
+                .extracting(Conversation::getId)
+                .containsExactly("4");
+    }
+
+    @Test
+    void compressesLargeMessagesWithoutChangingThem() {
+        String context = "public class Example { }\n".repeat(2_000);
+        Conversation conversation = conversation("1", context, "answer");
+        storageService.addConversation(project, conversation);
+
+        assertThat(storageService.compressLargeMessages(1_000, 10)).isEqualTo(1);
+        assertThat(storageService.compressLargeMessages(1_000, 10)).isZero();
+
+        ConversationStorageUsage usage = storageService.getStorageUsage();
+        assertThat(usage.compressedBytes()).isPositive().isLessThan(context.length() / 10);
+        assertThat(contents(storageService.getConversation(project, "1"))).containsExactly(context, "answer");
+
+        // Appending to a conversation with a compressed message keeps the stored messages
+        conversation.getMessages().add(new ChatMessage(true, "follow up", null));
+        storageService.addConversation(project, conversation);
+        assertThat(storageService.getStorageUsage().compressedBytes()).isEqualTo(usage.compressedBytes());
+        assertThat(contents(storageService.getConversation(project, "1"))).containsExactly(context, "answer", "follow up");
+        assertThat(storageService.searchConversations(project, "follow", 10)).hasSize(1);
+
+        storageService.vacuum(100);
+        storageService.vacuum(100);
+    }
+
+    @Test
+    void findsCompressedMessages() {
+        String answer = "Use a sealed interface for the shapes.\n".repeat(1_000);
+        Conversation conversation = conversation("1", "question", answer);
+        storageService.addConversation(project, conversation);
+
+        assertThat(storageService.compressLargeMessages(1_000, 10)).isEqualTo(1);
+
+        List<ConversationSearchResult> results = storageService.searchConversations(project, "sealed", 10);
+        assertThat(results).extracting(ConversationSearchResult::conversationId).containsExactly("1");
+        assertThat(results.get(0).snippet())
+                .contains(ConversationSearchResult.HIGHLIGHT_START + "sealed" + ConversationSearchResult.HIGHLIGHT_END);
+
+        // The index entries of a compressed message are removed with it
+        storageService.removeConversation(project, conversation);
+        assertThat(storageService.searchConversations(project, "sealed", 10)).isEmpty();
+    }
+
+    @Test
+    void storesTheChatMemoryOfAConversation() {
+        Conversation conversation = conversation("1", "question", "answer");
+        storageService.addConversation(project, conversation);
+
+        List<Long> ids = storageService.updateChatMemory("1", List.of(), List.of("first", "second", "third"));
+        List<Long> newIds = storageService.updateChatMemory("1", List.of(ids.get(1)), List.of("fourth"));
+
+        assertThat(newIds.get(0)).isGreaterThan(ids.get(2));
+        assertThat(storageService.getChatMemory("1"))
+                .extracting(ChatMemoryRecord::message)
+                .containsExactly("first", "third", "fourth");
+        assertThat(storageService.getChatMemory("2")).isEmpty();
+
+        storageService.removeConversation(project, conversation);
+        assertThat(storageService.getChatMemory("1")).isEmpty();
+    }
+
+    @Test
+    void reopensTheDatabase() {
+        storageService.addConversation(project, conversation("1", "question", "answer"));
+        storageService.dispose();
+
+        storageService = new ConversationStorageService(dbFile);
+
+        assertThat(storageService.getConversations(project)).hasSize(1);
+    }
+
+    private List<Long> messageIds() throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile);
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT id FROM chat_messages ORDER BY id")) {
+            while (rs.next()) {
+                ids.add(rs.getLong("id"));
+            }
+        }
+        return ids;
+    }
+
+    private static List<String> contents(Conversation conversation) {
+        return conversation.getMessages().stream().map(ChatMessage::getContent).toList();
+    }
+
+    private static Conversation conversation(String id, String question, String answer) {
+        Conversation conversation = new Conversation();
+        conversation.setId(id);
+        conversation.setTitle(question);
+        conversation.setTimestamp("2025-01-0" + id + "T10:00:00");
+        conversation.setMessages(new ArrayList<>(List.of(
+                new ChatMessage(true, question, null),
+                new ChatMessage(false, answer, null))));
+        return conversation;
+    }
+}
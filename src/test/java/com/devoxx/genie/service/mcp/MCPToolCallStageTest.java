@@ -0,0 +1,118 @@
+package com.devoxx.genie.service.mcp;
+
+import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.service.tool.ToolExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MCPToolCallStageTest {
+
+    private MockedStatic<DevoxxGenieStateService> mockedSettings;
+    private ExecutorService executor;
+    private final AtomicInteger approvals = new AtomicInteger();
+    private boolean approve = true;
+    private MCPToolCallStage stage;
+
+    @BeforeEach
+    void setUp() {
+        DevoxxGenieStateService stateService = mock(DevoxxGenieStateService.class);
+        when(stateService.getMcpEnabled()).thenReturn(true);
+        when(stateService.getMcpDebugLogsEnabled()).thenReturn(false);
+        mockedSettings = Mockito.mockStatic(DevoxxGenieStateService.class);
+        mockedSettings.when(DevoxxGenieStateService::getInstance).thenReturn(stateService);
+
+        executor = Executors.newFixedThreadPool(4);
+        stage = new MCPToolCallStage(executor, (project, requests) -> {
+            approvals.incrementAndGet();
+            return approve;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        mockedSettings.close();
+    }
+
+    @Test
+    void runsTheCallsOfOneResponseConcurrentlyAndKeepsTheirOrder() {
+        // Both calls must be running at the same time to pass the barrier
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ToolExecutor toolExecutor = (request, memoryId) -> {
+            try {
+                barrier.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return "result of " + request.id();
+        };
+        List<ToolExecutionRequest> requests = List.of(request("1", "read_file"), request("2", "git_log"));
+        Map<String, ToolExecutor> executors = Map.of("read_file", toolExecutor, "git_log", toolExecutor);
+
+        stage.announce(requests);
+        List<String> results = new ArrayList<>();
+        for (ToolExecutionRequest request : requests) {
+            results.add(stage.execute(request, "memory", null, executors, Map.of("read_file", "files", "git_log", "git")::get).text());
+        }
+
+        assertThat(results).containsExactly("result of 1", "result of 2");
+        assertThat(approvals).hasValue(1);
+    }
+
+    @Test
+    void deniesTheWholeBatch() {
+        approve = false;
+        AtomicInteger calls = new AtomicInteger();
+        ToolExecutor toolExecutor = (request, memoryId) -> "called " + calls.incrementAndGet();
+        List<ToolExecutionRequest> requests = List.of(request("1", "read_file"), request("2", "read_file"));
+
+        stage.announce(requests);
+        MCPToolCallStage.CallResult first = stage.execute(requests.get(0), "memory", null, Map.of("read_file", toolExecutor), tool -> "files");
+        MCPToolCallStage.CallResult second = stage.execute(requests.get(1), "memory", null, Map.of("read_file", toolExecutor), tool -> "files");
+
+        assertThat(first.text()).isEqualTo(MCPToolCallStage.DENIED_RESULT);
+        assertThat(second.text()).isEqualTo(MCPToolCallStage.DENIED_RESULT);
+        assertThat(calls).hasValue(0);
+        assertThat(approvals).hasValue(1);
+    }
+
+    @Test
+    void leavesSingleAndUnannouncedCallsToTheCaller() {
+        ToolExecutor toolExecutor = (request, memoryId) -> "result";
+        ToolExecutionRequest single = request("1", "read_file");
+
+        stage.announce(List.of(single));
+
+        assertThat(stage.execute(single, "memory", null, Map.of("read_file", toolExecutor), tool -> "files")).isNull();
+        assertThat(stage.execute(request("2", "read_file"), "memory", null, Map.of("read_file", toolExecutor), tool -> "files")).isNull();
+        assertThat(approvals).hasValue(0);
+    }
+
+    @Test
+    void leavesCallsWithoutIdToTheCaller() {
+        List<ToolExecutionRequest> requests = List.of(request(null, "read_file"), request(null, "git_log"));
+
+        stage.announce(requests);
+
+        assertThat(stage.execute(requests.get(0), "memory", null, Map.of(), tool -> "files")).isNull();
+        assertThat(approvals).hasValue(0);
+    }
+
+    private static ToolExecutionRequest request(String id, String name) {
+        return ToolExecutionRequest.builder().id(id).name(name).arguments("{}").build();
+    }
+}
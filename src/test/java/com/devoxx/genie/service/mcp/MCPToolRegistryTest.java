@@ -0,0 +1,165 @@
+package com.devoxx.genie.service.mcp;
+
+import com.devoxx.genie.model.mcp.MCPServer;
+import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.mcp.client.McpClient;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProviderResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class MCPToolRegistryTest {
+
+    private MockedStatic<DevoxxGenieStateService> mockedSettings;
+    private ExecutorService executor;
+    private final Map<String, McpClient> clients = new HashMap<>();
+    @SuppressWarnings("unchecked")
+    private final Consumer<String> clientCloser = mock(Consumer.class);
+    private MCPToolRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        DevoxxGenieStateService stateService = mock(DevoxxGenieStateService.class);
+        when(stateService.getTimeout()).thenReturn(10);
+        mockedSettings = Mockito.mockStatic(DevoxxGenieStateService.class);
+        mockedSettings.when(DevoxxGenieStateService::getInstance).thenReturn(stateService);
+
+        executor = Executors.newFixedThreadPool(4);
+        registry = new MCPToolRegistry(server -> clients.get(server.getName()), clientCloser, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        mockedSettings.close();
+    }
+
+    @Test
+    void listsToolsOnceAndReusesTheSnapshot() {
+        McpClient files = client("files", "read_file", "write_file");
+        McpClient git = client("git", "git_log");
+        Map<String, MCPServer> servers = servers("files", "git");
+
+        MCPToolRegistry.ToolSnapshot first = registry.getSnapshot(servers);
+        MCPToolRegistry.ToolSnapshot second = registry.getSnapshot(servers);
+
+        assertThat(first.toolCount()).isEqualTo(3);
+        assertThat(second).isSameAs(first);
+        verify(files, times(1)).listTools();
+        verify(git, times(1)).listTools();
+    }
+
+    @Test
+    void listsServersInParallel() throws Exception {
+        CyclicBarrier bothListing = new CyclicBarrier(2);
+        for (String name : List.of("a", "b")) {
+            McpClient client = mock(McpClient.class);
+            when(client.listTools()).thenAnswer(invocation -> {
+                // Only completes when the other server is listed at the same time
+                bothListing.await(5, TimeUnit.SECONDS);
+                return List.of(tool(name + "_tool"));
+            });
+            clients.put(name, client);
+        }
+
+        assertThat(registry.getSnapshot(servers("a", "b")).toolCount()).isEqualTo(2);
+    }
+
+    @Test
+    void onlyChangedServersAreListedAgain() {
+        McpClient files = client("files", "read_file");
+        McpClient git = client("git", "git_log");
+        Map<String, MCPServer> servers = servers("files", "git");
+        registry.getSnapshot(servers);
+
+        when(files.listTools()).thenReturn(List.of(tool("read_file"), tool("list_directory")));
+        registry.toolsChanged("files");
+
+        assertThat(registry.getSnapshot(servers).toolCount()).isEqualTo(3);
+        verify(files, times(2)).listTools();
+        verify(git, times(1)).listTools();
+    }
+
+    @Test
+    void failingServerKeepsItsLastKnownTools() {
+        McpClient files = client("files", "read_file");
+        Map<String, MCPServer> servers = servers("files");
+        registry.getSnapshot(servers);
+
+        when(files.listTools()).thenThrow(new IllegalStateException("Server stopped"));
+        registry.toolsChanged("files");
+
+        MCPToolRegistry.ToolSnapshot snapshot = registry.getSnapshot(servers);
+        assertThat(snapshot.toolCount()).isEqualTo(1);
+        verify(clientCloser).accept("files");
+    }
+
+    @Test
+    void toolsOfAFailedServerAreExecutedWithANewClient() {
+        McpClient files = client("files", "read_file");
+        Map<String, MCPServer> servers = servers("files");
+        registry.getSnapshot(servers);
+
+        when(files.listTools()).thenThrow(new IllegalStateException("Server stopped"));
+        registry.toolsChanged("files");
+        MCPToolRegistry.ToolSnapshot snapshot = registry.getSnapshot(servers);
+        verify(clientCloser).accept("files");
+
+        // The closed client was removed from the cache, the next lookup creates a new one
+        McpClient restarted = client("files", "read_file");
+        when(restarted.executeTool(any())).thenReturn("contents");
+        ToolProviderResult result = snapshot.toToolProvider(server -> clients.get(server.getName())).provideTools(null);
+        ToolExecutor toolExecutor = result.tools().values().iterator().next();
+        ToolExecutionRequest request = ToolExecutionRequest.builder().name("read_file").arguments("{}").build();
+
+        assertThat(toolExecutor.execute(request, "memory")).isEqualTo("contents");
+        verify(files, never()).executeTool(any());
+    }
+
+    @Test
+    void reconfiguredAndRemovedServersAreDropped() {
+        client("files", "read_file");
+        client("git", "git_log");
+        registry.getSnapshot(servers("files", "git"));
+
+        Map<String, MCPServer> reconfigured = servers("files");
+        reconfigured.get("files").setArgs(List.of("/other/path"));
+        MCPToolRegistry.ToolSnapshot snapshot = registry.getSnapshot(reconfigured);
+
+        assertThat(snapshot.servers()).containsOnlyKeys("files");
+        assertThat(snapshot.servers().get("files").server().getArgs()).containsExactly("/other/path");
+        verify(clientCloser).accept("git");
+        verify(clientCloser).accept("files");
+    }
+
+    private McpClient client(String name, String... toolNames) {
+        McpClient client = mock(McpClient.class);
+        when(client.listTools()).thenReturn(Arrays.stream(toolNames).map(MCPToolRegistryTest::tool).toList());
+        clients.put(name, client);
+        return client;
+    }
+
+    private static Map<String, MCPServer> servers(String... names) {
+        Map<String, MCPServer> servers = new LinkedHashMap<>();
+        for (String name : names) {
+            servers.put(name, MCPServer.builder().name(name).command("/usr/bin/" + name).build());
+        }
+        return servers;
+    }
+
+    private static ToolSpecification tool(String name) {
+        return ToolSpecification.builder().name(name).description(name).build();
+    }
+}
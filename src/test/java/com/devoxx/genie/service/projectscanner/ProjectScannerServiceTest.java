@@ -2,12 +2,20 @@ package com.devoxx.genie.service.projectscanner;
 
 import com.devoxx.genie.model.ScanContentResult;
 import com.devoxx.genie.ui.settings.DevoxxGenieStateService;
+import com.devoxx.genie.ui.util.NotificationUtil;
+import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectUtil;
 import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.ThrowableComputable;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.MockedStatic;
 
 import java.nio.file.Path;
@@ -88,19 +96,6 @@ class ProjectScannerServiceTest  {
 
         // Set up TokenCalculator behavior
         when(mockTokenCalculator.calculateTokens(anyString())).thenReturn(50);
-        when(mockTokenCalculator.truncateToTokens(anyString(), anyInt(), anyBoolean())).thenAnswer(invocation -> {
-            String content = invocation.getArgument(0);
-            int maxTokens = invocation.getArgument(1);
-            boolean isTokenCalculation = invocation.getArgument(2);
-
-            // Simple simulation of truncation
-            if (mockTokenCalculator.calculateTokens(content) > maxTokens) {
-                return isTokenCalculation ?
-                        "Truncated content" :
-                        "Truncated content\n--- Project context truncated due to token limit ---\n";
-            }
-            return content;
-        });
 
         projectScannerService = new ProjectScannerService();
         projectScannerService.setFileScanner(mockFileScanner);
@@ -151,7 +146,7 @@ class ProjectScannerServiceTest  {
             verify(mockFileScanner).scanDirectory(eq(mockProjectFileIndex), eq(mockRootDirectory), any(ScanContentResult.class));
             verify(mockContentExtractor).extractFileContent(mockFile);
             verify(mockContentExtractor).combineContent(anyString(), anyString());
-            verify(mockTokenCalculator).truncateToTokens(anyString(), eq(100), eq(false));
+            verify(mockTokenCalculator, never()).truncateToTokens(anyString(), anyInt(), anyBoolean());
         }
     }
 
@@ -178,10 +173,53 @@ class ProjectScannerServiceTest  {
             verify(mockFileScanner).scanDirectory(eq(mockProjectFileIndex), eq(mockDirectory), any(ScanContentResult.class));
             verify(mockContentExtractor).extractFileContent(mockFile);
             verify(mockContentExtractor).combineContent(anyString(), anyString());
-            verify(mockTokenCalculator).truncateToTokens(anyString(), eq(100), eq(false));
+            verify(mockTokenCalculator, never()).truncateToTokens(anyString(), anyInt(), anyBoolean());
         }
     }
 
+    @Test
+    void testScanContent_SumsTheTokensCountedByTheReaders() {
+        try (MockedStatic<ProjectFileIndex> projectFileIndexMock = mockStatic(ProjectFileIndex.class)) {
+            projectFileIndexMock.when(() -> ProjectFileIndex.getInstance(eq(mockProject)))
+                    .thenReturn(mockProjectFileIndex);
+
+            List<VirtualFile> fileList = new ArrayList<>();
+            fileList.add(mockFile);
+            when(mockFileScanner.scanDirectory(eq(mockProjectFileIndex), eq(mockDirectory), any(ScanContentResult.class))).thenReturn(fileList);
+            when(mockContentExtractor.combineContent("", "")).thenReturn("Directory Structure:\n\n\nFile Contents:\n");
+
+            ScanContentResult scanContentResult = new ScanContentResult();
+            String content = projectScannerService.scanContent(mockProject, mockDirectory, 1000, false, scanContentResult, mockProjectFileIndex);
+
+            // Headers, directory structure and the file, the combined content is not tokenized again
+            assertEquals(150, scanContentResult.getTokenCount());
+            verify(mockTokenCalculator, never()).calculateTokens(content);
+        }
+    }
+
+    @Test
+    void testScanContent_TruncatesADirectoryStructureBiggerThanTheWindow() {
+        TokenCalculator tokenCalculator = new TokenCalculator();
+        projectScannerService.setTokenCalculator(tokenCalculator);
+        projectScannerService.setContentExtractor(new ContentExtractor());
+
+        StringBuilder tree = new StringBuilder("testDir/\n");
+        for (int i = 0; i < 500; i++) {
+            tree.append("  module").append(i).append("/\n");
+        }
+        when(mockFileScanner.generateSourceTreeRecursive(mockDirectory, 0)).thenReturn(tree.toString());
+        when(mockFileScanner.scanDirectory(eq(mockProjectFileIndex), eq(mockDirectory), any(ScanContentResult.class))).thenReturn(List.of(mockFile));
+
+        ScanContentResult scanContentResult = new ScanContentResult();
+        String content = projectScannerService.scanContent(mockProject, mockDirectory, 100, false, scanContentResult, mockProjectFileIndex);
+
+        assertTrue(content.startsWith("Directory Structure:\ntestDir/\n  module0/\n"));
+        assertTrue(content.contains(TokenCalculator.TRUNCATION_MARKER));
+        assertFalse(content.contains("public class TestFile"));
+        assertTrue(tokenCalculator.calculateTokens(content) <= 100);
+        assertTrue(scanContentResult.getTokenCount() <= 100);
+    }
+
     @Test
     void testScanContent_WithSingleFile() {
         try (MockedStatic<ProjectFileIndex> projectFileIndexMock = mockStatic(ProjectFileIndex.class)) {
@@ -278,6 +316,44 @@ class ProjectScannerServiceTest  {
         verify(mockContentExtractor, never()).extractFileContent(any());
     }
 
+    @Test
+    void testExtractFileContents_StopsWhenTokenBudgetIsReached() {
+        // Setup: five files of 50 tokens each, the truncation marker also counts as 50 tokens
+        List<VirtualFile> fileList = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            VirtualFile file = mock(VirtualFile.class);
+            when(mockContentExtractor.extractFileContent(file)).thenReturn("\n--- /project/File" + i + ".java ---\n");
+            fileList.add(file);
+        }
+
+        // Test
+        String result = projectScannerService.extractFileContents(fileList, 170);
+
+        // Verify whole files are kept in order and the content past the budget is replaced by the marker
+        assertTrue(result.indexOf("File0.java") < result.indexOf("File1.java"));
+        assertTrue(result.indexOf("File1.java") < result.indexOf("File2.java"));
+        assertFalse(result.contains("File3.java"));
+        assertFalse(result.contains("File4.java"));
+        assertTrue(result.endsWith(TokenCalculator.TRUNCATION_MARKER));
+        verify(mockTokenCalculator, never()).truncateToTokens(anyString(), anyInt(), anyBoolean());
+    }
+
+    @Test
+    void testExtractFileContents_CutsBoundaryFileAtLineBoundary() {
+        // Setup: two files of 50 tokens each, only the first one fits with room to spare
+        VirtualFile first = mock(VirtualFile.class);
+        VirtualFile second = mock(VirtualFile.class);
+        when(mockContentExtractor.extractFileContent(first)).thenReturn("first\n");
+        when(mockContentExtractor.extractFileContent(second)).thenReturn("line1\nline2\n");
+        when(mockTokenCalculator.truncateToLineBoundary("line1\nline2\n", 20)).thenReturn("line1\n");
+
+        // Test: 120 - 50 (first file) - 50 (marker) leaves 20 tokens for the second file
+        String result = projectScannerService.extractFileContents(List.of(first, second), 120);
+
+        // Verify
+        assertEquals("first\nline1\n" + TokenCalculator.TRUNCATION_MARKER, result);
+    }
+
     @Test
     void testScanContent_DirectoryWithNoFiles() {
         try (MockedStatic<DevoxxGenieStateService> mockedSettings = mockStatic(DevoxxGenieStateService.class);
@@ -357,7 +433,7 @@ class ProjectScannerServiceTest  {
             verify(mockContentExtractor).extractFileContent(mockFile);
             verify(mockContentExtractor).combineContent(anyString(), anyString());
             verify(mockTokenCalculator, atLeastOnce()).calculateTokens(anyString());
-            verify(mockTokenCalculator).truncateToTokens(anyString(), eq(100), eq(false));
+            verify(mockTokenCalculator, never()).truncateToTokens(anyString(), anyInt(), anyBoolean());
         }
     }
 
@@ -385,13 +461,12 @@ class ProjectScannerServiceTest  {
             ContentExtractor testExtractor = mock(ContentExtractor.class);
             when(testExtractor.extractFileContent(mockFile)).thenReturn("--- file content ---");
             when(testExtractor.combineContent(anyString(), anyString()))
-                  .thenReturn("Directory Structure:\ntestDir/\n\nFile Contents:\n--- file content ---");
+                  .thenAnswer(invocation -> "Directory Structure:\n" + invocation.getArgument(0) +
+                          "\n\nFile Contents:\n" + invocation.getArgument(1));
             
             // Set token calculations to exceed limit
             TokenCalculator testTokenCalculator = mock(TokenCalculator.class);
             when(testTokenCalculator.calculateTokens(anyString())).thenReturn(150);
-            when(testTokenCalculator.truncateToTokens(anyString(), eq(100), eq(false)))
-                    .thenReturn("Truncated content\n--- Project context truncated due to token limit ---\n");
             
             // Create a test-specific instance of ProjectScannerService with our test mocks
             ProjectScannerService testProjectScannerService = new ProjectScannerService();
@@ -417,8 +492,43 @@ class ProjectScannerServiceTest  {
             assertEquals(150, scanContentResult.getTokenCount());
             assertTrue(scanContentResult.getContent().contains("--- Project context truncated due to token limit ---"));
 
-            // Verify truncation was called
-            verify(testTokenCalculator).truncateToTokens(anyString(), eq(100), eq(false));
+            // The file contents were cut to the budget while reading, the result is not truncated again
+            assertFalse(scanContentResult.getContent().contains("--- file content ---"));
+            verify(testTokenCalculator, never()).truncateToTokens(anyString(), anyInt(), anyBoolean());
+        }
+    }
+
+    @Test
+    void testFilterIncludedFiles_AppliesGitignoreRulesWithoutNotifyingTheUser(@TempDir Path projectDir) {
+        try (MockedStatic<ReadAction> readActionMock = mockStatic(ReadAction.class);
+             MockedStatic<ApplicationManager> applicationManagerMock = mockStatic(ApplicationManager.class);
+             MockedStatic<ProjectUtil> projectUtilMock = mockStatic(ProjectUtil.class);
+             MockedStatic<ProjectRootManager> projectRootManagerMock = mockStatic(ProjectRootManager.class);
+             MockedStatic<ProjectFileIndex> projectFileIndexMock = mockStatic(ProjectFileIndex.class);
+             MockedStatic<NotificationUtil> notificationUtilMock = mockStatic(NotificationUtil.class)) {
+
+            readActionMock.when(() -> ReadAction.compute(any()))
+                    .thenAnswer(invocation -> invocation.<ThrowableComputable<?, ?>>getArgument(0).compute());
+            Application application = mock(Application.class);
+            applicationManagerMock.when(ApplicationManager::getApplication).thenReturn(application);
+            when(application.runReadAction(any(Computable.class)))
+                    .thenAnswer(invocation -> invocation.<Computable<?>>getArgument(0).compute());
+            projectFileIndexMock.when(() -> ProjectFileIndex.getInstance(eq(mockProject)))
+                    .thenReturn(mockProjectFileIndex);
+
+            VirtualFile baseDir = mock(VirtualFile.class);
+            when(baseDir.getPath()).thenReturn(projectDir.toString());
+            when(baseDir.getChildren()).thenReturn(new VirtualFile[0]);
+            projectUtilMock.when(() -> ProjectUtil.guessProjectDir(mockProject)).thenReturn(baseDir);
+            ProjectRootManager projectRootManager = mock(ProjectRootManager.class);
+            projectRootManagerMock.when(() -> ProjectRootManager.getInstance(mockProject)).thenReturn(projectRootManager);
+            when(projectRootManager.getFileIndex()).thenReturn(mockProjectFileIndex);
+            when(mockProjectFileIndex.getContentRootForFile(baseDir)).thenReturn(baseDir);
+
+            List<VirtualFile> included = projectScannerService.filterIncludedFiles(mockProject, List.of(mockFile));
+
+            assertNotNull(included);
+            notificationUtilMock.verify(() -> NotificationUtil.sendNotification(any(), anyString()), never());
         }
     }
 }
@@ -181,4 +181,17 @@ class TokenCalculatorTest {
         assertEquals(3, calculator.calculateTokens(truncated3));
         assertEquals(5, calculator.calculateTokens(truncated5));
     }
+
+    @Test
+    void testTruncateToLineBoundary() {
+        TokenCalculator calculator = new TokenCalculator();
+        String text = "one two three\nfour five six\nseven eight nine\n";
+        int firstLineTokens = calculator.calculateTokens("one two three\n");
+        int twoLinesTokens = firstLineTokens + calculator.calculateTokens("four five six\n");
+
+        assertEquals("", calculator.truncateToLineBoundary(text, firstLineTokens - 1));
+        assertEquals("one two three\n", calculator.truncateToLineBoundary(text, firstLineTokens));
+        assertEquals("one two three\nfour five six\n", calculator.truncateToLineBoundary(text, twoLinesTokens));
+        assertEquals(text, calculator.truncateToLineBoundary(text, 1000));
+    }
 }
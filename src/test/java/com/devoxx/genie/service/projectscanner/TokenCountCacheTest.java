@@ -0,0 +1,59 @@
+package com.devoxx.genie.service.projectscanner;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenCountCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private VirtualFile mockFile(String path, long timeStamp, long length) {
+        VirtualFile file = mock(VirtualFile.class);
+        when(file.getPath()).thenReturn(path);
+        when(file.getTimeStamp()).thenReturn(timeStamp);
+        when(file.getLength()).thenReturn(length);
+        return file;
+    }
+
+    @Test
+    void testCountIsReturnedForUnchangedFile() {
+        TokenCountCache cache = new TokenCountCache(tempDir.resolve("tokens.bin"));
+        VirtualFile file = mockFile("/project/A.java", 100L, 20L);
+
+        cache.put(file, "cl100k_base", 42);
+
+        assertEquals(42, cache.get(file, "cl100k_base"));
+        assertNull(cache.get(file, "r50k_base"));
+    }
+
+    @Test
+    void testCountIsIgnoredForModifiedFile() {
+        TokenCountCache cache = new TokenCountCache(tempDir.resolve("tokens.bin"));
+        cache.put(mockFile("/project/A.java", 100L, 20L), "cl100k_base", 42);
+
+        assertNull(cache.get(mockFile("/project/A.java", 200L, 20L), "cl100k_base"));
+        assertNull(cache.get(mockFile("/project/A.java", 100L, 21L), "cl100k_base"));
+    }
+
+    @Test
+    void testCountsSurviveSaveAndLoad() {
+        Path cacheFile = tempDir.resolve("tokens.bin");
+        TokenCountCache cache = new TokenCountCache(cacheFile);
+        cache.put(mockFile("/project/A.java", 100L, 20L), "cl100k_base", 42);
+        cache.put(mockFile("/project/B.java", 300L, 40L), "cl100k_base", 7);
+        cache.save();
+
+        TokenCountCache reloaded = new TokenCountCache(cacheFile);
+
+        assertEquals(2, reloaded.size());
+        assertEquals(42, reloaded.get(mockFile("/project/A.java", 100L, 20L), "cl100k_base"));
+        assertEquals(7, reloaded.get(mockFile("/project/B.java", 300L, 40L), "cl100k_base"));
+    }
+}
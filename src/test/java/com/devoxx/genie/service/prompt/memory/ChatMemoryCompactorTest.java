@@ -0,0 +1,119 @@
+package com.devoxx.genie.service.prompt.memory;
+
+import com.intellij.openapi.project.Project;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatMemoryCompactorTest {
+
+    private Project project;
+    private ChatMemoryService chatMemoryService;
+    private ChatLanguageModel summaryModel;
+    private ChatMemoryCompactor compactor;
+
+    @BeforeEach
+    void setUp() {
+        project = mock(Project.class);
+        when(project.getLocationHash()).thenReturn("project-hash");
+        chatMemoryService = new ChatMemoryService();
+        chatMemoryService.initialize(project, 50);
+
+        // A stub model which answers without contacting any provider
+        summaryModel = mock(ChatLanguageModel.class);
+        when(summaryModel.chat(anyList())).thenReturn(ChatResponse.builder().aiMessage(AiMessage.from("the summary")).build());
+
+        // Every message counts as 10 tokens, the compaction runs on the calling thread
+        compactor = new ChatMemoryCompactor(chatMemoryService, Runnable::run, message -> 10);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void summarizesTheOldestTurns() {
+        addTurns(5);
+
+        assertThat(compactor.compactIfNeeded(project, () -> summaryModel, 60).join()).isTrue();
+
+        assertThat(chatMemoryService.getMessages(project)).containsExactly(
+                SystemMessage.from("system prompt"),
+                UserMessage.from(ChatMemoryCompactor.SUMMARY_PREFIX + "the summary"),
+                ChatMemoryCompactor.SUMMARY_ACKNOWLEDGEMENT,
+                UserMessage.from("question 4"),
+                AiMessage.from("answer 4"),
+                UserMessage.from("question 5"),
+                AiMessage.from("answer 5"));
+
+        ArgumentCaptor<List<ChatMessage>> request = ArgumentCaptor.forClass(List.class);
+        verify(summaryModel).chat(request.capture());
+        String transcript = ((UserMessage) request.getValue().get(1)).singleText();
+        assertThat(transcript)
+                .contains("Developer: question 1", "Assistant: answer 3")
+                .doesNotContain("question 4");
+    }
+
+    @Test
+    void userAndAssistantMessagesAlternateAfterCompacting() {
+        addTurns(8);
+
+        assertThat(compactor.compactIfNeeded(project, () -> summaryModel, 60).join()).isTrue();
+        // Compacting again summarizes the earlier summary with the next turns
+        for (int i = 9; i <= 12; i++) {
+            chatMemoryService.addMessage(project, UserMessage.from("question " + i));
+            chatMemoryService.addMessage(project, AiMessage.from("answer " + i));
+        }
+        assertThat(compactor.compactIfNeeded(project, () -> summaryModel, 60).join()).isTrue();
+
+        List<ChatMessage> messages = chatMemoryService.getMessages(project);
+        assertThat(messages.get(0)).isInstanceOf(SystemMessage.class);
+        for (int i = 1; i < messages.size(); i++) {
+            assertThat(messages.get(i)).isInstanceOf(i % 2 == 1 ? UserMessage.class : AiMessage.class);
+        }
+    }
+
+    @Test
+    void leavesShortConversationsAlone() {
+        addTurns(2);
+
+        assertThat(compactor.compactIfNeeded(project, () -> summaryModel, 60).join()).isFalse();
+
+        assertThat(chatMemoryService.getMessages(project)).hasSize(5);
+        Mockito.verifyNoInteractions(summaryModel);
+    }
+
+    @Test
+    void dropsTheSummaryWhenTheMemoryChangedMeanwhile() {
+        addTurns(5);
+        when(summaryModel.chat(anyList())).thenAnswer(invocation -> {
+            chatMemoryService.clearMemory(project);
+            chatMemoryService.addMessage(project, UserMessage.from("new conversation"));
+            return ChatResponse.builder().aiMessage(AiMessage.from("the summary")).build();
+        });
+
+        assertThat(compactor.compactIfNeeded(project, () -> summaryModel, 60).join()).isFalse();
+
+        assertThat(chatMemoryService.getMessages(project)).containsExactly(UserMessage.from("new conversation"));
+    }
+
+    private void addTurns(int count) {
+        chatMemoryService.addMessage(project, SystemMessage.from("system prompt"));
+        for (int i = 1; i <= count; i++) {
+            chatMemoryService.addMessage(project, UserMessage.from("question " + i));
+            chatMemoryService.addMessage(project, AiMessage.from("answer " + i));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.devoxx.genie.service.prompt.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashIndexedChatMemoryStoreTest {
+
+    private final HashIndexedChatMemoryStore store = new HashIndexedChatMemoryStore();
+
+    @Test
+    void detectsTheSameLastMessageByContent() {
+        store.updateMessages("memory", List.of(UserMessage.from("question"), AiMessage.from("answer")));
+
+        assertThat(store.isLastMessage("memory", AiMessage.from("answer"))).isTrue();
+        assertThat(store.isLastMessage("memory", UserMessage.from("answer"))).isFalse();
+        assertThat(store.isLastMessage("memory", AiMessage.from("other!"))).isFalse();
+        assertThat(store.isLastMessage("memory", AiMessage.from("question"))).isFalse();
+        assertThat(store.isLastMessage("other memory", AiMessage.from("answer"))).isFalse();
+    }
+
+    @Test
+    void distinguishesToolCallsWithTheSameText() {
+        ToolExecutionRequest readFile = ToolExecutionRequest.builder().id("1").name("read_file").arguments("{\"path\":\"a\"}").build();
+        ToolExecutionRequest readOther = ToolExecutionRequest.builder().id("1").name("read_file").arguments("{\"path\":\"b\"}").build();
+        store.updateMessages("memory", List.of(AiMessage.from(readFile)));
+
+        assertThat(store.isLastMessage("memory", AiMessage.from(readFile))).isTrue();
+        assertThat(store.isLastMessage("memory", AiMessage.from(readOther))).isFalse();
+    }
+
+    @Test
+    void removesAndReplacesMessagesById() {
+        SystemMessage systemMessage = SystemMessage.from("be brief");
+        store.updateMessages("memory", List.of(systemMessage, UserMessage.from("question"), AiMessage.from("answer")));
+
+        assertThat(store.replaceMessage("memory", HashIndexedChatMemoryStore.messageId(systemMessage), SystemMessage.from("be precise"))).isTrue();
+        assertThat(store.removeMessage("memory", HashIndexedChatMemoryStore.messageId(UserMessage.from("question")))).isTrue();
+        assertThat(store.removeMessage("memory", HashIndexedChatMemoryStore.messageId(UserMessage.from("unknown")))).isFalse();
+
+        assertThat(store.getMessages("memory")).containsExactly(SystemMessage.from("be precise"), AiMessage.from("answer"));
+    }
+
+    @Test
+    void removesMessagesByContent() {
+        store.updateMessages("memory", List.of(UserMessage.from("question"), AiMessage.from("answer"), UserMessage.from("follow up")));
+
+        assertThat(store.removeMessages("memory", List.of(UserMessage.from("question"), AiMessage.from("answer")))).isEqualTo(2);
+
+        assertThat(store.getMessages("memory")).containsExactly(UserMessage.from("follow up"));
+    }
+
+    @Test
+    void deletesTheMessagesOfOneMemory() {
+        store.updateMessages("memory", List.of(UserMessage.from("question")));
+        store.updateMessages("other memory", List.of(UserMessage.from("other question")));
+
+        store.deleteMessages("memory");
+
+        assertThat(store.getMessages("memory")).isEmpty();
+        assertThat(store.getMessages("other memory")).containsExactly(UserMessage.from("other question"));
+    }
+}
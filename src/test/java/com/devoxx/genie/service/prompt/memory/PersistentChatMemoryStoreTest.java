@@ -0,0 +1,101 @@
+package com.devoxx.genie.service.prompt.memory;
+
+import com.devoxx.genie.service.conversations.ChatMemoryRecord;
+import com.devoxx.genie.service.conversations.ConversationStorageService;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PersistentChatMemoryStoreTest {
+
+    private final AtomicLong rowIds = new AtomicLong();
+    private ConversationStorageService storageService;
+    private PersistentChatMemoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        storageService = mock(ConversationStorageService.class);
+        when(storageService.updateChatMemory(anyString(), anyList(), anyList())).thenAnswer(invocation -> {
+            List<String> newMessages = invocation.getArgument(2);
+            List<Long> ids = new ArrayList<>();
+            newMessages.forEach(message -> ids.add(rowIds.incrementAndGet()));
+            return ids;
+        });
+        store = new PersistentChatMemoryStore(() -> storageService);
+    }
+
+    @Test
+    void savesNothingUntilBound() {
+        store.updateMessages("memory", List.of(UserMessage.from("question")));
+
+        verify(storageService, never()).updateChatMemory(anyString(), anyList(), anyList());
+    }
+
+    @Test
+    void writesOnlyTheChanges() {
+        store.updateMessages("memory", List.of(SystemMessage.from("be brief"), UserMessage.from("question")));
+        store.bind("memory", "conversation");
+        verify(storageService).deleteChatMemory("conversation");
+        verify(storageService).updateChatMemory("conversation", List.of(), json(SystemMessage.from("be brief"), UserMessage.from("question")));
+
+        // Appending writes the new message only
+        store.updateMessages("memory", List.of(SystemMessage.from("be brief"), UserMessage.from("question"), AiMessage.from("answer")));
+        verify(storageService).updateChatMemory("conversation", List.of(), json(AiMessage.from("answer")));
+
+        // Evicting a message deletes its row
+        store.updateMessages("memory", List.of(SystemMessage.from("be brief"), AiMessage.from("answer")));
+        verify(storageService).updateChatMemory("conversation", List.of(2L), List.of());
+    }
+
+    @Test
+    void loadsTheStoredChatMemoryOfAConversation() {
+        when(storageService.getChatMemory("conversation")).thenReturn(List.of(
+                new ChatMemoryRecord(7, ChatMessageSerializer.messageToJson(UserMessage.from("question"))),
+                new ChatMemoryRecord(8, ChatMessageSerializer.messageToJson(AiMessage.from("answer")))));
+
+        assertThat(store.load("memory", "conversation")).isTrue();
+        assertThat(store.getMessages("memory")).containsExactly(UserMessage.from("question"), AiMessage.from("answer"));
+        verify(storageService, never()).updateChatMemory(anyString(), anyList(), anyList());
+
+        // The loaded memory stays bound to its conversation
+        store.updateMessages("memory", List.of(AiMessage.from("answer"), UserMessage.from("follow up")));
+        verify(storageService).updateChatMemory("conversation", List.of(7L), json(UserMessage.from("follow up")));
+
+        assertThat(store.load("memory", "unknown")).isFalse();
+        assertThat(store.getMessages("memory")).containsExactly(AiMessage.from("answer"), UserMessage.from("follow up"));
+    }
+
+    @Test
+    void stopsSavingAfterAFailedWrite() {
+        store.bind("memory", "conversation");
+        when(storageService.updateChatMemory(anyString(), anyList(), anyList())).thenThrow(new RuntimeException("disk full"));
+
+        store.updateMessages("memory", List.of(UserMessage.from("question")));
+        store.updateMessages("memory", List.of(UserMessage.from("question"), AiMessage.from("answer")));
+
+        verify(storageService).updateChatMemory(eq("conversation"), anyList(), any());
+        assertThat(store.getMessages("memory")).hasSize(2);
+    }
+
+    private static List<String> json(ChatMessage... messages) {
+        return List.of(messages).stream().map(ChatMessageSerializer::messageToJson).toList();
+    }
+}
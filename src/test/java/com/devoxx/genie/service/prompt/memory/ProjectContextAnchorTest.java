@@ -0,0 +1,75 @@
+package com.devoxx.genie.service.prompt.memory;
+
+import com.intellij.openapi.project.Project;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProjectContextAnchorTest {
+
+    private Project project;
+    private ChatMemoryService chatMemoryService;
+
+    @BeforeEach
+    void setUp() {
+        project = mock(Project.class);
+        when(project.getLocationHash()).thenReturn("project-hash");
+        chatMemoryService = new ChatMemoryService();
+        chatMemoryService.initialize(project, 50);
+        chatMemoryService.addMessage(project, SystemMessage.from("system prompt"));
+    }
+
+    @Test
+    void sendsTheSameContextOnce() {
+        assertThat(chatMemoryService.anchorProjectContext(project, "class A {}")).isTrue();
+        chatMemoryService.addMessage(project, UserMessage.from("question"));
+        chatMemoryService.addMessage(project, AiMessage.from("answer"));
+
+        assertThat(chatMemoryService.anchorProjectContext(project, "class A {}")).isFalse();
+
+        assertThat(chatMemoryService.getMessages(project)).containsExactly(
+                SystemMessage.from("system prompt"),
+                ProjectContextAnchor.contextMessage("class A {}"),
+                ProjectContextAnchor.ACKNOWLEDGEMENT,
+                UserMessage.from("question"),
+                AiMessage.from("answer"));
+    }
+
+    @Test
+    void replacesAChangedContext() {
+        chatMemoryService.anchorProjectContext(project, "class A {}");
+        chatMemoryService.addMessage(project, UserMessage.from("question"));
+        chatMemoryService.addMessage(project, AiMessage.from("answer"));
+
+        assertThat(chatMemoryService.anchorProjectContext(project, "class B {}")).isTrue();
+
+        assertThat(chatMemoryService.getMessages(project)).containsExactly(
+                SystemMessage.from("system prompt"),
+                ProjectContextAnchor.contextMessage("class B {}"),
+                ProjectContextAnchor.ACKNOWLEDGEMENT,
+                UserMessage.from("question"),
+                AiMessage.from("answer"));
+    }
+
+    @Test
+    void keepsTheContextWhenEvictingOldTurns() {
+        chatMemoryService.anchorProjectContext(project, "class A {}");
+        for (int i = 1; i <= 30; i++) {
+            chatMemoryService.addMessage(project, UserMessage.from("question " + i));
+            chatMemoryService.addMessage(project, AiMessage.from("answer " + i));
+        }
+
+        assertThat(chatMemoryService.getMessages(project))
+                .hasSize(50)
+                .startsWith(SystemMessage.from("system prompt"),
+                        ProjectContextAnchor.contextMessage("class A {}"),
+                        ProjectContextAnchor.ACKNOWLEDGEMENT);
+        assertThat(chatMemoryService.anchorProjectContext(project, "class A {}")).isFalse();
+    }
+}
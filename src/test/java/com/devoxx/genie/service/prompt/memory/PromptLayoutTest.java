@@ -0,0 +1,56 @@
+package com.devoxx.genie.service.prompt.memory;
+
+import com.intellij.openapi.project.Project;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PromptLayoutTest {
+
+    private Project project;
+    private ChatMemoryService chatMemoryService;
+
+    @BeforeEach
+    void setUp() {
+        project = mock(Project.class);
+        when(project.getLocationHash()).thenReturn("project-hash");
+        chatMemoryService = new ChatMemoryService();
+        chatMemoryService.initialize(project, 50);
+    }
+
+    @Test
+    void keepsTheStablePartsInFront() {
+        assertThat(chatMemoryService.setSystemMessage(project, SystemMessage.from("be brief"))).isTrue();
+        chatMemoryService.addMessage(project, UserMessage.from("question"));
+        chatMemoryService.addMessage(project, AiMessage.from("answer"));
+        chatMemoryService.anchorProjectContext(project, "class A {}");
+
+        assertThat(chatMemoryService.setSystemMessage(project, SystemMessage.from("be brief"))).isFalse();
+        assertThat(chatMemoryService.setSystemMessage(project, SystemMessage.from("be precise"))).isTrue();
+
+        assertThat(chatMemoryService.getMessages(project)).containsExactly(
+                SystemMessage.from("be precise"),
+                ProjectContextAnchor.contextMessage("class A {}"),
+                ProjectContextAnchor.ACKNOWLEDGEMENT,
+                UserMessage.from("question"),
+                AiMessage.from("answer"));
+    }
+
+    @Test
+    void findsTheStartOfTheConversation() {
+        assertThat(PromptLayout.conversationStart(List.of(
+                SystemMessage.from("be brief"),
+                ProjectContextAnchor.contextMessage("class A {}"),
+                ProjectContextAnchor.ACKNOWLEDGEMENT,
+                UserMessage.from("question")))).isEqualTo(3);
+        assertThat(PromptLayout.conversationStart(List.of(UserMessage.from("question")))).isZero();
+    }
+}
@@ -0,0 +1,120 @@
+package com.devoxx.genie.service.prompt.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBudgetChatMemoryTest {
+
+    // One token per word, plus the overhead of 4 tokens per message
+    private final AtomicInteger countedTexts = new AtomicInteger();
+    private TokenBudgetChatMemory memory;
+
+    @BeforeEach
+    void setUp() {
+        memory = new TokenBudgetChatMemory("memory", new InMemoryChatMemoryStore(), 50, text -> {
+            countedTexts.incrementAndGet();
+            return text.split("\\s+").length;
+        });
+    }
+
+    @Test
+    void evictsTheOldestMessagesWhenOverTheBudget() {
+        memory.setMaxTokens(20);
+
+        memory.add(UserMessage.from("one two three four"));
+        memory.add(AiMessage.from("five six seven eight"));
+        memory.add(UserMessage.from("nine ten eleven twelve"));
+
+        assertThat(memory.messages()).containsExactly(
+                AiMessage.from("five six seven eight"), UserMessage.from("nine ten eleven twelve"));
+        assertThat(memory.tokenCount()).isEqualTo(16);
+    }
+
+    @Test
+    void keepsTheSystemMessage() {
+        memory.setMaxTokens(20);
+
+        memory.add(SystemMessage.from("be brief"));
+        memory.add(UserMessage.from("one two three four"));
+        memory.add(AiMessage.from("five six seven eight"));
+
+        assertThat(memory.messages()).containsExactly(
+                SystemMessage.from("be brief"), AiMessage.from("five six seven eight"));
+    }
+
+    @Test
+    void replacesTheSystemMessage() {
+        memory.add(SystemMessage.from("be brief"));
+        memory.add(UserMessage.from("question"));
+        memory.add(SystemMessage.from("be precise"));
+
+        assertThat(memory.messages()).containsExactly(UserMessage.from("question"), SystemMessage.from("be precise"));
+    }
+
+    @Test
+    void keepsTheNewestMessageEvenWhenItDoesNotFit() {
+        memory.setMaxTokens(5);
+
+        memory.add(UserMessage.from("one"));
+        memory.add(UserMessage.from("a question which is far too long"));
+
+        assertThat(memory.messages()).containsExactly(UserMessage.from("a question which is far too long"));
+    }
+
+    @Test
+    void evictsToolResultsWithTheirRequest() {
+        ToolExecutionRequest request = ToolExecutionRequest.builder().id("1").name("read_file").arguments("{}").build();
+        memory.add(UserMessage.from("read the file"));
+        memory.add(AiMessage.from(request));
+        memory.add(ToolExecutionResultMessage.from(request, "the file content"));
+        memory.add(AiMessage.from("the file is fine"));
+
+        // Only the last answer fits once the user message is gone
+        memory.setMaxTokens(12);
+
+        assertThat(memory.messages()).containsExactly(AiMessage.from("the file is fine"));
+    }
+
+    @Test
+    void shrinksWhenTheBudgetIsLowered() {
+        memory.add(UserMessage.from("one two three four"));
+        memory.add(AiMessage.from("five six seven eight"));
+        assertThat(memory.messages()).hasSize(2);
+
+        memory.setMaxTokens(10);
+
+        assertThat(memory.messages()).containsExactly(AiMessage.from("five six seven eight"));
+        assertThat(memory.getMaxTokens()).isEqualTo(10);
+    }
+
+    @Test
+    void countsTheTokensOfEachMessageOnce() {
+        memory.add(UserMessage.from("one two three four"));
+        memory.add(AiMessage.from("five six seven eight"));
+        memory.messages();
+        memory.tokenCount();
+
+        assertThat(countedTexts).hasValue(2);
+    }
+
+    @Test
+    void evictsByMessageCount() {
+        TokenBudgetChatMemory smallMemory = new TokenBudgetChatMemory("small", new InMemoryChatMemoryStore(), 2, text -> 1);
+
+        smallMemory.add(UserMessage.from("first"));
+        smallMemory.add(AiMessage.from("second"));
+        smallMemory.add(UserMessage.from("third"));
+
+        assertThat(smallMemory.messages()).containsExactly(AiMessage.from("second"), UserMessage.from("third"));
+    }
+}
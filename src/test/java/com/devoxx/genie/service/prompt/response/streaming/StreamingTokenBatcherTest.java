@@ -0,0 +1,80 @@
+package com.devoxx.genie.service.prompt.response.streaming;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingTokenBatcherTest {
+
+    private ScheduledExecutorService scheduler;
+    private final List<String> deliveries = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void tokensWithinOneFrameAreCoalesced() throws InterruptedException {
+        CountDownLatch delivered = new CountDownLatch(1);
+        StreamingTokenBatcher batcher = new StreamingTokenBatcher(100, 10_000, scheduler, Runnable::run, text -> {
+            deliveries.add(text);
+            if (text.endsWith("t49 ")) {
+                delivered.countDown();
+            }
+        });
+
+        for (int i = 0; i < 50; i++) {
+            batcher.append("t" + i + " ");
+        }
+
+        assertThat(delivered.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(batcher.getTokenCount()).isEqualTo(50);
+        // The first token is shown right away, the remaining ones arrive in the next frame
+        assertThat(batcher.getUiUpdateCount()).isLessThanOrEqualTo(2);
+        assertThat(deliveries.get(deliveries.size() - 1)).isEqualTo(batcher.getText());
+    }
+
+    @Test
+    void characterThresholdFlushesBeforeTheFrameEnds() throws InterruptedException {
+        CountDownLatch delivered = new CountDownLatch(1);
+        StreamingTokenBatcher batcher = new StreamingTokenBatcher(60_000, 10, scheduler, Runnable::run, text -> {
+            deliveries.add(text);
+            if (text.equals("first0123456789")) {
+                delivered.countDown();
+            }
+        });
+
+        batcher.append("first");
+        batcher.append("0123456789");
+
+        // Without the threshold the second flush would only happen after one minute
+        assertThat(delivered.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void noDeliveriesAfterClose() throws InterruptedException {
+        StreamingTokenBatcher batcher = new StreamingTokenBatcher(50, 10_000, scheduler, Runnable::run, deliveries::add);
+
+        batcher.close();
+        batcher.append("ignored");
+        Thread.sleep(150);
+
+        assertThat(deliveries).isEmpty();
+        assertThat(batcher.getText()).isEmpty();
+    }
+}
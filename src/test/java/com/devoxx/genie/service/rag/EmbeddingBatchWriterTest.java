@@ -0,0 +1,89 @@
+package com.devoxx.genie.service.rag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class EmbeddingBatchWriterTest {
+
+    private EmbeddingModel embeddingModel;
+    private EmbeddingStore<TextSegment> embeddingStore;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        embeddingModel = mock(EmbeddingModel.class);
+        embeddingStore = mock(EmbeddingStore.class);
+        when(embeddingModel.embedAll(anyList())).thenAnswer(invocation -> {
+            List<TextSegment> segments = invocation.getArgument(0);
+            return Response.from(segments.stream().map(segment -> Embedding.from(new float[]{1f})).toList());
+        });
+    }
+
+    @Test
+    void segmentsAreSentInBatches() throws InterruptedException {
+        EmbeddingBatchWriter writer = new EmbeddingBatchWriter(embeddingModel, embeddingStore, 4, 2);
+
+        List<List<String>> storedFiles = new CopyOnWriteArrayList<>();
+        writer.addFile(segments(6), storedFiles::add);
+        writer.addFile(segments(4), storedFiles::add);
+        writer.close();
+
+        // Two full batches and one partial batch, each file is reported once with all its ids
+        verify(embeddingModel, times(3)).embedAll(anyList());
+        verify(embeddingStore, times(3)).addAll(anyList(), anyList(), anyList());
+        verify(embeddingModel, never()).embed(any(TextSegment.class));
+        assertThat(writer.getStoredSegments()).isEqualTo(10);
+        assertThat(writer.getFailedSegments()).isZero();
+        assertThat(storedFiles).extracting(List::size).containsExactlyInAnyOrder(6, 4);
+    }
+
+    @Test
+    void failedBatchesAreCountedAndDoNotStopIndexing() throws InterruptedException {
+        when(embeddingModel.embedAll(anyList()))
+                .thenThrow(new RuntimeException("Ollama unavailable"))
+                .thenAnswer(invocation -> {
+                    List<TextSegment> segments = invocation.getArgument(0);
+                    return Response.from(segments.stream().map(segment -> Embedding.from(new float[]{1f})).toList());
+                });
+        EmbeddingBatchWriter writer = new EmbeddingBatchWriter(embeddingModel, embeddingStore, 2, 1);
+
+        List<List<String>> storedFiles = new CopyOnWriteArrayList<>();
+        writer.addFile(segments(2), storedFiles::add);
+        writer.addFile(segments(2), storedFiles::add);
+        writer.close();
+
+        // Only the file of the second batch is reported as stored
+        assertThat(writer.getStoredSegments()).isEqualTo(2);
+        assertThat(writer.getFailedSegments()).isEqualTo(2);
+        assertThat(storedFiles).hasSize(1);
+    }
+
+    @Test
+    void emptyFileIsReportedImmediately() throws InterruptedException {
+        EmbeddingBatchWriter writer = new EmbeddingBatchWriter(embeddingModel, embeddingStore, 2, 1);
+
+        List<List<String>> storedFiles = new CopyOnWriteArrayList<>();
+        writer.addFile(List.of(), storedFiles::add);
+        writer.close();
+
+        assertThat(storedFiles).containsExactly(List.of());
+        verifyNoInteractions(embeddingStore);
+    }
+
+    private static List<TextSegment> segments(int count) {
+        return IntStream.range(0, count).mapToObj(i -> TextSegment.from("segment " + i)).toList();
+    }
+}
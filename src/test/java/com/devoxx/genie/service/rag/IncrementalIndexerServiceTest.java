@@ -0,0 +1,73 @@
+package com.devoxx.genie.service.rag;
+
+import com.intellij.openapi.project.Project;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class IncrementalIndexerServiceTest {
+
+    private IncrementalIndexerService indexer;
+
+    @BeforeEach
+    void setUp() {
+        indexer = new IncrementalIndexerService(mock(Project.class));
+    }
+
+    @Test
+    void repeatedChangesAreQueuedOnce() {
+        assertThat(indexer.fileChanged("/project/A.java")).isTrue();
+        assertThat(indexer.fileChanged("/project/A.java")).isFalse();
+
+        IncrementalIndexerService.Changes changes = indexer.takeChanges(10);
+
+        assertThat(changes.changedPaths()).containsExactly("/project/A.java");
+        assertThat(indexer.hasPendingChanges()).isFalse();
+    }
+
+    @Test
+    void latestEventWinsForTheSamePath() {
+        indexer.fileChanged("/project/A.java");
+        indexer.fileRemoved("/project/A.java");
+        indexer.fileRemoved("/project/B.java");
+        indexer.fileChanged("/project/B.java");
+
+        IncrementalIndexerService.Changes changes = indexer.takeChanges(10);
+
+        assertThat(changes.changedPaths()).containsExactly("/project/B.java");
+        assertThat(changes.removedPaths()).containsExactly("/project/A.java");
+    }
+
+    @Test
+    void changedFilesAreTakenInOrderUpToTheBudget() {
+        indexer.fileChanged("/project/A.java");
+        indexer.fileChanged("/project/B.java");
+        indexer.fileChanged("/project/C.java");
+        indexer.fileRemoved("/project/D.java");
+
+        IncrementalIndexerService.Changes first = indexer.takeChanges(2);
+        assertThat(first.changedPaths()).containsExactly("/project/A.java", "/project/B.java");
+        assertThat(first.removedPaths()).containsExactly("/project/D.java");
+        assertThat(indexer.hasPendingChanges()).isTrue();
+
+        IncrementalIndexerService.Changes second = indexer.takeChanges(2);
+        assertThat(second.changedPaths()).containsExactly("/project/C.java");
+        assertThat(second.removedPaths()).isEmpty();
+    }
+
+    @Test
+    void directoriesAreReplacedByTheirFilesBeforeTheBudgetIsTaken() {
+        indexer.fileChanged("/project/A.java");
+        indexer.fileChanged("/project/dir");
+        indexer.fileChanged("/project/B.java");
+
+        indexer.replaceDirectory("/project/dir", List.of("/project/dir/C.java", "/project/dir/D.java"));
+
+        assertThat(indexer.takeChanges(2).changedPaths()).containsExactly("/project/A.java", "/project/dir/C.java");
+        assertThat(indexer.takeChanges(2).changedPaths()).containsExactly("/project/dir/D.java", "/project/B.java");
+    }
+}
@@ -0,0 +1,67 @@
+package com.devoxx.genie.service.rag;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexManifestServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private IndexManifestService manifest;
+
+    @BeforeEach
+    void setUp() {
+        manifest = new IndexManifestService(tempDir.resolve("index-manifest.db"));
+    }
+
+    @Test
+    void entriesAreStoredPerCollection() {
+        manifest.put("project-a", new IndexManifestService.Entry("/a/A.java", 100L, "hash-a", List.of("id1", "id2")));
+        manifest.put("project-b", new IndexManifestService.Entry("/b/B.java", 200L, "hash-b", List.of()));
+
+        Map<String, IndexManifestService.Entry> entries = manifest.getEntries("project-a");
+
+        assertThat(entries).containsOnlyKeys("/a/A.java");
+        assertThat(entries.get("/a/A.java").segmentIds()).containsExactly("id1", "id2");
+        assertThat(manifest.getEntries("project-b").get("/b/B.java").segmentIds()).isEmpty();
+        assertThat(manifest.hasEntries("project-c")).isFalse();
+    }
+
+    @Test
+    void putReplacesTheEntryOfAFile() {
+        manifest.put("project", new IndexManifestService.Entry("/A.java", 100L, "old", List.of("id1")));
+        manifest.put("project", new IndexManifestService.Entry("/A.java", 200L, "new", List.of("id2")));
+
+        IndexManifestService.Entry entry = manifest.getEntries("project").get("/A.java");
+
+        assertThat(entry.lastModified()).isEqualTo(200L);
+        assertThat(entry.contentHash()).isEqualTo("new");
+        assertThat(entry.segmentIds()).containsExactly("id2");
+    }
+
+    @Test
+    void removeDeletesFilesAndCollections() {
+        manifest.put("project", new IndexManifestService.Entry("/A.java", 100L, "a", List.of("id1")));
+        manifest.put("project", new IndexManifestService.Entry("/B.java", 100L, "b", List.of("id2")));
+
+        manifest.remove("project", "/A.java");
+        assertThat(manifest.getEntries("project")).containsOnlyKeys("/B.java");
+
+        manifest.removeCollection("project");
+        assertThat(manifest.hasEntries("project")).isFalse();
+    }
+
+    @Test
+    void hashIsStableAndContentSensitive() {
+        assertThat(IndexManifestService.hash("content")).isEqualTo(IndexManifestService.hash("content"));
+        assertThat(IndexManifestService.hash("content")).isNotEqualTo(IndexManifestService.hash("content!"));
+    }
+}
@@ -0,0 +1,197 @@
+package com.devoxx.genie.service.rag.store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalEmbeddingStoreTest {
+
+    private static final int DIMENSION = 16;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void searchReturnsTheClosestSegments() {
+        LocalEmbeddingStore store = new LocalEmbeddingStore(tempDir);
+        store.addAll(List.of("x", "y", "xy"),
+                List.of(Embedding.from(new float[]{1, 0}), Embedding.from(new float[]{0, 1}), Embedding.from(new float[]{1, 1})),
+                List.of(TextSegment.from("x"), TextSegment.from("y"), TextSegment.from("xy")));
+
+        List<EmbeddingMatch<TextSegment>> matches = store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[]{1, 0.1f}))
+                .maxResults(2)
+                .build()).matches();
+
+        assertThat(matches).extracting(EmbeddingMatch::embeddingId).containsExactly("x", "xy");
+        assertThat(matches.get(0).score()).isGreaterThan(matches.get(1).score());
+    }
+
+    @Test
+    void approximateSearchFindsTheExactNeighbour() {
+        LocalEmbeddingStore store = new LocalEmbeddingStore(tempDir);
+        Random random = new Random(7);
+        List<float[]> vectors = new ArrayList<>();
+        // Above the exact search threshold, so the graph is used
+        for (int batch = 0; batch < 5; batch++) {
+            List<String> ids = new ArrayList<>();
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                float[] vector = randomVector(random);
+                vectors.add(vector);
+                ids.add("id" + (batch * 500 + i));
+                embeddings.add(Embedding.from(vector));
+            }
+            store.addAll(ids, embeddings, null);
+        }
+
+        int found = 0;
+        for (int i = 0; i < 50; i++) {
+            int target = random.nextInt(vectors.size());
+            List<EmbeddingMatch<TextSegment>> matches = store.search(EmbeddingSearchRequest.builder()
+                    .queryEmbedding(Embedding.from(vectors.get(target)))
+                    .maxResults(1)
+                    .build()).matches();
+            if (!matches.isEmpty() && matches.get(0).embeddingId().equals("id" + target)) {
+                found++;
+            }
+        }
+        assertThat(found).isGreaterThanOrEqualTo(48);
+    }
+
+    @Test
+    void entriesSurviveSaveAndReload() {
+        LocalEmbeddingStore store = new LocalEmbeddingStore(tempDir);
+        Metadata metadata = new Metadata().put("filePath", "/project/A.java").put("lastModified", 42L);
+        store.addAll(List.of("a", "b"),
+                List.of(Embedding.from(new float[]{1, 0}), Embedding.from(new float[]{0, 1})),
+                List.of(TextSegment.from("class A", metadata), TextSegment.from("class B")));
+        store.close();
+
+        LocalEmbeddingStore reloaded = new LocalEmbeddingStore(tempDir);
+        List<EmbeddingMatch<TextSegment>> matches = reloaded.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[]{1, 0}))
+                .maxResults(1)
+                .build()).matches();
+
+        assertThat(reloaded.size()).isEqualTo(2);
+        assertThat(matches.get(0).embedded().text()).isEqualTo("class A");
+        assertThat(matches.get(0).embedded().metadata().getString("filePath")).isEqualTo("/project/A.java");
+        assertThat(matches.get(0).embedded().metadata().getLong("lastModified")).isEqualTo(42L);
+        reloaded.close();
+    }
+
+    @Test
+    void removedEntriesAreNotReturned() {
+        LocalEmbeddingStore store = new LocalEmbeddingStore(tempDir);
+        store.addAll(List.of("a", "b"),
+                List.of(Embedding.from(new float[]{1, 0}), Embedding.from(new float[]{0.9f, 0.1f})),
+                List.of(TextSegment.from("a", new Metadata().put("filePath", "A")),
+                        TextSegment.from("b", new Metadata().put("filePath", "B"))));
+
+        store.removeAll(List.of("a"));
+
+        List<EmbeddingMatch<TextSegment>> matches = store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[]{1, 0}))
+                .maxResults(2)
+                .build()).matches();
+        assertThat(matches).extracting(EmbeddingMatch::embeddingId).containsExactly("b");
+
+        List<EmbeddingMatch<TextSegment>> filtered = store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[]{1, 0}))
+                .filter(metadataKey("filePath").isEqualTo("A"))
+                .maxResults(2)
+                .build()).matches();
+        assertThat(filtered).isEmpty();
+    }
+
+    @Test
+    void compactedStoreSurvivesReload() {
+        LocalEmbeddingStore store = new LocalEmbeddingStore(tempDir);
+        store.addAll(List.of("a", "b", "c"),
+                List.of(Embedding.from(new float[]{1, 0}), Embedding.from(new float[]{0, 1}), Embedding.from(new float[]{0.7f, 0.7f})),
+                List.of(TextSegment.from("a"), TextSegment.from("b"), TextSegment.from("c")));
+        store.save();
+
+        // More than half of the entries are removed, the next save rebuilds the store
+        store.removeAll(List.of("a", "c"));
+        store.close();
+
+        assertThat(tempDir.resolve("vectors.bin")).doesNotExist();
+        assertThat(tempDir.resolve("vectors-compacted.bin")).exists();
+
+        LocalEmbeddingStore reloaded = new LocalEmbeddingStore(tempDir);
+        List<EmbeddingMatch<TextSegment>> matches = reloaded.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[]{0, 1}))
+                .maxResults(3)
+                .build()).matches();
+
+        assertThat(reloaded.size()).isEqualTo(1);
+        assertThat(matches).extracting(EmbeddingMatch::embeddingId).containsExactly("b");
+        assertThat(matches.get(0).score()).isGreaterThan(0.99);
+        reloaded.close();
+    }
+
+    @Test
+    void failedCompactionKeepsTheStoreSearchable() throws IOException {
+        LocalEmbeddingStore store = new LocalEmbeddingStore(tempDir);
+        store.addAll(List.of("a", "b", "c"),
+                List.of(Embedding.from(new float[]{1, 0}), Embedding.from(new float[]{0, 1}), Embedding.from(new float[]{0.7f, 0.7f})),
+                List.of(TextSegment.from("a"), TextSegment.from("b"), TextSegment.from("c")));
+        store.save();
+
+        // A directory in place of the compacted vector file makes the rebuild fail
+        Files.createDirectories(tempDir.resolve("vectors-compacted.bin").resolve("in-the-way"));
+        store.removeAll(List.of("a", "c"));
+        store.save();
+
+        List<EmbeddingMatch<TextSegment>> matches = store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[]{0, 1}))
+                .maxResults(3)
+                .build()).matches();
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(matches).extracting(EmbeddingMatch::embeddingId).containsExactly("b");
+        assertThat(tempDir.resolve("vectors.bin")).exists();
+        store.close();
+    }
+
+    @Test
+    void removeAllDeletesTheStoreFiles() {
+        LocalEmbeddingStore store = new LocalEmbeddingStore(tempDir);
+        store.addAll(List.of("a"), List.of(Embedding.from(new float[]{1, 0})), List.of(TextSegment.from("a")));
+        store.save();
+
+        store.removeAll();
+
+        assertThat(store.size()).isZero();
+        assertThat(tempDir.resolve("index.bin")).doesNotExist();
+        assertThat(tempDir.resolve("vectors.bin")).doesNotExist();
+
+        // The store can be filled again after being emptied
+        store.addAll(List.of("b"), List.of(Embedding.from(new float[]{0, 1})), List.of(TextSegment.from("b")));
+        assertThat(store.size()).isEqualTo(1);
+        store.close();
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
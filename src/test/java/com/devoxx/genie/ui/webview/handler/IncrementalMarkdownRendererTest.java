@@ -0,0 +1,67 @@
+package com.devoxx.genie.ui.webview.handler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalMarkdownRendererTest {
+
+    private IncrementalMarkdownRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        renderer = new IncrementalMarkdownRenderer(text -> text.replace("<", "&lt;").replace(">", "&gt;"));
+    }
+
+    @Test
+    void closedBlocksAreAppendedOnlyOnce() {
+        IncrementalMarkdownRenderer.Patch first = renderer.update("First paragraph");
+        assertThat(first.reset()).isFalse();
+        assertThat(first.appendHtml()).isEmpty();
+        assertThat(first.openHtml()).isEqualTo("<p>First paragraph</p>\n");
+
+        IncrementalMarkdownRenderer.Patch second = renderer.update("First paragraph\n\nSecond");
+        assertThat(second.appendHtml()).isEqualTo("<p>First paragraph</p>\n");
+        assertThat(second.openHtml()).isEqualTo("<p>Second</p>\n");
+
+        IncrementalMarkdownRenderer.Patch third = renderer.update("First paragraph\n\nSecond paragraph");
+        assertThat(third.appendHtml()).isEmpty();
+        assertThat(third.openHtml()).isEqualTo("<p>Second paragraph</p>\n");
+    }
+
+    @Test
+    void openFencedCodeBlockStaysOpenUntilClosed() {
+        renderer.update("Intro\n\n```java\nint a = 1;");
+        IncrementalMarkdownRenderer.Patch patch = renderer.update("Intro\n\n```java\nint a = 1;\nint b = 2;");
+        assertThat(patch.appendHtml()).isEmpty();
+        assertThat(patch.openHtml()).contains("int a = 1;\nint b = 2;").startsWith("<pre><code class=\"language-");
+
+        IncrementalMarkdownRenderer.Patch closed = renderer.update("Intro\n\n```java\nint a = 1;\nint b = 2;\n```\n\nDone");
+        assertThat(closed.appendHtml()).contains("int b = 2;").doesNotContain("Intro");
+        assertThat(closed.openHtml()).isEqualTo("<p>Done</p>\n");
+    }
+
+    @Test
+    void incrementalOutputMatchesFullRender() {
+        String text = "# Title\n\nSome *text* here.\n\n- one\n- two\n\n```\ncode <b>\n```\n\nEnd";
+        StringBuilder appended = new StringBuilder();
+        String open = "";
+        for (int i = 1; i <= text.length(); i++) {
+            IncrementalMarkdownRenderer.Patch patch = renderer.update(text.substring(0, i));
+            assertThat(patch.reset()).isFalse();
+            appended.append(patch.appendHtml());
+            open = patch.openHtml();
+        }
+        assertThat(appended + open).isEqualTo(renderer.renderAll(text));
+    }
+
+    @Test
+    void textThatIsNotAContinuationTriggersReset() {
+        renderer.update("Hello\n\nWorld");
+        IncrementalMarkdownRenderer.Patch patch = renderer.update("Goodbye");
+        assertThat(patch.reset()).isTrue();
+        assertThat(patch.appendHtml()).isEmpty();
+        assertThat(patch.openHtml()).isEqualTo("<p>Goodbye</p>\n");
+    }
+}